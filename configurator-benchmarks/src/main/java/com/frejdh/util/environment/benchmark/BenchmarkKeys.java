@@ -0,0 +1,41 @@
+package com.frejdh.util.environment.benchmark;
+
+import java.util.Random;
+
+/**
+ * Pre-built keys of random services of a {@link SyntheticConfig}, so that no strings are concatenated in the measured code.
+ * The services are picked with a fixed seed, to make runs comparable. Not thread-safe, use one instance per thread.
+ */
+final class BenchmarkKeys {
+	private static final int NR_OF_KEYS = 1024;	// Power of two, for the mask below
+
+	static final class ServiceKeys {
+		final String service;
+		final String host;
+		final String port;
+		final String tags;
+		final String missing;
+
+		private ServiceKeys(int service) {
+			this.service = SyntheticConfig.serviceKey(service);
+			this.host = this.service + ".host";
+			this.port = this.service + ".port";
+			this.tags = this.service + ".tags";
+			this.missing = this.service + ".missing";
+		}
+	}
+
+	private final ServiceKeys[] keys = new ServiceKeys[NR_OF_KEYS];
+	private int cursor;
+
+	BenchmarkKeys(int nrOfServices) {
+		Random random = new Random(42);
+		for (int i = 0; i < NR_OF_KEYS; i++) {
+			keys[i] = new ServiceKeys(random.nextInt(nrOfServices));
+		}
+	}
+
+	ServiceKeys next() {
+		return keys[cursor++ & (NR_OF_KEYS - 1)];
+	}
+}
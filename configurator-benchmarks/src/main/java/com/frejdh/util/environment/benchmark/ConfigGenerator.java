@@ -0,0 +1,338 @@
+package com.frejdh.util.environment.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Generates deterministic configuration files of any size and shape, in every supported format. The same settings
+ * give the same keys and values in each format, so the parsers can be compared on equal input.
+ * <br><br>
+ * The keys form a tree with {@link Builder#depth(int) depth} segments per key, where each entry has up to
+ * {@link Builder#fanOut(int) fanOut} children, except the top level which grows with the number of keys.
+ * Keys look like 'group-12.node-3.node-0.key-7'.
+ */
+public final class ConfigGenerator {
+
+	public enum Format {
+		PROPERTIES("properties"), YAML("yml"), JSON("json"), JSON5("json5");
+
+		private final String extension;
+
+		Format(String extension) {
+			this.extension = extension;
+		}
+
+		public String getFilename() {
+			return "generated." + extension;
+		}
+
+		public static Format fromString(String format) {
+			for (Format value : values()) {
+				if (value.name().equalsIgnoreCase(format) || value.extension.equalsIgnoreCase(format)) {
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Unknown format '" + format + "', expected one of " + Arrays.toString(values()));
+		}
+	}
+
+	public enum ValueType {
+		STRING, INTEGER, DECIMAL, BOOLEAN
+	}
+
+	private final int keyCount;
+	private final int depth;
+	private final int fanOut;
+	private final int arrayEvery;
+	private final int arraySize;
+	private final ValueType[] valueTypes;
+
+	private ConfigGenerator(Builder builder) {
+		this.keyCount = builder.keyCount;
+		this.depth = builder.depth;
+		this.fanOut = builder.fanOut;
+		this.arrayEvery = builder.arrayEvery;
+		this.arraySize = builder.arraySize;
+		this.valueTypes = builder.valueTypes;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public int getKeyCount() {
+		return keyCount;
+	}
+
+	/**
+	 * @param index Index of the key, from 0 to {@link #getKeyCount()}
+	 * @return The full key, like 'group-12.node-3.key-7'
+	 */
+	public String getKey(int index) {
+		return String.join(".", getSegments(index));
+	}
+
+	/**
+	 * @return If the key has {@link Builder#arrays(int, int) multiple values} rather than one
+	 */
+	public boolean isArray(int index) {
+		return arrayEvery > 0 && arraySize > 0 && index % arrayEvery == arrayEvery - 1;
+	}
+
+	/**
+	 * @return All keys, in the order they are written
+	 */
+	public List<String> getKeys() {
+		List<String> keys = new ArrayList<>(keyCount);
+		for (int i = 0; i < keyCount; i++) {
+			keys.add(getKey(i));
+		}
+		return keys;
+	}
+
+	/**
+	 * The segments are the digits of the index in base 'fanOut', where the top level has no upper bound.
+	 * Consecutive indexes therefore share their parents, and all children of an entry are written together.
+	 */
+	private String[] getSegments(int index) {
+		String[] segments = new String[depth];
+		int remaining = index;
+		for (int level = depth - 1; level >= 0; level--) {
+			int digit = level > 0 ? remaining % fanOut : remaining;
+			remaining /= fanOut;
+			String prefix = level == depth - 1 ? "key-" : level == 0 ? "group-" : "node-";
+			segments[level] = prefix + digit;
+		}
+		return segments;
+	}
+
+	private ValueType getValueType(int index) {
+		return valueTypes[index % valueTypes.length];
+	}
+
+	private String getValue(int index, int element) {
+		int seed = index * 31 + element;
+		switch (getValueType(index)) {
+			case INTEGER:
+				return String.valueOf(seed % 100_000);
+			case DECIMAL:
+				return (seed % 10_000) + "." + (1 + seed % 9);	// No trailing zeros, which JSON numbers would drop
+			case BOOLEAN:
+				return String.valueOf(seed % 2 == 0);
+			default:
+				return "value-" + seed;
+		}
+	}
+
+	/**
+	 * @return The content of a file with all keys
+	 */
+	public String generate(Format format) {
+		StringBuilder content = new StringBuilder(keyCount * (depth * 10 + 24));
+		switch (format) {
+			case PROPERTIES:
+				writeProperties(content);
+				break;
+			case YAML:
+				writeYaml(content);
+				break;
+			case JSON:
+			case JSON5:
+				writeJson(content, format == Format.JSON5);
+				break;
+		}
+		return content.toString();
+	}
+
+	private void writeProperties(StringBuilder content) {
+		for (int i = 0; i < keyCount; i++) {
+			String key = getKey(i);
+			if (isArray(i)) {
+				for (int element = 0; element < arraySize; element++) {
+					content.append(key).append('[').append(element).append("]=").append(getValue(i, element)).append('\n');
+				}
+			}
+			else {
+				content.append(key).append('=').append(getValue(i, 0)).append('\n');
+			}
+		}
+	}
+
+	private void writeYaml(StringBuilder content) {
+		String[] previous = new String[0];
+		for (int i = 0; i < keyCount; i++) {
+			String[] segments = getSegments(i);
+			for (int level = firstDifferentLevel(previous, segments); level < depth - 1; level++) {
+				indent(content, level).append(segments[level]).append(":\n");
+			}
+
+			indent(content, depth - 1).append(segments[depth - 1]).append(':');
+			if (isArray(i)) {
+				content.append('\n');
+				for (int element = 0; element < arraySize; element++) {
+					indent(content, depth).append("- ").append(getValue(i, element)).append('\n');
+				}
+			}
+			else {
+				content.append(' ').append(getValue(i, 0)).append('\n');
+			}
+			previous = segments;
+		}
+	}
+
+	/**
+	 * JSON, or JSON5 with comments, unquoted keys and single-quoted strings.
+	 */
+	private void writeJson(StringBuilder content, boolean isJson5) {
+		String[] previous = new String[0];
+		content.append('{');
+		for (int i = 0; i < keyCount; i++) {
+			String[] segments = getSegments(i);
+			int firstDifferentLevel = firstDifferentLevel(previous, segments);
+			for (int level = previous.length - 2; level >= firstDifferentLevel; level--) {
+				content.append('\n');
+				indent(content, level + 1).append('}');
+			}
+			if (i > 0) {
+				content.append(',');
+			}
+
+			for (int level = firstDifferentLevel; level < depth - 1; level++) {
+				content.append('\n');
+				if (isJson5 && level == 0) {
+					indent(content, 1).append("// ").append(segments[0]).append('\n');
+				}
+				indent(content, level + 1);
+				appendJsonKey(content, segments[level], isJson5).append(": {");
+			}
+
+			content.append('\n');
+			indent(content, depth);
+			appendJsonKey(content, segments[depth - 1], isJson5).append(": ");
+			if (isArray(i)) {
+				content.append('[');
+				for (int element = 0; element < arraySize; element++) {
+					appendJsonValue(content.append(element > 0 ? ", " : ""), i, element, isJson5);
+				}
+				content.append(']');
+			}
+			else {
+				appendJsonValue(content, i, 0, isJson5);
+			}
+			previous = segments;
+		}
+		for (int level = previous.length - 2; level >= 0; level--) {
+			content.append('\n');
+			indent(content, level + 1).append('}');
+		}
+		content.append("\n}\n");
+	}
+
+	private StringBuilder appendJsonKey(StringBuilder content, String key, boolean isJson5) {
+		return isJson5 ? content.append(key) : content.append('"').append(key).append('"');
+	}
+
+	private void appendJsonValue(StringBuilder content, int index, int element, boolean isJson5) {
+		String value = getValue(index, element);
+		if (getValueType(index) != ValueType.STRING) {
+			content.append(value);
+		}
+		else {
+			char quote = isJson5 ? '\'' : '"';
+			content.append(quote).append(value).append(quote);
+		}
+	}
+
+	/**
+	 * @return The first level where the keys differ, excluding the last segment
+	 */
+	private static int firstDifferentLevel(String[] previous, String[] segments) {
+		int level = 0;
+		while (level < previous.length - 1 && level < segments.length - 1 && previous[level].equals(segments[level])) {
+			level++;
+		}
+		return level;
+	}
+
+	private static StringBuilder indent(StringBuilder content, int level) {
+		for (int i = 0; i < level; i++) {
+			content.append("  ");
+		}
+		return content;
+	}
+
+	public static final class Builder {
+		private int keyCount = 1000;
+		private int depth = 4;
+		private int fanOut = 10;
+		private int arrayEvery = 0;
+		private int arraySize = 0;
+		private ValueType[] valueTypes = ValueType.values();
+
+		private Builder() {
+		}
+
+		/**
+		 * @param keyCount The number of keys, where an array counts as one key. 1000 by default.
+		 */
+		public Builder keyCount(int keyCount) {
+			if (keyCount < 0) {
+				throw new IllegalArgumentException("The key count cannot be negative, but was " + keyCount);
+			}
+			this.keyCount = keyCount;
+			return this;
+		}
+
+		/**
+		 * @param depth The number of segments of each key. 4 by default.
+		 */
+		public Builder depth(int depth) {
+			if (depth < 1) {
+				throw new IllegalArgumentException("The depth must be at least 1, but was " + depth);
+			}
+			this.depth = depth;
+			return this;
+		}
+
+		/**
+		 * @param fanOut The maximum number of children of each entry below the top level. 10 by default.
+		 */
+		public Builder fanOut(int fanOut) {
+			if (fanOut < 1) {
+				throw new IllegalArgumentException("The fan-out must be at least 1, but was " + fanOut);
+			}
+			this.fanOut = fanOut;
+			return this;
+		}
+
+		/**
+		 * @param every Every n:th key is an array. 0 for no arrays, which is the default.
+		 * @param size The number of values of each array
+		 */
+		public Builder arrays(int every, int size) {
+			if (every < 0 || size < 0) {
+				throw new IllegalArgumentException("The array settings cannot be negative, but were " + every + " and " + size);
+			}
+			this.arrayEvery = every;
+			this.arraySize = size;
+			return this;
+		}
+
+		/**
+		 * @param valueTypes The types of the values, used in turn by the keys. All types by default.
+		 */
+		public Builder valueTypes(ValueType... valueTypes) {
+			if (valueTypes.length == 0) {
+				throw new IllegalArgumentException("At least one value type is needed");
+			}
+			this.valueTypes = valueTypes.clone();
+			return this;
+		}
+
+		public ConfigGenerator build() {
+			return new ConfigGenerator(this);
+		}
+	}
+
+}
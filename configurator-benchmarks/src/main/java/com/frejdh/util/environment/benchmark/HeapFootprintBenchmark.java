@@ -0,0 +1,87 @@
+package com.frejdh.util.environment.benchmark;
+
+import com.frejdh.util.environment.storage.map.LinkedPathMultiMap;
+import com.frejdh.util.environment.storage.map.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Measures the retained heap of a large property tree, compared to a flat map of the same properties.
+ * <br><br>
+ * Not a JMH benchmark, since it measures the heap rather than the time. Run with a fixed heap for stable numbers:
+ * {@code java -Xms1g -Xmx1g -cp benchmarks.jar com.frejdh.util.environment.benchmark.HeapFootprintBenchmark [nrOfKeys]}
+ */
+public class HeapFootprintBenchmark {
+	private static final int DEFAULT_NR_OF_KEYS = 200_000;
+	private static final int KEYS_PER_SERVICE = 20;
+	private static final String[] LEAF_NAMES = { "host", "port", "enabled", "timeout" };
+
+	private static Object retained;	// The structure being measured, reachable until the heap after it has been measured
+
+	public static void main(String[] args) {
+		int nrOfKeys = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NR_OF_KEYS;
+
+		long flatMapBytes = measure(nrOfKeys, HeapFootprintBenchmark::createFlatMap);
+		long treeBytes = measure(nrOfKeys, HeapFootprintBenchmark::createTree);
+		long internedTreeBytes = measure(nrOfKeys, HeapFootprintBenchmark::createInternedTree);
+
+		System.out.printf("Keys: %d%n", nrOfKeys);
+		System.out.printf("Flat HashMap:       %,d bytes (%d bytes/key)%n", flatMapBytes, flatMapBytes / nrOfKeys);
+		System.out.printf("LinkedPathMultiMap: %,d bytes (%d bytes/key)%n", treeBytes, treeBytes / nrOfKeys);
+		System.out.printf("With SymbolTable:   %,d bytes (%d bytes/key)%n", internedTreeBytes, internedTreeBytes / nrOfKeys);
+	}
+
+	/**
+	 * Keys like 'services.service-42.endpoint-7.timeout', where the segments repeat like in a generated configuration.
+	 */
+	private static String key(int index) {
+		return "services.service-" + (index / KEYS_PER_SERVICE) + ".endpoint-" + (index % KEYS_PER_SERVICE / 4) + "." + LEAF_NAMES[index % 4];
+	}
+
+	private static Object createFlatMap(int nrOfKeys) {
+		Map<String, List<String>> map = new HashMap<>();
+		for (int i = 0; i < nrOfKeys; i++) {
+			map.put(key(i), new ArrayList<>(Collections.singletonList(String.valueOf(i % 100))));
+		}
+		return map;
+	}
+
+	private static Object createTree(int nrOfKeys) {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>(false, false);
+		for (int i = 0; i < nrOfKeys; i++) {
+			map.put(key(i), String.valueOf(i % 100));
+		}
+		return map;
+	}
+
+	private static Object createInternedTree(int nrOfKeys) {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>(false, false);
+		SymbolTable symbols = new SymbolTable();
+		for (int i = 0; i < nrOfKeys; i++) {
+			map.put(key(i), String.valueOf(i % 100), symbols);
+		}
+		return map;
+	}
+
+	private static long measure(int nrOfKeys, IntFunction<Object> factory) {
+		long before = usedHeap();
+		retained = factory.apply(nrOfKeys);
+		long after = usedHeap();
+		retained = null;
+		return after - before;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
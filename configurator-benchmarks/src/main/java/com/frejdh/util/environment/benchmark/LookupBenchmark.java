@@ -0,0 +1,120 @@
+package com.frejdh.util.environment.benchmark;
+
+import com.frejdh.util.environment.ConfigBatch;
+import com.frejdh.util.environment.ConfigContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups of a loaded configuration. The static 'Config' methods delegate directly to the same {@link ConfigContext} methods,
+ * so a context loaded from a {@link SyntheticConfig} is measured instead of the default files of the classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupBenchmark {
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	public SyntheticConfig.Size size;
+
+	private ConfigContext context;
+	private BenchmarkKeys keys;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		String content = SyntheticConfig.generate(SyntheticConfig.Format.PROPERTIES, size);
+		context = ConfigContext.builder()
+				.withFiles(SyntheticConfig.Format.PROPERTIES.getFilename())
+				.withFileSource(filename -> content)
+				.withRuntimeWatcher(false)
+				.build();
+		keys = new BenchmarkKeys(size.getNrOfServices());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public String getString() {
+		return context.getString(keys.next().host);
+	}
+
+	@Benchmark
+	public Integer getInteger() {
+		return context.getInteger(keys.next().port);
+	}
+
+	@Benchmark
+	public List<String> getList() {
+		return context.getStringList(keys.next().tags);
+	}
+
+	@Benchmark
+	public String getMissing() {
+		return context.getString(keys.next().missing);
+	}
+
+	/**
+	 * Like an optional override, where the default is used.
+	 */
+	@Benchmark
+	public Integer getMissingWithDefault() {
+		return context.get(keys.next().missing, 30, Integer.class);
+	}
+
+	/**
+	 * The settings of a service, read one at a time like a request context builder would. Compare with {@link #getBatch()}.
+	 */
+	@Benchmark
+	public Object[] getSeparately() {
+		BenchmarkKeys.ServiceKeys serviceKeys = keys.next();
+		return new Object[] {
+				context.getString(serviceKeys.host),
+				context.getInteger(serviceKeys.port),
+				context.getStringList(serviceKeys.tags),
+				context.get(serviceKeys.missing, 30, Integer.class)
+		};
+	}
+
+	/**
+	 * The same settings as {@link #getSeparately()}, from a batch that is built and resolved for each call.
+	 */
+	@Benchmark
+	public ConfigBatch.Result getBatch() {
+		BenchmarkKeys.ServiceKeys serviceKeys = keys.next();
+		return context.batch()
+				.getString(serviceKeys.host)
+				.getInteger(serviceKeys.port)
+				.getList(serviceKeys.tags, String.class)
+				.getInteger(serviceKeys.missing, 30)
+				.resolve();
+	}
+
+	/**
+	 * Cached after the first binding of each key, as long as nothing under the key changes.
+	 */
+	@Benchmark
+	public ServiceSettings getObject() {
+		return context.getObject(keys.next().service, ServiceSettings.class);
+	}
+
+}
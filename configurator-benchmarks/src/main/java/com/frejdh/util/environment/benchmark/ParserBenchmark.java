@@ -0,0 +1,55 @@
+package com.frejdh.util.environment.benchmark;
+
+import com.frejdh.util.environment.ParserSelector;
+import com.frejdh.util.environment.parser.AbstractParser;
+import com.frejdh.util.environment.storage.map.SymbolTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each parser on the same generated configuration, with a new symbol table per parse like a load of the files.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+	@Param({"PROPERTIES", "YAML", "JSON"})
+	public SyntheticConfig.Format format;
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	public SyntheticConfig.Size size;
+
+	private AbstractParser parser;
+	private String content;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		parser = ParserSelector.getParser(format.getFilename());
+		content = SyntheticConfig.generate(format, size);
+	}
+
+	@Benchmark
+	public Map<String, List<String>> parse() throws IOException {
+		return parser.toMultiMap(content, new SymbolTable());
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.frejdh.util.environment.benchmark;
+
+import com.frejdh.util.environment.parser.PropertiesParser;
+import com.frejdh.util.environment.storage.map.LinkedPathMultiMap;
+import com.frejdh.util.environment.storage.map.SymbolTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The property tree itself: building it, and reading keys, subtrees and objects from it without any caching.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathMultiMapBenchmark {
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	public SyntheticConfig.Size size;
+
+	private Map<String, List<String>> parsedProperties;
+	private LinkedPathMultiMap<String> map;
+	private LinkedPathMultiMap<String> sealedMap;
+	private BenchmarkKeys keys;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		parsedProperties = PropertiesParser.getSingletonInstance()
+				.toMultiMap(SyntheticConfig.generate(SyntheticConfig.Format.PROPERTIES, size), new SymbolTable());
+		map = put();
+		sealedMap = put();
+		sealedMap.seal();
+		keys = new BenchmarkKeys(size.getNrOfServices());
+	}
+
+	/**
+	 * All keys of the configuration, like a load of the files does.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public LinkedPathMultiMap<String> put() {
+		LinkedPathMultiMap<String> newMap = new LinkedPathMultiMap<>(true, true, true);
+		newMap.putAll(parsedProperties, new SymbolTable());
+		return newMap;
+	}
+
+	@Benchmark
+	public List<String> get() {
+		return map.get(keys.next().host);
+	}
+
+	@Benchmark
+	public List<String> getSealed() {
+		return sealedMap.get(keys.next().host);
+	}
+
+	@Benchmark
+	public LinkedPathMultiMap<String> toMultiMap() {
+		return map.toMultiMap(keys.next().service, String.class);
+	}
+
+	@Benchmark
+	public ServiceSettings toObject() {
+		return map.toObject(keys.next().service, ServiceSettings.class);
+	}
+
+}
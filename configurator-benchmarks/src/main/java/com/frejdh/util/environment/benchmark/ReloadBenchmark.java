@@ -0,0 +1,67 @@
+package com.frejdh.util.environment.benchmark;
+
+import com.frejdh.util.environment.ConfigContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full {@link ConfigContext#refresh(boolean)}: every file is parsed again, the tree is rebuilt, the placeholders are resolved and the tree is sealed.
+ * The files are kept in memory, so that disk I/O is not part of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReloadBenchmark {
+	private static final String PLACEHOLDER_FILE = "placeholders.properties";
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	public SyntheticConfig.Size size;
+
+	private ConfigContext context;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Map<String, String> files = new LinkedHashMap<>();
+		for (SyntheticConfig.Format format : SyntheticConfig.Format.values()) {
+			files.put(format.getFilename(), SyntheticConfig.generate(format, size));
+		}
+		files.put(PLACEHOLDER_FILE, "greeting.name=World\ngreeting.text=Hello ${greeting.name}!\n"
+				+ "first.host=${" + SyntheticConfig.serviceKey(0) + ".host}:${" + SyntheticConfig.serviceKey(0) + ".port}");
+
+		context = ConfigContext.builder()
+				.withFiles(files.keySet().toArray(new String[0]))
+				.withFileSource(files::get)
+				.withRuntimeWatcher(false)
+				.build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public ConfigContext refresh() {
+		context.refresh(true);
+		return context;
+	}
+
+}
@@ -0,0 +1,211 @@
+package com.frejdh.util.environment.benchmark;
+
+import com.frejdh.util.environment.ConfigContext;
+import com.frejdh.util.environment.ParserSelector;
+import com.frejdh.util.environment.parser.AbstractParser;
+import com.frejdh.util.environment.storage.map.SymbolTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Loads generated configurations of growing sizes, and reports how the parse time, load time, heap, lookup latency and
+ * reload time scale with the number of keys. Each row has the scaling exponent against the row before it, where 1.0 is linear
+ * and 2.0 is quadratic, so that super-linear work is visible at a glance.
+ * <br><br>
+ * Not a JMH benchmark, the sizes are too large for repeated forks. Run with a fixed heap for stable numbers:
+ * {@code java -Xms4g -Xmx4g -cp benchmarks.jar com.frejdh.util.environment.benchmark.ScaleHarness [key=value...]}
+ * <ul>
+ *     <li>format: properties, yml, json, json5 or all. Default properties.</li>
+ *     <li>keys: comma-separated key counts. Default 1000,10000,100000,1000000.</li>
+ *     <li>depths: comma-separated number of segments per key. Default 4.</li>
+ *     <li>fanOut: the number of children of each entry. Default 10.</li>
+ *     <li>arrayEvery and arraySize: every n:th key is an array of the size. Default 10 and 3.</li>
+ *     <li>lookups: the number of timed lookups per size. Default 200000.</li>
+ * </ul>
+ */
+public class ScaleHarness {
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+	private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+	private final Map<String, String> settings;
+
+	private ScaleHarness(Map<String, String> settings) {
+		this.settings = settings;
+	}
+
+	public static void main(String[] args) throws IOException {
+		Map<String, String> settings = new LinkedHashMap<>();
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (separator <= 0) {
+				throw new IllegalArgumentException("Arguments must be like 'key=value', but got '" + arg + "'");
+			}
+			settings.put(arg.substring(0, separator).trim(), arg.substring(separator + 1).trim());
+		}
+		new ScaleHarness(settings).run();
+	}
+
+	private void run() throws IOException {
+		String formatSetting = settings.getOrDefault("format", "properties");
+		List<ConfigGenerator.Format> formats = formatSetting.equalsIgnoreCase("all")
+				? Arrays.asList(ConfigGenerator.Format.values())
+				: Arrays.asList(ConfigGenerator.Format.fromString(formatSetting));
+
+		for (ConfigGenerator.Format format : formats) {
+			for (int depth : getIntegers("depths", "4")) {
+				System.out.printf("%nFormat %s, depth %d, fan-out %d%n", format, depth, getInteger("fanOut", 10));
+				System.out.printf("%10s %10s %10s %10s %10s %10s %8s %8s %8s   %s%n",
+						"keys", "parse ms", "load ms", "reload ms", "heap MB", "bytes/key", "p50 ns", "p99 ns", "p99.9 ns", "exponents (parse, load, reload, heap)");
+
+				Measurement previous = null;
+				for (int keyCount : getIntegers("keys", "1000,10000,100000,1000000")) {
+					Measurement measurement = measure(format, depth, keyCount);
+					System.out.println(measurement.toRow(previous));
+					previous = measurement;
+				}
+			}
+		}
+	}
+
+	private Measurement measure(ConfigGenerator.Format format, int depth, int keyCount) throws IOException {
+		ConfigGenerator generator = ConfigGenerator.builder()
+				.keyCount(keyCount)
+				.depth(depth)
+				.fanOut(getInteger("fanOut", 10))
+				.arrays(getInteger("arrayEvery", 10), getInteger("arraySize", 3))
+				.build();
+		String content = generator.generate(format);
+		Measurement measurement = new Measurement(keyCount);
+		int repetitions = keyCount >= 500_000 ? 1 : 3;	// Best of the repetitions, without spending minutes on the largest sizes
+
+		AbstractParser parser = ParserSelector.getParser(format.getFilename());
+		measurement.parseNanos = Long.MAX_VALUE;
+		for (int i = 0; i < repetitions; i++) {
+			long start = System.nanoTime();
+			parser.toMultiMap(content, new SymbolTable());
+			measurement.parseNanos = Math.min(measurement.parseNanos, System.nanoTime() - start);
+		}
+
+		long heapBefore = usedHeap();
+		long start = System.nanoTime();
+		try (ConfigContext context = ConfigContext.builder()
+				.withFiles(format.getFilename())
+				.withFileSource(filename -> filename.equals(format.getFilename()) ? content : null)
+				.withRuntimeWatcher(false)
+				.build()) {
+			measurement.loadNanos = System.nanoTime() - start;
+			measurement.heapBytes = usedHeap() - heapBefore;
+			measureLookups(context, generator, measurement);
+
+			measurement.reloadNanos = Long.MAX_VALUE;
+			for (int i = 0; i < repetitions; i++) {
+				start = System.nanoTime();
+				context.refresh(true);
+				measurement.reloadNanos = Math.min(measurement.reloadNanos, System.nanoTime() - start);
+			}
+		}
+		return measurement;
+	}
+
+	/**
+	 * Time each lookup of random existing keys. Includes the overhead of {@link System#nanoTime()}, which is the same for all sizes.
+	 */
+	private void measureLookups(ConfigContext context, ConfigGenerator generator, Measurement measurement) {
+		int nrOfLookups = getInteger("lookups", 200_000);
+		String[] keys = new String[Math.min(4096, generator.getKeyCount())];
+		Random random = new Random(42);
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = generator.getKey(random.nextInt(generator.getKeyCount()));
+		}
+
+		for (int i = 0; i < nrOfLookups / 10; i++) {	// Warm up
+			context.getString(keys[i % keys.length]);
+		}
+		long[] latencies = new long[nrOfLookups];
+		int nrOfMisses = 0;
+		for (int i = 0; i < nrOfLookups; i++) {
+			long start = System.nanoTime();
+			String value = context.getString(keys[i % keys.length]);
+			latencies[i] = System.nanoTime() - start;
+			nrOfMisses += value == null ? 1 : 0;
+		}
+		if (nrOfMisses > 0) {
+			throw new IllegalStateException(nrOfMisses + " lookups of generated keys found no value");
+		}
+
+		Arrays.sort(latencies);
+		measurement.p50Nanos = percentile(latencies, 0.50);
+		measurement.p99Nanos = percentile(latencies, 0.99);
+		measurement.p999Nanos = percentile(latencies, 0.999);
+	}
+
+	private static long percentile(long[] sortedValues, double percentile) {
+		return sortedValues.length > 0 ? sortedValues[Math.min(sortedValues.length - 1, (int) (sortedValues.length * percentile))] : 0;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private int getInteger(String name, int defaultValue) {
+		String value = settings.get(name);
+		return value != null ? Integer.parseInt(value.replace("_", "")) : defaultValue;
+	}
+
+	private List<Integer> getIntegers(String name, String defaultValue) {
+		List<Integer> values = new ArrayList<>();
+		for (String value : settings.getOrDefault(name, defaultValue).split(",")) {
+			values.add(Integer.parseInt(value.trim().replace("_", "")));
+		}
+		return values;
+	}
+
+	private static final class Measurement {
+		private final int keyCount;
+		private long parseNanos;
+		private long loadNanos;
+		private long reloadNanos;
+		private long heapBytes;
+		private long p50Nanos;
+		private long p99Nanos;
+		private long p999Nanos;
+
+		private Measurement(int keyCount) {
+			this.keyCount = keyCount;
+		}
+
+		private String toRow(Measurement previous) {
+			String row = String.format(Locale.ROOT, "%,10d %10.1f %10.1f %10.1f %10.1f %10d %8d %8d %8d",
+					keyCount, parseNanos / NANOS_PER_MILLI, loadNanos / NANOS_PER_MILLI, reloadNanos / NANOS_PER_MILLI,
+					heapBytes / BYTES_PER_MEGABYTE, heapBytes / Math.max(1, keyCount), p50Nanos, p99Nanos, p999Nanos);
+			if (previous == null) {
+				return row;
+			}
+			return row + String.format(Locale.ROOT, "   %.2f, %.2f, %.2f, %.2f",
+					exponent(previous, previous.parseNanos, parseNanos), exponent(previous, previous.loadNanos, loadNanos),
+					exponent(previous, previous.reloadNanos, reloadNanos), exponent(previous, previous.heapBytes, heapBytes));
+		}
+
+		/**
+		 * @return The exponent 'k' in 'value = c * keys^k' between the two measurements
+		 */
+		private double exponent(Measurement previous, long previousValue, long value) {
+			if (previousValue <= 0 || value <= 0 || previous.keyCount == keyCount) {
+				return Double.NaN;
+			}
+			return Math.log((double) value / previousValue) / Math.log((double) keyCount / previous.keyCount);
+		}
+	}
+
+}
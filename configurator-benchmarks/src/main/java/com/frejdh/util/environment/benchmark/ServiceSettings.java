@@ -0,0 +1,54 @@
+package com.frejdh.util.environment.benchmark;
+
+import java.util.List;
+
+/**
+ * The object bound from each 'services.service-N' of a {@link SyntheticConfig}.
+ */
+public class ServiceSettings {
+	private String host;
+	private int port;
+	private boolean enabled;
+	private int timeout;
+	private List<String> tags;
+
+	public String getHost() {
+		return host;
+	}
+
+	public void setHost(String host) {
+		this.host = host;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public void setPort(int port) {
+		this.port = port;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(int timeout) {
+		this.timeout = timeout;
+	}
+
+	public List<String> getTags() {
+		return tags;
+	}
+
+	public void setTags(List<String> tags) {
+		this.tags = tags;
+	}
+}
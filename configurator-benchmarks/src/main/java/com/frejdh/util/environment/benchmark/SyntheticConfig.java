@@ -0,0 +1,97 @@
+package com.frejdh.util.environment.benchmark;
+
+/**
+ * Generates configuration files like a generated service registry, in each supported format. Every service has the keys
+ * 'services.service-N.host', 'port', 'enabled', 'timeout' and the list 'tags', so the same keys can be looked up in any size.
+ */
+public final class SyntheticConfig {
+	public static final int KEYS_PER_SERVICE = 5;
+
+	public enum Size {
+		SMALL(10), MEDIUM(1_000), HUGE(50_000);
+
+		private final int nrOfServices;
+
+		Size(int nrOfServices) {
+			this.nrOfServices = nrOfServices;
+		}
+
+		public int getNrOfServices() {
+			return nrOfServices;
+		}
+	}
+
+	public enum Format {
+		PROPERTIES("properties"), YAML("yml"), JSON("json");
+
+		private final String extension;
+
+		Format(String extension) {
+			this.extension = extension;
+		}
+
+		public String getFilename() {
+			return "synthetic." + extension;
+		}
+	}
+
+	private SyntheticConfig() {
+	}
+
+	public static String serviceKey(int service) {
+		return "services.service-" + service;
+	}
+
+	public static String generate(Format format, Size size) {
+		return generate(format, size.getNrOfServices());
+	}
+
+	/**
+	 * @param format The format of the file
+	 * @param nrOfServices The number of services, each with {@link #KEYS_PER_SERVICE} keys
+	 * @return The content of the file
+	 */
+	public static String generate(Format format, int nrOfServices) {
+		StringBuilder content = new StringBuilder(nrOfServices * 160);
+		switch (format) {
+			case PROPERTIES:
+				for (int i = 0; i < nrOfServices; i++) {
+					String key = serviceKey(i);
+					content.append(key).append(".host=host-").append(i).append(".example.com\n")
+							.append(key).append(".port=").append(8000 + i % 1000).append('\n')
+							.append(key).append(".enabled=").append(i % 2 == 0).append('\n')
+							.append(key).append(".timeout=").append(i % 60).append('\n')
+							.append(key).append(".tags[0]=zone-").append(i % 3).append('\n')
+							.append(key).append(".tags[1]=tier-").append(i % 5).append('\n');
+				}
+				break;
+			case YAML:
+				content.append("services:\n");
+				for (int i = 0; i < nrOfServices; i++) {
+					content.append("  service-").append(i).append(":\n")
+							.append("    host: host-").append(i).append(".example.com\n")
+							.append("    port: ").append(8000 + i % 1000).append('\n')
+							.append("    enabled: ").append(i % 2 == 0).append('\n')
+							.append("    timeout: ").append(i % 60).append('\n')
+							.append("    tags[0]: zone-").append(i % 3).append('\n')
+							.append("    tags[1]: tier-").append(i % 5).append('\n');
+				}
+				break;
+			case JSON:
+				content.append("{\"services\": {\n");
+				for (int i = 0; i < nrOfServices; i++) {
+					content.append(i > 0 ? ",\n" : "")
+							.append("  \"service-").append(i).append("\": {")
+							.append("\"host\": \"host-").append(i).append(".example.com\", ")
+							.append("\"port\": ").append(8000 + i % 1000).append(", ")
+							.append("\"enabled\": ").append(i % 2 == 0).append(", ")
+							.append("\"timeout\": ").append(i % 60).append(", ")
+							.append("\"tags\": [\"zone-").append(i % 3).append("\", \"tier-").append(i % 5).append("\"]}");
+				}
+				content.append("\n}}\n");
+				break;
+		}
+		return content.toString();
+	}
+
+}
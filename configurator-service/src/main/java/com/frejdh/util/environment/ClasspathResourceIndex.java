@@ -0,0 +1,113 @@
+package com.frejdh.util.environment;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers which configuration resources exist on the class path, so that each name is only searched for in the jars once.
+ * Probing for files that don't exist, like the Spring profile files, otherwise searches every jar of the class path again
+ * for each context and reload.
+ * <br><br>
+ * Jars don't change while running, but files can be added to the class path directories later (for instance by the tests).
+ * A name that wasn't found is therefore still looked up in the directories, which is cheap compared to searching the jars.
+ */
+final class ClasspathResourceIndex {
+	private final ClassLoader classLoader;
+	private final List<Path> directories;
+	private final ConcurrentMap<String, Boolean> isFoundByName = new ConcurrentHashMap<>();
+
+	private static final class Holder {
+		private static final ClasspathResourceIndex INSTANCE = new ClasspathResourceIndex(FileUtils.class.getClassLoader());
+	}
+
+	/**
+	 * @param classLoader The class loader that the resources are loaded with. Its directories are looked up once.
+	 */
+	ClasspathResourceIndex(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+		this.directories = getDirectories(classLoader);
+	}
+
+	/**
+	 * @return The index of the class loader of the library
+	 */
+	static ClasspathResourceIndex getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * @return The directories of the class path, or null if the class loader has roots that aren't directories or jars
+	 */
+	private static List<Path> getDirectories(ClassLoader classLoader) {
+		if (classLoader == null) {
+			return null;
+		}
+
+		List<Path> directories = new ArrayList<>();
+		try {
+			Enumeration<URL> roots = classLoader.getResources("");	// The directories, and the roots of some jars and JDK modules
+			while (roots.hasMoreElements()) {
+				URL root = roots.nextElement();
+				if ("file".equals(root.getProtocol())) {
+					directories.add(Paths.get(root.toURI()));
+				}
+				else if (!"jar".equals(root.getProtocol()) && !"jrt".equals(root.getProtocol())) {
+					return null;	// Unknown roots could change, while jars and the JDK's modules don't
+				}
+			}
+		} catch (IOException | URISyntaxException | IllegalArgumentException e) {	// Also invalid paths
+			return null;
+		}
+		return Collections.unmodifiableList(directories);
+	}
+
+	/**
+	 * @param name The name of the resource, relative to the class path
+	 * @return False if the resource doesn't exist, or true if it exists or the index can't tell
+	 */
+	boolean mightExist(String name) {
+		if (directories == null) {
+			return true;
+		}
+
+		String resourceName = name.startsWith("/") ? name.substring(1) : name;
+		Boolean isFound = isFoundByName.get(resourceName);
+		if (isFound == null) {
+			isFound = classLoader.getResource(resourceName) != null;
+			isFoundByName.put(resourceName, isFound);
+		}
+		return isFound || existsInDirectories(resourceName);
+	}
+
+	private boolean existsInDirectories(String resourceName) {
+		try {
+			for (Path directory : directories) {
+				if (Files.exists(directory.resolve(resourceName))) {
+					return true;
+				}
+			}
+		} catch (InvalidPathException e) {
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return If the resources of the class loader can be remembered
+	 */
+	boolean isIndexed() {
+		return directories != null;
+	}
+
+}
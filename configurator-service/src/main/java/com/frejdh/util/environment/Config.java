@@ -1,28 +1,19 @@
 package com.frejdh.util.environment;
 
-import com.frejdh.util.environment.storage.map.LinkedPathMultiMap;
-import com.frejdh.util.watcher.StorageWatcher;
-import com.frejdh.util.watcher.StorageWatcherBuilder;
+import com.frejdh.util.environment.change.ChangePublisher;
+import com.frejdh.util.environment.metrics.ConfigMetrics;
+import com.frejdh.util.environment.storage.map.PathQuery;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.lang.NonNull;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.StandardWatchEventKinds;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.Spliterator;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import static com.frejdh.util.environment.parser.AbstractParser.ARRAY_PATTERN_FOR_KEY;
 
 /**
  * Handles different environment variables set by different frameworks. Currently handles: <br>
@@ -30,200 +21,112 @@ import static com.frejdh.util.environment.parser.AbstractParser.ARRAY_PATTERN_FO
  * - Spring-boot (application[-profile].properties|yml) <br>
  * - Vertx (conf/config.json & conf/config.json5) <br>
  * - Additionally set configuration files (.properties|yml|json|json5)
+ * <br><br>
+ * The static methods are backed by a default {@link ConfigContext}. Create other contexts with {@link ConfigContext#builder()}
+ * for independent configurations, like one per tenant or test.
  */
 @SuppressWarnings({"SameParameterValue", "unused"})
 public class Config {
 	private static final Logger LOGGER = Logger.getLogger(Config.class.getName());
-	private static final String ADDITIONAL_CONFIG_FILES = "config.sources";
-	private static final String ADDITIONAL_CONFIG_FILES_SPRING = "spring.additional-files";
-
-	private static volatile boolean isInitialized = false;
-	//private static final PropertiesWrapper environmentVariables = new PropertiesWrapper(System.getProperties());
-	private static final LinkedPathMultiMap<String> properties = new LinkedPathMultiMap<>();
-	private static final Set<String> filesToLoad = new LinkedHashSet<>();
-	private static volatile boolean isRuntimeEnabled;
-	private static volatile StorageWatcher storageWatcher = null;
+	private static final ConfigContext DEFAULT_CONTEXT;
 
 	static {
-		init();
-	}
-
-	private static void init() {
 		LOGGER.setLevel(Level.ALL);
-		setDefaultFilesToLoad();
-		refresh(true);
-		initRuntimeWatcher();
-	}
-
-	private static void initRuntimeWatcher() {
-		if (get("config.runtime.enabled", false, Boolean.class, false)) {
-			long interval = get("config.runtime.interval.value", 10L, Long.class, false);
-			String unit = get("config.runtime.interval.unit", TimeUnit.SECONDS.name(), String.class, false);
-
-			if (Config.storageWatcher != null) {  // Only needed for the tests as this method can be called multiple times there.
-				Config.storageWatcher.stop();
-			}
-
-			Config.storageWatcher = StorageWatcherBuilder.getBuilder()
-					.interval(interval, TimeUnit.valueOf(unit.toUpperCase()))
-					.watchFiles(filesToLoad)
-					.specifyEvents(StandardWatchEventKinds.ENTRY_MODIFY)
-					.onChanged((directory, filename) -> {
-						LOGGER.info("Detected change in '" + filename + "'. Refreshing...");
-						loadVariablesFromFile(directory + File.separator + filename);
-					})
-					.build();
-			Config.storageWatcher.start();
-		}
+		DEFAULT_CONTEXT = ConfigContext.builder()
+				.withName("default")
+				.withDefaultFiles()
+				.withSystemProperties()
+				.build();
 	}
 
 	/**
-	 * Set the default files to load
+	 * Load the default context again, including default files for a changed Spring profile. Used by the tests.
 	 */
-	private static void setDefaultFilesToLoad() {
-		// Spring
-		filesToLoad.add("application.properties");
-		filesToLoad.add("application.yml");
-		filesToLoad.addAll(getSpringProfileFilenames());
-
-		// Vertx
-		filesToLoad.add("conf/config.json");
-		filesToLoad.add("conf/config.json5");
-	}
-
-	private static List<String> getSpringProfileFilenames() {
-		List<String> filenames = new ArrayList<>();
-		String springProfileArgument = System.getProperty("spring.profiles.active", "");
-		List<String> springProfiles = springProfileArgument.contains(",")
-				? Arrays.asList(springProfileArgument.split("\\s*,\\s*"))
-				: Collections.singletonList(springProfileArgument);
-
-		springProfiles.forEach(profile -> {
-			filenames.add(String.format("application-%s.properties", profile));
-			filenames.add(String.format("application-%s.yml", profile));
-		});
-
-		return filenames;
-	}
-
-	private static void loadVariablesFromAdditionalFiles() {
-		List<String> additionalFilenames = getAdditionalConfigFilesByEnvName(ADDITIONAL_CONFIG_FILES);
-		additionalFilenames.addAll(getAdditionalConfigFilesByEnvName(ADDITIONAL_CONFIG_FILES_SPRING));
-
-		Iterator<String> iter = additionalFilenames.iterator();
-		while (iter.hasNext()) {
-			String filename = iter.next();
-
-			if (!loadVariablesFromFile(filename)) {
-				LOGGER.log(Level.WARNING, "Couldn't load the configuration file '" + filename + "'.");
-				iter.remove();
-			}
-		}
-		filesToLoad.addAll(additionalFilenames);
-
-	}
-
-	private static List<String> getAdditionalConfigFilesByEnvName(String envName) {
-		return ConversionUtils.getStringAsList(get(envName, "", String.class, false, false), ",")
-				.stream().filter(str -> str != null && !str.isEmpty()).map(String::trim).collect(Collectors.toList());
+	private static void init() {
+		DEFAULT_CONTEXT.addFilesToLoad(ConfigContext.getDefaultFilenames());
+		DEFAULT_CONTEXT.refresh(true);
+		DEFAULT_CONTEXT.initRuntimeWatcher();
 	}
 
-	public static void refresh(boolean force) {
-		if (force || !isInitialized()) {
-			synchronized (Config.class) {
-				if (!force && isInitialized())
-					return;
-
-				properties.clear();
-				loadVariablesFromFiles();
-				loadVariablesFromAdditionalFiles();
-				loadVariablesFromProgram();
-				isInitialized = true;
-			}
-		}
+	/**
+	 * Temporarily override properties of the default context, see {@link ConfigContext#pushOverlay(Map)}.
+	 * @param overlayProperties The properties to override, with all of their values. Null or no values removes the property while the overlay is open.
+	 * @return The overlay, which restores the previous values when closed
+	 */
+	public static PropertyOverlay pushOverlay(Map<String, List<String>> overlayProperties) {
+		return DEFAULT_CONTEXT.pushOverlay(overlayProperties);
 	}
 
-	private static synchronized boolean isInitialized() {
-		return isInitialized;
+	/**
+	 * @return The context that the static methods are backed by
+	 */
+	public static ConfigContext getDefaultContext() {
+		return DEFAULT_CONTEXT;
 	}
 
-	private static synchronized void setInitialized(boolean isInitialized) {
-		Config.isInitialized = isInitialized;
+	/**
+	 * @return The metrics of the default context, enabled with 'config.metrics.enabled', or {@link ConfigMetrics#NONE}
+	 */
+	public static ConfigMetrics getMetrics() {
+		return DEFAULT_CONTEXT.getMetrics();
 	}
 
-	public static synchronized boolean isRuntimeEnabled() {
-		return isRuntimeEnabled;
+	/**
+	 * @return The time spent probing, reading, parsing and merging the files of the default context when the class was loaded
+	 */
+	public static StartupReport getStartupReport() {
+		return DEFAULT_CONTEXT.getStartupReport();
 	}
 
-	private static synchronized void setRuntimeEnabled(boolean isRuntimeEnabled) {
-		Config.isRuntimeEnabled = isRuntimeEnabled;
+	/**
+	 * A Reactive Streams publisher of the changes to the properties under a prefix, see {@link ConfigContext#changes(String)}.
+	 * @param prefix The prefix of the keys, or null or empty for all properties
+	 * @return The publisher of the prefix
+	 */
+	public static ChangePublisher changes(String prefix) {
+		return DEFAULT_CONTEXT.changes(prefix);
 	}
 
-	private static void loadVariablesFromFiles() {
-		// Load files. Also remove the file from the list if it doesn't exist.
-		filesToLoad.removeIf(filename -> !loadVariablesFromFile(filename));
+	/**
+	 * Start a batch of lookups in the default context, which are resolved together from the same state of the properties.
+	 * See {@link ConfigBatch}.
+	 * @return A new, empty batch
+	 */
+	public static ConfigBatch batch() {
+		return DEFAULT_CONTEXT.batch();
 	}
 
-	private static boolean loadVariablesFromFile(String filename) {
-		try {
-			String fileContent = FileUtils.getResourceFile(filename);
-			if (fileContent == null) { // If file doesn't exist, remove it
-				return false;
-			}
-
-			Map<String, List<String>> newProperties = ParserSelector.getParser(filename).toMultiMap(fileContent);
-			// Config.environmentVariables.setProperties(newProperties);
-			Config.properties.putAll(newProperties);
-			LOGGER.log(Level.FINE, "New properties added from file '" + filename + "'. List of added keys: " + newProperties.keySet());
-			return true;
-		} catch (IOException e) {
-			LOGGER.log(Level.WARNING, "Couldn't load the file '" + filename + "'. Reason: " + e.getMessage());
-		}
-
-		return false;
+	/**
+	 * Read related properties of the default context from one state of the configuration, see {@link ConfigContext#read(Function)}.
+	 * @param reader Reads the properties from the snapshot
+	 * @return The result of the reader
+	 */
+	public static <R> R read(Function<ConfigSnapshot, R> reader) {
+		return DEFAULT_CONTEXT.read(reader);
 	}
 
-	private static void loadVariablesFromProgram() {
-		Set<String> programProperties = System.getProperties().stringPropertyNames();
-		for (String propertyName : programProperties) {
-//			environmentVariables.setProperty(propertyName, System.getProperty(propertyName));
-			properties.put(propertyName, System.getProperty(propertyName));
-		}
-		LOGGER.fine("New properties added from program. List of added keys: " + programProperties);
+	/**
+	 * @return The latest published state of the default context, see {@link ConfigContext#snapshot()}
+	 */
+	public static ConfigSnapshot snapshot() {
+		return DEFAULT_CONTEXT.snapshot();
 	}
 
-	private static void waitForInitialization() {
-		// Check that everything is initialized first!
-		if (!isInitialized()) {
-			try {
-				Thread.sleep(100);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-			waitForInitialization();
-		}
+	/**
+	 * The generation of the latest state of the default context, which is increased by every reload and change.
+	 * A single volatile read, for checking if anything has changed.
+	 * @return The generation, or 0 before the first load
+	 */
+	public static long generation() {
+		return DEFAULT_CONTEXT.generation();
 	}
 
-	private static <T> T get(String key, Class<T> returnType, boolean isRuntimeEnabled, boolean waitForInitialization) throws IllegalArgumentException {
-		if (waitForInitialization) {
-			waitForInitialization();
-		}
-
-//		String stringValue = environmentVariables.getProperty(key);
-		String keyArrayIndex = key.matches(ARRAY_PATTERN_FOR_KEY.pattern()) ? key.substring(key.lastIndexOf("[") + 1, key.lastIndexOf("]")) : null;
-		String stringValue = keyArrayIndex != null ? properties.getByIndex(key, Integer.parseInt(keyArrayIndex)) : properties.getLast(key);
-		if (stringValue != null) {
-//			stringValues = stringValues.stream().map(val -> val.replaceAll("(^\")|(\"$)", "")).collect(Collectors.toList());
-			LOGGER.fine("Getting configuration '" + key + "'. Got: '" + stringValue + "'");
-			return ConversionUtils.convertStringToType(stringValue, returnType);
-		}
-
-		return null;
+	public static void refresh(boolean force) {
+		DEFAULT_CONTEXT.refresh(force);
 	}
 
-	// Internal. Set if the property should be fetched runtime or not.
-	private static <T> T get(String key, Class<T> returnType, boolean isRuntimeEnabled) throws IllegalArgumentException {
-		return get(key, returnType, isRuntimeEnabled, true);
+	public static boolean isRuntimeEnabled() {
+		return DEFAULT_CONTEXT.isRuntimeEnabled();
 	}
 
 	/**
@@ -235,18 +138,7 @@ public class Config {
 	 * @throws IllegalArgumentException If the class was not supported
 	 */
 	public static <T> T get(String key, Class<T> returnType) throws IllegalArgumentException {
-		return get(key, returnType, Config.isRuntimeEnabled);
-	}
-
-	// Internal. Set if the property should be fetched runtime or not.
-	private static <T> T get(String key, T defaultValue, Class<T> returnType, boolean isRuntimeEnabled, boolean waitForInitialization) throws IllegalArgumentException {
-		T result = get(key, returnType, isRuntimeEnabled, waitForInitialization);
-		return result != null ? result : ConversionUtils.convertStringToType(defaultValue.toString(), returnType);
-	}
-
-	// Internal. Set if the property should be fetched runtime or not.
-	private static <T> T get(String key, T defaultValue, Class<T> returnType, boolean isRuntimeEnabled) throws IllegalArgumentException {
-		return get(key, defaultValue, returnType, isRuntimeEnabled, true);
+		return DEFAULT_CONTEXT.get(key, returnType);
 	}
 
 	/**
@@ -259,7 +151,7 @@ public class Config {
 	 * @throws IllegalArgumentException If the class was not supported
 	 */
 	public static <T> T get(String key, T defaultValue, Class<T> returnType) throws IllegalArgumentException {
-		return get(key, defaultValue, returnType, Config.isRuntimeEnabled);
+		return DEFAULT_CONTEXT.get(key, defaultValue, returnType);
 	}
 
 	/**
@@ -271,7 +163,7 @@ public class Config {
 	 * @throws IllegalArgumentException If the class was not supported
 	 */
 	public static <T> Optional<T> getOptional(String key, Class<T> returnType) throws IllegalArgumentException {
-		return Optional.ofNullable(get(key, returnType, Config.isRuntimeEnabled));
+		return DEFAULT_CONTEXT.getOptional(key, returnType);
 	}
 
 	/**
@@ -282,12 +174,7 @@ public class Config {
 	 * @return The properties or empty list if none was found
 	 */
 	public static <T> List<T> getList(String key, Class<T> subType) {
-		List<String> stringValues = properties.get(key);
-		if (stringValues != null && !stringValues.isEmpty()) {
-			LOGGER.fine("Getting configuration '" + key + "'. Got: '" + stringValues + "'");
-			return ConversionUtils.convertListStringToSubType(stringValues, subType);
-		}
-		return new ArrayList<>();
+		return DEFAULT_CONTEXT.getList(key, subType);
 	}
 
 	/**
@@ -299,8 +186,7 @@ public class Config {
 	 * @throws IllegalArgumentException If the class was not supported
 	 */
 	public static <T> Optional<List<T>> getOptionalList(String key, Class<T> subType) {
-		List<T> list = getList(key, subType);
-		return Optional.ofNullable(!list.isEmpty() ? list : null);
+		return DEFAULT_CONTEXT.getOptionalList(key, subType);
 	}
 
 	/**
@@ -310,7 +196,7 @@ public class Config {
 	 */
 	@NonNull
 	public static Map<String, List<Object>> getFlattenedPathMultiMap(String key) {
-		return getFlattenedPathMultiMap(key, Object.class);
+		return DEFAULT_CONTEXT.getFlattenedPathMultiMap(key);
 	}
 
 	/**
@@ -318,22 +204,21 @@ public class Config {
 	 * @param key Name of the property
 	 * @param subType The class that the property elements shall be returned as
 	 * @param <T> The supplied type
-	 * @return A HashMap, or null of nothing was found
+	 * @return A read-only map, which is empty if nothing was found
 	 */
 	@NonNull
 	public static <T> Map<String, List<T>> getFlattenedPathMultiMap(String key, Class<T> subType) {
-		Map<String, List<T>> original = getMultiMap(key, subType);
-		return ConversionUtils.flattenMap(original);
+		return DEFAULT_CONTEXT.getFlattenedPathMultiMap(key, subType);
 	}
 
 	/**
-	 * Get all properties as a HashMap.
+	 * Get all properties as a HashMap. The map is a read-only view of the properties under the key in the latest state, and isn't changed by later changes.
 	 * @param key Name of the property
 	 * @param innerObjectsClass Return type of the map object
-	 * @return A HashMap, or null of nothing was found
+	 * @return A read-only map, or null of nothing was found
 	 */
 	public static <T> Map<String, T> getSimpleMap(String key, Class<T> innerObjectsClass) {
-		return properties.toHashMap(key, innerObjectsClass);
+		return DEFAULT_CONTEXT.getSimpleMap(key, innerObjectsClass);
 	}
 
 	/**
@@ -343,26 +228,67 @@ public class Config {
 	 * @return An optional that could contain a found HashMap
 	 */
 	public static <T> Optional<Map<String, T>> getOptionalSimpleMap(String key, Class<T> innerObjectsClass) {
-		return Optional.ofNullable(getSimpleMap(key, innerObjectsClass));
+		return DEFAULT_CONTEXT.getOptionalSimpleMap(key, innerObjectsClass);
 	}
 
 	/**
-	 * Get all of the properties as a MultiMap.
+	 * Get all of the properties as a MultiMap. The map is a read-only view of the properties under the key in the latest state, and isn't changed by later changes.
 	 * @param key Name of the property
-	 * @return A HashMap, or null of nothing was found
+	 * @return A read-only MultiMap, or null of nothing was found
 	 */
 	public static Map<String, List<Object>> getMultiMap(String key) {
-		return properties.toMultiMap(key, Object.class);
+		return DEFAULT_CONTEXT.getMultiMap(key);
 	}
 
 	/**
-	 * Get all properties as a MultiMap.
+	 * Get all properties as a MultiMap. The map is a read-only view of the properties under the key in the latest state, and isn't changed by later changes.
 	 * @param key Name of the property
 	 * @param innerObjectsClass Return type of the map object
-	 * @return A MultiMap, or null of nothing was found
+	 * @return A read-only MultiMap, or null of nothing was found
 	 */
 	public static <T> Map<String, List<T>> getMultiMap(String key, Class<T> innerObjectsClass) {
-		return properties.toMultiMap(key, innerObjectsClass);
+		return DEFAULT_CONTEXT.getMultiMap(key, innerObjectsClass);
+	}
+
+	/**
+	 * Lazily iterate the properties under a prefix, in key order, without copying the subtree.
+	 * Use {@link java.util.stream.StreamSupport#stream(Spliterator, boolean)} for a (parallel) stream of the entries.
+	 * @param prefix Name of the property to scan below, which is included if it has values. Null or empty for all properties.
+	 * @return An ordered spliterator of read-only entries with full property names
+	 */
+	public static Spliterator<Map.Entry<String, List<String>>> scan(String prefix) {
+		return DEFAULT_CONTEXT.scan(prefix);
+	}
+
+	/**
+	 * Lazily iterate the properties in a range of names, in key order, without copying anything.
+	 * The order is by segment, so 'a' comes before 'a.b', which comes before 'a-b'.
+	 * @param fromKey The first property name to include, or null to start from the first property
+	 * @param toKey The first property name to exclude, or null to end at the last property
+	 * @return An ordered spliterator of read-only entries with full property names
+	 */
+	public static Spliterator<Map.Entry<String, List<String>>> scan(String fromKey, String toKey) {
+		return DEFAULT_CONTEXT.scan(fromKey, toKey);
+	}
+
+	/**
+	 * Lazily find the properties that match a query with wildcards, like 'services.*.http.port' or 'pools.**.max-size'.
+	 * Only the properties that can match the query are visited. See {@link PathQuery} for the syntax.
+	 * @param query The query
+	 * @return An iterator of read-only entries with full property names
+	 * @throws IllegalArgumentException If the query is invalid
+	 */
+	public static Iterator<Map.Entry<String, List<String>>> query(String query) throws IllegalArgumentException {
+		return DEFAULT_CONTEXT.query(query);
+	}
+
+	/**
+	 * Same as {@link #query(String)}, for a query that has been compiled once with {@link PathQuery#compile(String)}.
+	 * @param query The compiled query
+	 * @return An iterator of read-only entries with full property names
+	 */
+	public static Iterator<Map.Entry<String, List<String>>> query(PathQuery query) {
+		return DEFAULT_CONTEXT.query(query);
 	}
 
 	/**
@@ -371,7 +297,7 @@ public class Config {
 	 * @return An optional that could contain a found MultiMap
 	 */
 	public static Optional<Map<String, List<Object>>> getOptionalMultiMap(String key) {
-		return Optional.ofNullable(getMultiMap(key));
+		return DEFAULT_CONTEXT.getOptionalMultiMap(key);
 	}
 
 	/**
@@ -381,7 +307,7 @@ public class Config {
 	 * @return An optional that could contain a found MultiMap
 	 */
 	public static <T> Optional<Map<String, List<T>>> getOptionalMultiMap(String key, Class<T> innerObjectsClass) {
-		return Optional.ofNullable(getMultiMap(key, innerObjectsClass));
+		return DEFAULT_CONTEXT.getOptionalMultiMap(key, innerObjectsClass);
 	}
 
 	/**
@@ -389,17 +315,17 @@ public class Config {
 	 * @return A string
 	 */
 	public static String getPropertiesAsString() {
-//		return environmentVariables.entrySet().toString();
-		return properties.toString();
+		return DEFAULT_CONTEXT.getPropertiesAsString();
 	}
 
 	/**
 	 * Get the implemented map. Uses wrapper methods.
+	 * The object is cached, and the same instance is returned until a property under the key is changed. It should therefore not be modified.
 	 * @param key Name of the property
 	 * @return The implementation map
 	 */
 	public static <T> T getObject(String key, Class<T> toClass) {
-		return properties.toObject(key, toClass);
+		return DEFAULT_CONTEXT.getObject(key, toClass);
 	}
 
 	/**
@@ -408,7 +334,7 @@ public class Config {
 	 * @return An optional implementation map
 	 */
 	public static <T> Optional<T> getOptionalObject(String key, Class<T> toClass) {
-		return Optional.ofNullable(getObject(key, toClass));
+		return DEFAULT_CONTEXT.getOptionalObject(key, toClass);
 	}
 
 	/**
@@ -417,7 +343,7 @@ public class Config {
 	 * @return A list of files. Newer files are last in the list.
 	 */
 	public static List<String> getLoadedFiles() {
-		return new ArrayList<>(filesToLoad);
+		return DEFAULT_CONTEXT.getLoadedFiles();
 	}
 
 	//
@@ -429,7 +355,7 @@ public class Config {
 	 * @return The instance or null if none was found
 	 */
 	public static String getString(String key) {
-		return get(key, String.class);
+		return DEFAULT_CONTEXT.getString(key);
 	}
 
 	/**
@@ -438,7 +364,7 @@ public class Config {
 	 * @return The optional with the found value
 	 */
 	public static Optional<String> getOptionalString(String key) {
-		return Optional.ofNullable(getString(key));
+		return DEFAULT_CONTEXT.getOptionalString(key);
 	}
 
 	/**
@@ -448,22 +374,22 @@ public class Config {
 	 * @return The instance or the default value if none was found
 	 */
 	public static String getString(String key, @NotNull String defaultValue) {
-		return get(key, defaultValue, String.class);
+		return DEFAULT_CONTEXT.getString(key, defaultValue);
 	}
 
 	public static List<String> getStringList(String key) {
-		return getList(key, String.class);
+		return DEFAULT_CONTEXT.getStringList(key);
 	}
 
 	/**
 	 * See {@link #getOptionalList(String, Class)}
 	 */
 	public static Optional<List<String>> getOptionalStringList(String key) {
-		return getOptionalList(key, String.class);
+		return DEFAULT_CONTEXT.getOptionalStringList(key);
 	}
 
 	public static List<String> getStringAsList(String key, String separator) {
-		return ConversionUtils.getStringAsList(getString(key), separator);
+		return DEFAULT_CONTEXT.getStringAsList(key, separator);
 	}
 
 	/**
@@ -472,7 +398,7 @@ public class Config {
 	 * @return The instance or null if none was found
 	 */
 	public static Boolean getBoolean(String key) {
-		return get(key, Boolean.class);
+		return DEFAULT_CONTEXT.getBoolean(key);
 	}
 
 	/**
@@ -481,7 +407,7 @@ public class Config {
 	 * @return The optional with the found value
 	 */
 	public static Optional<Boolean> getOptionalBoolean(String key) {
-		return Optional.ofNullable(getBoolean(key));
+		return DEFAULT_CONTEXT.getOptionalBoolean(key);
 	}
 
 	/**
@@ -491,19 +417,18 @@ public class Config {
 	 * @return The instance or the default value (null-safe)
 	 */
 	public static boolean getBoolean(String key, boolean defaultValue) {
-		return get(key, defaultValue, Boolean.class);
+		return DEFAULT_CONTEXT.getBoolean(key, defaultValue);
 	}
 
-
 	public static List<Boolean> getBooleanList(String key) {
-		return getList(key, Boolean.class);
+		return DEFAULT_CONTEXT.getBooleanList(key);
 	}
 
 	/**
 	 * See {@link #getOptionalList(String, Class)}
 	 */
 	public static Optional<List<Boolean>> getOptionalBooleanList(String key) {
-		return getOptionalList(key, Boolean.class);
+		return DEFAULT_CONTEXT.getOptionalBooleanList(key);
 	}
 
 	/**
@@ -512,7 +437,7 @@ public class Config {
 	 * @return The instance or null if none was found
 	 */
 	public static Integer getInteger(String key) {
-		return get(key, Integer.class);
+		return DEFAULT_CONTEXT.getInteger(key);
 	}
 
 	/**
@@ -521,7 +446,7 @@ public class Config {
 	 * @return The optional with the found value
 	 */
 	public static Optional<Integer> getOptionalInteger(String key) {
-		return Optional.ofNullable(getInteger(key));
+		return DEFAULT_CONTEXT.getOptionalInteger(key);
 	}
 
 	/**
@@ -531,18 +456,18 @@ public class Config {
 	 * @return The instance or the default value (null-safe)
 	 */
 	public static int getInteger(String key, int defaultValue) {
-		return get(key, defaultValue, Integer.class);
+		return DEFAULT_CONTEXT.getInteger(key, defaultValue);
 	}
 
 	public static List<Integer> getIntegerList(String key) {
-		return getList(key, Integer.class);
+		return DEFAULT_CONTEXT.getIntegerList(key);
 	}
 
 	/**
 	 * See {@link #getOptionalList(String, Class)}
 	 */
 	public static Optional<List<Integer>> getOptionalIntegerList(String key) {
-		return getOptionalList(key, Integer.class);
+		return DEFAULT_CONTEXT.getOptionalIntegerList(key);
 	}
 
 	/**
@@ -551,7 +476,7 @@ public class Config {
 	 * @return The instance or null if none was found
 	 */
 	public static Long getLong(String key) {
-		return get(key, Long.class);
+		return DEFAULT_CONTEXT.getLong(key);
 	}
 
 	/**
@@ -560,7 +485,7 @@ public class Config {
 	 * @return The optional with the found value
 	 */
 	public static Optional<Long> getOptionalLong(String key) {
-		return Optional.ofNullable(getLong(key));
+		return DEFAULT_CONTEXT.getOptionalLong(key);
 	}
 
 	/**
@@ -570,18 +495,18 @@ public class Config {
 	 * @return The instance or the default value (null-safe)
 	 */
 	public static long getLong(String key, long defaultValue) {
-		return get(key, defaultValue, Long.class);
+		return DEFAULT_CONTEXT.getLong(key, defaultValue);
 	}
 
 	public static List<Long> getLongList(String key) {
-		return getList(key, Long.class);
+		return DEFAULT_CONTEXT.getLongList(key);
 	}
 
 	/**
 	 * See {@link #getOptionalList(String, Class)}
 	 */
 	public static Optional<List<Long>> getOptionalLongList(String key) {
-		return getOptionalList(key, Long.class);
+		return DEFAULT_CONTEXT.getOptionalLongList(key);
 	}
 
 	/**
@@ -590,7 +515,7 @@ public class Config {
 	 * @return The instance or null if none was found
 	 */
 	public static Double getDouble(String key) {
-		return get(key, Double.class);
+		return DEFAULT_CONTEXT.getDouble(key);
 	}
 
 	/**
@@ -599,7 +524,7 @@ public class Config {
 	 * @return The optional with the found value
 	 */
 	public static Optional<Double> getOptionalDouble(String key) {
-		return Optional.ofNullable(getDouble(key));
+		return DEFAULT_CONTEXT.getOptionalDouble(key);
 	}
 
 	/**
@@ -609,18 +534,18 @@ public class Config {
 	 * @return The instance or the default value (null-safe)
 	 */
 	public static double getDouble(String key, double defaultValue) {
-		return get(key, defaultValue, Double.class);
+		return DEFAULT_CONTEXT.getDouble(key, defaultValue);
 	}
 
 	public static List<Double> getDoubleList(String key) {
-		return getList(key, Double.class);
+		return DEFAULT_CONTEXT.getDoubleList(key);
 	}
 
 	/**
 	 * See {@link #getOptionalList(String, Class)}
 	 */
 	public static Optional<List<Double>> getOptionalDoubleList(String key) {
-		return getOptionalList(key, Double.class);
+		return DEFAULT_CONTEXT.getOptionalDoubleList(key);
 	}
 
 	/**
@@ -629,7 +554,7 @@ public class Config {
 	 * @return The instance or null if none was found
 	 */
 	public static Float getFloat(String key) {
-		return get(key, Float.class);
+		return DEFAULT_CONTEXT.getFloat(key);
 	}
 
 	/**
@@ -638,7 +563,7 @@ public class Config {
 	 * @return The optional with the found value
 	 */
 	public static Optional<Float> getOptionalFloat(String key) {
-		return Optional.ofNullable(getFloat(key));
+		return DEFAULT_CONTEXT.getOptionalFloat(key);
 	}
 
 	/**
@@ -648,18 +573,18 @@ public class Config {
 	 * @return The instance or the default value (null-safe)
 	 */
 	public static float getFloat(String key, float defaultValue) {
-		return get(key, defaultValue, Float.class);
+		return DEFAULT_CONTEXT.getFloat(key, defaultValue);
 	}
 
 	public static List<Float> getFloatList(String key) {
-		return getList(key, Float.class);
+		return DEFAULT_CONTEXT.getFloatList(key);
 	}
 
 	/**
 	 * See {@link #getOptionalList(String, Class)}
 	 */
 	public static Optional<List<Float>> getOptionalFloatList(String key) {
-		return getOptionalList(key, Float.class);
+		return DEFAULT_CONTEXT.getOptionalFloatList(key);
 	}
 
 	/**
@@ -668,7 +593,7 @@ public class Config {
 	 * @return The instance or null if none was found
 	 */
 	public static Character getCharacter(String key) {
-		return get(key, Character.class);
+		return DEFAULT_CONTEXT.getCharacter(key);
 	}
 
 	/**
@@ -677,7 +602,7 @@ public class Config {
 	 * @return The optional with the found value
 	 */
 	public static Optional<Character> getOptionalCharacter(String key) {
-		return Optional.ofNullable(getCharacter(key));
+		return DEFAULT_CONTEXT.getOptionalCharacter(key);
 	}
 
 	/**
@@ -687,18 +612,18 @@ public class Config {
 	 * @return The instance or the default value (null-safe)
 	 */
 	public static char getCharacter(String key, char defaultValue) {
-		return get(key, defaultValue, Character.class);
+		return DEFAULT_CONTEXT.getCharacter(key, defaultValue);
 	}
 
 	public static List<Character> getCharacterList(String key) {
-		return getList(key, Character.class);
+		return DEFAULT_CONTEXT.getCharacterList(key);
 	}
 
 	/**
 	 * See {@link #getOptionalList(String, Class)}
 	 */
 	public static Optional<List<Character>> getOptionalCharacterList(String key) {
-		return getOptionalList(key, Character.class);
+		return DEFAULT_CONTEXT.getOptionalCharacterList(key);
 	}
 
 	/**
@@ -707,7 +632,7 @@ public class Config {
 	 * @return The instance or null if none was found
 	 */
 	public static Short getShort(String key) {
-		return get(key, Short.class);
+		return DEFAULT_CONTEXT.getShort(key);
 	}
 
 	/**
@@ -716,7 +641,7 @@ public class Config {
 	 * @return The optional with the found value
 	 */
 	public static Optional<Short> getOptionalShort(String key) {
-		return Optional.ofNullable(getShort(key));
+		return DEFAULT_CONTEXT.getOptionalShort(key);
 	}
 
 	/**
@@ -726,18 +651,18 @@ public class Config {
 	 * @return The instance or the default value (null-safe)
 	 */
 	public static short getShort(String key, short defaultValue) {
-		return get(key, defaultValue, Short.class);
+		return DEFAULT_CONTEXT.getShort(key, defaultValue);
 	}
 
 	public static List<Short> getShortList(String key) {
-		return getList(key, Short.class);
+		return DEFAULT_CONTEXT.getShortList(key);
 	}
 
 	/**
 	 * See {@link #getOptionalList(String, Class)}
 	 */
 	public static Optional<List<Short>> getOptionalShortList(String key) {
-		return getOptionalList(key, Short.class);
+		return DEFAULT_CONTEXT.getOptionalShortList(key);
 	}
 
 	/**
@@ -746,7 +671,7 @@ public class Config {
 	 * @return The instance or null if none was found
 	 */
 	public static Byte getByte(String key) {
-		return get(key, Byte.class);
+		return DEFAULT_CONTEXT.getByte(key);
 	}
 
 	/**
@@ -755,7 +680,7 @@ public class Config {
 	 * @return The optional with the found value
 	 */
 	public static Optional<Byte> getOptionalByte(String key) {
-		return Optional.ofNullable(getByte(key));
+		return DEFAULT_CONTEXT.getOptionalByte(key);
 	}
 
 	/**
@@ -765,41 +690,25 @@ public class Config {
 	 * @return The instance or the default value (null-safe)
 	 */
 	public static byte getByte(String key, byte defaultValue) {
-		return get(key, defaultValue, Byte.class);
+		return DEFAULT_CONTEXT.getByte(key, defaultValue);
 	}
 
 	public static List<Byte> getByteList(String key) {
-		return getList(key, Byte.class);
+		return DEFAULT_CONTEXT.getByteList(key);
 	}
 
 	/**
 	 * See {@link #getOptionalList(String, Class)}
 	 */
 	public static Optional<List<Byte>> getOptionalByteList(String key) {
-		return getOptionalList(key, Byte.class);
-	}
-
-	private static String cleanupPropertyKey(String key) {
-		return key != null
-				? key.trim()
-				.replace("_", ".")
-				.replaceAll("([a-z])([A-Z])", "$1-$2").toLowerCase()
-				: null;
+		return DEFAULT_CONTEXT.getOptionalByteList(key);
 	}
 
 	/**
-	 * Private setter method that is hidden for common usage
+	 * Private setter method that is hidden for common usage. Called by the test helper through reflection.
 	 */
 	private static void set(String key, Object value) {
-		if (key == null) {
-			return;
-		}
-		key = cleanupPropertyKey(key);
-		properties.put(key, value != null ? value.toString() : null);
-		if (ADDITIONAL_CONFIG_FILES.equals(key) || ADDITIONAL_CONFIG_FILES_SPRING.equals(key)) {
-			loadVariablesFromAdditionalFiles();
-			loadVariablesFromProgram();
-		}
+		DEFAULT_CONTEXT.set(key, value);
 	}
 
 }
@@ -0,0 +1,249 @@
+package com.frejdh.util.environment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Many lookups that are resolved together, like the properties read when building a service or a request context:
+ * <pre>{@code
+ * ConfigBatch.Result result = Config.batch()
+ *         .getInteger("server.http.port")
+ *         .getString("server.http.host", "localhost")
+ *         .getList("server.http.allowed-origins", String.class)
+ *         .resolve();
+ * int port = result.getInteger("server.http.port");
+ * }</pre>
+ * All values are read from the same {@link ConfigSnapshot}, so a reload can't happen in between them.
+ * The keys are looked up in key order, so the segments that they share are only walked once.
+ * <br><br>
+ * A batch can be kept and resolved any number of times, for instance once per request. The result is reused until a new
+ * state is published, so resolving an unchanged configuration is a single generation comparison.
+ * Adding properties is not thread-safe, but a built batch can be resolved by many threads.
+ */
+public final class ConfigBatch {
+	private final ConfigContext context;
+	private final Map<String, Request> requestsByKey = new LinkedHashMap<>();
+	private volatile Result lastResult;
+
+	private static final class Request {
+		private final Class<?> type;
+		private final Object defaultValue;
+		private final boolean isList;
+
+		private Request(Class<?> type, Object defaultValue, boolean isList) {
+			this.type = type;
+			this.defaultValue = defaultValue;
+			this.isList = isList;
+		}
+	}
+
+	ConfigBatch(ConfigContext context) {
+		this.context = context;
+	}
+
+	private ConfigBatch add(String key, Request request) throws IllegalArgumentException {
+		if (key == null) {
+			throw new IllegalArgumentException("The key of a batched property can't be null");
+		}
+		if (requestsByKey.putIfAbsent(key, request) != null) {
+			throw new IllegalArgumentException("The property '" + key + "' is already in the batch");
+		}
+		lastResult = null;
+		return this;
+	}
+
+	/**
+	 * Add a property with a return type to the batch.
+	 * @param key Name of the property
+	 * @param returnType The class that the property shall be returned as
+	 * @return This batch
+	 * @throws IllegalArgumentException If the key is already in the batch
+	 */
+	public ConfigBatch get(String key, Class<?> returnType) throws IllegalArgumentException {
+		return add(key, new Request(returnType, null, false));
+	}
+
+	/**
+	 * Add a property with a return type and a default value to the batch.
+	 * @param key Name of the property
+	 * @param defaultValue The value to resolve to in case the property wasn't found
+	 * @param returnType The class that the property shall be returned as
+	 * @return This batch
+	 * @throws IllegalArgumentException If the key is already in the batch
+	 */
+	public <T> ConfigBatch get(String key, T defaultValue, Class<T> returnType) throws IllegalArgumentException {
+		return add(key, new Request(returnType, defaultValue, false));
+	}
+
+	/**
+	 * Add all values of a property to the batch. Resolves to a read-only list, which is empty if the property wasn't found.
+	 * @param key Name of the property
+	 * @param subType The class that the values shall be returned as
+	 * @return This batch
+	 * @throws IllegalArgumentException If the key is already in the batch
+	 */
+	public ConfigBatch getList(String key, Class<?> subType) throws IllegalArgumentException {
+		return add(key, new Request(subType, null, true));
+	}
+
+	public ConfigBatch getString(String key) {
+		return get(key, String.class);
+	}
+
+	public ConfigBatch getString(String key, String defaultValue) {
+		return get(key, defaultValue, String.class);
+	}
+
+	public ConfigBatch getBoolean(String key) {
+		return get(key, Boolean.class);
+	}
+
+	public ConfigBatch getBoolean(String key, boolean defaultValue) {
+		return get(key, defaultValue, Boolean.class);
+	}
+
+	public ConfigBatch getInteger(String key) {
+		return get(key, Integer.class);
+	}
+
+	public ConfigBatch getInteger(String key, int defaultValue) {
+		return get(key, defaultValue, Integer.class);
+	}
+
+	public ConfigBatch getLong(String key) {
+		return get(key, Long.class);
+	}
+
+	public ConfigBatch getLong(String key, long defaultValue) {
+		return get(key, defaultValue, Long.class);
+	}
+
+	public ConfigBatch getDouble(String key) {
+		return get(key, Double.class);
+	}
+
+	public ConfigBatch getDouble(String key, double defaultValue) {
+		return get(key, defaultValue, Double.class);
+	}
+
+	/**
+	 * Look up and convert all properties of the batch, unless nothing has changed since the last time.
+	 * @return The values, by the keys they were added with
+	 * @throws IllegalArgumentException If a return type was not supported
+	 */
+	public Result resolve() throws IllegalArgumentException {
+		return resolve(context.snapshot());
+	}
+
+	/**
+	 * Look up and convert all properties of the batch in a snapshot, for instance within {@link ConfigContext#read(java.util.function.Function)}.
+	 * @param snapshot A snapshot of the context of this batch
+	 * @return The values, by the keys they were added with
+	 * @throws IllegalArgumentException If a return type was not supported, or the snapshot is of another context
+	 */
+	public Result resolve(ConfigSnapshot snapshot) throws IllegalArgumentException {
+		if (snapshot.getContext() != context) {
+			throw new IllegalArgumentException("The snapshot is of the context '" + snapshot.getContext().getName() + "', but the batch is of '" + context.getName() + "'");
+		}
+		Result currentResult = lastResult;
+		if (currentResult != null && currentResult.generation == snapshot.getGeneration()) {
+			return currentResult;
+		}
+
+		List<String> keys = new ArrayList<>(requestsByKey.keySet());
+		List<List<String>> rawValues = snapshot.getAllRawValues(keys);
+		Map<String, Object> values = new LinkedHashMap<>();
+		for (int i = 0; i < keys.size(); i++) {
+			String key = keys.get(i);
+			Request request = requestsByKey.get(key);
+			values.put(key, request.isList ? snapshot.toList(key, rawValues.get(i), request.type) : toValue(snapshot, key, rawValues.get(i), request));
+		}
+		Result result = new Result(snapshot.getGeneration(), values);
+		lastResult = result;
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T toValue(ConfigSnapshot snapshot, String key, List<String> stringValues, Request request) {
+		return snapshot.toValue(key, stringValues, (T) request.defaultValue, (Class<T>) request.type);
+	}
+
+	/**
+	 * The resolved values of a batch. Immutable, and unaffected by later reloads.
+	 */
+	public static final class Result {
+		private final long generation;
+		private final Map<String, Object> values;
+
+		private Result(long generation, Map<String, Object> values) {
+			this.generation = generation;
+			this.values = Collections.unmodifiableMap(values);
+		}
+
+		/**
+		 * @return The generation of the {@link ConfigSnapshot} that the values were read from
+		 */
+		public long getGeneration() {
+			return generation;
+		}
+
+		/**
+		 * @param key The key that the property was added to the batch with
+		 * @param <T> The return type (or list type) that the property was added with
+		 * @return The value, or null if none was found and there was no default
+		 * @throws IllegalArgumentException If the key wasn't in the batch
+		 */
+		@SuppressWarnings("unchecked")
+		public <T> T get(String key) throws IllegalArgumentException {
+			if (!values.containsKey(key)) {
+				throw new IllegalArgumentException("The property '" + key + "' was not in the batch");
+			}
+			return (T) values.get(key);
+		}
+
+		public <T> Optional<T> getOptional(String key) throws IllegalArgumentException {
+			return Optional.ofNullable(get(key));
+		}
+
+		public <T> List<T> getList(String key) throws IllegalArgumentException {
+			return get(key);
+		}
+
+		public String getString(String key) throws IllegalArgumentException {
+			return get(key);
+		}
+
+		public Boolean getBoolean(String key) throws IllegalArgumentException {
+			return get(key);
+		}
+
+		public Integer getInteger(String key) throws IllegalArgumentException {
+			return get(key);
+		}
+
+		public Long getLong(String key) throws IllegalArgumentException {
+			return get(key);
+		}
+
+		public Double getDouble(String key) throws IllegalArgumentException {
+			return get(key);
+		}
+
+		/**
+		 * @return The values by the keys that they were added with, in the order they were added
+		 */
+		public Map<String, Object> asMap() {
+			return values;
+		}
+
+		@Override
+		public String toString() {
+			return "ConfigBatch.Result" + values;
+		}
+	}
+
+}
@@ -0,0 +1,1585 @@
+package com.frejdh.util.environment;
+
+import com.frejdh.util.environment.binding.ObjectBinder;
+import com.frejdh.util.environment.change.ChangePublisher;
+import com.frejdh.util.environment.change.ConfigChange;
+import com.frejdh.util.environment.http.HttpConfigSource;
+import com.frejdh.util.environment.jfr.ConfigEvents;
+import com.frejdh.util.environment.metrics.ConfigMetrics;
+import com.frejdh.util.environment.metrics.DefaultConfigMetrics;
+import com.frejdh.util.environment.placeholder.PlaceholderResolver;
+import com.frejdh.util.environment.storage.map.LinkedPathMultiMap;
+import com.frejdh.util.environment.storage.map.PathEntry;
+import com.frejdh.util.environment.storage.map.PathQuery;
+import com.frejdh.util.environment.storage.map.SymbolTable;
+import com.frejdh.util.watcher.StorageWatcher;
+import com.frejdh.util.watcher.StorageWatcherBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.lang.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.StandardWatchEventKinds;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * A configuration with its own sources, properties and runtime watcher. Contexts don't share any state or locks,
+ * so independent contexts can load and serve lookups concurrently. For instance one context per tenant, or per test.
+ * The static {@link Config} is a facade for a default context, which loads the Spring and Vertx files and the system properties.
+ * <br><br>
+ * A context is created and loaded with {@link #builder()}, and should be closed when no longer needed if the runtime watcher is enabled.
+ */
+@SuppressWarnings({"SameParameterValue", "unused"})
+public class ConfigContext implements AutoCloseable {
+	private static final Logger LOGGER = Logger.getLogger(Config.class.getName());	// Shared with the default context, for existing logging configurations
+	private static final String ADDITIONAL_CONFIG_FILES = "config.sources";
+	private static final String ADDITIONAL_CONFIG_FILES_SPRING = "spring.additional-files";
+	private static final String PLACEHOLDERS_ENABLED = "config.placeholders.enabled";
+	private static final String METRICS_ENABLED = "config.metrics.enabled";
+	private static final AtomicInteger CONTEXT_COUNTER = new AtomicInteger();
+
+	private final Object lock = new Object();	// Guards loading and changes of this context only
+	private volatile boolean isInitialized = false;
+	private LinkedPathMultiMap<String> properties = createPropertyMap();	// Guarded by the lock. Read through the published snapshots.
+	private boolean isPropertiesPublished;	// If the properties are the ones of a published state, and must be copied before a change
+	private final PlaceholderResolver placeholders = new PlaceholderResolver(properties);
+	private final Set<String> filesToLoad = new LinkedHashSet<>();
+	private final Map<String, String> programProperties;
+	private final Map<String, Supplier<Map<String, List<String>>>> propertySources;	// Already parsed sources, by name
+	private final boolean includeSystemProperties;
+	private final FileSource fileSource;
+	private final HttpConfigSource httpSource = new HttpConfigSource();	// Reads the sources that are HTTP(S) URLs
+	private final String name;
+	private final StartupReport startupReport;
+	private volatile ConfigMetrics metrics;
+	private volatile boolean isMetricsRegistered;	// If this context registered the metrics MBean, and shall unregister it
+	private volatile boolean isRuntimeEnabled;
+	private volatile StorageWatcher storageWatcher = null;
+	private volatile ScheduledExecutorService httpPoller = null;
+	private final Map<String, Deque<PropertyOverlay>> overlaysByKey = new HashMap<>();	// The open overlays of each key, latest last
+	private final Map<String, List<String>> valuesBeforeOverlays = new HashMap<>();	// The raw values of the overlaid keys, or null
+	private final Map<String, String> setProperties = new LinkedHashMap<>();	// The latest value of set() for each key, which is kept through reloads
+	private final Map<String, ChangePublisher> changePublishers = new ConcurrentHashMap<>();
+	private final Executor changeExecutor;
+	private volatile ConfigSnapshot currentSnapshot;	// The latest published state, null until the first load
+
+	private ConfigContext(Builder builder) {
+		this.filesToLoad.addAll(builder.filesToLoad);
+		this.programProperties = new LinkedHashMap<>(builder.programProperties);
+		this.propertySources = new LinkedHashMap<>(builder.propertySources);
+		this.includeSystemProperties = builder.includeSystemProperties;
+		this.fileSource = builder.fileSource;
+		this.name = builder.name != null ? builder.name : "context-" + CONTEXT_COUNTER.incrementAndGet();
+		this.startupReport = new StartupReport(name);
+		this.metrics = builder.metrics;
+		this.changeExecutor = builder.changeExecutor;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	private static LinkedPathMultiMap<String> createPropertyMap() {
+		return new LinkedPathMultiMap<>(true, true, true);	// Sorted keys, for scan()
+	}
+
+	/**
+	 * Start watching the loaded files for changes, if enabled by 'config.runtime.enabled'.
+	 * Only files read by the default {@link FileSource} can be watched, other sources call {@link #fileChanged(String)} instead.
+	 * HTTP sources are polled at the same interval instead, see {@link #pollHttpSources()}.
+	 */
+	void initRuntimeWatcher() {
+		if (!getSetting("config.runtime.enabled", false, Boolean.class)) {
+			return;
+		}
+		long interval = getSetting("config.runtime.interval.value", 10L, Long.class);
+		TimeUnit unit = TimeUnit.valueOf(getSetting("config.runtime.interval.unit", TimeUnit.SECONDS.name(), String.class).toUpperCase());
+		List<String> files = new ArrayList<>();
+		boolean hasUrls = false;
+		synchronized (lock) {
+			for (String filename : filesToLoad) {
+				hasUrls |= HttpConfigSource.isUrl(filename);
+				if (!HttpConfigSource.isUrl(filename)) {
+					files.add(filename);
+				}
+			}
+		}
+
+		if (hasUrls) {
+			if (this.httpPoller != null) {
+				this.httpPoller.shutdownNow();
+			}
+			ScheduledThreadPoolExecutor poller = new ScheduledThreadPoolExecutor(1, runnable -> {
+				Thread thread = new Thread(runnable, "config-http-poller-" + name);
+				thread.setDaemon(true);
+				return thread;
+			});
+			poller.scheduleWithFixedDelay(this::pollHttpSources, interval, interval, unit);
+			this.httpPoller = poller;
+		}
+
+		if (fileSource == FileSource.DEFAULT && !files.isEmpty()) {
+			if (this.storageWatcher != null) {  // Only needed for the tests as this method can be called multiple times there.
+				this.storageWatcher.stop();
+			}
+
+			this.storageWatcher = StorageWatcherBuilder.getBuilder()
+					.interval(interval, unit)
+					.watchFiles(files)
+					.specifyEvents(StandardWatchEventKinds.ENTRY_MODIFY)
+					.onChanged((directory, filename) -> {
+						metrics.watcherEvent(filename);
+						fileChanged(directory + File.separator + filename, ConfigChange.Trigger.WATCHER);
+					})
+					.build();
+			this.storageWatcher.start();
+		}
+	}
+
+	/**
+	 * Load a changed file again, the same way as the runtime watcher does. All sources are merged again, so the keys removed from the file
+	 * are removed and the values of its lists are replaced. If the file can't be read, the loaded properties are kept and no state is published.
+	 * Called directly, this reloads synchronously, so tests don't need to wait for the watcher.
+	 * @param filename The filename, as read by the {@link FileSource}
+	 * @return True if the file could be loaded
+	 */
+	public boolean fileChanged(String filename) {
+		return fileChanged(filename, ConfigChange.Trigger.FILE_CHANGED);
+	}
+
+	/**
+	 * Ask the HTTP sources if they have changed, with conditional requests, and load the changed ones again.
+	 * Unchanged sources only cost a '304 Not Modified' response, and aren't parsed. Called by the poller of the runtime watcher,
+	 * or directly to poll synchronously.
+	 * @return True if any source had changed
+	 */
+	public boolean pollHttpSources() {
+		List<String> urls;
+		synchronized (lock) {
+			urls = filesToLoad.stream().filter(HttpConfigSource::isUrl).collect(Collectors.toList());
+		}
+
+		boolean isChanged = false;
+		for (String url : urls) {	// Polled outside of the lock, so a slow server doesn't block the changes of the context
+			try {
+				if (httpSource.poll(url)) {
+					metrics.watcherEvent(url);
+					fileChanged(url, ConfigChange.Trigger.HTTP_POLL);
+					isChanged = true;
+				}
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Couldn't poll '" + url + "'. Reason: " + e.getMessage());
+			}
+		}
+		return isChanged;
+	}
+
+	private boolean fileChanged(String filename, ConfigChange.Trigger trigger) {
+		LOGGER.info("Detected change in '" + filename + "'. Refreshing...");
+		synchronized (lock) {
+			String loadedFilename = getLoadedFilename(filename);
+			String fileContent;
+			try {
+				fileContent = readFile(filename);
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Couldn't load the file '" + filename + "', the loaded properties are kept. Reason: " + e.getMessage());
+				return false;
+			}
+			if (fileContent == null && loadedFilename == null) {	// Nothing is loaded from it, so nothing has changed
+				return false;
+			}
+
+			filesToLoad.add(loadedFilename != null ? loadedFilename : filename);
+			reload(trigger, Collections.singletonMap(loadedFilename != null ? loadedFilename : filename, fileContent), false);
+			return fileContent != null;
+		}
+	}
+
+	/**
+	 * @param filename A filename, or the absolute path of a file reported by the watcher
+	 * @return The name that the file is loaded by, which is relative for the files in the resource directory, or null if it isn't loaded
+	 */
+	private String getLoadedFilename(String filename) {
+		if (filesToLoad.contains(filename)) {
+			return filename;
+		}
+		String normalizedFilename = filename.replace('\\', '/');
+		return filesToLoad.stream()
+				.filter(loadedFilename -> !HttpConfigSource.isUrl(loadedFilename))
+				.filter(loadedFilename -> normalizedFilename.endsWith("/" + loadedFilename.replace('\\', '/')))
+				.findFirst().orElse(null);
+	}
+
+	void addFilesToLoad(Collection<String> filenames) {
+		synchronized (lock) {
+			filesToLoad.addAll(filenames);
+		}
+	}
+
+	/**
+	 * Create the metrics if enabled by 'config.metrics.enabled' and none were set on the builder, and register them as an MXBean.
+	 */
+	void initMetrics() {
+		if (metrics == ConfigMetrics.NONE && getSetting(METRICS_ENABLED, false, Boolean.class)) {
+			DefaultConfigMetrics defaultMetrics = new DefaultConfigMetrics();
+			defaultMetrics.registerMBean(name);
+			this.metrics = defaultMetrics;
+			this.isMetricsRegistered = true;
+		}
+	}
+
+	/**
+	 * Stop the runtime watcher and the HTTP poller, if started, and unregister the metrics MBean if it was registered by the context.
+	 * The properties can still be read afterwards.
+	 */
+	@Override
+	public void close() {
+		StorageWatcher watcher = this.storageWatcher;
+		if (watcher != null) {
+			watcher.stop();
+			this.storageWatcher = null;
+		}
+		ScheduledExecutorService poller = this.httpPoller;
+		if (poller != null) {
+			poller.shutdownNow();
+			this.httpPoller = null;
+		}
+		if (isMetricsRegistered && metrics instanceof DefaultConfigMetrics) {
+			((DefaultConfigMetrics) metrics).unregisterMBean();
+			isMetricsRegistered = false;
+		}
+		changePublishers.values().forEach(ChangePublisher::complete);
+	}
+
+	/**
+	 * A Reactive Streams publisher of the changes under a prefix, for every reload, set property or overlay that changes a property under it.
+	 * Subscribers that fall behind get the changes conflated to the latest values, and never block the reloads.
+	 * The publisher is completed when the context is closed.
+	 * @param prefix The prefix of the keys, like 'server' for 'server.port' and 'server.http.host'. Null or empty for all properties.
+	 * @return The publisher of the prefix, which is the same for each call
+	 */
+	public ChangePublisher changes(String prefix) {
+		String cleanPrefix = prefix != null ? cleanupPropertyKey(prefix) : "";
+		return changePublishers.computeIfAbsent(cleanPrefix, key -> new ChangePublisher(key, lock, () -> sealChanges().getSealedProperties(), changeExecutor));
+	}
+
+	/**
+	 * Publish the properties as the next generation, and the changes to the subscribers of {@link #changes(String)}.
+	 * Called with the lock held, after each change. Properties that aren't sealed are sealed by the next lookup, see {@link #sealChanges()}.
+	 * Once published, the properties are never changed, so the readers of a state don't need the lock. See {@link #copyIfPublished()}.
+	 */
+	private void publishState(ConfigChange.Trigger trigger) {
+		ConfigSnapshot previousSnapshot = currentSnapshot;
+		boolean isSealed = properties.isSealed();
+		currentSnapshot = new ConfigSnapshot(this, previousSnapshot != null ? previousSnapshot.getGeneration() + 1 : 1,
+				isSealed ? properties : null, isSealed ? properties.snapshot() : null);
+		isPropertiesPublished = isSealed;
+		if (!changePublishers.isEmpty()) {
+			changePublishers.values().forEach(publisher -> publisher.publish(trigger));
+		}
+	}
+
+	/**
+	 * Seal the properties if the latest state isn't sealed. {@link #set(String, Object)} and the overlays don't seal the properties
+	 * themselves, which would compile the whole trie for every change. The next lookup or snapshot seals them instead, once for all changes before it.
+	 * @return The latest state, which is sealed, or null before the first load
+	 */
+	private ConfigSnapshot sealChanges() {
+		ConfigSnapshot snapshot = currentSnapshot;
+		if (snapshot != null && !snapshot.isSealed()) {
+			synchronized (lock) {
+				snapshot = currentSnapshot;	// The latest state, since the properties are the ones of the latest state
+				if (!snapshot.isSealed()) {	// Unless another lookup came first
+					snapshot.seal(properties, properties.snapshot());
+					isPropertiesPublished = true;
+				}
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Copy the properties before they are changed, if they are the ones of a published state. Must be called with the lock held.
+	 * The readers of a published state can then read it without the lock, and many changes in a row are made to the same copy.
+	 */
+	private void copyIfPublished() {
+		if (isPropertiesPublished) {
+			properties = properties.copy();
+			placeholders.setProperties(properties);
+			isPropertiesPublished = false;
+		}
+	}
+
+	/**
+	 * @return The name of the context, used for the metrics MBean
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The metrics of the context, or {@link ConfigMetrics#NONE} if disabled
+	 */
+	public ConfigMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return The time spent in each phase of the first load, complete once the context has been built
+	 */
+	public StartupReport getStartupReport() {
+		return startupReport;
+	}
+
+	/**
+	 * @return The default files: application[-profile].properties|yml for Spring and conf/config.json[5] for Vertx
+	 */
+	static List<String> getDefaultFilenames() {
+		List<String> filenames = new ArrayList<>();
+		// Spring
+		filenames.add("application.properties");
+		filenames.add("application.yml");
+		filenames.addAll(getSpringProfileFilenames());
+
+		// Vertx
+		filenames.add("conf/config.json");
+		filenames.add("conf/config.json5");
+		return filenames;
+	}
+
+	private static List<String> getSpringProfileFilenames() {
+		List<String> filenames = new ArrayList<>();
+		String springProfileArgument = System.getProperty("spring.profiles.active", "");
+		List<String> springProfiles = springProfileArgument.contains(",")
+				? Arrays.asList(springProfileArgument.split("\\s*,\\s*"))
+				: Collections.singletonList(springProfileArgument);
+
+		springProfiles.stream().filter(profile -> !profile.trim().isEmpty()).forEach(profile -> {	// No 'application-.properties' without a profile
+			filenames.add(String.format("application-%s.properties", profile));
+			filenames.add(String.format("application-%s.yml", profile));
+		});
+
+		return filenames;
+	}
+
+	private void loadVariablesFromAdditionalFiles(SymbolTable symbols) {
+		List<String> additionalFilenames = getAdditionalConfigFilesByEnvName(ADDITIONAL_CONFIG_FILES);
+		additionalFilenames.addAll(getAdditionalConfigFilesByEnvName(ADDITIONAL_CONFIG_FILES_SPRING));
+
+		additionalFilenames.removeIf(filesToLoad::contains);	// Already loaded with the other files, by an earlier load
+		Iterator<String> iter = additionalFilenames.iterator();
+		while (iter.hasNext()) {
+			String filename = iter.next();
+
+			if (!loadVariablesFromFile(filename, symbols)) {
+				LOGGER.log(Level.WARNING, "Couldn't load the configuration file '" + filename + "'.");
+				iter.remove();
+			}
+		}
+		filesToLoad.addAll(additionalFilenames);
+
+	}
+
+	/**
+	 * Load the files of the open overlays of 'config.sources' and 'spring.additional-files'. They aren't added to the files to load,
+	 * so they are no longer loaded once the overlays are closed.
+	 */
+	private void loadVariablesFromOverlaySources(SymbolTable symbols) {
+		Set<String> overlayFilenames = new LinkedHashSet<>();
+		for (String key : Arrays.asList(ADDITIONAL_CONFIG_FILES, ADDITIONAL_CONFIG_FILES_SPRING)) {
+			Deque<PropertyOverlay> keyOverlays = overlaysByKey.get(key);
+			List<String> values = keyOverlays != null && !keyOverlays.isEmpty() ? keyOverlays.getLast().getProperties().get(key) : null;
+			if (values != null) {
+				values.forEach(value -> ConversionUtils.getStringAsList(value, ",").stream()
+						.filter(str -> str != null && !str.trim().isEmpty()).map(String::trim).forEach(overlayFilenames::add));
+			}
+		}
+
+		overlayFilenames.removeAll(filesToLoad);	// Already loaded
+		for (String filename : overlayFilenames) {
+			if (!loadVariablesFromFile(filename, symbols)) {
+				LOGGER.log(Level.WARNING, "Couldn't load the configuration file '" + filename + "'.");
+			}
+		}
+	}
+
+	private List<String> getAdditionalConfigFilesByEnvName(String envName) {
+		return ConversionUtils.getStringAsList(getLoadingSetting(envName, "", String.class), ",")
+				.stream().filter(str -> str != null && !str.isEmpty()).map(String::trim).collect(Collectors.toList());
+	}
+
+	/**
+	 * Load all sources again.
+	 * @param force If false, the sources are only loaded if they haven't been loaded before
+	 */
+	public void refresh(boolean force) {
+		if (force || !isInitialized()) {
+			synchronized (lock) {
+				if (!force && isInitialized())
+					return;
+
+				reload(ConfigChange.Trigger.REFRESH, Collections.emptyMap(), true);
+				isInitialized = true;	// After the first state is published, so snapshot() never returns null
+			}
+		}
+	}
+
+	/**
+	 * Load all sources again into new properties, and publish them as the new state. Must be called with the lock held.
+	 * The published state isn't changed, so the readers keep reading it until the new state is published.
+	 * @param fileContents The already read content of changed files, by their names, or null for removed files
+	 * @param removeMissingFiles If the files that don't exist shall no longer be loaded. Files removed at runtime are kept, since they may come back.
+	 */
+	private void reload(ConfigChange.Trigger trigger, Map<String, String> fileContents, boolean removeMissingFiles) {
+		Object reloadEvent = ConfigEvents.beginReload();
+		long keysBefore = properties.size();
+		long start = System.nanoTime();
+		properties = createPropertyMap();
+		isPropertiesPublished = false;
+		placeholders.setProperties(properties);	// Compiled again by resolvePlaceholders()
+		SymbolTable symbols = new SymbolTable();	// Shared by all sources of the load, and discarded afterwards
+		loadVariablesFromPropertySources(symbols);
+		loadVariablesFromFiles(symbols, fileContents, removeMissingFiles);
+		loadVariablesFromAdditionalFiles(symbols);
+		loadVariablesFromOverlaySources(symbols);
+		loadVariablesFromProgram(symbols);
+		long mergeStart = System.nanoTime();
+		reapplySetProperties();
+		reapplyOverlays();
+		resolvePlaceholders();
+		properties.seal();	// Read-only from here on, until the next change
+		startupReport.add(StartupReport.Phase.MERGE, System.nanoTime() - mergeStart);
+		metrics.reloaded(System.nanoTime() - start);
+		ConfigEvents.endReload(reloadEvent, name, trigger.getName(), fileContents.isEmpty() ? filesToLoad : fileContents.keySet(), keysBefore, properties.size());
+		publishState(trigger);
+	}
+
+	private boolean isInitialized() {
+		return isInitialized;
+	}
+
+	public boolean isRuntimeEnabled() {
+		return isRuntimeEnabled;
+	}
+
+	/**
+	 * Add the properties of the already parsed sources, like the property sources of a Spring environment. They are read again by each refresh.
+	 */
+	private void loadVariablesFromPropertySources(SymbolTable symbols) {
+		propertySources.forEach((sourceName, source) -> {
+			long start = System.nanoTime();
+			try {
+				Map<String, List<String>> sourceProperties = source.get();
+				if (sourceProperties != null) {
+					properties.putAll(sourceProperties, symbols);
+					LOGGER.log(Level.FINE, "New properties added from the source '" + sourceName + "'. List of added keys: " + sourceProperties.keySet());
+				}
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "Couldn't load the source '" + sourceName + "'. Reason: " + e.getMessage());
+			}
+			startupReport.add(StartupReport.Phase.MERGE, System.nanoTime() - start);
+		});
+	}
+
+	/**
+	 * Load the files. Also remove the files that don't exist from the list, if enabled.
+	 */
+	private void loadVariablesFromFiles(SymbolTable symbols, Map<String, String> fileContents, boolean removeMissingFiles) {
+		filesToLoad.removeIf(filename -> !loadVariablesFromFile(filename, symbols, fileContents) && removeMissingFiles);
+	}
+
+	private boolean loadVariablesFromFile(String filename, SymbolTable symbols) {
+		return loadVariablesFromFile(filename, symbols, Collections.emptyMap());
+	}
+
+	private String readFile(String filename) throws IOException {
+		return HttpConfigSource.isUrl(filename) ? httpSource.read(filename) : fileSource.read(filename);
+	}
+
+	/**
+	 * Load a configuration file into the properties.
+	 * @param filename Absolute path or relative path based on the resource directory
+	 * @param symbols The symbol table of the current load
+	 * @param fileContents The already read content of files, which are used instead of reading them again
+	 * @return True if the file could be loaded
+	 */
+	private boolean loadVariablesFromFile(String filename, SymbolTable symbols, Map<String, String> fileContents) {
+		try {
+			long readStart = System.nanoTime();
+			String fileContent = fileContents.containsKey(filename) ? fileContents.get(filename) : readFile(filename);
+			if (fileContent == null) { // If file doesn't exist, remove it
+				startupReport.fileMissing(filename, System.nanoTime() - readStart);
+				return false;
+			}
+
+			Object parseEvent = ConfigEvents.beginParse();
+			long parseStart = System.nanoTime();
+			Map<String, List<String>> newProperties = ParserSelector.getParser(filename).toMultiMap(fileContent, symbols);
+			long parseEnd = System.nanoTime();
+			long sizeInBytes = FileUtils.getUtf8Length(fileContent);
+			metrics.fileParsed(filename, sizeInBytes, parseEnd - parseStart);
+			ConfigEvents.endParse(parseEvent, filename, sizeInBytes, newProperties.size());
+			startupReport.fileLoaded(filename, parseStart - readStart, parseEnd - parseStart, sizeInBytes, newProperties.size());
+			// Config.environmentVariables.setProperties(newProperties);
+			long mergeStart = System.nanoTime();
+			this.properties.putAll(newProperties, symbols);
+			startupReport.add(StartupReport.Phase.MERGE, System.nanoTime() - mergeStart);
+			LOGGER.log(Level.FINE, "New properties added from file '" + filename + "'. List of added keys: " + newProperties.keySet());
+			return true;
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Couldn't load the file '" + filename + "'. Reason: " + e.getMessage());
+		}
+
+		return false;
+	}
+
+	/**
+	 * Load the properties set on the builder, and then the system properties if included.
+	 */
+	private void loadVariablesFromProgram(SymbolTable symbols) {
+		long start = System.nanoTime();
+		programProperties.forEach((propertyName, value) -> properties.put(propertyName, value, symbols));
+		startupReport.add(StartupReport.Phase.MERGE, System.nanoTime() - start);
+		if (!includeSystemProperties) {
+			return;
+		}
+
+		start = System.nanoTime();
+		Set<String> systemProperties = System.getProperties().stringPropertyNames();
+		for (String propertyName : systemProperties) {
+//			environmentVariables.setProperty(propertyName, System.getProperty(propertyName));
+			properties.put(propertyName, System.getProperty(propertyName), symbols);
+		}
+		startupReport.add(StartupReport.Phase.SYSTEM_PROPERTIES, System.nanoTime() - start);
+		LOGGER.fine("New properties added from program. List of added keys: " + systemProperties);
+	}
+
+	private boolean isPlaceholdersEnabled() {
+		return getLoadingSetting(PLACEHOLDERS_ENABLED, true, Boolean.class);
+	}
+
+	/**
+	 * Compile and render all values that contains placeholders like <code>${example.my-variable:default-value}</code>.
+	 */
+	private void resolvePlaceholders() {
+		placeholders.clear();
+		if (isPlaceholdersEnabled()) {
+			placeholders.resolveAll();
+		}
+	}
+
+	private void waitForInitialization() {
+		// Check that everything is initialized first!
+		if (!isInitialized()) {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			waitForInitialization();
+		}
+	}
+
+	private <T> T get(String key, Class<T> returnType, boolean isRuntimeEnabled, boolean waitForInitialization) throws IllegalArgumentException {
+		if (waitForInitialization) {
+			waitForInitialization();
+		}
+
+//		String stringValue = environmentVariables.getProperty(key);
+		return sealChanges().get(key, returnType);	// The same lookup as for a snapshot, including the metrics and the events
+	}
+
+	/**
+	 * Internal. Read one of the 'config.*' settings from the latest state. Not recorded as a lookup in the metrics or the events,
+	 * which only count the lookups of the application.
+	 */
+	private <T> T getSetting(String key, T defaultValue, Class<T> returnType) {
+		return toSetting(snapshot().peekString(key), defaultValue, returnType);
+	}
+
+	/**
+	 * Internal. Read one of the 'config.*' settings from the properties that are being loaded or changed, like the additional files.
+	 * Must be called with the lock held.
+	 */
+	private <T> T getLoadingSetting(String key, T defaultValue, Class<T> returnType) {
+		return toSetting(properties.getLast(key), defaultValue, returnType);
+	}
+
+	private <T> T toSetting(String stringValue, T defaultValue, Class<T> returnType) {
+		T value = stringValue != null ? ConversionUtils.convertStringToType(stringValue, returnType) : null;
+		if (value != null) {
+			return value;
+		}
+		return defaultValue.getClass() == returnType ? defaultValue : ConversionUtils.convertStringToType(defaultValue.toString(), returnType);
+	}
+
+	// Internal. Set if the property should be fetched runtime or not.
+	private <T> T get(String key, Class<T> returnType, boolean isRuntimeEnabled) throws IllegalArgumentException {
+		return get(key, returnType, isRuntimeEnabled, true);
+	}
+
+	/**
+	 * Get a property by a key and return type.
+	 * @param key Name of the property
+	 * @param returnType The class that the property shall be returned as
+	 * @param <T> The supplied type
+	 * @return The property or null if none was found
+	 * @throws IllegalArgumentException If the class was not supported
+	 */
+	public <T> T get(String key, Class<T> returnType) throws IllegalArgumentException {
+		return get(key, returnType, this.isRuntimeEnabled);
+	}
+
+	// Internal. Set if the property should be fetched runtime or not.
+	private <T> T get(String key, T defaultValue, Class<T> returnType, boolean isRuntimeEnabled, boolean waitForInitialization) throws IllegalArgumentException {
+		T result = get(key, returnType, isRuntimeEnabled, waitForInitialization);
+		if (result != null) {
+			return result;
+		}
+		// A default of the same class is what the conversion of its string would return, so return it directly
+		return defaultValue.getClass() == returnType ? defaultValue : ConversionUtils.convertStringToType(defaultValue.toString(), returnType);
+	}
+
+	// Internal. Set if the property should be fetched runtime or not.
+	private <T> T get(String key, T defaultValue, Class<T> returnType, boolean isRuntimeEnabled) throws IllegalArgumentException {
+		return get(key, defaultValue, returnType, isRuntimeEnabled, true);
+	}
+
+	/**
+	 * Get a property by a key and return type.
+	 * @param key Name of the property
+	 * @param defaultValue The default value to return.
+	 * @param returnType The class that the property shall be returned as
+	 * @param <T> The supplied type
+	 * @return The property or null if none was found
+	 * @throws IllegalArgumentException If the class was not supported
+	 */
+	public <T> T get(String key, T defaultValue, Class<T> returnType) throws IllegalArgumentException {
+		return get(key, defaultValue, returnType, this.isRuntimeEnabled);
+	}
+
+	/**
+	 * Get optional property by a key and return type.
+	 * @param key Name of the property
+	 * @param returnType The class that the property shall be returned as
+	 * @param <T> The supplied type
+	 * @return The optional property
+	 * @throws IllegalArgumentException If the class was not supported
+	 */
+	public <T> Optional<T> getOptional(String key, Class<T> returnType) throws IllegalArgumentException {
+		return Optional.ofNullable(get(key, returnType, this.isRuntimeEnabled));
+	}
+
+	/**
+	 * Gets properties by a key and sub-type.
+	 * @param key Name of the property
+	 * @param subType The class that the property shall be returned as
+	 * @param <T> The supplied type
+	 * @return A modifiable list of the properties, or an empty list if none was found
+	 */
+	public <T> List<T> getList(String key, Class<T> subType) {
+		List<T> values = snapshot().getList(key, subType);
+		return values != null ? new ArrayList<>(values) : null;	// The snapshot's lists are read-only
+	}
+
+	/**
+	 * Get optional properties by a key and return type.
+	 * @param key Name of the property
+	 * @param subType The class that the property elements shall be returned as
+	 * @param <T> The supplied type
+	 * @return The optional property. Empty lists will be reported as "not present" in the Optional object.
+	 * @throws IllegalArgumentException If the class was not supported
+	 */
+	public <T> Optional<List<T>> getOptionalList(String key, Class<T> subType) {
+		List<T> list = getList(key, subType);
+		return Optional.ofNullable(!list.isEmpty() ? list : null);
+	}
+
+	/**
+	 * Get all properties as a HashMap.
+	 * @param key Name of the property
+	 * @return A HashMap, or null of nothing was found
+	 */
+	@NonNull
+	public Map<String, List<Object>> getFlattenedPathMultiMap(String key) {
+		return getFlattenedPathMultiMap(key, Object.class);
+	}
+
+	/**
+	 * Get all properties as a HashMap.
+	 * @param key Name of the property
+	 * @param subType The class that the property elements shall be returned as
+	 * @param <T> The supplied type
+	 * @return A read-only map, which is empty if nothing was found
+	 */
+	@NonNull
+	public <T> Map<String, List<T>> getFlattenedPathMultiMap(String key, Class<T> subType) {
+		Map<String, List<T>> multiMap = getMultiMap(key, subType); // Already flat, since the keys are relative paths and the values are lists
+		return multiMap != null ? multiMap : Collections.emptyMap();
+	}
+
+	/**
+	 * Get all properties as a HashMap. The map is a read-only view of the properties under the key in the latest state, and isn't changed by later changes.
+	 * @param key Name of the property
+	 * @param innerObjectsClass Return type of the map object
+	 * @return A read-only map, or null of nothing was found
+	 */
+	public <T> Map<String, T> getSimpleMap(String key, Class<T> innerObjectsClass) {
+		return sealChanges().getPropertyTree().getCachedHashMap(key, innerObjectsClass);	// A view of the tree of the state, which is never changed
+	}
+
+	/**
+	 * Get all properties as an optional HashMap.
+	 * @param key Name of the property
+	 * @param innerObjectsClass Return type of the map object
+	 * @return An optional that could contain a found HashMap
+	 */
+	public <T> Optional<Map<String, T>> getOptionalSimpleMap(String key, Class<T> innerObjectsClass) {
+		return Optional.ofNullable(getSimpleMap(key, innerObjectsClass));
+	}
+
+	/**
+	 * Get all of the properties as a MultiMap. The map is a read-only view of the properties under the key in the latest state, and isn't changed by later changes.
+	 * @param key Name of the property
+	 * @return A read-only MultiMap, or null of nothing was found
+	 */
+	public Map<String, List<Object>> getMultiMap(String key) {
+		return getMultiMap(key, Object.class);
+	}
+
+	/**
+	 * Get all properties as a MultiMap. The map is a read-only view of the properties under the key in the latest state, and isn't changed by later changes.
+	 * @param key Name of the property
+	 * @param innerObjectsClass Return type of the map object
+	 * @return A read-only MultiMap, or null of nothing was found
+	 */
+	public <T> Map<String, List<T>> getMultiMap(String key, Class<T> innerObjectsClass) {
+		return sealChanges().getPropertyTree().getCachedMultiMap(key, innerObjectsClass);	// A view of the tree of the state, which is never changed
+	}
+
+	/**
+	 * Lazily iterate the properties under a prefix, in key order, without copying the subtree.
+	 * Use {@link java.util.stream.StreamSupport#stream(Spliterator, boolean)} for a (parallel) stream of the entries.
+	 * The properties of the latest state are iterated, see {@link ConfigSnapshot#scan(String)}, so a reload during the iteration isn't seen.
+	 * @param prefix Name of the property to scan below, which is included if it has values. Null or empty for all properties.
+	 * @return An ordered spliterator of read-only entries with full property names
+	 */
+	public Spliterator<Map.Entry<String, List<String>>> scan(String prefix) {
+		return snapshot().scan(prefix);
+	}
+
+	/**
+	 * Lazily iterate the properties in a range of names, in key order, without copying anything.
+	 * The order is by segment, so 'a' comes before 'a.b', which comes before 'a-b'. The properties of the latest state are iterated.
+	 * @param fromKey The first property name to include, or null to start from the first property
+	 * @param toKey The first property name to exclude, or null to end at the last property
+	 * @return An ordered spliterator of read-only entries with full property names
+	 */
+	public Spliterator<Map.Entry<String, List<String>>> scan(String fromKey, String toKey) {
+		return snapshot().scan(fromKey, toKey);
+	}
+
+	/**
+	 * Lazily find the properties that match a query with wildcards, like 'services.*.http.port' or 'pools.**.max-size'.
+	 * Only the properties that can match the query are visited. See {@link PathQuery} for the syntax.
+	 * The properties of the latest state are queried, see {@link ConfigSnapshot#query(String)}, so a reload during the iteration isn't seen.
+	 * @param query The query
+	 * @return An iterator of read-only entries with full property names
+	 * @throws IllegalArgumentException If the query is invalid
+	 */
+	public Iterator<Map.Entry<String, List<String>>> query(String query) throws IllegalArgumentException {
+		return snapshot().query(query);
+	}
+
+	/**
+	 * Same as {@link #query(String)}, for a query that has been compiled once with {@link PathQuery#compile(String)}.
+	 * @param query The compiled query
+	 * @return An iterator of read-only entries with full property names
+	 */
+	public Iterator<Map.Entry<String, List<String>>> query(PathQuery query) {
+		return snapshot().query(query);
+	}
+
+	/**
+	 * Get all properties as an optional MultiMap.
+	 * @param key Name of the property
+	 * @return An optional that could contain a found MultiMap
+	 */
+	public Optional<Map<String, List<Object>>> getOptionalMultiMap(String key) {
+		return Optional.ofNullable(getMultiMap(key));
+	}
+
+	/**
+	 * Get all properties as an optional MultiMap.
+	 * @param key Name of the property
+	 * @param innerObjectsClass Return type of object
+	 * @return An optional that could contain a found MultiMap
+	 */
+	public <T> Optional<Map<String, List<T>>> getOptionalMultiMap(String key, Class<T> innerObjectsClass) {
+		return Optional.ofNullable(getMultiMap(key, innerObjectsClass));
+	}
+
+	/**
+	 * Get all of the properties as a string
+	 * @return A string
+	 */
+	public String getPropertiesAsString() {
+//		return environmentVariables.entrySet().toString();
+		return snapshot().getPropertyTree().toString();
+	}
+
+	/**
+	 * Get the implemented map. Uses wrapper methods.
+	 * The object is cached, and the same instance is returned until a property under the key is changed. It should therefore not be modified.
+	 * The cache is kept by the latest state, and carried over to the next one for the unchanged keys, so a cached object is returned without locking.
+	 * @param key Name of the property
+	 * @return The implementation map
+	 */
+	public <T> T getObject(String key, Class<T> toClass) {
+		Object bindEvent = ConfigEvents.beginBind();
+		T value = convert(key, toClass, () -> sealChanges().getPropertyTree().getCachedObject(key, toClass));	// Cached in the tree of the state, without locks
+		metrics.lookup(key, value != null);
+		ConfigEvents.endBind(bindEvent, key, toClass, value != null);
+		return value;
+	}
+
+	/**
+	 * Get the implemented map. Uses wrapper methods.
+	 * @param key Name of the property
+	 * @return An optional implementation map
+	 */
+	public <T> Optional<T> getOptionalObject(String key, Class<T> toClass) {
+		return Optional.ofNullable(getObject(key, toClass));
+	}
+
+	/**
+	 * Internal. Bind a property, or all properties under the key, to a (generic) type. Used by {@link PropertyHandle}.
+	 * @param snapshot The state to bind from, which is never changed, so no lock is needed
+	 * @return The bound value, or null if nothing was found
+	 */
+	Object bind(ConfigSnapshot snapshot, String key, Type type) {
+		Object bindEvent = ConfigEvents.beginBind();
+		PathEntry<String> entry = snapshot.getPropertyTree().getEntry(key);
+		metrics.lookup(key, entry != null);
+		Object value = entry != null ? convert(key, type, () -> ObjectBinder.bind(entry, type)) : null;
+		ConfigEvents.endBind(bindEvent, key, type, entry != null);
+		return value;
+	}
+
+	/**
+	 * The latest published state of the properties, which isn't affected by later reloads and changes.
+	 * @return The snapshot, waiting for the first load if needed
+	 */
+	public ConfigSnapshot snapshot() {
+		waitForInitialization();
+		return sealChanges();
+	}
+
+	/**
+	 * Read related properties from one state of the configuration, like 'db.url' and 'db.password', even if a reload
+	 * completes while reading. The reload isn't blocked, the reads just don't see it.
+	 * @param reader Reads the properties from the snapshot
+	 * @param <R> The result type
+	 * @return The result of the reader
+	 */
+	public <R> R read(Function<ConfigSnapshot, R> reader) {
+		return reader.apply(snapshot());
+	}
+
+	/**
+	 * The generation of the latest published state, which is increased by every reload, set property and overlay.
+	 * A single volatile read, for caches and hot loops that need to check if anything has changed.
+	 * @return The generation, or 0 before the first load
+	 */
+	public long generation() {
+		ConfigSnapshot snapshot = currentSnapshot;
+		return snapshot != null ? snapshot.getGeneration() : 0;
+	}
+
+	/**
+	 * Start a batch of lookups, which are resolved together from the same state of the properties. See {@link ConfigBatch}.
+	 * @return A new, empty batch
+	 */
+	public ConfigBatch batch() {
+		return new ConfigBatch(this);
+	}
+
+	/**
+	 * Run a conversion or binding, and count it as failed if it throws.
+	 */
+	private <T> T convert(String key, Type type, Supplier<T> conversion) {
+		try {
+			return conversion.get();
+		} catch (RuntimeException e) {
+			metrics.conversionFailed(key, type);
+			throw e;
+		}
+	}
+
+	/**
+	 * The loaded files by this configurator. Left is loaded first, and the right side is loaded last.
+	 * Properties that are loaded by later by a file will have overriden any previously set properties.
+	 * @return A list of files. Newer files are last in the list.
+	 */
+	public List<String> getLoadedFiles() {
+		synchronized (lock) {
+			return new ArrayList<>(filesToLoad);
+		}
+	}
+
+	//
+	// Property getters
+	//
+	/**
+	 * Fetch a property with a given key as a String (works for all existing values).
+	 * @param key Name of the property
+	 * @return The instance or null if none was found
+	 */
+	public String getString(String key) {
+		return get(key, String.class);
+	}
+
+	/**
+	 * Fetch a property with a given key as an optional String (works for all existing values).
+	 * @param key Name of the property
+	 * @return The optional with the found value
+	 */
+	public Optional<String> getOptionalString(String key) {
+		return Optional.ofNullable(getString(key));
+	}
+
+	/**
+	 * Fetch a property with a given key as a String (works for all existing values).
+	 * @param key Name of the property
+	 * @param defaultValue Value to use in case the property wasn't found
+	 * @return The instance or the default value if none was found
+	 */
+	public String getString(String key, @NotNull String defaultValue) {
+		return get(key, defaultValue, String.class);
+	}
+
+	public List<String> getStringList(String key) {
+		return getList(key, String.class);
+	}
+
+	/**
+	 * See {@link #getOptionalList(String, Class)}
+	 */
+	public Optional<List<String>> getOptionalStringList(String key) {
+		return getOptionalList(key, String.class);
+	}
+
+	public List<String> getStringAsList(String key, String separator) {
+		return ConversionUtils.getStringAsList(getString(key), separator);
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @return The instance or null if none was found
+	 */
+	public Boolean getBoolean(String key) {
+		return get(key, Boolean.class);
+	}
+
+	/**
+	 * Fetch a property with a given key as an optional Boolean (works for all existing values).
+	 * @param key Name of the property
+	 * @return The optional with the found value
+	 */
+	public Optional<Boolean> getOptionalBoolean(String key) {
+		return Optional.ofNullable(getBoolean(key));
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @param defaultValue Value to use in case the property wasn't found
+	 * @return The instance or the default value (null-safe)
+	 */
+	public boolean getBoolean(String key, boolean defaultValue) {
+		return get(key, defaultValue, Boolean.class);
+	}
+
+
+	public List<Boolean> getBooleanList(String key) {
+		return getList(key, Boolean.class);
+	}
+
+	/**
+	 * See {@link #getOptionalList(String, Class)}
+	 */
+	public Optional<List<Boolean>> getOptionalBooleanList(String key) {
+		return getOptionalList(key, Boolean.class);
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @return The instance or null if none was found
+	 */
+	public Integer getInteger(String key) {
+		return get(key, Integer.class);
+	}
+
+	/**
+	 * Fetch a property with a given key as an optional Integer (works for all existing values).
+	 * @param key Name of the property
+	 * @return The optional with the found value
+	 */
+	public Optional<Integer> getOptionalInteger(String key) {
+		return Optional.ofNullable(getInteger(key));
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @param defaultValue Value to use in case the property wasn't found
+	 * @return The instance or the default value (null-safe)
+	 */
+	public int getInteger(String key, int defaultValue) {
+		return get(key, defaultValue, Integer.class);
+	}
+
+	public List<Integer> getIntegerList(String key) {
+		return getList(key, Integer.class);
+	}
+
+	/**
+	 * See {@link #getOptionalList(String, Class)}
+	 */
+	public Optional<List<Integer>> getOptionalIntegerList(String key) {
+		return getOptionalList(key, Integer.class);
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @return The instance or null if none was found
+	 */
+	public Long getLong(String key) {
+		return get(key, Long.class);
+	}
+
+	/**
+	 * Fetch a property with a given key as an optional Long (works for all existing values).
+	 * @param key Name of the property
+	 * @return The optional with the found value
+	 */
+	public Optional<Long> getOptionalLong(String key) {
+		return Optional.ofNullable(getLong(key));
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @param defaultValue Value to use in case the property wasn't found
+	 * @return The instance or the default value (null-safe)
+	 */
+	public long getLong(String key, long defaultValue) {
+		return get(key, defaultValue, Long.class);
+	}
+
+	public List<Long> getLongList(String key) {
+		return getList(key, Long.class);
+	}
+
+	/**
+	 * See {@link #getOptionalList(String, Class)}
+	 */
+	public Optional<List<Long>> getOptionalLongList(String key) {
+		return getOptionalList(key, Long.class);
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @return The instance or null if none was found
+	 */
+	public Double getDouble(String key) {
+		return get(key, Double.class);
+	}
+
+	/**
+	 * Fetch a property with a given key as an optional Double (works for all existing values).
+	 * @param key Name of the property
+	 * @return The optional with the found value
+	 */
+	public Optional<Double> getOptionalDouble(String key) {
+		return Optional.ofNullable(getDouble(key));
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @param defaultValue Value to use in case the property wasn't found
+	 * @return The instance or the default value (null-safe)
+	 */
+	public double getDouble(String key, double defaultValue) {
+		return get(key, defaultValue, Double.class);
+	}
+
+	public List<Double> getDoubleList(String key) {
+		return getList(key, Double.class);
+	}
+
+	/**
+	 * See {@link #getOptionalList(String, Class)}
+	 */
+	public Optional<List<Double>> getOptionalDoubleList(String key) {
+		return getOptionalList(key, Double.class);
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @return The instance or null if none was found
+	 */
+	public Float getFloat(String key) {
+		return get(key, Float.class);
+	}
+
+	/**
+	 * Fetch a property with a given key as an optional Float (works for all existing values).
+	 * @param key Name of the property
+	 * @return The optional with the found value
+	 */
+	public Optional<Float> getOptionalFloat(String key) {
+		return Optional.ofNullable(getFloat(key));
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @param defaultValue Value to use in case the property wasn't found
+	 * @return The instance or the default value (null-safe)
+	 */
+	public float getFloat(String key, float defaultValue) {
+		return get(key, defaultValue, Float.class);
+	}
+
+	public List<Float> getFloatList(String key) {
+		return getList(key, Float.class);
+	}
+
+	/**
+	 * See {@link #getOptionalList(String, Class)}
+	 */
+	public Optional<List<Float>> getOptionalFloatList(String key) {
+		return getOptionalList(key, Float.class);
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @return The instance or null if none was found
+	 */
+	public Character getCharacter(String key) {
+		return get(key, Character.class);
+	}
+
+	/**
+	 * Fetch a property with a given key as an optional Character (works for all existing values).
+	 * @param key Name of the property
+	 * @return The optional with the found value
+	 */
+	public Optional<Character> getOptionalCharacter(String key) {
+		return Optional.ofNullable(getCharacter(key));
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @param defaultValue Value to use in case the property wasn't found
+	 * @return The instance or the default value (null-safe)
+	 */
+	public char getCharacter(String key, char defaultValue) {
+		return get(key, defaultValue, Character.class);
+	}
+
+	public List<Character> getCharacterList(String key) {
+		return getList(key, Character.class);
+	}
+
+	/**
+	 * See {@link #getOptionalList(String, Class)}
+	 */
+	public Optional<List<Character>> getOptionalCharacterList(String key) {
+		return getOptionalList(key, Character.class);
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @return The instance or null if none was found
+	 */
+	public Short getShort(String key) {
+		return get(key, Short.class);
+	}
+
+	/**
+	 * Fetch a property with a given key as an optional Short (works for all existing values).
+	 * @param key Name of the property
+	 * @return The optional with the found value
+	 */
+	public Optional<Short> getOptionalShort(String key) {
+		return Optional.ofNullable(getShort(key));
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @param defaultValue Value to use in case the property wasn't found
+	 * @return The instance or the default value (null-safe)
+	 */
+	public short getShort(String key, short defaultValue) {
+		return get(key, defaultValue, Short.class);
+	}
+
+	public List<Short> getShortList(String key) {
+		return getList(key, Short.class);
+	}
+
+	/**
+	 * See {@link #getOptionalList(String, Class)}
+	 */
+	public Optional<List<Short>> getOptionalShortList(String key) {
+		return getOptionalList(key, Short.class);
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @return The instance or null if none was found
+	 */
+	public Byte getByte(String key) {
+		return get(key, Byte.class);
+	}
+
+	/**
+	 * Fetch a property with a given key as an optional Byte (works for all existing values).
+	 * @param key Name of the property
+	 * @return The optional with the found value
+	 */
+	public Optional<Byte> getOptionalByte(String key) {
+		return Optional.ofNullable(getByte(key));
+	}
+
+	/**
+	 * Fetch a property with a given key.
+	 * @param key Name of the property
+	 * @param defaultValue Value to use in case the property wasn't found
+	 * @return The instance or the default value (null-safe)
+	 */
+	public byte getByte(String key, byte defaultValue) {
+		return get(key, defaultValue, Byte.class);
+	}
+
+	public List<Byte> getByteList(String key) {
+		return getList(key, Byte.class);
+	}
+
+	/**
+	 * See {@link #getOptionalList(String, Class)}
+	 */
+	public Optional<List<Byte>> getOptionalByteList(String key) {
+		return getOptionalList(key, Byte.class);
+	}
+
+	private String cleanupPropertyKey(String key) {
+		return key != null
+				? key.trim()
+				.replace("_", ".")
+				.replaceAll("([a-z])([A-Z])", "$1-$2").toLowerCase()
+				: null;
+	}
+
+	/**
+	 * Temporarily override properties, without reloading any sources. Used for test properties, for instance.
+	 * Overlays can be closed in any order, and a property keeps the value of the latest overlay that is still open.
+	 * The overlays are kept on {@link #refresh(boolean)}.
+	 * @param overlayProperties The properties to override, with all of their values. Null or no values removes the property while the overlay is open.
+	 * @return The overlay, which restores the previous values when closed
+	 */
+	public PropertyOverlay pushOverlay(Map<String, List<String>> overlayProperties) {
+		Map<String, List<String>> cleanProperties = new LinkedHashMap<>();
+		overlayProperties.forEach((key, values) -> cleanProperties.put(cleanupPropertyKey(key),
+				values != null && !values.isEmpty() ? Collections.unmodifiableList(new ArrayList<>(values)) : null));
+		PropertyOverlay overlay = new PropertyOverlay(this, cleanProperties);
+
+		synchronized (lock) {
+			for (String key : cleanProperties.keySet()) {
+				if (!overlaysByKey.containsKey(key)) {
+					valuesBeforeOverlays.put(key, getRawValues(key));
+				}
+				overlaysByKey.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(overlay);
+			}
+			applyOverlays(cleanProperties.keySet());
+		}
+		return overlay;
+	}
+
+	void popOverlay(PropertyOverlay overlay) {
+		synchronized (lock) {
+			Set<String> keys = overlay.getProperties().keySet();
+			keys.forEach(key -> overlaysByKey.getOrDefault(key, new ArrayDeque<>()).remove(overlay));
+			applyOverlays(keys);
+		}
+	}
+
+	/**
+	 * @return The values of a key before placeholders were substituted, or null if there are none
+	 */
+	private List<String> getRawValues(String key) {
+		List<String> rawValues = placeholders.getRawValues(key);
+		if (rawValues != null) {
+			return rawValues;
+		}
+		List<String> values = properties.get(key);
+		return values != null && !values.isEmpty() ? new ArrayList<>(values) : null;
+	}
+
+	/**
+	 * Set the keys to the values of their latest overlay, or to the values from before the overlays if none is left.
+	 * Overlays of 'config.sources' and 'spring.additional-files' reload the sources, so that their files are loaded or unloaded.
+	 */
+	private void applyOverlays(Collection<String> keys) {
+		if (keys.contains(ADDITIONAL_CONFIG_FILES) || keys.contains(ADDITIONAL_CONFIG_FILES_SPRING)) {
+			for (String key : keys) {
+				Deque<PropertyOverlay> keyOverlays = overlaysByKey.get(key);
+				if (keyOverlays == null || keyOverlays.isEmpty()) {
+					overlaysByKey.remove(key);
+					valuesBeforeOverlays.remove(key);	// Loaded again by the reload
+				}
+			}
+			reload(ConfigChange.Trigger.OVERLAY, Collections.emptyMap(), false);
+			return;
+		}
+
+		copyIfPublished();
+		Map<String, List<String>> changedProperties = new LinkedHashMap<>();
+		for (String key : keys) {
+			Deque<PropertyOverlay> keyOverlays = overlaysByKey.get(key);
+			List<String> values;
+			if (keyOverlays == null || keyOverlays.isEmpty()) {
+				overlaysByKey.remove(key);
+				values = valuesBeforeOverlays.remove(key);
+			}
+			else {
+				values = keyOverlays.getLast().getProperties().get(key);
+			}
+
+			properties.remove(key);
+			if (values != null) {
+				properties.put(key, values);
+			}
+			changedProperties.put(key, values);
+		}
+
+		if (isPlaceholdersEnabled()) {
+			placeholders.replace(changedProperties);
+		}
+		publishState(ConfigChange.Trigger.OVERLAY);	// Sealed by the next lookup
+	}
+
+	/**
+	 * Set the values of {@link #set(String, Object)} again after a reload, which replace the values of the files and the program properties.
+	 */
+	private void reapplySetProperties() {
+		setProperties.forEach((key, value) -> properties.putAndReplace(key, Collections.singletonList(value)));
+	}
+
+	/**
+	 * Override the newly loaded properties with the open overlays. The loaded values are restored when the overlays are closed.
+	 */
+	private void reapplyOverlays() {
+		overlaysByKey.forEach((key, keyOverlays) -> {
+			valuesBeforeOverlays.put(key, properties.remove(key));
+			List<String> values = keyOverlays.getLast().getProperties().get(key);
+			if (values != null) {
+				properties.put(key, values);
+			}
+		});
+	}
+
+	/**
+	 * Setter method that is hidden for common usage. Used by {@link Config} and the test helper.
+	 * The value replaces all values of the key, whether it has placeholders or not.
+	 */
+	void set(String key, Object value) {
+		if (key == null) {
+			return;
+		}
+		synchronized (lock) {
+			copyIfPublished();
+			String cleanKey = cleanupPropertyKey(key);
+			String stringValue = value != null ? value.toString() : null;
+			setProperties.put(cleanKey, stringValue);
+			List<String> values = Collections.singletonList(stringValue);
+			properties.putAndReplace(cleanKey, values);
+			if (ADDITIONAL_CONFIG_FILES.equals(cleanKey) || ADDITIONAL_CONFIG_FILES_SPRING.equals(cleanKey)) {
+				SymbolTable symbols = new SymbolTable();
+				loadVariablesFromAdditionalFiles(symbols);
+				loadVariablesFromProgram(symbols);
+				resolvePlaceholders();
+			}
+			else if (isPlaceholdersEnabled()) {
+				placeholders.replace(Collections.singletonMap(cleanKey, values));
+			}
+			publishState(ConfigChange.Trigger.SET);	// Sealed by the next lookup
+		}
+	}
+
+	public static final class Builder {
+		private final Set<String> filesToLoad = new LinkedHashSet<>();
+		private final Map<String, String> programProperties = new LinkedHashMap<>();
+		private final Map<String, Supplier<Map<String, List<String>>>> propertySources = new LinkedHashMap<>();
+		private boolean includeSystemProperties;
+		private boolean startRuntimeWatcher = true;
+		private FileSource fileSource = FileSource.DEFAULT;
+		private String name;
+		private ConfigMetrics metrics = ConfigMetrics.NONE;
+		private Executor changeExecutor = ForkJoinPool.commonPool();
+
+		private Builder() {
+		}
+
+		/**
+		 * Load the Spring (application[-profile].properties|yml) and Vertx (conf/config.json[5]) files, if they exist.
+		 */
+		public Builder withDefaultFiles() {
+			this.filesToLoad.addAll(getDefaultFilenames());
+			return this;
+		}
+
+		/**
+		 * @param filenames Configuration files (.properties|yml|json|json5), as absolute paths or relative to the resource directory,
+		 *                  or HTTP(S) URLs like 'http://localhost:8888/app.yml'. Files that don't exist are skipped.
+		 */
+		public Builder withFiles(String... filenames) {
+			this.filesToLoad.addAll(Arrays.asList(filenames));
+			return this;
+		}
+
+		/**
+		 * Add properties that are already parsed, instead of parsing their files again. They are loaded before the files,
+		 * in the order that they were added, so the files and the set properties override them.
+		 * @param name Name of the source, used in the logs
+		 * @param source Returns the properties with all of their values. Called again by each refresh.
+		 */
+		public Builder withPropertySource(@NotNull String name, @NotNull Supplier<Map<String, List<String>>> source) {
+			this.propertySources.put(name, source);
+			return this;
+		}
+
+		/**
+		 * Set a property, which overrides the files.
+		 */
+		public Builder withProperty(String key, String value) {
+			this.programProperties.put(key, value);
+			return this;
+		}
+
+		/**
+		 * Set properties, which override the files.
+		 */
+		public Builder withProperties(Map<String, String> properties) {
+			this.programProperties.putAll(properties);
+			return this;
+		}
+
+		/**
+		 * Also load the system properties, which override both the files and the properties set on the builder.
+		 */
+		public Builder withSystemProperties() {
+			this.includeSystemProperties = true;
+			return this;
+		}
+
+		/**
+		 * @param fileSource Reads the files instead of the disk and resource directory, for instance an in-memory store in tests
+		 */
+		public Builder withFileSource(@NotNull FileSource fileSource) {
+			this.fileSource = fileSource;
+			return this;
+		}
+
+		/**
+		 * @param name The name of the context, used for the metrics MBean. 'context-N' by default.
+		 */
+		public Builder withName(@NotNull String name) {
+			this.name = name;
+			return this;
+		}
+
+		/**
+		 * @param metrics Receives the lookups, conversion failures, parses and reloads of the context, including the first load.
+		 *                Without it, {@link DefaultConfigMetrics} are created and registered as an MXBean if 'config.metrics.enabled' is set.
+		 */
+		public Builder withMetrics(@NotNull ConfigMetrics metrics) {
+			this.metrics = metrics;
+			return this;
+		}
+
+		/**
+		 * @param changeExecutor Sends the changes to the subscribers of {@link ConfigContext#changes(String)}. The common fork-join pool by default.
+		 */
+		public Builder withChangeExecutor(@NotNull Executor changeExecutor) {
+			this.changeExecutor = changeExecutor;
+			return this;
+		}
+
+		/**
+		 * @param startRuntimeWatcher If the loaded files shall be watched for changes when 'config.runtime.enabled' is set. True by default.
+		 */
+		public Builder withRuntimeWatcher(boolean startRuntimeWatcher) {
+			this.startRuntimeWatcher = startRuntimeWatcher;
+			return this;
+		}
+
+		/**
+		 * Create the context and load its sources.
+		 */
+		public ConfigContext build() {
+			long start = System.nanoTime();
+			ConfigContext context = new ConfigContext(this);
+			context.refresh(true);
+			context.initMetrics();
+			if (startRuntimeWatcher) {
+				long watcherStart = System.nanoTime();
+				context.initRuntimeWatcher();
+				context.startupReport.add(StartupReport.Phase.WATCHER_START, System.nanoTime() - watcherStart);
+			}
+			context.startupReport.complete(System.nanoTime() - start);
+			return context;
+		}
+	}
+
+}
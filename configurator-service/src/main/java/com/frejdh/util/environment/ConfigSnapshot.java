@@ -0,0 +1,353 @@
+package com.frejdh.util.environment;
+
+import com.frejdh.util.environment.jfr.ConfigEvents;
+import com.frejdh.util.environment.storage.map.LinkedPathMultiMap;
+import com.frejdh.util.environment.storage.map.PathMapSnapshot;
+import com.frejdh.util.environment.storage.map.PathQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import static com.frejdh.util.environment.parser.AbstractParser.ARRAY_PATTERN_FOR_KEY;
+
+/**
+ * One published state of the properties of a {@link ConfigContext}. Each reload, set property and overlay publishes
+ * a new state with the next generation number, while the snapshots that have already been taken are never changed.
+ * Related values, like 'db.url' and 'db.password', are therefore always from the same configuration when they are read
+ * from one snapshot, see {@link ConfigContext#read(java.util.function.Function)}.
+ * <br><br>
+ * Taking a snapshot is a single volatile read, and its lookups cost the same as the lookups of the context.
+ * A state published by {@code set(...)} or an overlay is sealed when it's first taken, so that many changes in a row are sealed once.
+ */
+public final class ConfigSnapshot {
+	private static final Logger LOGGER = Logger.getLogger(Config.class.getName());	// The lookups of the contexts are logged here
+	private final ConfigContext context;
+	private final long generation;
+	private LinkedPathMultiMap<String> propertyTree;	// Written before the properties, and read after them
+	private volatile PathMapSnapshot<String> properties;	// Null until sealed, but always sealed before it's handed out
+
+	/**
+	 * @param propertyTree The properties of this state, which are never changed once published. Null if they are sealed later.
+	 * @param properties The sealed properties, or null if they are sealed later, see {@link #seal(LinkedPathMultiMap, PathMapSnapshot)}
+	 */
+	ConfigSnapshot(ConfigContext context, long generation, LinkedPathMultiMap<String> propertyTree, PathMapSnapshot<String> properties) {
+		this.context = context;
+		this.generation = generation;
+		this.propertyTree = propertyTree;
+		this.properties = properties;
+	}
+
+	/**
+	 * Internal. Set the properties and the sealed properties, unless they are already set. Called with the lock of the context held,
+	 * while this is still the latest state, so they are the properties of this generation.
+	 */
+	void seal(LinkedPathMultiMap<String> propertyTree, PathMapSnapshot<String> sealedProperties) {
+		if (properties == null) {
+			this.propertyTree = propertyTree;
+			this.properties = sealedProperties;
+		}
+	}
+
+	boolean isSealed() {
+		return properties != null;
+	}
+
+	ConfigContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Internal. The properties of this state, for the lookups that need a whole subtree, like binding an object.
+	 * Never changed once published, so they can be read without a lock.
+	 */
+	LinkedPathMultiMap<String> getPropertyTree() {
+		return properties != null ? propertyTree : null;	// The volatile read first
+	}
+
+	/**
+	 * Internal. The sealed properties of this state, for comparing it with another state.
+	 */
+	PathMapSnapshot<String> getSealedProperties() {
+		return properties;
+	}
+
+	/**
+	 * Internal. The stamp of the latest modification of any property in this state, which is the same for states without changes in between.
+	 */
+	long getModificationStamp() {
+		return properties.getModificationStamp();
+	}
+
+	/**
+	 * @return The generation of this state, which is higher for each state published by the context
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	public boolean containsKey(String key) {
+		return properties.containsKey(key);
+	}
+
+	/**
+	 * Lazily iterate the properties of this state under a prefix, in key order, without copying the subtree.
+	 * The properties of a state are never changed, so the spliterator can be used after later reloads, and from any thread.
+	 * @param prefix Name of the property to scan below, which is included if it has values. Null or empty for all properties.
+	 * @return An ordered spliterator of read-only entries with full property names
+	 */
+	public Spliterator<Map.Entry<String, List<String>>> scan(String prefix) {
+		return getPropertyTree().scan(prefix);
+	}
+
+	/**
+	 * Lazily iterate the properties of this state in a range of names, in key order. See {@link ConfigContext#scan(String, String)}.
+	 * @param fromKey The first property name to include, or null to start from the first property
+	 * @param toKey The first property name to exclude, or null to end at the last property
+	 * @return An ordered spliterator of read-only entries with full property names
+	 */
+	public Spliterator<Map.Entry<String, List<String>>> scan(String fromKey, String toKey) {
+		return getPropertyTree().scan(fromKey, toKey);
+	}
+
+	/**
+	 * Lazily find the properties of this state that match a query with wildcards, like 'services.*.http.port'. See {@link PathQuery}.
+	 * Like the scans, the iterator can be used after later reloads.
+	 * @param query The query
+	 * @return An iterator of read-only entries with full property names
+	 * @throws IllegalArgumentException If the query is invalid
+	 */
+	public Iterator<Map.Entry<String, List<String>>> query(String query) throws IllegalArgumentException {
+		return getPropertyTree().query(query);
+	}
+
+	/**
+	 * Same as {@link #query(String)}, for a query that has been compiled once with {@link PathQuery#compile(String)}.
+	 * @param query The compiled query
+	 * @return An iterator of read-only entries with full property names
+	 */
+	public Iterator<Map.Entry<String, List<String>>> query(PathQuery query) {
+		return getPropertyTree().query(query);
+	}
+
+	/**
+	 * @return A read-only list of all keys with values
+	 */
+	public List<String> getKeys() {
+		return properties.getKeys();
+	}
+
+	/**
+	 * @return The last value of the property, or the indexed value for keys like 'servers[0]'. Null if none was found.
+	 */
+	private String getRawValue(String key) {
+		if (key == null || !properties.mightContainKey(key)) {
+			return null;
+		}
+		boolean hasArrayIndex = key.endsWith("]") && ARRAY_PATTERN_FOR_KEY.matcher(key).matches();
+		return hasArrayIndex
+				? properties.getByIndex(key, Integer.parseInt(key.substring(key.lastIndexOf("[") + 1, key.lastIndexOf("]"))))
+				: properties.getLast(key);
+	}
+
+	/**
+	 * Internal. Look up the raw values of many keys at once. Used by {@link ConfigBatch}.
+	 * @param keys The keys, which may have array index suffixes like 'servers[0]'
+	 * @return The values of each key in the order of the keys, or null for the keys without values. Only the indexed value for keys with an index.
+	 */
+	List<List<String>> getAllRawValues(List<String> keys) {
+		List<String> keysWithoutIndex = new ArrayList<>(keys.size());
+		int[] indexes = new int[keys.size()];
+		for (int i = 0; i < keys.size(); i++) {
+			String key = keys.get(i);
+			boolean hasArrayIndex = key.endsWith("]") && ARRAY_PATTERN_FOR_KEY.matcher(key).matches();
+			indexes[i] = hasArrayIndex ? Integer.parseInt(key.substring(key.lastIndexOf("[") + 1, key.lastIndexOf("]"))) : -1;
+			keysWithoutIndex.add(hasArrayIndex ? key.substring(0, key.lastIndexOf("[")) : key);
+		}
+
+		List<List<String>> values = properties.getAll(keysWithoutIndex);
+		for (int i = 0; i < values.size(); i++) {
+			List<String> keyValues = values.get(i);
+			if (keyValues != null && indexes[i] >= 0) {
+				keyValues = keyValues.size() > indexes[i] ? Collections.singletonList(keyValues.get(indexes[i])) : null;
+			}
+			keyValues = keyValues != null && !keyValues.isEmpty() ? keyValues : null;
+			values.set(i, keyValues);
+			context.getMetrics().lookup(keys.get(i), keyValues != null);
+		}
+		return values;
+	}
+
+	//
+	// Conversions, shared with ConfigBatch
+	//
+	/**
+	 * Internal. Convert the last of the values of a property, or the default value if there are none.
+	 */
+	<T> T toValue(String key, List<String> stringValues, T defaultValue, Class<T> returnType) throws IllegalArgumentException {
+		if (stringValues == null) {
+			// A default of the same class is what the conversion of its string would return, so return it directly
+			if (defaultValue == null || defaultValue.getClass() == returnType) {
+				return defaultValue;
+			}
+			return ConversionUtils.convertStringToType(defaultValue.toString(), returnType);
+		}
+		String stringValue = stringValues.get(stringValues.size() - 1);	// The last value wins, like for single lookups
+		T value = convert(key, returnType, () -> ConversionUtils.convertStringToType(stringValue, returnType));
+		if (value == null) {	// The conversion prints the error and returns null
+			context.getMetrics().conversionFailed(key, returnType);
+		}
+		return value;
+	}
+
+	/**
+	 * Internal. Convert all values of a property to a read-only list, which is empty if there are none.
+	 */
+	<T> List<T> toList(String key, List<String> stringValues, Class<T> subType) throws IllegalArgumentException {
+		if (stringValues == null) {
+			return Collections.emptyList();
+		}
+		List<T> list = convert(key, subType, () -> ConversionUtils.convertListStringToSubType(stringValues, subType));
+		if (list == null || list.contains(null)) {	// The conversion prints the error and returns null
+			context.getMetrics().conversionFailed(key, subType);
+		}
+		return list != null ? Collections.unmodifiableList(list) : null;
+	}
+
+	private <T> T convert(String key, Class<?> type, Supplier<T> conversion) {
+		try {
+			return conversion.get();
+		} catch (RuntimeException e) {
+			context.getMetrics().conversionFailed(key, type);
+			throw e;
+		}
+	}
+
+	//
+	// Property getters
+	//
+	/**
+	 * Get a property by a key and return type.
+	 * @param key Name of the property
+	 * @param returnType The class that the property shall be returned as
+	 * @return The property or null if none was found
+	 * @throws IllegalArgumentException If the class was not supported
+	 */
+	public <T> T get(String key, Class<T> returnType) throws IllegalArgumentException {
+		return get(key, null, returnType);
+	}
+
+	/**
+	 * Get a property by a key and return type.
+	 * @param key Name of the property
+	 * @param defaultValue Value to use in case the property wasn't found
+	 * @param returnType The class that the property shall be returned as
+	 * @return The property or the default value if none was found
+	 * @throws IllegalArgumentException If the class was not supported
+	 */
+	public <T> T get(String key, T defaultValue, Class<T> returnType) throws IllegalArgumentException {
+		Object lookupEvent = ConfigEvents.beginLookup();
+		String stringValue = getRawValue(key);
+		context.getMetrics().lookup(key, stringValue != null);
+		ConfigEvents.endLookup(lookupEvent, key, returnType, stringValue != null);
+		if (stringValue != null) {
+			LOGGER.fine("Getting configuration '" + key + "'. Got: '" + stringValue + "'");
+		}
+		return toValue(key, stringValue != null ? Collections.singletonList(stringValue) : null, defaultValue, returnType);
+	}
+
+	public <T> Optional<T> getOptional(String key, Class<T> returnType) throws IllegalArgumentException {
+		return Optional.ofNullable(get(key, returnType));
+	}
+
+	/**
+	 * Gets all values of a property.
+	 * @param key Name of the property
+	 * @param subType The class that the values shall be returned as
+	 * @return A read-only list of the values, which is empty if none were found
+	 */
+	public <T> List<T> getList(String key, Class<T> subType) {
+		Object lookupEvent = ConfigEvents.beginLookup();
+		List<String> stringValues = key != null ? properties.get(key) : null;
+		boolean isFound = stringValues != null && !stringValues.isEmpty();
+		context.getMetrics().lookup(key, isFound);
+		ConfigEvents.endLookup(lookupEvent, key, subType, isFound);
+		if (isFound) {
+			LOGGER.fine("Getting configuration '" + key + "'. Got: '" + stringValues + "'");
+		}
+		return toList(key, isFound ? stringValues : null, subType);
+	}
+
+	public String getString(String key) {
+		return get(key, String.class);
+	}
+
+	public String getString(String key, String defaultValue) {
+		return get(key, defaultValue, String.class);
+	}
+
+	public List<String> getStringList(String key) {
+		return getList(key, String.class);
+	}
+
+	/**
+	 * Same as {@link #getString(String)}, but the lookup isn't recorded in the metrics of the context.
+	 * Used by adapters, like the Spring property source, whose lookups aren't made by the application.
+	 */
+	public String peekString(String key) {
+		return getRawValue(key);
+	}
+
+	/**
+	 * Same as {@link #getStringList(String)}, but the lookup isn't recorded in the metrics of the context.
+	 * @return A read-only list of the values, which is empty if none were found
+	 */
+	public List<String> peekStringList(String key) {
+		List<String> values = key != null ? properties.get(key) : null;
+		return values != null ? values : Collections.emptyList();
+	}
+
+	public Boolean getBoolean(String key) {
+		return get(key, Boolean.class);
+	}
+
+	public boolean getBoolean(String key, boolean defaultValue) {
+		return get(key, defaultValue, Boolean.class);
+	}
+
+	public Integer getInteger(String key) {
+		return get(key, Integer.class);
+	}
+
+	public int getInteger(String key, int defaultValue) {
+		return get(key, defaultValue, Integer.class);
+	}
+
+	public Long getLong(String key) {
+		return get(key, Long.class);
+	}
+
+	public long getLong(String key, long defaultValue) {
+		return get(key, defaultValue, Long.class);
+	}
+
+	public Double getDouble(String key) {
+		return get(key, Double.class);
+	}
+
+	public double getDouble(String key, double defaultValue) {
+		return get(key, defaultValue, Double.class);
+	}
+
+	@Override
+	public String toString() {
+		return "ConfigSnapshot{ context = '" + context.getName() + "', generation = " + generation + " }";
+	}
+
+}
@@ -121,6 +121,9 @@ public class ConversionUtils {
 	}
 
 	public static String toKebabCase(String str) {
+		if (str != null && isKebabCase(str)) {	// Most keys already are, so skip the regular expressions
+			return str;
+		}
 		return (str != null)
 			? str.trim()
 				.replace("_", ".")
@@ -128,4 +131,20 @@ public class ConversionUtils {
 			: null;
 	}
 
+	/**
+	 * @return True if {@link #toKebabCase(String)} wouldn't change the string
+	 */
+	private static boolean isKebabCase(String str) {
+		if (!str.isEmpty() && (str.charAt(0) <= ' ' || str.charAt(str.length() - 1) <= ' ')) {
+			return false;
+		}
+		for (int i = 0; i < str.length(); i++) {
+			char character = str.charAt(i);
+			if (character == '_' || Character.toLowerCase(character) != character) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 }
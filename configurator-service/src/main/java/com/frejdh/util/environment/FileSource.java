@@ -0,0 +1,20 @@
+package com.frejdh.util.environment;
+
+import java.io.IOException;
+
+/**
+ * Reads the content of the configuration files of a {@link ConfigContext}.
+ * The default reads absolute paths from disk and relative paths from the resource directory.
+ * Other sources, like an in-memory fixture store for tests, can be set with {@link ConfigContext.Builder#withFileSource(FileSource)}.
+ */
+@FunctionalInterface
+public interface FileSource {
+	FileSource DEFAULT = FileUtils::getResourceFile;
+
+	/**
+	 * @param filename The filename, as given to the context
+	 * @return The content of the file, or null if it doesn't exist
+	 * @throws IOException If the file exists but couldn't be read
+	 */
+	String read(String filename) throws IOException;
+}
@@ -15,11 +15,14 @@ import java.util.Set;
 class FileUtils {
 
 	/**
-	 * Load a file as an InputStream
+	 * Load a file as an InputStream. Files that don't exist are skipped through the {@link ClasspathResourceIndex}, without searching the class path.
 	 * @param relativePath The relative path from the resource directory
 	 * @return An InputStream or null
 	 */
 	static InputStream getResourceFileAsStream(String relativePath) {
+		if (!ClasspathResourceIndex.getInstance().mightExist(relativePath)) {
+			return null;
+		}
 		return FileUtils.class.getResourceAsStream(!relativePath.startsWith("/") ? "/" + relativePath : relativePath);
 	}
 
@@ -32,6 +35,30 @@ class FileUtils {
 		return new FileInputStream(absolutePath);
 	}
 
+	/**
+	 * @return The number of bytes of the text as UTF-8, without encoding it
+	 */
+	static long getUtf8Length(CharSequence text) {
+		long length = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char character = text.charAt(i);
+			if (character < 0x80) {
+				length++;
+			}
+			else if (character < 0x800) {
+				length += 2;
+			}
+			else if (Character.isHighSurrogate(character) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+				length += 4;
+				i++;
+			}
+			else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
 	/**
 	 * Load a file as a string.
 	 * @param filePath Absolute path or relative path based on the resource directory
@@ -41,6 +68,9 @@ class FileUtils {
 		boolean isAbsolutePath = Paths.get(filePath).isAbsolute();
 
 		try (InputStream inputStream = (isAbsolutePath ? getAbsoluteFileAsStream(filePath) : getResourceFileAsStream(filePath))) {
+			if (inputStream == null) {	// Missing resources are common (the optional default files), so don't throw for them
+				return null;
+			}
 			ByteArrayOutputStream result = new ByteArrayOutputStream();
 			byte[] buffer = new byte[4 * 0x400]; // 4KB
 			int length;
@@ -1,5 +1,6 @@
 package com.frejdh.util.environment;
 
+import com.frejdh.util.environment.http.HttpConfigSource;
 import com.frejdh.util.environment.parser.AbstractParser;
 import com.frejdh.util.environment.parser.JsonParser;
 import com.frejdh.util.environment.parser.PropertiesParser;
@@ -25,10 +26,21 @@ public class ParserSelector {
 		}
 	}
 
+	/**
+	 * @param filenameOrExtension A filename, a URL like 'http://localhost:8888/app.yml?profile=dev', or only the extension
+	 */
 	public static AbstractParser getParser(String filenameOrExtension) throws UnsupportedOperationException {
 		if (filenameOrExtension == null) {
 			throw new UnsupportedOperationException("The string '" + filenameOrExtension + "' had no supported parser");
 		}
+		if (HttpConfigSource.isUrl(filenameOrExtension)) {	// The extension is the one of the path, before the query and fragment
+			int pathEnd = filenameOrExtension.length();
+			for (char delimiter : new char[] { '?', '#' }) {
+				int index = filenameOrExtension.indexOf(delimiter);
+				pathEnd = index >= 0 ? Math.min(pathEnd, index) : pathEnd;
+			}
+			filenameOrExtension = filenameOrExtension.substring(0, pathEnd);
+		}
 		return getParser(FileExtension.toExtension(filenameOrExtension.contains(".") ? filenameOrExtension.substring(filenameOrExtension.lastIndexOf('.') + 1) : filenameOrExtension));
 	}
 
@@ -0,0 +1,78 @@
+package com.frejdh.util.environment;
+
+import java.lang.reflect.Type;
+
+/**
+ * A pre-resolved handle to a property, bound to a specific (generic) type.
+ * The bound value is kept until any property is changed, so a read is normally a single stamp comparison.
+ * Values are bound from the latest {@link ConfigSnapshot} of the context, which isn't changed by reloads.
+ * Used by the implementations generated for {@link com.frejdh.util.environment.annotation.ConfigInterface} annotated interfaces.
+ * @param <T> The type of the value
+ */
+public final class PropertyHandle<T> {
+	private final ConfigContext context;
+	private final String key;
+	private final Type type;
+	private volatile Snapshot<T> snapshot;
+
+	/**
+	 * @param key Name of the property
+	 * @param type The type that the property shall be bound to. Either a class or a generic type.
+	 */
+	public PropertyHandle(String key, Type type) {
+		this(Config.getDefaultContext(), key, type);
+	}
+
+	/**
+	 * @param context The context to read the property from
+	 * @param key Name of the property
+	 * @param type The type that the property shall be bound to. Either a class or a generic type.
+	 */
+	public PropertyHandle(ConfigContext context, String key, Type type) {
+		this.context = context;
+		this.key = ConversionUtils.toKebabCase(key);
+		this.type = type;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Get the current value of the property.
+	 * @return The value, or null if the property doesn't exist
+	 */
+	@SuppressWarnings("unchecked")
+	public T get() {
+		ConfigSnapshot state = context.snapshot();
+		long modificationStamp = state.getModificationStamp();
+		Snapshot<T> currentSnapshot = snapshot;
+		if (currentSnapshot != null && currentSnapshot.modificationStamp == modificationStamp) {
+			return currentSnapshot.value;
+		}
+
+		T value = (T) context.bind(state, key, type);
+		snapshot = new Snapshot<>(modificationStamp, value);
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return "PropertyHandle{ key = '" + key + "', type = " + type.getTypeName() + " }";
+	}
+
+	private static final class Snapshot<T> {
+		private final long modificationStamp;
+		private final T value;
+
+		private Snapshot(long modificationStamp, T value) {
+			this.modificationStamp = modificationStamp;
+			this.value = value;
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.frejdh.util.environment;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Properties that temporarily override the loaded properties of a {@link ConfigContext}, created by {@link ConfigContext#pushOverlay(Map)}.
+ * Closing the overlay restores the previous values, without reloading any sources.
+ */
+public final class PropertyOverlay implements AutoCloseable {
+	private final ConfigContext context;
+	private final Map<String, List<String>> properties;
+	private volatile boolean isClosed;
+
+	PropertyOverlay(ConfigContext context, Map<String, List<String>> properties) {
+		this.context = context;
+		this.properties = Collections.unmodifiableMap(properties);
+	}
+
+	/**
+	 * @return The overridden properties, with cleaned up keys. Null or no values means that the property is removed while the overlay is open.
+	 */
+	public Map<String, List<String>> getProperties() {
+		return properties;
+	}
+
+	public boolean isClosed() {
+		return isClosed;
+	}
+
+	/**
+	 * Remove the overlay. Does nothing if it is already closed.
+	 */
+	@Override
+	public void close() {
+		if (!isClosed) {
+			isClosed = true;
+			context.popOverlay(this);
+		}
+	}
+
+}
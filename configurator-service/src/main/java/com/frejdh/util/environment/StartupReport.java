@@ -0,0 +1,165 @@
+package com.frejdh.util.environment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The time spent in each phase of the first load of a {@link ConfigContext}, from probing for the files to starting the runtime watcher.
+ * Later reloads are not included. Printed as a table with {@link #toString()}.
+ */
+public final class StartupReport {
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	public enum Phase {
+		/** Looking for files that turned out not to exist */
+		PROBE,
+		/** Reading the files that exist */
+		READ,
+		PARSE,
+		/** Adding the parsed and set properties, and resolving the overlays and placeholders */
+		MERGE,
+		SYSTEM_PROPERTIES,
+		WATCHER_START
+	}
+
+	/**
+	 * A file that was looked for during the startup.
+	 */
+	public static final class FileEntry {
+		private final String filename;
+		private final boolean isFound;
+		private final long readNanos;
+		private final long parseNanos;
+		private final long sizeInBytes;
+		private final int keys;
+
+		private FileEntry(String filename, boolean isFound, long readNanos, long parseNanos, long sizeInBytes, int keys) {
+			this.filename = filename;
+			this.isFound = isFound;
+			this.readNanos = readNanos;
+			this.parseNanos = parseNanos;
+			this.sizeInBytes = sizeInBytes;
+			this.keys = keys;
+		}
+
+		public String getFilename() {
+			return filename;
+		}
+
+		public boolean isFound() {
+			return isFound;
+		}
+
+		/**
+		 * @return The time to read the file, or to find out that it doesn't exist
+		 */
+		public long getReadNanos() {
+			return readNanos;
+		}
+
+		public long getParseNanos() {
+			return parseNanos;
+		}
+
+		public long getSizeInBytes() {
+			return sizeInBytes;
+		}
+
+		public int getKeys() {
+			return keys;
+		}
+	}
+
+	private final String contextName;
+	private final long[] nanosByPhase = new long[Phase.values().length];
+	private final List<FileEntry> files = new ArrayList<>();
+	private long totalNanos;
+	private boolean isComplete;
+
+	StartupReport(String contextName) {
+		this.contextName = contextName;
+	}
+
+	//
+	// Recording, ignored once the startup is complete
+	//
+	synchronized void add(Phase phase, long nanos) {
+		if (!isComplete) {
+			nanosByPhase[phase.ordinal()] += nanos;
+		}
+	}
+
+	synchronized void fileMissing(String filename, long probeNanos) {
+		if (!isComplete) {
+			nanosByPhase[Phase.PROBE.ordinal()] += probeNanos;
+			files.add(new FileEntry(filename, false, probeNanos, 0, 0, 0));
+		}
+	}
+
+	synchronized void fileLoaded(String filename, long readNanos, long parseNanos, long sizeInBytes, int keys) {
+		if (!isComplete) {
+			nanosByPhase[Phase.READ.ordinal()] += readNanos;
+			nanosByPhase[Phase.PARSE.ordinal()] += parseNanos;
+			files.add(new FileEntry(filename, true, readNanos, parseNanos, sizeInBytes, keys));
+		}
+	}
+
+	synchronized void complete(long totalNanos) {
+		if (!isComplete) {
+			this.totalNanos = totalNanos;
+			this.isComplete = true;
+		}
+	}
+
+	//
+	// Values
+	//
+	public synchronized boolean isComplete() {
+		return isComplete;
+	}
+
+	/**
+	 * @return The time from creating the context until it was loaded and watched
+	 */
+	public synchronized long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public synchronized long getNanos(Phase phase) {
+		return nanosByPhase[phase.ordinal()];
+	}
+
+	/**
+	 * @return The files in the order they were looked for, including the missing ones
+	 */
+	public synchronized List<FileEntry> getFiles() {
+		return Collections.unmodifiableList(new ArrayList<>(files));
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format(Locale.ROOT, "Startup of '%s' took %.2f ms%n", contextName, totalNanos / NANOS_PER_MILLI));
+		long accountedNanos = 0;
+		for (Phase phase : Phase.values()) {
+			long nanos = nanosByPhase[phase.ordinal()];
+			accountedNanos += nanos;
+			report.append(String.format(Locale.ROOT, "  %-20s %9.2f ms%n", phase.name().toLowerCase(Locale.ROOT).replace('_', ' '), nanos / NANOS_PER_MILLI));
+		}
+		report.append(String.format(Locale.ROOT, "  %-20s %9.2f ms%n", "other", Math.max(0, totalNanos - accountedNanos) / NANOS_PER_MILLI));
+
+		for (FileEntry file : files) {
+			if (file.isFound) {
+				report.append(String.format(Locale.ROOT, "  %s: %d bytes and %d keys, read %.2f ms, parse %.2f ms%n",
+						file.filename, file.sizeInBytes, file.keys, file.readNanos / NANOS_PER_MILLI, file.parseNanos / NANOS_PER_MILLI));
+			}
+			else {
+				report.append(String.format(Locale.ROOT, "  %s: missing, probe %.2f ms%n", file.filename, file.readNanos / NANOS_PER_MILLI));
+			}
+		}
+		return report.toString();
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.frejdh.util.environment.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates an implementation of the annotated interface at compile time, see {@link PropertyValueProcessor}.
+ * Each method without parameters is mapped to the property with the method name in kebab-case, under the given prefix.
+ * For instance, {@code int maxPoolSize()} in an interface annotated with {@code @ConfigInterface("db")} returns the property {@code db.max-pool-size}.
+ * <br><br>
+ * The implementation is named after the interface with an {@code Impl} suffix, e.g. {@code DbConfigImpl} for {@code DbConfig}.
+ * Default methods are used as fallback values for missing properties.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface ConfigInterface {
+
+	/**
+	 * @return The prefix for all properties of the interface, e.g. "db". Empty if the properties are at the root level.
+	 */
+	String value() default "";
+
+}
@@ -0,0 +1,327 @@
+package com.frejdh.util.environment.annotation;
+
+import com.frejdh.util.environment.ConversionUtils;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Generates implementations of {@link ConfigInterface} annotated interfaces.
+ * Each property is held by a {@link com.frejdh.util.environment.PropertyHandle} that is created with the key and type once,
+ * so no reflection, proxies or key lookups are needed when the methods are called.
+ * <br><br>
+ * With the processor option {@code -Aconfigurator.metadata=true}, the properties are also written to {@code META-INF/spring-configuration-metadata.json}.
+ * It is disabled by default, since the file would replace the one generated by the spring-boot-configuration-processor.
+ */
+@SupportedAnnotationTypes("com.frejdh.util.environment.annotation.ConfigInterface")
+@SupportedOptions(PropertyValueProcessor.METADATA_OPTION)
+public class PropertyValueProcessor extends AbstractProcessor {
+	static final String METADATA_OPTION = "configurator.metadata";
+	private static final String METADATA_FILE = "META-INF/spring-configuration-metadata.json";
+	private static final String HANDLE_CLASS = "com.frejdh.util.environment.PropertyHandle";
+	private static final String OBJECT_BINDER_CLASS = "com.frejdh.util.environment.binding.ObjectBinder";
+	private static final String NOT_FOUND_EXCEPTION_CLASS = "com.frejdh.util.environment.exception.ConfigurationValueNotFoundException";
+
+	private Elements elements;
+	private Types types;
+	private Filer filer;
+	private Messager messager;
+	private final List<Property> metadataProperties = new ArrayList<>();
+
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv) {
+		super.init(processingEnv);
+		this.elements = processingEnv.getElementUtils();
+		this.types = processingEnv.getTypeUtils();
+		this.filer = processingEnv.getFiler();
+		this.messager = processingEnv.getMessager();
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getElementsAnnotatedWith(ConfigInterface.class)) {
+			if (element.getKind() != ElementKind.INTERFACE) {
+				messager.printMessage(Diagnostic.Kind.ERROR, "@ConfigInterface can only be used on interfaces", element);
+				continue;
+			}
+
+			TypeElement interfaceElement = (TypeElement) element;
+			List<Property> properties = toProperties(interfaceElement);
+			if (properties != null) {
+				writeImplementation(interfaceElement, properties);
+				metadataProperties.addAll(properties);
+			}
+		}
+
+		if (roundEnv.processingOver() && !metadataProperties.isEmpty() && Boolean.parseBoolean(processingEnv.getOptions().get(METADATA_OPTION))) {
+			writeMetadata();
+		}
+		return true;
+	}
+
+	/**
+	 * @return The properties of the interface, or null if it has invalid methods
+	 */
+	private List<Property> toProperties(TypeElement interfaceElement) {
+		String prefix = ConversionUtils.toKebabCase(interfaceElement.getAnnotation(ConfigInterface.class).value());
+		List<Property> properties = new ArrayList<>();
+		boolean isValid = true;
+
+		for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(interfaceElement))) {
+			Set<Modifier> modifiers = method.getModifiers();
+			boolean isDefault = modifiers.contains(Modifier.DEFAULT);
+			if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE)
+					|| method.getEnclosingElement().getKind() != ElementKind.INTERFACE) { // E.g. methods of java.lang.Object
+				continue;
+			}
+
+			boolean isPropertyMethod = method.getParameters().isEmpty() && method.getTypeParameters().isEmpty()
+					&& method.getReturnType().getKind() != TypeKind.VOID && !containsTypeVariable(method.getReturnType());
+			if (!isPropertyMethod) {
+				if (!isDefault) {
+					messager.printMessage(Diagnostic.Kind.ERROR, "@ConfigInterface methods must return a non-generic value and have no parameters", method);
+					isValid = false;
+				}
+				continue;
+			}
+
+			String methodName = method.getSimpleName().toString();
+			String key = (prefix.isEmpty() ? "" : prefix + ".") + ConversionUtils.toKebabCase(methodName);
+			properties.add(new Property(interfaceElement, methodName, key, method.getReturnType(), isDefault, elements.getDocComment(method)));
+		}
+		return isValid ? properties : null;
+	}
+
+	private boolean containsTypeVariable(TypeMirror type) {
+		switch (type.getKind()) {
+			case TYPEVAR:
+				return true;
+			case ARRAY:
+				return containsTypeVariable(((ArrayType) type).getComponentType());
+			case WILDCARD:
+				WildcardType wildcardType = (WildcardType) type;
+				return (wildcardType.getExtendsBound() != null && containsTypeVariable(wildcardType.getExtendsBound()))
+						|| (wildcardType.getSuperBound() != null && containsTypeVariable(wildcardType.getSuperBound()));
+			case DECLARED:
+				return ((DeclaredType) type).getTypeArguments().stream().anyMatch(this::containsTypeVariable);
+			default:
+				return false;
+		}
+	}
+
+	private void writeImplementation(TypeElement interfaceElement, List<Property> properties) {
+		PackageElement packageElement = elements.getPackageOf(interfaceElement);
+		String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+		String className = toImplementationName(interfaceElement);
+		String interfaceName = interfaceElement.getQualifiedName().toString();
+		boolean isPublic = interfaceElement.getModifiers().contains(Modifier.PUBLIC);
+
+		try {
+			JavaFileObject sourceFile = filer.createSourceFile(packageName.isEmpty() ? className : packageName + "." + className, interfaceElement);
+			try (PrintWriter writer = new PrintWriter(sourceFile.openWriter())) {
+				if (!packageName.isEmpty()) {
+					writer.println("package " + packageName + ";");
+					writer.println();
+				}
+				writer.println("/**");
+				writer.println(" * Generated by {@link " + PropertyValueProcessor.class.getName() + "} for {@link " + interfaceName + "}.");
+				writer.println(" */");
+				writer.println((isPublic ? "public " : "") + "final class " + className + " implements " + interfaceName + " {");
+
+				for (Property property : properties) {
+					String boxedType = toSourceName(toBoxedType(property.type));
+					writer.println("\tprivate final " + HANDLE_CLASS + "<" + boxedType + "> " + property.handleName() + " = new " + HANDLE_CLASS + "<>("
+							+ toStringLiteral(property.key) + ", " + toTypeExpression(property.type) + ");");
+				}
+
+				for (Property property : properties) {
+					writer.println();
+					writeMethod(writer, property);
+				}
+
+				writer.println("}");
+			}
+		} catch (IOException e) {
+			messager.printMessage(Diagnostic.Kind.ERROR, "Couldn't write the implementation of " + interfaceName + ": " + e.getMessage(), interfaceElement);
+		}
+	}
+
+	private void writeMethod(PrintWriter writer, Property property) {
+		writer.println("\t@Override");
+		writer.println("\tpublic " + toSourceName(property.type) + " " + property.methodName + "() {");
+
+		if (!property.isDefault && !property.type.getKind().isPrimitive()) {
+			writer.println("\t\treturn " + property.handleName() + ".get();");
+		}
+		else {
+			writer.println("\t\t" + toSourceName(toBoxedType(property.type)) + " value = " + property.handleName() + ".get();");
+			writer.println("\t\tif (value == null) {");
+			if (property.isDefault) {
+				writer.println("\t\t\treturn " + property.interfaceElement.getQualifiedName() + ".super." + property.methodName + "();");
+			}
+			else {
+				writer.println("\t\t\tthrow new " + NOT_FOUND_EXCEPTION_CLASS + "(" + toStringLiteral(property.key) + ");");
+			}
+			writer.println("\t\t}");
+			writer.println("\t\treturn value;");
+		}
+		writer.println("\t}");
+	}
+
+	/**
+	 * Nested interfaces are named after all enclosing classes, e.g. {@code Outer_InnerImpl}.
+	 */
+	private String toImplementationName(TypeElement interfaceElement) {
+		StringBuilder name = new StringBuilder(interfaceElement.getSimpleName());
+		for (Element enclosing = interfaceElement.getEnclosingElement(); enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+			name.insert(0, enclosing.getSimpleName() + "_");
+		}
+		return name.append("Impl").toString();
+	}
+
+	private TypeMirror toBoxedType(TypeMirror type) {
+		return type.getKind().isPrimitive() ? types.boxedClass((PrimitiveType) type).asType() : type;
+	}
+
+	/**
+	 * The type as written in source code. {@link TypeMirror#toString()} isn't used since it may include type annotations.
+	 */
+	private String toSourceName(TypeMirror type) {
+		switch (type.getKind()) {
+			case ARRAY:
+				return toSourceName(((ArrayType) type).getComponentType()) + "[]";
+			case WILDCARD:
+				WildcardType wildcardType = (WildcardType) type;
+				if (wildcardType.getExtendsBound() != null) {
+					return "? extends " + toSourceName(wildcardType.getExtendsBound());
+				}
+				return wildcardType.getSuperBound() != null ? "? super " + toSourceName(wildcardType.getSuperBound()) : "?";
+			case DECLARED:
+				DeclaredType declaredType = (DeclaredType) type;
+				String rawName = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+				return declaredType.getTypeArguments().isEmpty()
+						? rawName
+						: rawName + declaredType.getTypeArguments().stream().map(this::toSourceName).collect(Collectors.joining(", ", "<", ">"));
+			default:
+				return type.getKind().name().toLowerCase();	// Primitives
+		}
+	}
+
+	/**
+	 * An expression for the {@link java.lang.reflect.Type} of the value, e.g. {@code java.lang.Integer.class}.
+	 */
+	private String toTypeExpression(TypeMirror type) {
+		if (type.getKind() == TypeKind.WILDCARD) {
+			TypeMirror extendsBound = ((WildcardType) type).getExtendsBound();
+			return extendsBound != null ? toTypeExpression(extendsBound) : "java.lang.Object.class";
+		}
+		else if (type.getKind() == TypeKind.DECLARED && !((DeclaredType) type).getTypeArguments().isEmpty()) {
+			DeclaredType declaredType = (DeclaredType) type;
+			return OBJECT_BINDER_CLASS + ".parameterizedType(" + toSourceName(types.erasure(type)) + ".class, "
+					+ declaredType.getTypeArguments().stream().map(this::toTypeExpression).collect(Collectors.joining(", ")) + ")";
+		}
+		return toSourceName(types.erasure(toBoxedType(type))) + ".class";
+	}
+
+	private void writeMetadata() {
+		try {
+			FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", METADATA_FILE);
+			try (Writer writer = file.openWriter()) {
+				writer.write("{\n\t\"properties\": [\n");
+				for (int i = 0; i < metadataProperties.size(); i++) {
+					Property property = metadataProperties.get(i);
+					writer.write("\t\t{\n");
+					writer.write("\t\t\t\"name\": " + toStringLiteral(property.key) + ",\n");
+					writer.write("\t\t\t\"type\": " + toStringLiteral(toSourceName(toBoxedType(property.type))) + ",\n");
+					if (property.description != null) {
+						writer.write("\t\t\t\"description\": " + toStringLiteral(property.description) + ",\n");
+					}
+					writer.write("\t\t\t\"sourceType\": " + toStringLiteral(property.interfaceElement.getQualifiedName().toString()) + "\n");
+					writer.write(i < metadataProperties.size() - 1 ? "\t\t},\n" : "\t\t}\n");
+				}
+				writer.write("\t],\n\t\"hints\": []\n}\n");
+			}
+		} catch (IOException e) {
+			messager.printMessage(Diagnostic.Kind.ERROR, "Couldn't write " + METADATA_FILE + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * A quoted string that is valid in both Java and JSON.
+	 */
+	private static String toStringLiteral(String value) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (char character : value.toCharArray()) {
+			if (character == '"' || character == '\\') {
+				sb.append('\\').append(character);
+			}
+			else if (character < 0x20) {
+				sb.append(String.format("\\u%04x", (int) character));
+			}
+			else {
+				sb.append(character);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	private static final class Property {
+		private final TypeElement interfaceElement;
+		private final String methodName;
+		private final String key;
+		private final TypeMirror type;
+		private final boolean isDefault;
+		private final String description;
+
+		private Property(TypeElement interfaceElement, String methodName, String key, TypeMirror type, boolean isDefault, String docComment) {
+			this.interfaceElement = interfaceElement;
+			this.methodName = methodName;
+			this.key = key;
+			this.type = type;
+			this.isDefault = isDefault;
+			this.description = docComment != null && !docComment.trim().isEmpty() ? docComment.trim().split("\\n\\s*\\n|\\n\\s*@")[0].trim().replaceAll("\\s+", " ") : null;
+		}
+
+		private String handleName() {
+			return methodName + "Handle";
+		}
+	}
+
+}
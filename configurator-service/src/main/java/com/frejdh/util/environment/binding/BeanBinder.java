@@ -0,0 +1,315 @@
+package com.frejdh.util.environment.binding;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.frejdh.util.environment.ConversionUtils;
+import com.frejdh.util.environment.storage.map.PathEntry;
+
+import java.beans.ConstructorProperties;
+import java.beans.Introspector;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binding plan for a class. The constructor, setters and fields are looked up once and invoked through method handles.
+ * The binders for the property types are resolved on first use, which allows self-referencing classes.
+ */
+final class BeanBinder extends ValueBinder {
+	private static final MethodType NO_ARGS_CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+	private static final MethodType CREATOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final Class<?> type;
+	private final MethodHandle constructor;	// Either a no-args constructor, or a creator taking the properties below as an Object[]
+	private final Property[] creatorProperties;
+	private final Property[] properties;
+	private final ScalarConverter scalarConverter;
+
+	private BeanBinder(Class<?> type, MethodHandle constructor, Property[] creatorProperties, Property[] properties, ScalarConverter scalarConverter) {
+		this.type = type;
+		this.constructor = constructor;
+		this.creatorProperties = creatorProperties;
+		this.properties = properties;
+		this.scalarConverter = scalarConverter;
+	}
+
+	/**
+	 * Create a binding plan for a class.
+	 * @return The plan, or null if the class couldn't be instantiated
+	 */
+	static BeanBinder create(Class<?> type) {
+		if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type.isPrimitive() || type.isArray()) {
+			return null;
+		}
+
+		ScalarConverter scalarConverter = ScalarConverters.forType(type);
+		Constructor<?> noArgsConstructor = findNoArgsConstructor(type);
+		if (noArgsConstructor != null) {
+			MethodHandle handle = unreflect(noArgsConstructor);
+			return handle != null
+					? new BeanBinder(type, handle.asType(NO_ARGS_CONSTRUCTOR_TYPE), new Property[0], findProperties(type, new ArrayList<>()), scalarConverter)
+					: null;
+		}
+
+		Constructor<?> creator = findCreator(type);
+		MethodHandle handle = creator != null ? unreflect(creator) : null;
+		if (handle == null) {
+			return null;
+		}
+
+		Property[] creatorProperties = toCreatorProperties(creator);
+		List<String> creatorKeys = new ArrayList<>();
+		Arrays.stream(creatorProperties).forEach(property -> creatorKeys.add(property.key));
+		return new BeanBinder(type, handle.asSpreader(Object[].class, creatorProperties.length).asType(CREATOR_TYPE),
+				creatorProperties, findProperties(type, creatorKeys), scalarConverter);
+	}
+
+	@Override
+	Object bindNode(PathEntry<?> node) {
+		if (scalarConverter != null && !node.hasChildren() && node.hasFieldValues()) { // E.g. a class with a String constructor
+			return bindValue(node.getFullKey(), lastValue(node));
+		}
+
+		try {
+			Object instance;
+			if (creatorProperties.length == 0) {
+				instance = (Object) constructor.invokeExact();
+			}
+			else {
+				Object[] arguments = new Object[creatorProperties.length];
+				for (int i = 0; i < arguments.length; i++) {
+					Object value = creatorProperties[i].bind(node);
+					arguments[i] = value != null ? value : creatorProperties[i].defaultValue;
+				}
+				instance = (Object) constructor.invokeExact(arguments);
+			}
+
+			for (Property property : properties) {
+				Object value = property.bind(node);
+				if (value != null) {
+					property.setter.invokeExact(instance, value);
+				}
+			}
+			return instance;
+		} catch (Throwable e) {
+			throw toBindingException(node.getFullKey(), type, e);
+		}
+	}
+
+	@Override
+	Object bindValue(String key, Object value) {
+		if (value == null || type.isInstance(value)) {
+			return value;
+		}
+		else if (scalarConverter == null) {
+			throw toBindingException(key, type, new IllegalArgumentException("The value '" + value + "' cannot be converted to an object"));
+		}
+
+		try {
+			return scalarConverter.convert(value.toString());
+		} catch (Throwable e) {
+			throw toBindingException(key, type, e);
+		}
+	}
+
+	@Override
+	boolean isObjectBinder() {
+		return true;
+	}
+
+	private static Constructor<?> findNoArgsConstructor(Class<?> type) {
+		try {
+			return type.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Find a constructor that can be used with named properties.
+	 * In order: annotated with {@link JsonCreator}, annotated with {@link ConstructorProperties},
+	 * or the single public constructor if compiled with parameter names.
+	 */
+	private static Constructor<?> findCreator(Class<?> type) {
+		Constructor<?>[] constructors = type.getDeclaredConstructors();
+		for (Constructor<?> constructor : constructors) {
+			if (constructor.isAnnotationPresent(JsonCreator.class)) {
+				return constructor;
+			}
+		}
+		for (Constructor<?> constructor : constructors) {
+			if (constructor.isAnnotationPresent(ConstructorProperties.class)) {
+				return constructor;
+			}
+		}
+
+		Constructor<?>[] publicConstructors = type.getConstructors();
+		if (publicConstructors.length == 1 && Arrays.stream(publicConstructors[0].getParameters()).allMatch(Parameter::isNamePresent)) {
+			return publicConstructors[0];
+		}
+		return null;
+	}
+
+	private static Property[] toCreatorProperties(Constructor<?> creator) {
+		ConstructorProperties constructorProperties = creator.getAnnotation(ConstructorProperties.class);
+		Parameter[] parameters = creator.getParameters();
+		Property[] creatorProperties = new Property[parameters.length];
+
+		for (int i = 0; i < parameters.length; i++) {
+			JsonProperty jsonProperty = parameters[i].getAnnotation(JsonProperty.class);
+			String name;
+			if (jsonProperty != null && !jsonProperty.value().isEmpty()) {
+				name = jsonProperty.value();
+			}
+			else if (constructorProperties != null && constructorProperties.value().length > i) {
+				name = constructorProperties.value()[i];
+			}
+			else {
+				name = parameters[i].getName();
+			}
+			creatorProperties[i] = new Property(name, parameters[i].getParameterizedType(), parameters[i].getType(), null);
+		}
+		return creatorProperties;
+	}
+
+	/**
+	 * Find the properties that can be set after the object has been created. Setters are preferred over fields.
+	 * @param excludedKeys Keys that are already handled by the constructor
+	 */
+	private static Property[] findProperties(Class<?> type, List<String> excludedKeys) {
+		Map<String, Property> properties = new LinkedHashMap<>();
+
+		for (Method method : type.getMethods()) {
+			if (!isSetter(method) || method.isAnnotationPresent(JsonIgnore.class)) {
+				continue;
+			}
+
+			JsonProperty jsonProperty = method.getAnnotation(JsonProperty.class);
+			String name = jsonProperty != null && !jsonProperty.value().isEmpty()
+					? jsonProperty.value()
+					: Introspector.decapitalize(method.getName().substring(3));
+			MethodHandle setter = unreflect(method);
+			if (setter != null) {
+				putIfAbsent(properties, excludedKeys, new Property(name, method.getGenericParameterTypes()[0], method.getParameterTypes()[0], setter.asType(SETTER_TYPE)));
+			}
+		}
+
+		for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+			for (Field field : current.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || Modifier.isFinal(modifiers) || field.isSynthetic()
+						|| field.isAnnotationPresent(JsonIgnore.class)) {
+					continue;
+				}
+
+				JsonProperty jsonProperty = field.getAnnotation(JsonProperty.class);
+				String name = jsonProperty != null && !jsonProperty.value().isEmpty() ? jsonProperty.value() : field.getName();
+				MethodHandle setter = unreflectSetter(field);
+				if (setter != null) {
+					putIfAbsent(properties, excludedKeys, new Property(name, field.getGenericType(), field.getType(), setter.asType(SETTER_TYPE)));
+				}
+			}
+		}
+
+		return properties.values().toArray(new Property[0]);
+	}
+
+	private static void putIfAbsent(Map<String, Property> properties, List<String> excludedKeys, Property property) {
+		if (!excludedKeys.contains(property.key)) {
+			properties.putIfAbsent(property.key, property);
+		}
+	}
+
+	private static boolean isSetter(Method method) {
+		return method.getName().startsWith("set") && method.getName().length() > 3 && method.getParameterCount() == 1
+				&& !Modifier.isStatic(method.getModifiers()) && !method.isBridge() && !method.isSynthetic();
+	}
+
+	private static MethodHandle unreflect(Method method) {
+		try {
+			trySetAccessible(method);
+			return MethodHandles.lookup().unreflect(method);
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	private static MethodHandle unreflect(Constructor<?> constructor) {
+		try {
+			trySetAccessible(constructor);
+			return MethodHandles.lookup().unreflectConstructor(constructor);
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	private static MethodHandle unreflectSetter(Field field) {
+		try {
+			trySetAccessible(field);
+			return MethodHandles.lookup().unreflectSetter(field);
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Public members of public classes doesn't need it, and others might not be allowed to (restricted modules or security managers).
+	 */
+	private static void trySetAccessible(AccessibleObject accessibleObject) {
+		try {
+			accessibleObject.setAccessible(true);
+		} catch (RuntimeException ignored) { }
+	}
+
+	/**
+	 * A property of the class, bound from the child with the same (kebab-case) key.
+	 */
+	private static final class Property {
+		private final String key;
+		private final String parentKey;	// Non-null if the key is nested, e.g. for names with underscores
+		private final Type type;
+		private final MethodHandle setter;
+		private final Object defaultValue;
+		private volatile ValueBinder binder;
+
+		private Property(String name, Type type, Class<?> rawType, MethodHandle setter) {
+			String fullKey = ConversionUtils.toKebabCase(name);
+			int lastDotIndex = fullKey.lastIndexOf('.');
+			this.key = lastDotIndex >= 0 ? fullKey.substring(lastDotIndex + 1) : fullKey;
+			this.parentKey = lastDotIndex >= 0 ? fullKey.substring(0, lastDotIndex) : null;
+			this.type = type;
+			this.setter = setter;
+			this.defaultValue = rawType.isPrimitive() ? Array.get(Array.newInstance(rawType, 1), 0) : null;
+		}
+
+		private Object bind(PathEntry<?> node) {
+			PathEntry<?> parent = parentKey != null ? node.getPathEntryByKey(parentKey) : node;
+			return parent != null ? getBinder().bindChild(parent, key) : null;
+		}
+
+		private ValueBinder getBinder() {
+			ValueBinder resolvedBinder = binder;
+			if (resolvedBinder == null) {
+				resolvedBinder = ObjectBinder.binderFor(type);
+				binder = resolvedBinder;
+			}
+			return resolvedBinder;
+		}
+	}
+
+}
@@ -0,0 +1,304 @@
+package com.frejdh.util.environment.binding;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.frejdh.util.environment.exception.ObjectBindingException;
+import com.frejdh.util.environment.storage.map.PathEntry;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Binds {@link PathEntry} nodes directly to objects. A binding plan is created once per type and then reused,
+ * so binding only allocates the resulting objects. Types that cannot be planned (e.g. abstract classes) are handed to Jackson.
+ */
+public final class ObjectBinder {
+
+	private static final Map<Type, ValueBinder> BINDERS = new ConcurrentHashMap<>();
+
+	private static final ObjectMapper FALLBACK_MAPPER = new ObjectMapper()
+			.enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+			.enable(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED)
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+	/**
+	 * Bind a node to a class.
+	 * @param entry Node to bind
+	 * @param toClass Class to bind to
+	 * @return The bound object, or null if the node has neither values nor children
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T bind(PathEntry<?> entry, Class<T> toClass) {
+		return (T) bind(entry, (Type) toClass);
+	}
+
+	/**
+	 * Bind a node to a (generic) type, e.g. a {@link ParameterizedType} for a {@code List<MyClass>}.
+	 * @param entry Node to bind
+	 * @param type Type to bind to
+	 * @return The bound object, or null if the node has neither values nor children
+	 */
+	public static Object bind(PathEntry<?> entry, Type type) {
+		ValueBinder binder = binderFor(type);
+		PathEntry<?> parent = entry.getParent();
+		if (parent != null) { // Go through the parent, so that indexed siblings ('key[0]', 'key[1]') are found
+			return binder.bindChild(parent, entry.getKey());
+		}
+		return binder.bindNode(entry);
+	}
+
+	/**
+	 * Create a generic type, e.g. {@code parameterizedType(List.class, String.class)} for a {@code List<String>}.
+	 * Used by generated code, where the type cannot be captured by reflection.
+	 * @param rawType The class
+	 * @param typeArguments The type arguments of the class
+	 * @return A parameterized type that is equal to the one returned by reflection
+	 */
+	public static ParameterizedType parameterizedType(Class<?> rawType, Type... typeArguments) {
+		return new ParameterizedTypeImpl(rawType, typeArguments);
+	}
+
+	/**
+	 * Get the binder for a type. Not created through {@link Map#computeIfAbsent}, as the creation of a binder may look up other binders.
+	 */
+	static ValueBinder binderFor(Type type) {
+		ValueBinder binder = BINDERS.get(type);
+		if (binder == null) {
+			binder = createBinder(type);
+			ValueBinder existingBinder = BINDERS.putIfAbsent(type, binder);
+			binder = existingBinder != null ? existingBinder : binder;
+		}
+		return binder;
+	}
+
+	private static ValueBinder createBinder(Type type) {
+		if (type instanceof Class) {
+			return createBinder((Class<?>) type, type);
+		}
+		else if (type instanceof ParameterizedType) {
+			return createBinder((Class<?>) ((ParameterizedType) type).getRawType(), type);
+		}
+		else if (type instanceof GenericArrayType) {
+			Type componentType = ((GenericArrayType) type).getGenericComponentType();
+			return new ValueBinder.ArrayBinder(toRawClass(componentType), binderFor(componentType));
+		}
+		else if (type instanceof WildcardType) {
+			return binderFor(((WildcardType) type).getUpperBounds()[0]);
+		}
+		else if (type instanceof TypeVariable) {
+			Type[] bounds = ((TypeVariable<?>) type).getBounds();
+			return binderFor(bounds.length > 0 ? bounds[0] : Object.class);
+		}
+		throw new ObjectBindingException(type, "Unsupported type");
+	}
+
+	private static ValueBinder createBinder(Class<?> rawClass, Type type) {
+		if (rawClass == Object.class) {
+			return ValueBinder.Raw.INSTANCE;
+		}
+		else if (rawClass.isArray()) {
+			return new ValueBinder.ArrayBinder(rawClass.getComponentType(), binderFor(rawClass.getComponentType()));
+		}
+		else if (Collection.class.isAssignableFrom(rawClass) || rawClass == Iterable.class) {
+			Supplier<Collection<Object>> collectionFactory = collectionFactory(rawClass);
+			return collectionFactory != null
+					? new ValueBinder.CollectionBinder(collectionFactory, binderFor(typeArgument(type, 0)))
+					: new JacksonBinder(type);
+		}
+		else if (Map.class.isAssignableFrom(rawClass)) {
+			Supplier<Map<Object, Object>> mapFactory = mapFactory(rawClass);
+			return mapFactory != null
+					? new ValueBinder.MapBinder(mapFactory, binderFor(typeArgument(type, 0)), binderFor(typeArgument(type, 1)))
+					: new JacksonBinder(type);
+		}
+
+		ScalarConverter scalarConverter = ScalarConverters.forType(rawClass);
+		if (scalarConverter != null && (rawClass.isPrimitive() || rawClass.isEnum() || rawClass.getName().startsWith("java."))) {
+			return new ValueBinder.Scalar(rawClass, scalarConverter);
+		}
+
+		BeanBinder beanBinder = BeanBinder.create(rawClass);
+		if (beanBinder != null) {
+			return beanBinder;
+		}
+		return scalarConverter != null ? new ValueBinder.Scalar(rawClass, scalarConverter) : new JacksonBinder(type);
+	}
+
+	private static Type typeArgument(Type type, int index) {
+		return type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments()[index] : Object.class;
+	}
+
+	private static Class<?> toRawClass(Type type) {
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		}
+		else if (type instanceof ParameterizedType) {
+			return (Class<?>) ((ParameterizedType) type).getRawType();
+		}
+		else if (type instanceof GenericArrayType) {
+			return Array.newInstance(toRawClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+		}
+		return Object.class;
+	}
+
+	private static Supplier<Collection<Object>> collectionFactory(Class<?> rawClass) {
+		if (rawClass.isAssignableFrom(ArrayList.class)) {
+			return ArrayList::new;
+		}
+		else if (rawClass.isAssignableFrom(LinkedHashSet.class)) {
+			return LinkedHashSet::new;
+		}
+		else if (rawClass == SortedSet.class || rawClass == NavigableSet.class) {
+			return TreeSet::new;
+		}
+		else if (rawClass.isAssignableFrom(ArrayDeque.class)) {
+			return ArrayDeque::new;
+		}
+		return noArgsFactory(rawClass);
+	}
+
+	private static Supplier<Map<Object, Object>> mapFactory(Class<?> rawClass) {
+		if (rawClass.isAssignableFrom(LinkedHashMap.class)) {
+			return LinkedHashMap::new;
+		}
+		else if (rawClass == SortedMap.class || rawClass == NavigableMap.class) {
+			return TreeMap::new;
+		}
+		else if (rawClass == ConcurrentMap.class) {
+			return ConcurrentHashMap::new;
+		}
+		return noArgsFactory(rawClass);
+	}
+
+	/**
+	 * Factory for concrete collection/map classes, e.g. {@link TreeSet} or {@link java.util.HashMap}.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> Supplier<T> noArgsFactory(Class<?> rawClass) {
+		if (rawClass.isInterface() || Modifier.isAbstract(rawClass.getModifiers())) {
+			return null;
+		}
+
+		try {
+			Constructor<?> constructor = rawClass.getConstructor();
+			return () -> {
+				try {
+					return (T) constructor.newInstance();
+				} catch (ReflectiveOperationException e) {
+					throw new ObjectBindingException(rawClass, e.getMessage());
+				}
+			};
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Fallback for types that cannot be planned, such as abstract classes and interfaces with Jackson type information.
+	 */
+	private static final class JacksonBinder extends ValueBinder {
+		private final Type type;
+		private final JavaType javaType;
+
+		private JacksonBinder(Type type) {
+			this.type = type;
+			this.javaType = FALLBACK_MAPPER.getTypeFactory().constructType(type);
+		}
+
+		@Override
+		Object bindNode(PathEntry<?> node) {
+			return bindValue(node.getFullKey(), ValueBinder.Raw.INSTANCE.bindNode(node));
+		}
+
+		@Override
+		Object bindValue(String key, Object value) {
+			try {
+				return FALLBACK_MAPPER.convertValue(value, javaType);
+			} catch (IllegalArgumentException e) {
+				throw toBindingException(key, type, e);
+			}
+		}
+
+		@Override
+		boolean isObjectBinder() {
+			return true;
+		}
+	}
+
+	private static final class ParameterizedTypeImpl implements ParameterizedType {
+		private final Class<?> rawType;
+		private final Type[] typeArguments;
+
+		private ParameterizedTypeImpl(Class<?> rawType, Type[] typeArguments) {
+			if (rawType.getTypeParameters().length != typeArguments.length) {
+				throw new ObjectBindingException(rawType, "Expected " + rawType.getTypeParameters().length + " type arguments, got " + typeArguments.length);
+			}
+			this.rawType = rawType;
+			this.typeArguments = typeArguments.clone();
+		}
+
+		@Override
+		public Type[] getActualTypeArguments() {
+			return typeArguments.clone();
+		}
+
+		@Override
+		public Type getRawType() {
+			return rawType;
+		}
+
+		@Override
+		public Type getOwnerType() {
+			return rawType.getDeclaringClass();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ParameterizedType)) {
+				return false;
+			}
+			ParameterizedType other = (ParameterizedType) obj;
+			return rawType.equals(other.getRawType()) && Objects.equals(getOwnerType(), other.getOwnerType())
+					&& Arrays.equals(typeArguments, other.getActualTypeArguments());
+		}
+
+		@Override
+		public int hashCode() { // Same as the JDK implementation
+			return Arrays.hashCode(typeArguments) ^ Objects.hashCode(getOwnerType()) ^ rawType.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return rawType.getTypeName() + Arrays.stream(typeArguments).map(Type::getTypeName).collect(Collectors.joining(", ", "<", ">"));
+		}
+	}
+
+	private ObjectBinder() { }
+
+}
@@ -0,0 +1,11 @@
+package com.frejdh.util.environment.binding;
+
+/**
+ * Converts a single string value to a given type. See {@link ScalarConverters} for the available conversions.
+ */
+@FunctionalInterface
+interface ScalarConverter {
+
+	Object convert(String value) throws Throwable;
+
+}
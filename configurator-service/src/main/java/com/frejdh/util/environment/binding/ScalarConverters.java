@@ -0,0 +1,140 @@
+package com.frejdh.util.environment.binding;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookup of {@link ScalarConverter} instances. The conversion strategy is looked up once per type.
+ */
+final class ScalarConverters {
+
+	/**
+	 * Names of static factory methods (with a single string parameter) that are used for types without a built-in conversion.
+	 */
+	private static final List<String> FACTORY_METHOD_NAMES = Arrays.asList("valueOf", "of", "parse", "fromString");
+
+	static final Map<Class<?>, Class<?>> PRIMITIVE_TO_WRAPPER = initPrimitiveToWrapper();
+
+	private static Map<Class<?>, Class<?>> initPrimitiveToWrapper() {
+		Map<Class<?>, Class<?>> map = new HashMap<>();
+		map.put(boolean.class, Boolean.class);
+		map.put(byte.class, Byte.class);
+		map.put(short.class, Short.class);
+		map.put(char.class, Character.class);
+		map.put(int.class, Integer.class);
+		map.put(long.class, Long.class);
+		map.put(float.class, Float.class);
+		map.put(double.class, Double.class);
+		return map;
+	}
+
+	/**
+	 * Lookup the converter for a type.
+	 * @param type Type to convert to
+	 * @return A converter, or null if the type cannot be created from a single string value
+	 */
+	static ScalarConverter forType(Class<?> type) {
+		Class<?> boxedType = PRIMITIVE_TO_WRAPPER.getOrDefault(type, type);
+		if (boxedType == String.class || boxedType == CharSequence.class) {
+			return value -> value;
+		}
+		else if (boxedType == Boolean.class) {
+			return nonEmpty(Boolean::valueOf);
+		}
+		else if (boxedType == Integer.class) {
+			return nonEmpty(Integer::valueOf);
+		}
+		else if (boxedType == Long.class) {
+			return nonEmpty(Long::valueOf);
+		}
+		else if (boxedType == Double.class) {
+			return nonEmpty(Double::valueOf);
+		}
+		else if (boxedType == Float.class) {
+			return nonEmpty(Float::valueOf);
+		}
+		else if (boxedType == Short.class) {
+			return nonEmpty(Short::valueOf);
+		}
+		else if (boxedType == Byte.class) {
+			return nonEmpty(Byte::valueOf);
+		}
+		else if (boxedType == Character.class) {
+			return nonEmpty(value -> value.charAt(0));
+		}
+		else if (boxedType == BigDecimal.class) {
+			return nonEmpty(BigDecimal::new);
+		}
+		else if (boxedType == BigInteger.class) {
+			return nonEmpty(BigInteger::new);
+		}
+		else if (boxedType.isEnum()) {
+			return nonEmpty(value -> toEnum(boxedType, value));
+		}
+		return forFactoryMethod(boxedType);
+	}
+
+	/**
+	 * Wrap a converter so that empty and "null" values are converted to null.
+	 */
+	private static ScalarConverter nonEmpty(ScalarConverter converter) {
+		return value -> {
+			String trimmedValue = value != null ? value.trim() : null;
+			return (trimmedValue == null || trimmedValue.isEmpty() || "null".equals(trimmedValue)) ? null : converter.convert(trimmedValue);
+		};
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static Object toEnum(Class<?> enumClass, String value) {
+		try {
+			return Enum.valueOf((Class<? extends Enum>) enumClass, value);
+		} catch (IllegalArgumentException e) {
+			String normalizedValue = value.replace('-', '_');
+			for (Object constant : enumClass.getEnumConstants()) {
+				if (((Enum<?>) constant).name().equalsIgnoreCase(normalizedValue)) {
+					return constant;
+				}
+			}
+			throw e;
+		}
+	}
+
+	private static ScalarConverter forFactoryMethod(Class<?> type) {
+		MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		MethodType converterType = MethodType.methodType(Object.class, String.class);
+
+		try {
+			for (Method method : type.getMethods()) {
+				if (Modifier.isStatic(method.getModifiers()) && FACTORY_METHOD_NAMES.contains(method.getName())
+						&& method.getParameterCount() == 1 && method.getParameterTypes()[0].isAssignableFrom(String.class)
+						&& type.isAssignableFrom(method.getReturnType())) {
+					MethodHandle handle = lookup.unreflect(method).asType(converterType);
+					return nonEmpty(value -> (Object) handle.invokeExact(value));
+				}
+			}
+			for (Constructor<?> constructor : type.getConstructors()) {
+				if (constructor.getParameterCount() == 1 && constructor.getParameterTypes()[0].isAssignableFrom(String.class)
+						&& !Modifier.isAbstract(type.getModifiers())) {
+					MethodHandle handle = lookup.unreflectConstructor(constructor).asType(converterType);
+					return nonEmpty(value -> (Object) handle.invokeExact(value));
+				}
+			}
+		} catch (IllegalAccessException | SecurityException e) {
+			return null;
+		}
+		return null;
+	}
+
+	private ScalarConverters() { }
+
+}
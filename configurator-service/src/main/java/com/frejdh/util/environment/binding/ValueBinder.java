@@ -0,0 +1,295 @@
+package com.frejdh.util.environment.binding;
+
+import com.frejdh.util.environment.exception.ObjectBindingException;
+import com.frejdh.util.environment.storage.map.PathEntry;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Binds {@link PathEntry} nodes to a specific type. Instances are created once per type by {@link ObjectBinder}, and are thread-safe.
+ */
+abstract class ValueBinder {
+
+	/**
+	 * Arrays/lists of objects with at least this many elements are bound in parallel.
+	 */
+	static final int PARALLEL_THRESHOLD = 256;
+
+	/**
+	 * Bind the child of a node.
+	 * @param parent The parent of the node to bind
+	 * @param key The key of the child node (the last segment of the full key)
+	 * @return The bound value, or null if there is nothing to bind
+	 */
+	Object bindChild(PathEntry<?> parent, String key) {
+		PathEntry<?> node = parent.getChild(key);
+		return node != null ? bindNode(node) : null;
+	}
+
+	/**
+	 * Bind a node, meaning either its values or its children.
+	 * @return The bound value, or null if there is nothing to bind
+	 */
+	abstract Object bindNode(PathEntry<?> node);
+
+	/**
+	 * Bind a single raw value, for instance an element of a multi-valued entry.
+	 * @return The bound value
+	 */
+	abstract Object bindValue(String key, Object value);
+
+	/**
+	 * @return True if the binder creates objects from the children of a node, rather than from the values of it.
+	 */
+	boolean isObjectBinder() {
+		return false;
+	}
+
+	static Object lastValue(PathEntry<?> node) {
+		List<?> values = node.getValues();
+		return values != null && !values.isEmpty() ? values.get(values.size() - 1) : null;
+	}
+
+	/**
+	 * Find array elements with a defined index, which are stored as sibling nodes. For instance 'key[0]' and 'key[1]' for 'key'.
+	 */
+	static List<PathEntry<?>> indexedSiblings(PathEntry<?> parent, String key) {
+		PathEntry<?> element = parent.getChild(key + "[0]");
+		if (element == null) {
+			return Collections.emptyList();
+		}
+
+		List<PathEntry<?>> elements = new ArrayList<>();
+		for (int i = 1; element != null; i++) {
+			elements.add(element);
+			element = parent.getChild(key + "[" + i + "]");
+		}
+		return elements;
+	}
+
+	static ObjectBindingException toBindingException(String key, Type type, Throwable throwable) {
+		if (throwable instanceof ObjectBindingException) {
+			return (ObjectBindingException) throwable;
+		}
+		return new ObjectBindingException(key, type, throwable);
+	}
+
+	/**
+	 * Binds a single value, using the last value of a node if there are multiple ones.
+	 */
+	static final class Scalar extends ValueBinder {
+		private final Class<?> type;
+		private final Class<?> boxedType;
+		private final ScalarConverter converter;
+
+		Scalar(Class<?> type, ScalarConverter converter) {
+			this.type = type;
+			this.boxedType = ScalarConverters.PRIMITIVE_TO_WRAPPER.getOrDefault(type, type);
+			this.converter = converter;
+		}
+
+		@Override
+		Object bindNode(PathEntry<?> node) {
+			Object value = lastValue(node);
+			return value != null ? bindValue(node.getFullKey(), value) : null;
+		}
+
+		@Override
+		Object bindValue(String key, Object value) {
+			if (value == null || boxedType.isInstance(value)) {
+				return value;
+			}
+
+			try {
+				return converter.convert(value.toString());
+			} catch (Throwable e) {
+				throw toBindingException(key, type, e);
+			}
+		}
+	}
+
+	/**
+	 * Binds nodes to generic Java types. Single values as is, multiple values as a list, and children as a map.
+	 */
+	static final class Raw extends ValueBinder {
+		static final Raw INSTANCE = new Raw();
+
+		private Raw() { }
+
+		@Override
+		Object bindNode(PathEntry<?> node) {
+			List<?> values = node.getValues();
+			if (values != null && !values.isEmpty()) {
+				return values.size() == 1 ? values.get(0) : new ArrayList<>(values);
+			}
+			return bindChildren(node);
+		}
+
+		Map<String, Object> bindChildren(PathEntry<?> node) {
+			Map<String, Object> map = new LinkedHashMap<>();
+			node.getChildren().forEach((childKey, child) -> map.put(childKey, bindNode(child)));
+			return map;
+		}
+
+		@Override
+		Object bindValue(String key, Object value) {
+			return value;
+		}
+	}
+
+	/**
+	 * Binds collections, either from the values of a node or from indexed sibling nodes.
+	 */
+	static class CollectionBinder extends ValueBinder {
+		private final Supplier<Collection<Object>> collectionFactory;
+		final ValueBinder elementBinder;
+
+		CollectionBinder(Supplier<Collection<Object>> collectionFactory, ValueBinder elementBinder) {
+			this.collectionFactory = collectionFactory;
+			this.elementBinder = elementBinder;
+		}
+
+		@Override
+		Object bindChild(PathEntry<?> parent, String key) {
+			List<PathEntry<?>> elements = indexedSiblings(parent, key);
+			if (!elements.isEmpty()) {
+				return toCollection(bindElements(elements));
+			}
+			return super.bindChild(parent, key);
+		}
+
+		@Override
+		Object bindNode(PathEntry<?> node) {
+			return toCollection(bindElementsOf(node));
+		}
+
+		@Override
+		Object bindValue(String key, Object value) {
+			Collection<Object> collection = collectionFactory.get();
+			collection.add(elementBinder.bindValue(key, value));
+			return collection;
+		}
+
+		Object[] bindElementsOf(PathEntry<?> node) {
+			List<?> values = node.getValues();
+			if (values != null && !values.isEmpty() && !(elementBinder.isObjectBinder() && node.hasChildren())) {
+				String key = node.getFullKey();
+				Object[] elements = new Object[values.size()];
+				for (int i = 0; i < elements.length; i++) {
+					elements[i] = elementBinder.bindValue(key, values.get(i));
+				}
+				return elements;
+			}
+			return bindElements(new ArrayList<>(node.getChildren().values()));
+		}
+
+		Object[] bindElements(List<PathEntry<?>> elementNodes) {
+			Object[] elements = new Object[elementNodes.size()];
+			IntStream indexes = IntStream.range(0, elements.length);
+			if (elements.length >= PARALLEL_THRESHOLD && elementBinder.isObjectBinder()) {
+				indexes = indexes.parallel();
+			}
+			indexes.forEach(i -> elements[i] = elementBinder.bindNode(elementNodes.get(i)));
+			return elements;
+		}
+
+		private Collection<Object> toCollection(Object[] elements) {
+			Collection<Object> collection = collectionFactory.get();
+			Collections.addAll(collection, elements);
+			return collection;
+		}
+	}
+
+	/**
+	 * Same as {@link CollectionBinder}, but for arrays (primitive arrays included).
+	 */
+	static final class ArrayBinder extends CollectionBinder {
+		private final Class<?> componentType;
+
+		ArrayBinder(Class<?> componentType, ValueBinder elementBinder) {
+			super(ArrayList::new, elementBinder);
+			this.componentType = componentType;
+		}
+
+		@Override
+		Object bindChild(PathEntry<?> parent, String key) {
+			List<PathEntry<?>> elements = indexedSiblings(parent, key);
+			if (!elements.isEmpty()) {
+				return toArray(bindElements(elements));
+			}
+			PathEntry<?> node = parent.getChild(key);
+			return node != null ? bindNode(node) : null;
+		}
+
+		@Override
+		Object bindNode(PathEntry<?> node) {
+			return toArray(bindElementsOf(node));
+		}
+
+		@Override
+		Object bindValue(String key, Object value) {
+			return toArray(new Object[] { elementBinder.bindValue(key, value) });
+		}
+
+		private Object toArray(Object[] elements) {
+			if (componentType == Object.class) {
+				return elements;
+			}
+
+			Object array = Array.newInstance(componentType, elements.length);
+			for (int i = 0; i < elements.length; i++) {
+				if (elements[i] != null || !componentType.isPrimitive()) {
+					Array.set(array, i, elements[i]);
+				}
+			}
+			return array;
+		}
+	}
+
+	/**
+	 * Binds maps from the children of a node.
+	 */
+	static final class MapBinder extends ValueBinder {
+		private final Supplier<Map<Object, Object>> mapFactory;
+		private final ValueBinder keyBinder;
+		private final ValueBinder valueBinder;
+
+		MapBinder(Supplier<Map<Object, Object>> mapFactory, ValueBinder keyBinder, ValueBinder valueBinder) {
+			this.mapFactory = mapFactory;
+			this.keyBinder = keyBinder;
+			this.valueBinder = valueBinder;
+		}
+
+		@Override
+		Object bindNode(PathEntry<?> node) {
+			Map<Object, Object> map = mapFactory.get();
+			node.getChildren().forEach((childKey, child) -> {
+				Object value = valueBinder.bindNode(child);
+				if (value != null) {
+					map.put(keyBinder.bindValue(child.getFullKey(), childKey), value);
+				}
+			});
+			return map;
+		}
+
+		@Override
+		Object bindValue(String key, Object value) {
+			return null;
+		}
+
+		@Override
+		boolean isObjectBinder() {
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,172 @@
+package com.frejdh.util.environment.change;
+
+import com.frejdh.util.environment.change.ConfigChange.Trigger;
+import com.frejdh.util.environment.storage.map.PathMapSnapshot;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A Reactive Streams {@link Publisher} of the changes to the properties under a prefix, with a {@link ConfigChange} for every
+ * reload, set property and overlay that changes anything under the prefix. Created with {@code ConfigContext.changes(prefix)}.
+ * <br><br>
+ * Each subscriber gets the changes as it requests them. A subscriber that falls behind gets the changes it missed conflated
+ * into one, with the latest values. The changes are sent by an executor, so slow subscribers never block a reload or the readers.
+ * The states are the immutable snapshots of the context, which are read and compared by the executor as well, outside of the lock.
+ * The changes that are published before the executor gets to them are compared as one, with the trigger of the last one.
+ * Use {@code JdkFlowAdapter} (Reactor) or {@code FlowAdapters} (reactive-streams) for a {@code java.util.concurrent.Flow.Publisher}.
+ */
+public final class ChangePublisher implements Publisher<ConfigChange> {
+	private static final Logger LOGGER = Logger.getLogger(ChangePublisher.class.getName());
+
+	private final String prefix;
+	private final Object lock;
+	private final Supplier<PathMapSnapshot<String>> stateReader;
+	private final Executor executor;
+	private final List<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final AtomicReference<PendingChange> pendingChange = new AtomicReference<>();	// The latest change that isn't compared yet
+	private final AtomicInteger scheduledDrains = new AtomicInteger();	// Non-zero while a drain is scheduled or running
+	private PathMapSnapshot<String> lastState;	// Guarded by the lock, and only kept while there are subscribers
+	private boolean isCompleted;
+
+	/**
+	 * What changed the properties, and the subscribers at the time of the change.
+	 */
+	private static final class PendingChange {
+		private final Trigger trigger;
+		private final List<ChangeSubscription> subscriptions;
+
+		private PendingChange(Trigger trigger, List<ChangeSubscription> subscriptions) {
+			this.trigger = trigger;
+			this.subscriptions = subscriptions;
+		}
+	}
+
+	/**
+	 * Internal, created by the context.
+	 * @param prefix The prefix of the keys, or an empty string for all keys
+	 * @param lock The lock that the properties are changed with
+	 * @param stateReader Reads the immutable snapshot of the latest state. Called by the executor and the subscribing threads, without the lock.
+	 * @param executor Compares the states and sends the signals to the subscribers
+	 */
+	public ChangePublisher(String prefix, Object lock, Supplier<PathMapSnapshot<String>> stateReader, Executor executor) {
+		this.prefix = prefix;
+		this.lock = lock;
+		this.stateReader = stateReader;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super ConfigChange> subscriber) {
+		Objects.requireNonNull(subscriber, "The subscriber cannot be null");	// Rule 1.9
+		ChangeSubscription subscription = new ChangeSubscription(this, subscriber, executor);
+		subscriber.onSubscribe(subscription);
+
+		PathMapSnapshot<String> state = stateReader.get();	// Read before the lock, since reading it may seal the properties
+		synchronized (lock) {
+			if (isCompleted) {
+				subscription.complete();
+			}
+			else if (!subscription.isCancelled()) {
+				if (subscriptions.isEmpty()) {
+					lastState = state;
+				}
+				subscriptions.add(subscription);
+			}
+		}
+		subscription.start();
+	}
+
+	/**
+	 * Internal. Publish the changes since the last call to the subscribers. Must be called with the lock held.
+	 * Only the trigger and the subscribers are kept here, the state is read and compared later by the executor.
+	 * @param trigger What changed the properties
+	 */
+	public void publish(Trigger trigger) {
+		if (subscriptions.isEmpty()) {
+			lastState = null;
+			return;
+		}
+
+		pendingChange.set(new PendingChange(trigger, new ArrayList<>(subscriptions)));
+		schedule();
+	}
+
+	private void schedule() {
+		if (scheduledDrains.getAndIncrement() == 0) {
+			try {
+				executor.execute(this::drain);
+			} catch (RejectedExecutionException e) {
+				LOGGER.log(Level.WARNING, "Couldn't compare the configuration changes, dropping them", e);
+				pendingChange.set(null);
+				scheduledDrains.set(0);
+			}
+		}
+	}
+
+	/**
+	 * Compare the latest state with the last compared one, and offer the change to the subscribers.
+	 * Drains until no more changes were published while draining.
+	 */
+	private void drain() {
+		int drains = 1;
+		do {
+			PendingChange pending = pendingChange.getAndSet(null);
+			if (pending != null) {
+				compare(pending);
+			}
+			drains = scheduledDrains.addAndGet(-drains);
+		} while (drains != 0);
+	}
+
+	private void compare(PendingChange pending) {
+		PathMapSnapshot<String> currentState = stateReader.get();	// Sealed once for all changes since the last drain, if a lookup didn't already
+		PathMapSnapshot<String> previousState;
+		synchronized (lock) {
+			previousState = lastState;
+			lastState = !subscriptions.isEmpty() ? currentState : null;
+		}
+		if (previousState != null && previousState.getModificationStamp() != currentState.getModificationStamp()) {
+			ConfigChange change = ConfigChange.between(prefix, pending.trigger, previousState, currentState);
+			if (!change.isEmpty()) {
+				pending.subscriptions.forEach(subscription -> subscription.offer(change));
+			}
+		}
+	}
+
+	/**
+	 * Internal. Complete the subscribers, like when the context is closed.
+	 */
+	public void complete() {
+		synchronized (lock) {
+			isCompleted = true;
+			subscriptions.forEach(ChangeSubscription::complete);
+			subscriptions.clear();
+			lastState = null;
+		}
+	}
+
+	void remove(ChangeSubscription subscription) {
+		subscriptions.remove(subscription);
+	}
+
+	public String getPrefix() {
+		return prefix;
+	}
+
+	public int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.frejdh.util.environment.change;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The subscription of one subscriber to a {@link ChangePublisher}. At most one change is pending, so a subscriber without demand
+ * gets the changes conflated into one once it requests more. The signals are sent by the executor, one drain at a time,
+ * so neither the reloading thread nor the readers ever wait for a subscriber.
+ */
+final class ChangeSubscription implements Subscription, Runnable {
+	private static final Logger LOGGER = Logger.getLogger(ChangeSubscription.class.getName());
+
+	private final ChangePublisher publisher;
+	private final Subscriber<? super ConfigChange> subscriber;
+	private final Executor executor;
+	private final AtomicLong demand = new AtomicLong();
+	private final AtomicReference<ConfigChange> pendingChange = new AtomicReference<>();
+	private final AtomicInteger scheduledDrains = new AtomicInteger();	// Non-zero while a drain is scheduled or running
+	private volatile boolean isStarted;
+	private volatile boolean isCancelled;
+	private volatile boolean isCompleted;
+	private volatile Throwable requestError;
+	private boolean isTerminated;	// Only accessed by the drain
+
+	ChangeSubscription(ChangePublisher publisher, Subscriber<? super ConfigChange> subscriber, Executor executor) {
+		this.publisher = publisher;
+		this.subscriber = subscriber;
+		this.executor = executor;
+	}
+
+	/**
+	 * Start sending signals, once the subscriber's 'onSubscribe' has returned.
+	 */
+	void start() {
+		isStarted = true;
+		schedule();
+	}
+
+	void offer(ConfigChange change) {
+		if (!isCancelled) {
+			pendingChange.accumulateAndGet(change, (pending, next) -> pending != null ? pending.merge(next) : next);
+			schedule();
+		}
+	}
+
+	/**
+	 * Send the pending change if there is demand for it, and then complete the subscriber.
+	 */
+	void complete() {
+		isCompleted = true;
+		schedule();
+	}
+
+	boolean isCancelled() {
+		return isCancelled;
+	}
+
+	@Override
+	public void request(long n) {
+		if (n <= 0) {
+			requestError = new IllegalArgumentException("The number of requested changes must be positive, but was " + n);	// Rule 3.9
+		}
+		else {
+			demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+		}
+		schedule();
+	}
+
+	@Override
+	public void cancel() {
+		isCancelled = true;
+		pendingChange.set(null);
+		publisher.remove(this);
+	}
+
+	private void schedule() {
+		if (isStarted && scheduledDrains.getAndIncrement() == 0) {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				LOGGER.log(Level.WARNING, "Couldn't deliver configuration changes, cancelling the subscription", e);
+				cancel();
+			}
+		}
+	}
+
+	/**
+	 * Drain until no more signals were scheduled while draining.
+	 */
+	@Override
+	public void run() {
+		int drains = 1;
+		do {
+			drain();
+			drains = scheduledDrains.addAndGet(-drains);
+		} while (drains != 0);
+	}
+
+	private void drain() {
+		if (isCancelled || isTerminated) {
+			return;
+		}
+
+		Throwable error = requestError;
+		if (error != null) {
+			isTerminated = true;
+			cancel();
+			subscriber.onError(error);
+			return;
+		}
+
+		if (demand.get() > 0) {
+			ConfigChange change = pendingChange.getAndSet(null);
+			if (change != null) {
+				if (demand.get() != Long.MAX_VALUE) {	// Unbounded once it has reached the maximum, rule 3.17
+					demand.decrementAndGet();
+				}
+				try {
+					subscriber.onNext(change);
+				} catch (RuntimeException e) {	// Rule 2.13, the subscriber is considered cancelled
+					LOGGER.log(Level.WARNING, "A subscriber of the configuration changes failed, cancelling its subscription", e);
+					isTerminated = true;
+					cancel();
+					return;
+				}
+			}
+		}
+
+		if (isCompleted && !isCancelled && (pendingChange.get() == null || demand.get() == 0)) {	// Without demand, the last change is dropped
+			isTerminated = true;
+			pendingChange.set(null);
+			subscriber.onComplete();
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+package com.frejdh.util.environment.change;
+
+import com.frejdh.util.environment.storage.map.PathMapSnapshot;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An immutable batch of changed properties under a prefix, published by a {@link ChangePublisher}.
+ * If a subscriber falls behind, the batches it hasn't received are conflated into one, from the oldest previous values
+ * to the latest values. Keys that changed back to their previous values are then left out.
+ */
+public final class ConfigChange {
+
+	public enum Trigger {
+		/** All sources were loaded again */
+		REFRESH("refresh"),
+		/** A changed file was loaded again, through {@code fileChanged} */
+		FILE_CHANGED("fileChanged"),
+		/** A changed file was loaded again by the runtime watcher */
+		WATCHER("watcher"),
+		/** A property was set directly */
+		SET("set"),
+		/** An overlay was pushed or closed */
+		OVERLAY("overlay"),
+		/** A changed HTTP source was loaded again by the poller */
+		HTTP_POLL("httpPoll");
+
+		private final String name;
+
+		Trigger(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	private final String prefix;
+	private final Trigger trigger;
+	private final Map<String, List<String>> previousValues;
+	private final Map<String, List<String>> currentValues;
+	private final Set<String> changedKeys;
+	private final int batchCount;
+
+	private ConfigChange(String prefix, Trigger trigger, Map<String, List<String>> previousValues, Map<String, List<String>> currentValues, int batchCount) {
+		this.prefix = prefix;
+		this.trigger = trigger;
+		this.previousValues = Collections.unmodifiableMap(previousValues);
+		this.currentValues = Collections.unmodifiableMap(currentValues);
+		Set<String> keys = new TreeSet<>(previousValues.keySet());
+		keys.addAll(currentValues.keySet());
+		this.changedKeys = Collections.unmodifiableSet(keys);
+		this.batchCount = batchCount;
+	}
+
+	/**
+	 * Compare the properties under the prefix of two snapshots. Nothing is copied, only the changed values are kept.
+	 * @param previousState The properties before the change
+	 * @param currentState The properties after the change
+	 * @return The change between the states, which is {@link #isEmpty() empty} if they are equal
+	 */
+	static ConfigChange between(String prefix, Trigger trigger, PathMapSnapshot<String> previousState, PathMapSnapshot<String> currentState) {
+		Map<String, List<String>> previousValues = new TreeMap<>();
+		Map<String, List<String>> currentValues = new TreeMap<>();
+		for (String key : currentState.getKeys()) {
+			if (isUnderPrefix(prefix, key)) {
+				List<String> values = currentState.get(key);
+				List<String> valuesBefore = previousState.get(key);
+				if (!values.equals(valuesBefore)) {
+					currentValues.put(key, values);
+					if (valuesBefore != null) {
+						previousValues.put(key, valuesBefore);
+					}
+				}
+			}
+		}
+		for (String key : previousState.getKeys()) {
+			if (isUnderPrefix(prefix, key) && !currentState.containsKey(key)) {
+				previousValues.put(key, previousState.get(key));
+			}
+		}
+		return new ConfigChange(prefix, trigger, previousValues, currentValues, 1);
+	}
+
+	private static boolean isUnderPrefix(String prefix, String key) {
+		return prefix.isEmpty() || key.startsWith(prefix) && (key.length() == prefix.length() || key.charAt(prefix.length()) == '.');
+	}
+
+	/**
+	 * Conflate this change with a later one, for a subscriber that hasn't received this one yet.
+	 * @return The change from the previous values of this change to the current values of the later change
+	 */
+	ConfigChange merge(ConfigChange later) {
+		Map<String, List<String>> mergedPreviousValues = new TreeMap<>();
+		Map<String, List<String>> mergedCurrentValues = new TreeMap<>();
+		Set<String> keys = new TreeSet<>(changedKeys);
+		keys.addAll(later.changedKeys);
+		for (String key : keys) {
+			List<String> previous = changedKeys.contains(key) ? previousValues.get(key) : later.previousValues.get(key);
+			List<String> current = later.changedKeys.contains(key) ? later.currentValues.get(key) : currentValues.get(key);
+			if (!Objects.equals(previous, current)) {
+				if (previous != null) {
+					mergedPreviousValues.put(key, previous);
+				}
+				if (current != null) {
+					mergedCurrentValues.put(key, current);
+				}
+			}
+		}
+		return new ConfigChange(prefix, later.trigger, mergedPreviousValues, mergedCurrentValues, batchCount + later.batchCount);
+	}
+
+	/**
+	 * @return The prefix that the changes are under, or an empty string for all properties
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * @return What caused the (latest) change
+	 */
+	public Trigger getTrigger() {
+		return trigger;
+	}
+
+	/**
+	 * @return The full keys that were added, changed or removed, in key order
+	 */
+	public Set<String> getChangedKeys() {
+		return changedKeys;
+	}
+
+	/**
+	 * @return The previous values of the changed keys. Added keys are not included.
+	 */
+	public Map<String, List<String>> getPreviousValues() {
+		return previousValues;
+	}
+
+	/**
+	 * @return The current values of the changed keys. Removed keys are not included.
+	 */
+	public Map<String, List<String>> getCurrentValues() {
+		return currentValues;
+	}
+
+	/**
+	 * @return The number of published batches in this change, which is more than one if they were conflated
+	 */
+	public int getBatchCount() {
+		return batchCount;
+	}
+
+	public boolean isEmpty() {
+		return changedKeys.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "ConfigChange{prefix='" + prefix + "', trigger=" + trigger.getName() + ", changedKeys=" + changedKeys + ", batchCount=" + batchCount + "}";
+	}
+
+}
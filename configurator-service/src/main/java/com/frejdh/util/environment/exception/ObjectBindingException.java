@@ -0,0 +1,29 @@
+package com.frejdh.util.environment.exception;
+
+import java.lang.reflect.Type;
+import java.util.Locale;
+
+public class ObjectBindingException extends IllegalArgumentException {
+	private final String key;
+	private final Type type;
+
+	public ObjectBindingException(String key, Type type, Throwable cause) {
+		super(String.format(Locale.getDefault(), "Couldn't bind the configuration value for '%s' to %s. Reason: %s", key, type.getTypeName(), cause.getMessage()), cause);
+		this.key = key;
+		this.type = type;
+	}
+
+	public ObjectBindingException(Type type, String reason) {
+		super(String.format(Locale.getDefault(), "Couldn't create a binding plan for %s. Reason: %s", type.getTypeName(), reason));
+		this.key = null;
+		this.type = type;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public Type getType() {
+		return type;
+	}
+}
@@ -0,0 +1,176 @@
+package com.frejdh.util.environment.http;
+
+import com.frejdh.util.environment.FileSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads configuration files from HTTP(S) URLs, like 'http://localhost:8888/app.yml'. The format is given by the extension of the path.
+ * <br><br>
+ * The responses are remembered with their 'ETag' and 'Last-Modified' headers, and later requests are conditional
+ * ('If-None-Match' and 'If-Modified-Since'). An unchanged file therefore costs a '304 Not Modified' without a body,
+ * and {@link #poll(String)} only reports a change when the content actually differs, so unchanged files aren't parsed again.
+ */
+public class HttpConfigSource implements FileSource {
+	public static final int DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+	private final int timeoutMillis;
+	private final Map<String, Response> responsesByUrl = new ConcurrentHashMap<>();
+
+	private static final class Response {
+		private final String content;
+		private final String entityTag;
+		private final String lastModified;
+		private volatile boolean isPolled;	// Fetched by poll(), so the next read() doesn't need to ask again
+
+		private Response(String content, String entityTag, String lastModified) {
+			this.content = content;
+			this.entityTag = entityTag;
+			this.lastModified = lastModified;
+		}
+	}
+
+	public HttpConfigSource() {
+		this(DEFAULT_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * @param timeoutMillis The connect and read timeout of each request
+	 */
+	public HttpConfigSource(int timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * @return True if the filename is an HTTP or HTTPS URL
+	 */
+	public static boolean isUrl(String filename) {
+		return filename != null && (filename.regionMatches(true, 0, "http://", 0, 7) || filename.regionMatches(true, 0, "https://", 0, 8));
+	}
+
+	/**
+	 * Get the current content of a URL. Conditional if the URL has been read before, in which case a '304 Not Modified'
+	 * returns the remembered content.
+	 * @param url The URL of the file
+	 * @return The content, or null if the server responded '404 Not Found'
+	 * @throws IOException If the request failed or the server responded with another error
+	 */
+	@Override
+	public String read(String url) throws IOException {
+		Response previous = responsesByUrl.get(url);
+		if (previous != null && previous.isPolled) {
+			previous.isPolled = false;
+			if (previous.content == null) {	// Polled as removed
+				responsesByUrl.remove(url, previous);
+			}
+			return previous.content;
+		}
+		Response response = fetch(url, previous);
+		return response != null ? response.content : null;
+	}
+
+	/**
+	 * Ask if the content of a URL has changed since it was last read. The new content is kept for the next {@link #read(String)}.
+	 * @param url The URL of the file
+	 * @return True if the content has changed, or if the file was removed
+	 * @throws IOException If the request failed or the server responded with an error other than '404 Not Found'
+	 */
+	public boolean poll(String url) throws IOException {
+		Response previous = responsesByUrl.get(url);
+		if (previous != null && previous.content == null) {	// Removed, but not read since
+			previous = null;
+		}
+		Response response = fetch(url, previous);
+		if (response == null) {
+			if (previous == null) {
+				return false;
+			}
+			Response removed = new Response(null, null, null);
+			removed.isPolled = true;	// So the next read() doesn't ask again
+			responsesByUrl.put(url, removed);
+			return true;
+		}
+		if (previous != null && response.content.equals(previous.content)) {
+			return false;	// Either '304 Not Modified', or a server without validators sending the same content
+		}
+		response.isPolled = true;
+		return true;
+	}
+
+	/**
+	 * @return The response, which is the previous one if not modified, or null if not found
+	 */
+	private Response fetch(String url, Response previous) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		try {
+			connection.setConnectTimeout(timeoutMillis);
+			connection.setReadTimeout(timeoutMillis);
+			connection.setUseCaches(false);
+			if (previous != null && previous.entityTag != null) {
+				connection.setRequestProperty("If-None-Match", previous.entityTag);
+			}
+			if (previous != null && previous.lastModified != null) {
+				connection.setRequestProperty("If-Modified-Since", previous.lastModified);
+			}
+
+			int status = connection.getResponseCode();
+			if (status == HttpURLConnection.HTTP_NOT_MODIFIED && previous != null) {
+				return previous;
+			}
+			else if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+				responsesByUrl.remove(url);
+				return null;
+			}
+			else if (status != HttpURLConnection.HTTP_OK) {
+				throw new IOException("The server responded " + status + " for '" + url + "'");
+			}
+
+			String content;
+			try (InputStream body = connection.getInputStream()) {
+				content = new String(readAll(body), getCharset(connection.getContentType()));
+			}
+			Response response = new Response(content, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+			responsesByUrl.put(url, response);
+			return response;
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private static byte[] readAll(InputStream input) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+			output.write(buffer, 0, read);
+		}
+		return output.toByteArray();
+	}
+
+	/**
+	 * @return The charset of a content type like 'application/yaml; charset=ISO-8859-1', or UTF-8 if none is given or supported
+	 */
+	private static Charset getCharset(String contentType) {
+		if (contentType != null) {
+			for (String parameter : contentType.split(";")) {
+				String trimmed = parameter.trim();
+				if (trimmed.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+					String name = trimmed.substring("charset=".length()).replace("\"", "");
+					if (Charset.isSupported(name)) {
+						return Charset.forName(name);
+					}
+				}
+			}
+		}
+		return StandardCharsets.UTF_8;
+	}
+
+}
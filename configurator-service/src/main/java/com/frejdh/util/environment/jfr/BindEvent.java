@@ -0,0 +1,23 @@
+package com.frejdh.util.environment.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.frejdh.config.Bind")
+@Label("Config Object Bind")
+@Description("Properties have been fetched as an object, from the cache or by binding them")
+@Category("Configurator")
+@StackTrace(false)
+class BindEvent extends jdk.jfr.Event {
+	@Label("Key")
+	String key;
+
+	@Label("Type")
+	String type;
+
+	@Label("Found")
+	boolean found;
+}
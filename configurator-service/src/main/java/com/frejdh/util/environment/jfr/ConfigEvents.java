@@ -0,0 +1,96 @@
+package com.frejdh.util.environment.jfr;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Java Flight Recorder events for loading, reloading, binding and slow lookups. They are shown in the 'Configurator' category of a recording.
+ * <br><br>
+ * Each event is started with a 'begin' method, which returns null if the event type is disabled (or JFR isn't available on the JVM),
+ * and is passed to the matching 'end' method. The events are only created while a recording has them enabled,
+ * so the cost is otherwise a check of a flag. The JFR classes are only loaded if they exist, so older Java 8 runtimes are supported.
+ */
+public final class ConfigEvents {
+	private static final boolean IS_AVAILABLE = isJfrAvailable();
+
+	private ConfigEvents() {
+	}
+
+	private static boolean isJfrAvailable() {
+		try {
+			Class.forName("jdk.jfr.FlightRecorder");
+			return JfrEvents.isAvailable();
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return If Java Flight Recorder exists on this JVM
+	 */
+	public static boolean isAvailable() {
+		return IS_AVAILABLE;
+	}
+
+	public static Object beginParse() {
+		return IS_AVAILABLE ? JfrEvents.beginParse() : null;
+	}
+
+	/**
+	 * @param event The event from {@link #beginParse()}, or null
+	 * @param filename The parsed file
+	 * @param bytes The size of the file as UTF-8
+	 * @param keys The number of parsed keys
+	 */
+	public static void endParse(Object event, String filename, long bytes, int keys) {
+		if (event != null) {
+			JfrEvents.endParse(event, filename, bytes, keys);
+		}
+	}
+
+	public static Object beginReload() {
+		return IS_AVAILABLE ? JfrEvents.beginReload() : null;
+	}
+
+	/**
+	 * @param event The event from {@link #beginReload()}, or null
+	 * @param context The name of the context
+	 * @param trigger What caused the reload, like 'refresh' (see {@link com.frejdh.util.environment.change.ConfigChange.Trigger})
+	 * @param files The reloaded files
+	 * @param keysBefore The number of keys before the reload
+	 * @param keysAfter The number of keys after the reload
+	 */
+	public static void endReload(Object event, String context, String trigger, Collection<String> files, long keysBefore, long keysAfter) {
+		if (event != null) {
+			JfrEvents.endReload(event, context, trigger, files, keysBefore, keysAfter);
+		}
+	}
+
+	public static Object beginBind() {
+		return IS_AVAILABLE ? JfrEvents.beginBind() : null;
+	}
+
+	/**
+	 * @param event The event from {@link #beginBind()}, or null
+	 */
+	public static void endBind(Object event, String key, Type type, boolean isFound) {
+		if (event != null) {
+			JfrEvents.endBind(event, key, type, isFound);
+		}
+	}
+
+	public static Object beginLookup() {
+		return IS_AVAILABLE ? JfrEvents.beginLookup() : null;
+	}
+
+	/**
+	 * Only recorded if the lookup took longer than the threshold of 'com.frejdh.config.SlowLookup', 1 ms by default.
+	 * @param event The event from {@link #beginLookup()}, or null
+	 */
+	public static void endLookup(Object event, String key, Type type, boolean isFound) {
+		if (event != null) {
+			JfrEvents.endLookup(event, key, type, isFound);
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.frejdh.util.environment.jfr;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * The parts of {@link ConfigEvents} that use the JFR classes. Only loaded if they exist.
+ */
+final class JfrEvents {
+	private static final EventType PARSE = EventType.getEventType(ParseEvent.class);
+	private static final EventType RELOAD = EventType.getEventType(ReloadEvent.class);
+	private static final EventType BIND = EventType.getEventType(BindEvent.class);
+	private static final EventType SLOW_LOOKUP = EventType.getEventType(SlowLookupEvent.class);
+
+	private JfrEvents() {
+	}
+
+	static boolean isAvailable() {
+		return FlightRecorder.isAvailable();
+	}
+
+	static Object beginParse() {
+		if (!PARSE.isEnabled()) {
+			return null;
+		}
+		ParseEvent event = new ParseEvent();
+		event.begin();
+		return event;
+	}
+
+	static void endParse(Object event, String filename, long bytes, int keys) {
+		ParseEvent parseEvent = (ParseEvent) event;
+		parseEvent.end();
+		if (parseEvent.shouldCommit()) {
+			parseEvent.filename = filename;
+			parseEvent.format = filename.contains(".") ? filename.substring(filename.lastIndexOf('.') + 1) : null;
+			parseEvent.bytes = bytes;
+			parseEvent.keys = keys;
+			parseEvent.commit();
+		}
+	}
+
+	static Object beginReload() {
+		if (!RELOAD.isEnabled()) {
+			return null;
+		}
+		ReloadEvent event = new ReloadEvent();
+		event.begin();
+		return event;
+	}
+
+	static void endReload(Object event, String context, String trigger, Collection<String> files, long keysBefore, long keysAfter) {
+		ReloadEvent reloadEvent = (ReloadEvent) event;
+		reloadEvent.end();
+		if (reloadEvent.shouldCommit()) {
+			reloadEvent.context = context;
+			reloadEvent.trigger = trigger;
+			reloadEvent.files = String.join(", ", files);
+			reloadEvent.keysBefore = keysBefore;
+			reloadEvent.keysAfter = keysAfter;
+			reloadEvent.keyDelta = keysAfter - keysBefore;
+			reloadEvent.commit();
+		}
+	}
+
+	static Object beginBind() {
+		if (!BIND.isEnabled()) {
+			return null;
+		}
+		BindEvent event = new BindEvent();
+		event.begin();
+		return event;
+	}
+
+	static void endBind(Object event, String key, Type type, boolean isFound) {
+		BindEvent bindEvent = (BindEvent) event;
+		bindEvent.end();
+		if (bindEvent.shouldCommit()) {
+			bindEvent.key = key;
+			bindEvent.type = type != null ? type.getTypeName() : null;
+			bindEvent.found = isFound;
+			bindEvent.commit();
+		}
+	}
+
+	static Object beginLookup() {
+		if (!SLOW_LOOKUP.isEnabled()) {
+			return null;
+		}
+		SlowLookupEvent event = new SlowLookupEvent();
+		event.begin();
+		return event;
+	}
+
+	static void endLookup(Object event, String key, Type type, boolean isFound) {
+		SlowLookupEvent lookupEvent = (SlowLookupEvent) event;
+		lookupEvent.end();
+		if (lookupEvent.shouldCommit()) {	// Only if slower than the threshold
+			lookupEvent.key = key;
+			lookupEvent.type = type != null ? type.getTypeName() : null;
+			lookupEvent.found = isFound;
+			lookupEvent.commit();
+		}
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.frejdh.util.environment.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.frejdh.config.Parse")
+@Label("Config File Parse")
+@Description("A configuration file has been parsed")
+@Category("Configurator")
+@StackTrace(false)
+class ParseEvent extends jdk.jfr.Event {
+	@Label("File")
+	String filename;
+
+	@Label("Format")
+	String format;
+
+	@Label("Size")
+	@DataAmount
+	long bytes;
+
+	@Label("Keys")
+	int keys;
+}
@@ -0,0 +1,30 @@
+package com.frejdh.util.environment.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.frejdh.config.Reload")
+@Label("Config Reload")
+@Description("The properties of a context have been loaded again, fully or for a changed file")
+@Category("Configurator")
+class ReloadEvent extends jdk.jfr.Event {
+	@Label("Context")
+	String context;
+
+	@Label("Trigger")
+	String trigger;
+
+	@Label("Files")
+	String files;
+
+	@Label("Keys Before")
+	long keysBefore;
+
+	@Label("Keys After")
+	long keysAfter;
+
+	@Label("Key Delta")
+	long keyDelta;
+}
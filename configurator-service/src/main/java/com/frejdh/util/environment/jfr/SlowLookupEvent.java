@@ -0,0 +1,23 @@
+package com.frejdh.util.environment.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("com.frejdh.config.SlowLookup")
+@Label("Slow Config Lookup")
+@Description("A property lookup took longer than the threshold")
+@Category("Configurator")
+@Threshold("1 ms")
+class SlowLookupEvent extends jdk.jfr.Event {
+	@Label("Key")
+	String key;
+
+	@Label("Type")
+	String type;
+
+	@Label("Found")
+	boolean found;
+}
@@ -0,0 +1,53 @@
+package com.frejdh.util.environment.metrics;
+
+import java.lang.reflect.Type;
+
+/**
+ * Receives the events of a {@link com.frejdh.util.environment.ConfigContext}, to count or time them. All methods are no-ops by default,
+ * so an implementation only overrides what it needs. The methods are called on the reading and loading threads, and must be thread-safe and fast.
+ * <br><br>
+ * {@link DefaultConfigMetrics} is a lock-free implementation, which can be exposed through JMX.
+ */
+public interface ConfigMetrics {
+
+	/**
+	 * Does nothing. Used when no metrics are configured.
+	 */
+	ConfigMetrics NONE = new ConfigMetrics() { };
+
+	/**
+	 * A property has been looked up.
+	 * @param key The key, as given by the caller
+	 * @param isFound If the key had a value
+	 */
+	default void lookup(String key, boolean isFound) {
+	}
+
+	/**
+	 * A value was found, but could not be converted or bound to the requested type.
+	 */
+	default void conversionFailed(String key, Type type) {
+	}
+
+	/**
+	 * A file has been read and parsed.
+	 * @param filename The file, as given to the context
+	 * @param sizeInBytes The size of the content, as UTF-8
+	 * @param durationNanos The time to parse the content
+	 */
+	default void fileParsed(String filename, long sizeInBytes, long durationNanos) {
+	}
+
+	/**
+	 * The properties have been reloaded, either fully with a refresh or for a changed file.
+	 */
+	default void reloaded(long durationNanos) {
+	}
+
+	/**
+	 * The runtime watcher has detected a change of a file.
+	 */
+	default void watcherEvent(String filename) {
+	}
+
+}
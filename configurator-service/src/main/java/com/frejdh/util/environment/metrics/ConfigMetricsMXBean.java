@@ -0,0 +1,43 @@
+package com.frejdh.util.environment.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link DefaultConfigMetrics}. Durations are in milliseconds, and maps are keyed by key prefix, type or file.
+ */
+public interface ConfigMetricsMXBean {
+
+	long getLookupCount();
+
+	long getMissCount();
+
+	/**
+	 * @return The share of the lookups that found no value, from 0 to 1
+	 */
+	double getMissRatio();
+
+	Map<String, Long> getHitsByPrefix();
+
+	Map<String, Long> getMissesByPrefix();
+
+	long getConversionFailureCount();
+
+	Map<String, Long> getConversionFailuresByType();
+
+	Map<String, Long> getParseCountByFile();
+
+	Map<String, Long> getParsedBytesByFile();
+
+	Map<String, Double> getParseMillisP99ByFile();
+
+	long getReloadCount();
+
+	double getReloadMillisP50();
+
+	double getReloadMillisP99();
+
+	double getReloadMillisMax();
+
+	long getWatcherEventCount();
+
+}
@@ -0,0 +1,262 @@
+package com.frejdh.util.environment.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Lock-free {@link ConfigMetrics}, with striped {@link LongAdder} counters and {@link LatencyHistogram}s.
+ * Lookups are counted by key prefix, which is the first segment of the key by default ('server' for 'server.http.port').
+ * <br><br>
+ * Can be exposed as an MXBean with {@link #registerMBean(String)}, with the object name 'com.frejdh.util.environment:type=ConfigMetrics,name=...'.
+ */
+public class DefaultConfigMetrics implements ConfigMetrics, ConfigMetricsMXBean {
+	public static final String OBJECT_NAME_PREFIX = "com.frejdh.util.environment:type=ConfigMetrics,name=";
+	private static final int MAX_CACHED_KEYS = 10_000;	// Looked up keys are few in practice, but don't grow without bounds if they aren't
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	private final int prefixSegments;
+	private final ConcurrentMap<String, PrefixCounters> countersByPrefix = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, PrefixCounters> countersByKey = new ConcurrentHashMap<>();	// Avoids computing the prefix for each lookup
+	private final ConcurrentMap<String, LongAdder> conversionFailuresByType = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, FileCounters> countersByFile = new ConcurrentHashMap<>();
+	private final LatencyHistogram reloadDurations = new LatencyHistogram();
+	private final LongAdder watcherEvents = new LongAdder();
+	private volatile ObjectName objectName;
+
+	private static final class PrefixCounters {
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+	}
+
+	private static final class FileCounters {
+		private final LongAdder bytes = new LongAdder();
+		private final LatencyHistogram parseDurations = new LatencyHistogram();
+	}
+
+	public DefaultConfigMetrics() {
+		this(1);
+	}
+
+	/**
+	 * @param prefixSegments The number of leading key segments that lookups are counted by
+	 * @throws IllegalArgumentException If less than 1
+	 */
+	public DefaultConfigMetrics(int prefixSegments) throws IllegalArgumentException {
+		if (prefixSegments < 1) {
+			throw new IllegalArgumentException("The prefix must have at least one segment, but was " + prefixSegments);
+		}
+		this.prefixSegments = prefixSegments;
+	}
+
+	//
+	// Events
+	//
+	@Override
+	public void lookup(String key, boolean isFound) {
+		if (key == null) {
+			return;
+		}
+		PrefixCounters counters = countersByKey.get(key);
+		if (counters == null) {
+			counters = countersByPrefix.computeIfAbsent(toPrefix(key), prefix -> new PrefixCounters());
+			if (countersByKey.size() < MAX_CACHED_KEYS) {
+				countersByKey.putIfAbsent(key, counters);
+			}
+		}
+		(isFound ? counters.hits : counters.misses).increment();
+	}
+
+	@Override
+	public void conversionFailed(String key, Type type) {
+		conversionFailuresByType.computeIfAbsent(type != null ? type.getTypeName() : "null", name -> new LongAdder()).increment();
+	}
+
+	@Override
+	public void fileParsed(String filename, long sizeInBytes, long durationNanos) {
+		FileCounters counters = countersByFile.computeIfAbsent(filename, name -> new FileCounters());
+		counters.bytes.add(sizeInBytes);
+		counters.parseDurations.record(durationNanos);
+	}
+
+	@Override
+	public void reloaded(long durationNanos) {
+		reloadDurations.record(durationNanos);
+	}
+
+	@Override
+	public void watcherEvent(String filename) {
+		watcherEvents.increment();
+	}
+
+	private String toPrefix(String key) {
+		int end = -1;
+		for (int i = 0; i < prefixSegments; i++) {
+			end = key.indexOf('.', end + 1);
+			if (end < 0) {
+				return key;
+			}
+		}
+		return key.substring(0, end);
+	}
+
+	//
+	// Values
+	//
+	@Override
+	public long getLookupCount() {
+		return countersByPrefix.values().stream().mapToLong(counters -> counters.hits.sum() + counters.misses.sum()).sum();
+	}
+
+	@Override
+	public long getMissCount() {
+		return countersByPrefix.values().stream().mapToLong(counters -> counters.misses.sum()).sum();
+	}
+
+	@Override
+	public double getMissRatio() {
+		long hits = 0;
+		long misses = 0;
+		for (PrefixCounters counters : countersByPrefix.values()) {
+			hits += counters.hits.sum();
+			misses += counters.misses.sum();
+		}
+		return hits + misses > 0 ? (double) misses / (hits + misses) : 0;
+	}
+
+	@Override
+	public Map<String, Long> getHitsByPrefix() {
+		return snapshot(countersByPrefix, counters -> counters.hits.sum());
+	}
+
+	@Override
+	public Map<String, Long> getMissesByPrefix() {
+		return snapshot(countersByPrefix, counters -> counters.misses.sum());
+	}
+
+	@Override
+	public long getConversionFailureCount() {
+		return conversionFailuresByType.values().stream().mapToLong(LongAdder::sum).sum();
+	}
+
+	@Override
+	public Map<String, Long> getConversionFailuresByType() {
+		return snapshot(conversionFailuresByType, LongAdder::sum);
+	}
+
+	@Override
+	public Map<String, Long> getParseCountByFile() {
+		return snapshot(countersByFile, counters -> counters.parseDurations.getCount());
+	}
+
+	@Override
+	public Map<String, Long> getParsedBytesByFile() {
+		return snapshot(countersByFile, counters -> counters.bytes.sum());
+	}
+
+	@Override
+	public Map<String, Double> getParseMillisP99ByFile() {
+		return snapshot(countersByFile, counters -> counters.parseDurations.getValueAtPercentile(99) / NANOS_PER_MILLI);
+	}
+
+	/**
+	 * @return The parse durations of a file, or null if it hasn't been parsed
+	 */
+	public LatencyHistogram getParseDurations(String filename) {
+		FileCounters counters = countersByFile.get(filename);
+		return counters != null ? counters.parseDurations : null;
+	}
+
+	@Override
+	public long getReloadCount() {
+		return reloadDurations.getCount();
+	}
+
+	@Override
+	public double getReloadMillisP50() {
+		return reloadDurations.getValueAtPercentile(50) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getReloadMillisP99() {
+		return reloadDurations.getValueAtPercentile(99) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getReloadMillisMax() {
+		return reloadDurations.getMax() / NANOS_PER_MILLI;
+	}
+
+	public LatencyHistogram getReloadDurations() {
+		return reloadDurations;
+	}
+
+	@Override
+	public long getWatcherEventCount() {
+		return watcherEvents.sum();
+	}
+
+	private static <V, R> Map<String, R> snapshot(Map<String, V> map, Function<V, R> valueFunction) {
+		Map<String, R> snapshot = new TreeMap<>();
+		map.forEach((key, value) -> snapshot.put(key, valueFunction.apply(value)));
+		return snapshot;
+	}
+
+	//
+	// JMX
+	//
+	/**
+	 * Register as an MXBean in the platform MBean server. Replaces an already registered bean with the same name.
+	 * @param name The name in the object name, like the name of the context
+	 * @return The object name
+	 * @throws IllegalStateException If the bean couldn't be registered
+	 */
+	public ObjectName registerMBean(String name) throws IllegalStateException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName newObjectName = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+			try {
+				server.registerMBean(this, newObjectName);
+			} catch (InstanceAlreadyExistsException e) {
+				server.unregisterMBean(newObjectName);
+				server.registerMBean(this, newObjectName);
+			}
+			this.objectName = newObjectName;
+			return newObjectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Couldn't register the metrics MBean '" + name + "'", e);
+		}
+	}
+
+	/**
+	 * Unregister the MXBean, if registered.
+	 */
+	public void unregisterMBean() {
+		ObjectName registeredName = this.objectName;
+		if (registeredName != null) {
+			this.objectName = null;
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+			} catch (InstanceNotFoundException ignored) {
+				// Already unregistered
+			} catch (JMException e) {
+				throw new IllegalStateException("Couldn't unregister the metrics MBean '" + registeredName + "'", e);
+			}
+		}
+	}
+
+	public ObjectName getObjectName() {
+		return objectName;
+	}
+
+}
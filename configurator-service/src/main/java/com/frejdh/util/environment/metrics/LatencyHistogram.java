@@ -0,0 +1,98 @@
+package com.frejdh.util.environment.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations (or any non-negative values), with log-linear buckets like HdrHistogram.
+ * Each power of two is split into 8 buckets, so a percentile is at most 12.5% above the real value, using a fixed 4 KB for all values up to {@link Long#MAX_VALUE}.
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int NR_OF_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(NR_OF_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * @param value The value to record. Negative values are recorded as 0.
+	 */
+	public void record(long value) {
+		long recordedValue = Math.max(0, value);
+		buckets.incrementAndGet(indexOf(recordedValue));
+		count.increment();
+		sum.add(recordedValue);
+		max.accumulate(recordedValue);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		long currentCount = count.sum();
+		return currentCount > 0 ? (double) sum.sum() / currentCount : 0;
+	}
+
+	/**
+	 * @param percentile From 0 to 100, like 99.9
+	 * @return The highest value of the bucket that the percentile falls into, but not above the max. 0 if nothing is recorded.
+	 * @throws IllegalArgumentException If the percentile is outside of 0 to 100
+	 */
+	public long getValueAtPercentile(double percentile) throws IllegalArgumentException {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("The percentile must be from 0 to 100, but was " + percentile);
+		}
+
+		long total = 0;
+		long[] counts = new long[NR_OF_BUCKETS];
+		for (int i = 0; i < NR_OF_BUCKETS; i++) {	// A snapshot, since records may happen concurrently
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long accumulated = 0;
+		for (int i = 0; i < NR_OF_BUCKETS && total > 0; i++) {
+			accumulated += counts[i];
+			if (accumulated >= target) {
+				return Math.min(highestValueOf(i), getMax());
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Values below 8 have a bucket each. Above that, the bucket is the magnitude and the next 3 bits of the value.
+	 */
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long lowestValueOf(int index) {
+		int magnitudeGroup = index / SUB_BUCKETS;
+		int subBucket = index % SUB_BUCKETS;
+		if (magnitudeGroup == 0) {
+			return subBucket;
+		}
+		int magnitude = magnitudeGroup + SUB_BUCKET_BITS - 1;
+		return (1L << magnitude) | ((long) subBucket << (magnitude - SUB_BUCKET_BITS));
+	}
+
+	static long highestValueOf(int index) {
+		return index + 1 < NR_OF_BUCKETS ? lowestValueOf(index + 1) - 1 : Long.MAX_VALUE;
+	}
+
+}
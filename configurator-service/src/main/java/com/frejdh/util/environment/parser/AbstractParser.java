@@ -1,6 +1,6 @@
 package com.frejdh.util.environment.parser;
 
-import com.frejdh.util.environment.storage.map.LinkedPathMultiMap;
+import com.frejdh.util.environment.storage.map.SymbolTable;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
@@ -10,14 +10,24 @@ public abstract class AbstractParser {
 	public static final Pattern ARRAY_PATTERN_FOR_KEY = Pattern.compile(".+\\[\\d+]");
 	public static final Pattern ARRAY_PATTERN_FOR_LINE = Pattern.compile("^(.+?\\[\\d+])(?:\\.(.+?\\[\\d+]))*\\s*=");
 
-	protected LinkedPathMultiMap<String> multiMap = new LinkedPathMultiMap<>();
-
 	protected AbstractParser() { }
 
 	public static AbstractParser getSingletonInstance() {
 		return null;
 	}
 
-	public abstract Map<String, List<String>> toMultiMap(String content) throws IOException;
+	/**
+	 * Parse the content into a new map. Key segments and common values are interned with a new symbol table.
+	 */
+	public Map<String, List<String>> toMultiMap(String content) throws IOException {
+		return toMultiMap(content, new SymbolTable());
+	}
+
+	/**
+	 * Parse the content into a new map.
+	 * @param content Content of the file
+	 * @param symbols Table to intern the key segments and values with. Should be shared by all files of the same load.
+	 */
+	public abstract Map<String, List<String>> toMultiMap(String content, SymbolTable symbols) throws IOException;
 
 }
@@ -3,17 +3,25 @@ package com.frejdh.util.environment.parser;
 import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.frejdh.util.environment.storage.map.LinkedPathMultiMap;
+import com.frejdh.util.environment.storage.map.SymbolTable;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.stream.JsonReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 public class JsonParser extends AbstractParser {
 	private static final boolean JSON_ALLOW_COMMENTS_DEFAULT = true;
+	private static final JsonMapper COMMENT_LENIENT_MAPPER = JsonMapper.builder()	// Thread-safe, and costly to create for each file
+			.enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+			.enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+			.enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+			.enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+			.build();
 	private static JsonParser singletonInstance;
 
 	protected JsonParser() { }
@@ -36,19 +44,26 @@ public class JsonParser extends AbstractParser {
 	 * @param allowComments If the JSON file has comments, please set this to true.
 	 */
 	public Map<String, List<String>> toMap(String jsonString, boolean allowComments) throws IOException {
+		return toMap(jsonString, allowComments, new SymbolTable());
+	}
+
+	/**
+	 * Same as ${@link #toMap(String, boolean)}, with the key segments and values interned with the symbol table.
+	 */
+	public Map<String, List<String>> toMap(String jsonString, boolean allowComments, SymbolTable symbols) throws IOException {
 		JsonReader jsonReader = new JsonReader(new StringReader(allowComments ? removeJsonComments(jsonString) : jsonString));
 		jsonReader.setLenient(true); // Allow trailing commas, etc
 
-		return toMap(new com.google.gson.JsonParser().parse(jsonReader).getAsJsonObject());
+		return toMap(new com.google.gson.JsonParser().parse(jsonReader).getAsJsonObject(), symbols);
 	}
 
 	/**
-	 * Same as ${@link #toMap(String, boolean)} with allowComments = ${@value JSON_ALLOW_COMMENTS_DEFAULT}
+	 * Same as ${@link #toMap(String, boolean, SymbolTable)} with allowComments = ${@value JSON_ALLOW_COMMENTS_DEFAULT}
 	 * @param jsonString JSON object to parse
 	 */
 	@Override
-	public Map<String, List<String>> toMultiMap(String jsonString) throws IOException {
-		return toMap(jsonString, JSON_ALLOW_COMMENTS_DEFAULT);
+	public Map<String, List<String>> toMultiMap(String jsonString, SymbolTable symbols) throws IOException {
+		return toMap(jsonString, JSON_ALLOW_COMMENTS_DEFAULT, symbols);
 	}
 
 	/**
@@ -56,10 +71,17 @@ public class JsonParser extends AbstractParser {
 	 * @param jsonObject JSON object to parse
 	 */
 	public Map<String, List<String>> toMap(JsonObject jsonObject)  {
-		return jsonToMapHelper(jsonObject, "", multiMap);
+		return toMap(jsonObject, new SymbolTable());
+	}
+
+	/**
+	 * Same as ${@link #toMap(JsonObject)}, with the key segments and values interned with the symbol table.
+	 */
+	public Map<String, List<String>> toMap(JsonObject jsonObject, SymbolTable symbols)  {
+		return jsonToMapHelper(jsonObject, "", new LinkedPathMultiMap<>(), symbols);
 	}
 
-	private LinkedPathMultiMap<String> jsonToMapHelper(JsonElement jsonElement, String propertyPath, LinkedPathMultiMap<String> mapToReturn) {
+	private LinkedPathMultiMap<String> jsonToMapHelper(JsonElement jsonElement, String propertyPath, LinkedPathMultiMap<String> mapToReturn, SymbolTable symbols) {
 		if (jsonElement.isJsonObject()) {
 			JsonObject jsonObject = jsonElement.getAsJsonObject();
 
@@ -67,13 +89,13 @@ public class JsonParser extends AbstractParser {
 				String appendedProperty = propertyPath + (propertyPath.isEmpty() ? "" : ".") + field;
 
 				if (jsonObject.get(field).isJsonObject()) {
-					jsonToMapHelper(jsonObject.getAsJsonObject(field), appendedProperty, mapToReturn);
+					jsonToMapHelper(jsonObject.getAsJsonObject(field), appendedProperty, mapToReturn, symbols);
 				}
 				else if (jsonObject.get(field).isJsonArray()){
-					jsonToMapHelper(jsonObject.getAsJsonArray(field), appendedProperty, mapToReturn);
+					jsonToMapHelper(jsonObject.getAsJsonArray(field), appendedProperty, mapToReturn, symbols);
 				}
 				else {
-					mapToReturn.put(appendedProperty, jsonObject.get(field).toString());
+					mapToReturn.put(appendedProperty, jsonObject.get(field).toString(), symbols);
 				}
 			}
 		}
@@ -81,21 +103,21 @@ public class JsonParser extends AbstractParser {
 			JsonArray jsonArray = jsonElement.getAsJsonArray();
 
 			int i = 0;
-			StringBuilder arrayValues = new StringBuilder();
+			List<String> arrayValues = new ArrayList<>();
 			for (JsonElement element : jsonArray) {
 				if (element.isJsonPrimitive()) {
-					mapToReturn.put(propertyPath + "[" + i + "]", element.toString());
-					arrayValues.append(element);
+					mapToReturn.put(propertyPath + "[" + i + "]", element.toString(), symbols);
+					arrayValues.add(element.toString());
 				}
 				else {
 					String appendedProperty = propertyPath + "[" + i + "]";
-					jsonToMapHelper(element, appendedProperty, mapToReturn);
+					jsonToMapHelper(element, appendedProperty, mapToReturn, symbols);
 				}
 				i++;
 			}
 
-			if (arrayValues.length() != 0) {
-				mapToReturn.put(propertyPath, arrayValues.toString());
+			if (!arrayValues.isEmpty()) {
+				mapToReturn.put(propertyPath, arrayValues, symbols);
 			}
 		}
 		return mapToReturn;
@@ -103,17 +125,13 @@ public class JsonParser extends AbstractParser {
 
 	/**
 	 * Remove comments from a JSON string. The parsable format of the comments is the styles that exists for Java.
-	 * This parser is trailing comma lenient.
+	 * This parser is lenient to trailing commas, unquoted keys and single quotes, like JSON5.
 	 * @param jsonString String to inspect and remove comments from
 	 * @return A new JSON string that is stripped of comments
 	 * @throws IOException If the JSON couldn't be parsed
 	 */
 	public String removeJsonComments(String jsonString) throws IOException {
-		JsonMapper mapper = JsonMapper.builder()
-				.enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
-				.enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
-				.build();
-		return mapper.writeValueAsString(mapper.readTree(jsonString));
+		return COMMENT_LENIENT_MAPPER.writeValueAsString(COMMENT_LENIENT_MAPPER.readTree(jsonString));
 	}
 
 }
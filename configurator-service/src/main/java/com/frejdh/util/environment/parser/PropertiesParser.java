@@ -1,6 +1,8 @@
 package com.frejdh.util.environment.parser;
 
 import com.frejdh.util.environment.ConversionUtils;
+import com.frejdh.util.environment.storage.map.LinkedPathMultiMap;
+import com.frejdh.util.environment.storage.map.SymbolTable;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -42,9 +44,12 @@ public class PropertiesParser extends AbstractParser {
 	 * </code>
 	 *
 	 * @param textContent Text to convert to a Map, where each entry is separated by a new line
+	 * @param symbols Table to intern the key segments and values with
 	 * @return A Map
 	 */
-	public Map<String, List<String>> toMultiMap(String textContent) {
+	@Override
+	public Map<String, List<String>> toMultiMap(String textContent, SymbolTable symbols) {
+		LinkedPathMultiMap<String> multiMap = new LinkedPathMultiMap<>();
 		List<String> lines = ConversionUtils.getStringAsList(textContent, "\n")
 				.stream()
 				.filter(line -> !line.isEmpty() && !line.matches("\\s*#.*") && line.contains("=")) // Not empty, not comment and has variable assignment
@@ -57,10 +62,10 @@ public class PropertiesParser extends AbstractParser {
 			final Matcher arrayMatcher = ARRAY_PATTERN_FOR_LINE.matcher(line);
 			if (arrayMatcher.find()) { // If array
 				String arrayFieldKeyWithoutIndex = fullPath.replaceAll("\\[\\d+].*?\\s*$", "");
-				multiMap.put(arrayFieldKeyWithoutIndex, value);
+				multiMap.put(arrayFieldKeyWithoutIndex, value, symbols);
 			}
 			else {
-				multiMap.put(fullPath, value);
+				multiMap.put(fullPath, value, symbols);
 			}
 
 		}
@@ -2,6 +2,7 @@ package com.frejdh.util.environment.parser;
 
 import com.frejdh.util.environment.ConversionUtils;
 import com.frejdh.util.environment.storage.map.LinkedPathMultiMap;
+import com.frejdh.util.environment.storage.map.SymbolTable;
 import org.apache.commons.lang3.StringUtils;
 import java.util.ArrayList;
 import java.util.List;
@@ -53,9 +54,11 @@ public class YamlParser extends AbstractParser {
 	 * This parser follows YML parsing guidelines somewhat. This means that some "illegal" spaces can be combined with colons.
 	 * However, the tabbing must still be consistent due to parsing reasons!
 	 * @param textContent Text to convert to a Map, where each entry is separated by a new line
+	 * @param symbols Table to intern the key segments and values with
 	 * @return A Map
 	 */
-	public Map<String, List<String>> toMultiMap(String textContent) {
+	@Override
+	public Map<String, List<String>> toMultiMap(String textContent, SymbolTable symbols) {
 		List<String> lines = ConversionUtils.getStringAsList(textContent, "\r\n", false)
 				.stream()
 				.filter(line -> !StringUtils.isBlank(line) && !line.matches("\\s*[#].*")) // Not empty, not comment and has variable assignment. FIXME: not working? \s*[#].*
@@ -64,7 +67,7 @@ public class YamlParser extends AbstractParser {
 		String indentation = detectIndentationSequence(lines);
 		List<Entry> entriesToProcess = getEntriesToProcess(lines, indentation);
 
-		return toMapRecursive(entriesToProcess, multiMap);
+		return toMapRecursive(entriesToProcess, new LinkedPathMultiMap<>(), symbols);
 	}
 
 	private List<Entry> getEntriesToProcess(List<String> lines, String indentationSequence) {
@@ -100,6 +103,7 @@ public class YamlParser extends AbstractParser {
 					if (newEntry.hasParent()) {
 						previous.getParent().addChild(newEntry);
 					}
+					previous = newEntry;	// Following children belong to the new entry, not to its previous sibling
 				}
 			}
 
@@ -111,26 +115,26 @@ public class YamlParser extends AbstractParser {
 		return rootEntries;
 	}
 
-	private Map<String, List<String>> toMapRecursive(List<Entry> entriesToProcess, LinkedPathMultiMap<String> mapToReturn) {
+	private Map<String, List<String>> toMapRecursive(List<Entry> entriesToProcess, LinkedPathMultiMap<String> mapToReturn, SymbolTable symbols) {
 		for (Entry entry : entriesToProcess) {
 			if (entry.hasChildren()) {
-				toMapRecursive(entry.children, mapToReturn);
+				toMapRecursive(entry.children, mapToReturn, symbols);
 			}
 			else if (entry.isArrayOfPrimitives()) { // Array with square brackets on the same line (one line)
 				// For elements with a defined index
-				mapToReturn.put(entry.getFullKey(), entry.getValue());
+				mapToReturn.put(entry.getFullKey(), entry.getValue(), symbols);
 			}
 			else if (entry.isArrayElement() && entry.hasIndex()) { // Array element with indexed key (one line)
-				mapToReturn.put(entry.getFullKey(), entry.value);
+				mapToReturn.put(entry.getFullKey(), entry.value, symbols);
 				String arrayFieldWithoutIndex = entry.getFullKey().replaceAll("\\[\\d+].*?\\s*$", "");
 //				addElementToArrayInMap(entry, mapToReturn, arrayFieldWithoutIndex);
-				mapToReturn.put(arrayFieldWithoutIndex, entry.getValue());
+				mapToReturn.put(arrayFieldWithoutIndex, entry.getValue(), symbols);
 			}
 			else if (entry.isArrayElement()) { // Array element with defined with a dash at the start
-				mapToReturn.put(entry.getFullKey(), entry.getValue());
+				mapToReturn.put(entry.getFullKey(), entry.getValue(), symbols);
 			}
 			else {
-				mapToReturn.put(entry.getFullKey(), entry.getValue());
+				mapToReturn.put(entry.getFullKey(), entry.getValue(), symbols);
 			}
 		}
 
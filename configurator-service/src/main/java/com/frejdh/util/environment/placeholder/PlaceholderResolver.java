@@ -0,0 +1,255 @@
+package com.frejdh.util.environment.placeholder;
+
+import com.frejdh.util.environment.ConversionUtils;
+import com.frejdh.util.environment.storage.map.LinkedPathMultiMap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves placeholders for a {@link LinkedPathMultiMap}. Values containing placeholders are compiled into
+ * {@link PlaceholderTemplate} instances once, and the rendered values are written back to the map.
+ * Fetching a substituted value is therefore as cheap as fetching any other value. <br>
+ * A dependency graph is kept between the keys, so that only the keys depending on a changed key are re-rendered.
+ * Circular references are detected and logged, and the placeholders that are part of the cycle are left unresolved.
+ * <br><br>
+ * This class is not thread-safe, the owner must synchronize the calls.
+ */
+public class PlaceholderResolver {
+	private static final Logger LOGGER = Logger.getLogger(PlaceholderResolver.class.getName());
+
+	private LinkedPathMultiMap<String> properties;
+	private final Map<String, List<PlaceholderTemplate>> templates = new HashMap<>();	// Raw (compiled) values for keys with placeholders
+	private final Map<String, Set<String>> dependents = new HashMap<>();	// Referenced key -> keys whose templates references it
+
+	public PlaceholderResolver(LinkedPathMultiMap<String> properties) {
+		this.properties = properties;
+	}
+
+	/**
+	 * Render into another map from now on, like a copy of the map that is changed instead of it. The compiled templates are kept,
+	 * so the other map must have the same values, or be loaded with {@link #resolveAll()}.
+	 */
+	public void setProperties(LinkedPathMultiMap<String> properties) {
+		this.properties = properties;
+	}
+
+	/**
+	 * Forget all compiled templates. The map itself is left untouched.
+	 */
+	public void clear() {
+		templates.clear();
+		dependents.clear();
+	}
+
+	/**
+	 * Compile and resolve every value in the map. Should be used after a full (re)load of the map.
+	 */
+	public void resolveAll() {
+		clear();
+		Set<String> dirtyKeys = new LinkedHashSet<>();
+		properties.entrySet().forEach(entry -> {
+			List<String> values = entry.getValue();
+			if (values != null && values.stream().anyMatch(PlaceholderTemplate::containsPlaceholder)) {
+				register(entry.getKey(), values);
+				dirtyKeys.add(entry.getKey());
+			}
+		});
+
+		resolve(dirtyKeys);
+	}
+
+	/**
+	 * Update the templates after values has been added to the map, and re-render all keys that depends on them.
+	 * The templates of a key are replaced by the ones of the added values, so loading the same values again doesn't add more templates.
+	 * A key with templates is rendered to only its added values, which replaces the previously rendered ones.
+	 * @param addedProperties The properties that were added to the map.
+	 */
+	public void update(Map<String, List<String>> addedProperties) {
+		Set<String> changedKeys = new LinkedHashSet<>();
+		addedProperties.forEach((key, addedValues) -> {
+			String cleanKey = ConversionUtils.toKebabCase(key);
+			unregister(cleanKey);
+			if (addedValues != null && addedValues.stream().anyMatch(PlaceholderTemplate::containsPlaceholder)) {
+				register(cleanKey, addedValues);
+			}
+			changedKeys.add(cleanKey);
+		});
+
+		resolve(withDependents(changedKeys));
+	}
+
+	/**
+	 * Update the templates after the values of keys have been replaced or removed in the map, and re-render all keys that depends on them.
+	 * @param replacedProperties The new raw values of the keys, or null for removed keys
+	 */
+	public void replace(Map<String, List<String>> replacedProperties) {
+		Set<String> changedKeys = new LinkedHashSet<>();
+		replacedProperties.forEach((key, newValues) -> {
+			String cleanKey = ConversionUtils.toKebabCase(key);
+			unregister(cleanKey);
+			if (newValues != null && newValues.stream().anyMatch(PlaceholderTemplate::containsPlaceholder)) {
+				register(cleanKey, newValues);
+			}
+			changedKeys.add(cleanKey);
+		});
+
+		resolve(withDependents(changedKeys));
+	}
+
+	/**
+	 * @return True if the given key has values with placeholders
+	 */
+	public boolean hasPlaceholders(String key) {
+		return templates.containsKey(ConversionUtils.toKebabCase(key));
+	}
+
+	/**
+	 * @return The number of compiled templates, of all keys
+	 */
+	public int getTemplateCount() {
+		return templates.values().stream().mapToInt(List::size).sum();
+	}
+
+	/**
+	 * @return The number of dependency edges, from referenced keys to the keys with templates that reference them
+	 */
+	public int getDependencyCount() {
+		return dependents.values().stream().mapToInt(Set::size).sum();
+	}
+
+	/**
+	 * @return The raw values (before substitution) for a given key, or null if it doesn't contain any placeholders
+	 */
+	public List<String> getRawValues(String key) {
+		List<PlaceholderTemplate> keyTemplates = templates.get(ConversionUtils.toKebabCase(key));
+		return keyTemplates != null
+				? keyTemplates.stream().map(PlaceholderTemplate::getRawValue).collect(Collectors.toList())
+				: null;
+	}
+
+	private void register(String key, List<String> rawValues) {
+		List<PlaceholderTemplate> keyTemplates = compile(rawValues);
+		templates.put(key, keyTemplates);
+		registerDependencies(key, keyTemplates);
+	}
+
+	private void registerDependencies(String key, List<PlaceholderTemplate> keyTemplates) {
+		keyTemplates.forEach(template -> template.getReferencedKeys().forEach(
+				referencedKey -> dependents.computeIfAbsent(referencedKey, k -> new HashSet<>()).add(key)
+		));
+	}
+
+	/**
+	 * Forget the templates of a key, and the dependency edges from the keys that they referenced.
+	 */
+	private void unregister(String key) {
+		List<PlaceholderTemplate> keyTemplates = templates.remove(key);
+		if (keyTemplates == null) {
+			return;
+		}
+		keyTemplates.forEach(template -> template.getReferencedKeys().forEach(referencedKey -> {
+			Set<String> referencedKeyDependents = dependents.get(referencedKey);
+			if (referencedKeyDependents != null && referencedKeyDependents.remove(key) && referencedKeyDependents.isEmpty()) {
+				dependents.remove(referencedKey);
+			}
+		}));
+	}
+
+	private List<PlaceholderTemplate> compile(List<String> rawValues) {
+		if (rawValues == null) {
+			return new ArrayList<>();
+		}
+		return rawValues.stream().map(PlaceholderTemplate::compile).collect(Collectors.toCollection(ArrayList::new));
+	}
+
+	/**
+	 * @return The given keys, and all keys that transitively depends on them
+	 */
+	private Set<String> withDependents(Collection<String> keys) {
+		Set<String> result = new LinkedHashSet<>();
+		Deque<String> keysToVisit = new ArrayDeque<>(keys);
+		while (!keysToVisit.isEmpty()) {
+			String key = keysToVisit.pop();
+			if (result.add(key)) {
+				keysToVisit.addAll(dependents.getOrDefault(key, Collections.emptySet()));
+			}
+		}
+		return result;
+	}
+
+	private void resolve(Set<String> dirtyKeys) {
+		new Resolution(dirtyKeys).resolveAll();
+	}
+
+	/**
+	 * State for one resolution round. Keys are rendered depth first, so that the dirty keys a template depends on are rendered before it.
+	 */
+	private class Resolution {
+		private final Set<String> keysToResolve;
+		private final Deque<String> resolvingStack = new ArrayDeque<>();
+		private final Set<String> circularKeys = new HashSet<>();
+
+		private Resolution(Set<String> dirtyKeys) {
+			this.keysToResolve = dirtyKeys.stream().filter(templates::containsKey).collect(Collectors.toCollection(LinkedHashSet::new));
+		}
+
+		private void resolveAll() {
+			new ArrayList<>(keysToResolve).forEach(this::resolve);
+		}
+
+		private void resolve(String key) {
+			if (!keysToResolve.contains(key)) {
+				return;
+			}
+			resolvingStack.push(key);
+
+			List<PlaceholderTemplate> keyTemplates = templates.get(key);
+			List<String> renderedValues = keyTemplates.stream()
+					.map(template -> template.render(this::lookup))
+					.collect(Collectors.toList());
+			properties.putAndReplace(key, circularKeys.contains(key)
+					? keyTemplates.stream().map(PlaceholderTemplate::getRawValue).collect(Collectors.toList())
+					: renderedValues);
+
+			keysToResolve.remove(key);
+			resolvingStack.pop();
+		}
+
+		private String lookup(String referencedKey) {
+			if (resolvingStack.contains(referencedKey)) {
+				markCircularReference(referencedKey);
+				return null;
+			}
+
+			resolve(referencedKey);
+			return !circularKeys.contains(referencedKey) ? properties.getLast(referencedKey) : null;
+		}
+
+		private void markCircularReference(String referencedKey) {
+			List<String> cycle = new ArrayList<>();
+			for (String key : resolvingStack) { // Top of the stack first
+				cycle.add(0, key);
+				if (key.equals(referencedKey)) {
+					break;
+				}
+			}
+			circularKeys.addAll(cycle);
+			LOGGER.log(Level.WARNING, "Circular placeholder reference detected: " + String.join(" -> ", cycle) + " -> " + referencedKey
+					+ ". The placeholders are left unresolved.");
+		}
+	}
+
+}
@@ -0,0 +1,207 @@
+package com.frejdh.util.environment.placeholder;
+
+import com.frejdh.util.environment.ConversionUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Compiled representation of a property value that may contain placeholders in the format of
+ * <code>${example.my-variable}</code> or <code>${example.my-variable:default-value}</code>.
+ * Default values may contain placeholders themselves, for instance <code>${first:${second:fallback}}</code>.
+ * The value is only parsed once, rendering the template afterwards only concatenates the already split parts.
+ */
+public final class PlaceholderTemplate {
+	private static final String PREFIX = "${";
+	private static final char SUFFIX = '}';
+	private static final char DEFAULT_SEPARATOR = ':';
+
+	private final String rawValue;
+	private final List<Part> parts;
+	private final Set<String> referencedKeys;
+
+	private PlaceholderTemplate(String rawValue, List<Part> parts) {
+		this.rawValue = rawValue;
+		this.parts = parts;
+
+		Set<String> keys = new LinkedHashSet<>();
+		parts.forEach(part -> part.collectReferencedKeys(keys));
+		this.referencedKeys = Collections.unmodifiableSet(keys);
+	}
+
+	/**
+	 * Check if a value contains anything that looks like a placeholder.
+	 * @param value Value to inspect
+	 * @return True if the value should be compiled as a template
+	 */
+	public static boolean containsPlaceholder(String value) {
+		return value != null && value.contains(PREFIX);
+	}
+
+	/**
+	 * Compile a property value into a template.
+	 * @param value The raw value
+	 * @return A template. Values without placeholders results in a template with a single literal part.
+	 */
+	public static PlaceholderTemplate compile(String value) {
+		if (!containsPlaceholder(value)) {
+			return new PlaceholderTemplate(value, Collections.singletonList(new Literal(value)));
+		}
+		return new PlaceholderTemplate(value, parse(value));
+	}
+
+	private static List<Part> parse(String value) {
+		List<Part> parts = new ArrayList<>();
+		int position = 0;
+
+		while (position < value.length()) {
+			int start = value.indexOf(PREFIX, position);
+			int end = start >= 0 ? findPlaceholderEnd(value, start + PREFIX.length()) : -1;
+			if (start < 0 || end < 0) { // No more (complete) placeholders, the rest is a literal
+				parts.add(new Literal(value.substring(position)));
+				break;
+			}
+
+			if (start > position) {
+				parts.add(new Literal(value.substring(position, start)));
+			}
+			parts.add(toReference(value.substring(start, end + 1), value.substring(start + PREFIX.length(), end)));
+			position = end + 1;
+		}
+
+		return parts;
+	}
+
+	/**
+	 * Find the closing bracket for a placeholder, taking nested placeholders into account.
+	 * @return The index of the closing bracket, or -1 if the placeholder is never closed
+	 */
+	private static int findPlaceholderEnd(String value, int contentStart) {
+		int depth = 0;
+		for (int i = contentStart; i < value.length(); i++) {
+			if (value.startsWith(PREFIX, i)) {
+				depth++;
+				i += PREFIX.length() - 1;
+			}
+			else if (value.charAt(i) == SUFFIX) {
+				if (depth == 0) {
+					return i;
+				}
+				depth--;
+			}
+		}
+		return -1;
+	}
+
+	private static Reference toReference(String placeholder, String content) {
+		int separatorIndex = findDefaultSeparator(content);
+		String key = separatorIndex >= 0 ? content.substring(0, separatorIndex) : content;
+		PlaceholderTemplate defaultValue = separatorIndex >= 0 ? compile(content.substring(separatorIndex + 1)) : null;
+		return new Reference(placeholder, ConversionUtils.toKebabCase(key), defaultValue);
+	}
+
+	private static int findDefaultSeparator(String content) {
+		int nestedPlaceholderStart = content.indexOf(PREFIX);
+		int separatorIndex = content.indexOf(DEFAULT_SEPARATOR);
+		return nestedPlaceholderStart >= 0 && nestedPlaceholderStart < separatorIndex ? -1 : separatorIndex;
+	}
+
+	/**
+	 * Render the template.
+	 * @param lookup Function used to fetch the (already resolved) value for a referenced key. Shall return null for missing keys.
+	 * @return The rendered value. Placeholders that couldn't be resolved, and lacks a default value, are kept as is.
+	 */
+	public String render(Function<String, String> lookup) {
+		if (isLiteral()) {
+			return rawValue;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		parts.forEach(part -> part.appendTo(sb, lookup));
+		return sb.toString();
+	}
+
+	/**
+	 * @return True if the value doesn't contain any placeholders
+	 */
+	public boolean isLiteral() {
+		return referencedKeys.isEmpty();
+	}
+
+	/**
+	 * @return The keys referenced by this template, including keys referenced in default values
+	 */
+	public Set<String> getReferencedKeys() {
+		return referencedKeys;
+	}
+
+	public String getRawValue() {
+		return rawValue;
+	}
+
+	@Override
+	public String toString() {
+		return "PlaceholderTemplate{" + rawValue + "}";
+	}
+
+	private interface Part {
+		void appendTo(StringBuilder sb, Function<String, String> lookup);
+
+		void collectReferencedKeys(Set<String> keys);
+	}
+
+	private static final class Literal implements Part {
+		private final String text;
+
+		private Literal(String text) {
+			this.text = text;
+		}
+
+		@Override
+		public void appendTo(StringBuilder sb, Function<String, String> lookup) {
+			sb.append(text);
+		}
+
+		@Override
+		public void collectReferencedKeys(Set<String> keys) { }
+	}
+
+	private static final class Reference implements Part {
+		private final String placeholder;
+		private final String key;
+		private final PlaceholderTemplate defaultValue;
+
+		private Reference(String placeholder, String key, PlaceholderTemplate defaultValue) {
+			this.placeholder = placeholder;
+			this.key = key;
+			this.defaultValue = defaultValue;
+		}
+
+		@Override
+		public void appendTo(StringBuilder sb, Function<String, String> lookup) {
+			String value = lookup.apply(key);
+			if (value != null) {
+				sb.append(value);
+			}
+			else if (defaultValue != null) {
+				sb.append(defaultValue.render(lookup));
+			}
+			else {
+				sb.append(placeholder);
+			}
+		}
+
+		@Override
+		public void collectReferencedKeys(Set<String> keys) {
+			keys.add(key);
+			if (defaultValue != null) {
+				keys.addAll(defaultValue.referencedKeys);
+			}
+		}
+	}
+
+}
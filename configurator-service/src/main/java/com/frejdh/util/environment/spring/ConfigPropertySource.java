@@ -0,0 +1,93 @@
+package com.frejdh.util.environment.spring;
+
+import com.frejdh.util.environment.ConfigContext;
+import com.frejdh.util.environment.ConfigSnapshot;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exposes the properties of a {@link ConfigContext} to a Spring {@link org.springframework.core.env.Environment}, without copying them:
+ * <pre>{@code
+ * ConfigPropertySource.addFirst(environment, Config.getDefaultContext());
+ * }</pre>
+ * Each lookup reads the latest {@link ConfigSnapshot}, so Spring sees the same values as the getters of the context, including
+ * reloads, set properties and overlays. Keys with many values are listed as 'key[0]', 'key[1]', ..., like the lists of Spring's own
+ * YAML sources, so they are bound to lists by Spring. Looking up the key without an index returns the last value, like {@link ConfigContext#getString(String)}.
+ * <br><br>
+ * See {@link SpringEnvironmentSource} for the other direction, where a context reads the sources that Spring has already parsed.
+ */
+public class ConfigPropertySource extends EnumerablePropertySource<ConfigContext> {
+	public static final String DEFAULT_NAME = "configurator";
+
+	private volatile PropertyNames propertyNames;	// Of the latest generation that the names were listed for
+
+	private static final class PropertyNames {
+		private final long generation;
+		private final String[] names;
+
+		private PropertyNames(long generation, String[] names) {
+			this.generation = generation;
+			this.names = names;
+		}
+	}
+
+	public ConfigPropertySource(ConfigContext context) {
+		this(DEFAULT_NAME, context);
+	}
+
+	public ConfigPropertySource(String name, ConfigContext context) {
+		super(name, context);
+	}
+
+	/**
+	 * Add the properties of a context to an environment, with precedence over its other sources.
+	 * @return The added property source
+	 */
+	public static ConfigPropertySource addFirst(ConfigurableEnvironment environment, ConfigContext context) {
+		ConfigPropertySource propertySource = new ConfigPropertySource(context);
+		environment.getPropertySources().addFirst(propertySource);
+		return propertySource;
+	}
+
+	@Override
+	public Object getProperty(String name) {
+		return getSource().snapshot().peekString(name);	// Spring's lookups aren't lookups of the application, so no metrics
+	}
+
+	@Override
+	public boolean containsProperty(String name) {
+		return getProperty(name) != null;	// Not by the names, which don't include the last value of lists
+	}
+
+	/**
+	 * @return The keys of the latest state. Listed again only after a change.
+	 */
+	@Override
+	public String[] getPropertyNames() {
+		ConfigSnapshot snapshot = getSource().snapshot();
+		PropertyNames names = propertyNames;
+		if (names == null || names.generation != snapshot.getGeneration()) {
+			names = new PropertyNames(snapshot.getGeneration(), listNames(snapshot));
+			propertyNames = names;
+		}
+		return names.names.clone();
+	}
+
+	private static String[] listNames(ConfigSnapshot snapshot) {
+		List<String> names = new ArrayList<>(snapshot.getKeys().size());
+		for (String key : snapshot.getKeys()) {
+			int nrOfValues = snapshot.peekStringList(key).size();
+			if (nrOfValues == 1) {
+				names.add(key);
+			}
+			for (int i = 0; i < nrOfValues && nrOfValues > 1; i++) {
+				names.add(key + "[" + i + "]");
+			}
+		}
+		return names.toArray(new String[0]);
+	}
+
+}
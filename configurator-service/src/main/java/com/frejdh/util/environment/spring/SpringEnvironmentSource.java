@@ -0,0 +1,80 @@
+package com.frejdh.util.environment.spring;
+
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the property sources that a Spring environment has already loaded, so that a {@link com.frejdh.util.environment.ConfigContext}
+ * doesn't parse 'application.yml' and 'application.properties' again:
+ * <pre>{@code
+ * ConfigContext context = ConfigContext.builder()
+ *         .withName("spring")
+ *         .withPropertySource("spring", new SpringEnvironmentSource(environment))
+ *         .build();
+ * }</pre>
+ * Only the enumerable sources are read. The sources of contexts ({@link ConfigPropertySource}) are skipped, and so are the
+ * system properties and environment variables, which the context reads itself if {@code withSystemProperties()} is used.
+ * A key of a source with higher precedence replaces all values of the key, and the indexed keys of Spring's lists,
+ * like 'server.ports[0]', become the values of 'server.ports'. The values are the ones that Spring has parsed, and aren't parsed again.
+ */
+public class SpringEnvironmentSource implements Supplier<Map<String, List<String>>> {
+	private static final Pattern INDEXED_KEY = Pattern.compile("(.+)\\[(\\d+)]");
+
+	private final ConfigurableEnvironment environment;
+
+	public SpringEnvironmentSource(ConfigurableEnvironment environment) {
+		this.environment = environment;
+	}
+
+	/**
+	 * @return The properties of the environment, with the values of each key in index order
+	 */
+	@Override
+	public Map<String, List<String>> get() {
+		List<EnumerablePropertySource<?>> sources = new ArrayList<>();
+		for (PropertySource<?> source : environment.getPropertySources()) {
+			if (source instanceof EnumerablePropertySource && !(source instanceof ConfigPropertySource) && !isSystemSource(source)) {
+				sources.add(0, (EnumerablePropertySource<?>) source);	// Lowest precedence first, so the higher ones replace them
+			}
+		}
+
+		Map<String, List<String>> properties = new LinkedHashMap<>();
+		for (EnumerablePropertySource<?> source : sources) {
+			Map<String, TreeMap<Integer, String>> listsByKey = new LinkedHashMap<>();
+			for (String name : source.getPropertyNames()) {
+				Object value = source.getProperty(name);
+				if (value == null) {
+					continue;
+				}
+				Matcher indexedKey = INDEXED_KEY.matcher(name);
+				if (indexedKey.matches()) {
+					listsByKey.computeIfAbsent(indexedKey.group(1), key -> new TreeMap<>()).put(Integer.parseInt(indexedKey.group(2)), String.valueOf(value));
+				}
+				else {
+					List<String> values = new ArrayList<>(1);
+					values.add(String.valueOf(value));
+					properties.put(name, values);
+				}
+			}
+			listsByKey.forEach((key, valuesByIndex) -> properties.put(key, new ArrayList<>(valuesByIndex.values())));
+		}
+		return properties;
+	}
+
+	private static boolean isSystemSource(PropertySource<?> source) {
+		return StandardEnvironment.SYSTEM_PROPERTIES_PROPERTY_SOURCE_NAME.equals(source.getName())
+				|| StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME.equals(source.getName());
+	}
+
+}
@@ -0,0 +1,160 @@
+package com.frejdh.util.environment.storage.map;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Map of the children of a {@link PathEntry}, stored in a small array and searched linearly.
+ * Most entries only have a few children, for which this is both smaller and as fast as a hashed map.
+ * The key of each child is its {@link PathEntry#getKey()}, so only the children themselves are stored.
+ * {@link PathEntry} replaces it with a hashed map once it grows beyond {@link #MAX_SIZE} children.
+ * If sorted, the children are kept in the natural order of their keys.
+ * @param <V> The value type of the path entries
+ */
+final class CompactChildMap<V> extends AbstractMap<String, PathEntry<V>> {
+	static final int MAX_SIZE = 8;
+	private static final int INITIAL_CAPACITY = 2;
+
+	private final boolean sorted;
+	private PathEntry<V>[] children;
+	private int size;
+
+	CompactChildMap() {
+		this(false);
+	}
+
+	@SuppressWarnings("unchecked")
+	CompactChildMap(boolean sorted) {
+		this.sorted = sorted;
+		this.children = (PathEntry<V>[]) new PathEntry[INITIAL_CAPACITY];
+	}
+
+	private int indexOf(Object key) {
+		for (int i = 0; i < size; i++) {
+			if (children[i].getKey().equals(key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public PathEntry<V> get(Object key) {
+		int index = indexOf(key);
+		return index >= 0 ? children[index] : null;
+	}
+
+	/**
+	 * @param key Must be the key of the child
+	 */
+	@Override
+	public PathEntry<V> put(String key, PathEntry<V> child) {
+		int index = indexOf(key);
+		if (index >= 0) {
+			PathEntry<V> previousChild = children[index];
+			children[index] = child;
+			return previousChild;
+		}
+
+		if (size == children.length) {
+			children = Arrays.copyOf(children, Math.min(children.length * 2, MAX_SIZE));
+		}
+		int insertionIndex = size;
+		while (sorted && insertionIndex > 0 && children[insertionIndex - 1].getKey().compareTo(key) > 0) {
+			children[insertionIndex] = children[insertionIndex - 1];
+			insertionIndex--;
+		}
+		children[insertionIndex] = child;
+		size++;
+		return null;
+	}
+
+	@Override
+	public PathEntry<V> remove(Object key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+
+		PathEntry<V> previousChild = children[index];
+		System.arraycopy(children, index + 1, children, index, size - index - 1);
+		children[--size] = null;
+		return previousChild;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(children, 0, size, null);
+		size = 0;
+	}
+
+	@Override
+	public Collection<PathEntry<V>> values() {
+		return new AbstractCollection<PathEntry<V>>() {
+			@Override
+			public Iterator<PathEntry<V>> iterator() {
+				return new ChildIterator<>(Function.identity());
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	@Override
+	public Set<Entry<String, PathEntry<V>>> entrySet() {
+		return new AbstractSet<Entry<String, PathEntry<V>>>() {
+			@Override
+			public Iterator<Entry<String, PathEntry<V>>> iterator() {
+				return new ChildIterator<>(child -> new SimpleImmutableEntry<>(child.getKey(), child));
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	private final class ChildIterator<T> implements Iterator<T> {
+		private final Function<PathEntry<V>, T> mapper;
+		private int index;
+
+		private ChildIterator(Function<PathEntry<V>, T> mapper) {
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < size;
+		}
+
+		@Override
+		public T next() {
+			if (index >= size) {
+				throw new NoSuchElementException();
+			}
+			return mapper.apply(children[index++]);
+		}
+	}
+
+}
@@ -5,17 +5,17 @@ import com.google.common.reflect.TypeToken;
 import org.checkerframework.checker.units.qual.C;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Multi-Map for paths, useful for property paths like:
@@ -28,9 +28,11 @@ public class LinkedPathMultiMap<V> implements Map<String, List<V>> {
 
 	private final Class<V> valueClass;
 	private final PathEntry<V> rootEntry;
-	private int size;
+	private final Map<String, List<V>> entriesView;	// Backs keySet(), values() and entrySet()
 	private final boolean cleanupKeys;
 	private final boolean cleanupStringValues;
+	private final SubtreeCache<V> subtreeCache;
+	private volatile SealedPathTrie<V> sealedTrie;
 
 	public LinkedPathMultiMap() {
 		this(null);
@@ -48,10 +50,45 @@ public class LinkedPathMultiMap<V> implements Map<String, List<V>> {
 	}
 
 	public LinkedPathMultiMap(boolean cleanupKeys, boolean cleanupStringValues) {
+		this(cleanupKeys, cleanupStringValues, false);
+	}
+
+	/**
+	 * @param sortedKeys Keep the children of every entry in key order, which makes {@link #scan(String)} and
+	 *                   {@link #scan(String, String)} cheaper. Otherwise the children are sorted while scanning.
+	 */
+	public LinkedPathMultiMap(boolean cleanupKeys, boolean cleanupStringValues, boolean sortedKeys) {
 		this.cleanupKeys = cleanupKeys;
 		this.cleanupStringValues = cleanupStringValues;
 		this.valueClass = lookupValueClass();
-		this.rootEntry = PathEntry.builder(valueClass).build();
+		this.rootEntry = PathEntry.builder(valueClass).withSortedChildren(sortedKeys).build();
+		this.entriesView = createEntriesView(rootEntry);
+		this.subtreeCache = new SubtreeCache<>();
+	}
+
+	private LinkedPathMultiMap(LinkedPathMultiMap<V> original, PathEntry<V> rootEntry) {
+		this.cleanupKeys = original.cleanupKeys;
+		this.cleanupStringValues = original.cleanupStringValues;
+		this.valueClass = original.valueClass;
+		this.rootEntry = rootEntry;
+		this.entriesView = createEntriesView(rootEntry);
+		this.subtreeCache = new SubtreeCache<>(original.subtreeCache);	// The same stamps, so the unchanged subtrees keep their values
+		this.sealedTrie = original.sealedTrie;	// Valid for the copy as well, since it has the same modification stamps
+	}
+
+	private static <V> Map<String, List<V>> createEntriesView(PathEntry<V> rootEntry) {
+		return new SubtreeMapView<>(rootEntry, true, PathEntry::hasFieldValues,
+				entry -> Collections.unmodifiableList(entry.getValues()), rootEntry::getDescendantKeyCount);
+	}
+
+	/**
+	 * Copy the map, for instance to change a map that is read by other threads without locks.
+	 * The copy has the same entries and modification stamps, and is still sealed if this map is sealed, until the copy is changed.
+	 * The cached objects and maps are kept for the subtrees that aren't changed in the copy.
+	 * @return The copy, which can be changed without affecting this map
+	 */
+	public LinkedPathMultiMap<V> copy() {
+		return new LinkedPathMultiMap<>(this, rootEntry.copy(null));
 	}
 
 	@SuppressWarnings({"unchecked", "UnstableApiUsage"})
@@ -77,7 +114,7 @@ public class LinkedPathMultiMap<V> implements Map<String, List<V>> {
 	}
 
 	private String removeArraySuffix(String key) {
-		return key != null && key.matches(ARRAY_PATTERN_FOR_KEY.pattern()) ? key.replaceAll("\\[\\d+]$", "") : key;
+		return key != null && key.endsWith("]") && ARRAY_PATTERN_FOR_KEY.matcher(key).matches() ? key.substring(0, key.lastIndexOf('[')) : key;
 	}
 
 	private Object cleanupStringValue(Object value) {
@@ -93,53 +130,124 @@ public class LinkedPathMultiMap<V> implements Map<String, List<V>> {
 	}
 
 	@SuppressWarnings("unchecked")
-	private List<V> cleanupStringValue(List<V> values) {
-		if (!cleanupStringValues) {
+	private List<V> cleanupStringValue(List<V> values, SymbolTable symbols) {
+		if (!cleanupStringValues && symbols == null) {
 			return values;
 		}
 
-		List<V> newList = new ArrayList<>();
+		List<V> newList = new ArrayList<>(values.size());
 		values.forEach(value -> {
 			V newValue = value;
-			if (newValue instanceof String) {
+			if (newValue instanceof String && cleanupStringValues) {
 				// If wrapped by quotes, remove them from the string
 				newValue = (V) ((String) value).trim().replaceAll("(^\")|(\"$)", "").replaceAll("(^')|('$)", "");
 			}
+			if (newValue instanceof String && symbols != null) {
+				newValue = (V) symbols.internValue((String) newValue);
+			}
 			newList.add(newValue);
 		});
 		return newList;
 	}
 
+	/**
+	 * @return The number of keys with values. Maintained on every change, so this is a constant time operation.
+	 */
 	@Override
 	public int size() {
-		return size;
+		return rootEntry.getDescendantKeyCount();
+	}
+
+	/**
+	 * The stamp of the latest modification of any entry in this map.
+	 * @return A stamp that is changed on every modification
+	 */
+	public long getModificationStamp() {
+		return rootEntry.getModificationStamp();
+	}
+
+	/**
+	 * Compile the current entries into an immutable, array-based trie that serves the lookups by key
+	 * ({@link #get(Object)}, {@link #getFirst(Object)}, {@link #getLast(Object)}, {@link #getByIndex(Object, int)} and {@link #containsKey(Object)}).
+	 * It is used until the map is changed in any way. Should be called again once a batch of changes has been made.
+	 */
+	public void seal() {
+		sealedTrie = SealedPathTrie.compile(rootEntry);
+	}
+
+	/**
+	 * An immutable view of the entries as they are now, which isn't affected by later changes. Seals the map if it isn't sealed,
+	 * so taking a snapshot of a sealed map is free.
+	 * @return The snapshot, with the lookups by key of this map
+	 */
+	public PathMapSnapshot<V> snapshot() {
+		SealedPathTrie<V> trie = getSealedTrie();
+		if (trie == null) {
+			trie = SealedPathTrie.compile(rootEntry);
+			sealedTrie = trie;
+		}
+		return new PathMapSnapshot<>(trie, cleanupKeys);
+	}
+
+	/**
+	 * @return True if the lookups are served by a sealed trie, i.e. nothing has been changed since {@link #seal()} was called
+	 */
+	public boolean isSealed() {
+		return getSealedTrie() != null;
+	}
+
+	private SealedPathTrie<V> getSealedTrie() {
+		SealedPathTrie<V> trie = sealedTrie;
+		return trie != null && trie.isValidFor(rootEntry) ? trie : null;
 	}
 
 	@Override
 	public boolean isEmpty() {
-		return !rootEntry.hasChildren();
+		return size() == 0;
+	}
+
+	/**
+	 * A quick check for keys that are often missing, like optional overrides. While the map is sealed, most missing keys are
+	 * rejected by a Bloom filter of all keys, without walking the tree. The sealed lookups do the same check themselves.
+	 * @param key The key, with or without an array index suffix like 'servers[0]'
+	 * @return False if the key has no entry, or true if it might have one
+	 */
+	public boolean mightContainKey(Object key) {
+		SealedPathTrie<V> trie = getSealedTrie();
+		if (trie == null || key == null) {
+			return true;
+		}
+		String keyString = cleanupPropertyKey(key.toString());
+		if (trie.mightContainKey(keyString)) {
+			return true;
+		}
+		String keyWithoutIndex = removeArraySuffix(keyString);
+		return keyWithoutIndex != keyString && trie.mightContainKey(keyWithoutIndex);	// Same instance if there was no index
 	}
 
 	@Override
 	public boolean containsKey(Object key) {
+		SealedPathTrie<V> trie = getSealedTrie();
+		if (trie != null) {
+			return key != null && trie.containsKey(cleanupPropertyKey(key.toString()));
+		}
 		return getEntry(key) != null;
 	}
 
+	/**
+	 * Check if any key has the value. Both a single value and a whole list of values for a key is accepted.
+	 * The entries are iterated lazily, and the iteration stops at the first match.
+	 */
 	@Override
 	public boolean containsValue(Object value) {
-		value = cleanupStringValue(value);
-		return containsValue(value, rootEntry);
-	}
-
-	private boolean containsValue(Object value, PathEntry<V> entry) {
-		if (entry.getValues().contains(value)) {
-			return true;
+		if (value instanceof List) {
+			return entriesView.containsValue(value);
 		}
-		else if (entry.hasChildren()) {
-			for (PathEntry<V> child : entry.getChildren().values()) {
-				if (containsValue(value, child)) {
-					return true;
-				}
+
+		Object cleanValue = cleanupStringValue(value);
+		for (List<V> values : entriesView.values()) {
+			if (values.contains(cleanValue)) {
+				return true;
 			}
 		}
 		return false;
@@ -153,13 +261,88 @@ public class LinkedPathMultiMap<V> implements Map<String, List<V>> {
 		return rootEntry.getPathEntryByKey(keyString);
 	}
 
+	/**
+	 * Lazily iterate the keys with values under a prefix, in key order. The order is by segment, so 'a' comes before 'a.b',
+	 * which comes before 'a-b'. The entries are read from the tree as the iteration proceeds, and nothing is copied up front.
+	 * The spliterator splits by subtrees and sizes them by their maintained key counts, which suits parallel streams.
+	 * @param prefix The key of the subtree to scan, which is included if it has values. Null or empty for all keys.
+	 * @return An ordered spliterator of read-only entries with full keys
+	 */
+	public Spliterator<Map.Entry<String, List<V>>> scan(String prefix) {
+		PathEntry<V> entry = prefix == null || prefix.isEmpty() ? rootEntry : getEntry(prefix);
+		return new PathSpliterator<>(entry, null);
+	}
+
+	/**
+	 * Lazily iterate the keys with values in a range, in the key order of {@link #scan(String)}.
+	 * Subtrees outside the range are skipped without being visited.
+	 * @param fromKey The first key to include, or null to start from the first key
+	 * @param toKey The first key to exclude, or null to end at the last key
+	 * @return An ordered spliterator of read-only entries with full keys
+	 */
+	public Spliterator<Map.Entry<String, List<V>>> scan(String fromKey, String toKey) {
+		String cleanFromKey = toCleanPropertyKey(fromKey);
+		String cleanToKey = toCleanPropertyKey(toKey);
+
+		PathEntry<V> entry = rootEntry;	// Start from the deepest entry that both bounds are below
+		if (cleanFromKey != null && cleanToKey != null) {
+			String[] fromSegments = cleanFromKey.split("\\.", -1);
+			String[] toSegments = cleanToKey.split("\\.", -1);
+			for (int i = 0; i < Math.min(fromSegments.length, toSegments.length) - 1 && fromSegments[i].equals(toSegments[i]); i++) {
+				entry = entry.getChild(fromSegments[i]);
+				if (entry == null) {
+					break;
+				}
+			}
+		}
+		return new PathSpliterator<>(entry, new PathSpliterator.PathRange(cleanFromKey, cleanToKey));
+	}
+
+	/**
+	 * Lazily find the keys with values that match a query like 'services.*.http.port', see {@link PathQuery}.
+	 * @param query The query, which is cleaned up like the keys of this map
+	 * @return An iterator of read-only entries with full keys
+	 * @throws IllegalArgumentException If the query is invalid
+	 */
+	public Iterator<Map.Entry<String, List<V>>> query(String query) throws IllegalArgumentException {
+		return query(PathQuery.compile(cleanupPropertyKey(query)));
+	}
+
+	/**
+	 * Lazily find the keys with values that match a compiled query. Only the entries that can match the query are visited.
+	 * @param query The compiled query, with segments as they are stored in this map
+	 * @return An iterator of read-only entries with full keys
+	 */
+	public Iterator<Map.Entry<String, List<V>>> query(PathQuery query) {
+		return query.match(rootEntry);
+	}
+
 	@Override
 	public List<V> get(Object key) {
 		String keyString = toCleanPropertyKey(key);
 		if (key == null) {
 			return null;
 		}
-		return rootEntry.getValues(keyString);
+		SealedPathTrie<V> trie = getSealedTrie();
+		return trie != null ? trie.getValues(keyString) : rootEntry.getValues(keyString);
+	}
+
+	/**
+	 * Look up many keys in one pass. The keys are cleaned up and sorted first, so that keys under the same prefixes, like
+	 * 'server.http.host' and 'server.http.port', only walk their shared segments once while the map is sealed.
+	 * @param keys The keys, without array index suffixes
+	 * @return The values of each key in the order of the given keys, or null for the keys that have no entry
+	 */
+	public List<List<V>> getAll(List<?> keys) {
+		List<String> cleanKeys = new ArrayList<>(keys.size());
+		keys.forEach(key -> cleanKeys.add(toCleanPropertyKey(key)));
+		SealedPathTrie<V> trie = getSealedTrie();
+		if (trie != null) {
+			return trie.getAllValues(cleanKeys);
+		}
+		List<List<V>> results = new ArrayList<>(cleanKeys.size());
+		cleanKeys.forEach(key -> results.add(key != null ? rootEntry.getValues(key) : null));
+		return results;
 	}
 
 	public List<V> getOrDefault(Object key, List<V> defaultValue) {
@@ -172,12 +355,23 @@ public class LinkedPathMultiMap<V> implements Map<String, List<V>> {
 			return null;
 		}
 
+		SealedPathTrie<V> trie = getSealedTrie();
+		if (trie != null) {
+			String keyString = toCleanPropertyKey(removeArraySuffix(key));
+			return keyString != null ? trie.getValue(keyString, index) : null;
+		}
+
 		List<V> retval = get(removeArraySuffix(key));
 		return retval != null && retval.size() > index ? retval.get(index) : null;
 	}
 
 	public V getFirstOrDefault(Object key, V defaultValue) {
 		String keyString = toCleanPropertyKey(key);
+		SealedPathTrie<V> trie = getSealedTrie();
+		if (trie != null) {
+			V value = keyString != null ? trie.getValue(keyString, 0) : null;
+			return value != null ? value : defaultValue;
+		}
 		return rootEntry.getFirstValueOrDefault(keyString, defaultValue);
 	}
 
@@ -187,6 +381,11 @@ public class LinkedPathMultiMap<V> implements Map<String, List<V>> {
 
 	public V getLastOrDefault(Object key, V defaultValue) {
 		String keyString = toCleanPropertyKey(key);
+		SealedPathTrie<V> trie = getSealedTrie();
+		if (trie != null) {
+			V value = keyString != null ? trie.getValue(keyString, -1) : null;
+			return value != null ? value : defaultValue;
+		}
 		return rootEntry.getLastValueOrDefault(keyString, defaultValue);
 	}
 
@@ -196,35 +395,51 @@ public class LinkedPathMultiMap<V> implements Map<String, List<V>> {
 
 	/**
 	 * Puts a value into the map and replaces the existing values completely.
-	 * @param key
-	 * @param values
-	 * @return
+	 * @param key Key to replace the values for
+	 * @param values The new values
+	 * @return The previous values, if any
 	 */
 	public List<V> putAndReplace(@NotNull String key, List<V> values) {
-		rootEntry.remove(key);
-		return this.put(key, values);
+		List<V> previousValues = remove(key);
+		this.put(key, values);
+		return previousValues;
 	}
 
 	@Nullable
 	@Override
 	public List<V> put(@NotNull String key, List<V> values) {
+		return put(key, values, null);
+	}
+
+	/**
+	 * Same as {@link #put(String, List)}, but the key segments of new entries and the string values are interned with the symbol table.
+	 * @param symbols The symbol table of the current load, or null
+	 */
+	@Nullable
+	public List<V> put(@NotNull String key, List<V> values, SymbolTable symbols) {
 		key = cleanupPropertyKey(key);
-		values = cleanupStringValue(values);
+		values = cleanupStringValue(values, symbols);
 
 		PathEntry<V> baseElement = rootEntry.getPathEntryByKey(key);
 		List<V> previousValue = baseElement != null ? baseElement.getValues() : null;
-		int nrOfElementsAdded = rootEntry.put(key, values);
-		size += nrOfElementsAdded;
+		rootEntry.put(key, values, symbols);
 		return previousValue;
 	}
 
 	public List<V> put(@NotNull String key, V value) {
+		return put(key, value, null);
+	}
+
+	/**
+	 * Same as {@link #put(String, Object)}, but with interning, see {@link #put(String, List, SymbolTable)}.
+	 */
+	public List<V> put(@NotNull String key, V value, SymbolTable symbols) {
 		if (value instanceof List) {
 			//noinspection unchecked
-			return put(key, (List<V>) value);
+			return put(key, (List<V>) value, symbols);
 		}
 
-		return put(key, Collections.singletonList(value));
+		return put(key, Collections.singletonList(value), symbols);
 	}
 
 	@Override
@@ -235,31 +450,38 @@ public class LinkedPathMultiMap<V> implements Map<String, List<V>> {
 		}
 
 		PathEntry<V> baseElement = rootEntry.getPathEntryByKey(keyString);
-		List<V> previousValue = baseElement != null ? baseElement.getValues() : null;
-		if (baseElement == null) {
-			baseElement = getDefaultValue();
+		if (baseElement == null || !baseElement.hasFieldValues()) {
+			return null;
 		}
 
-		int nrOfElementsRemoved = baseElement.remove(keyString);
-		size -= nrOfElementsRemoved;
+		List<V> previousValue = new ArrayList<>(baseElement.getValues());
+		rootEntry.remove(keyString);
 		return previousValue;
 	}
 
 	@Override
 	@SuppressWarnings("Java8MapForEach")
 	public void putAll(@NotNull Map<? extends String, ? extends List<V>> map) {
-		map.entrySet().forEach(entry -> this.put(entry.getKey(), entry.getValue()));
+		putAll(map, null);
+	}
+
+	/**
+	 * Same as {@link #putAll(Map)}, but with interning, see {@link #put(String, List, SymbolTable)}.
+	 */
+	@SuppressWarnings("Java8MapForEach")
+	public void putAll(@NotNull Map<? extends String, ? extends List<V>> map, SymbolTable symbols) {
+		map.entrySet().forEach(entry -> this.put(entry.getKey(), entry.getValue(), symbols));
 	}
 
 	public void putAllAndReplace(@NotNull Map<? extends String, ? extends List<V>> map) {
-		map.keySet().forEach(rootEntry::remove);
+		map.keySet().forEach(this::remove);
 		this.putAll(map);
 	}
 
 	@Override
 	public void clear() {
 		this.rootEntry.clear();
-		this.size = 0;
+		this.subtreeCache.clear();
 	}
 
 	public <T> T toObject(String key, Class<T> toClass) {
@@ -270,6 +492,50 @@ public class LinkedPathMultiMap<V> implements Map<String, List<V>> {
 		return rootEntry.toObject(toClass);
 	}
 
+	/**
+	 * Same as {@link #toObject(String, Class)}, but the object is cached until any entry in the subtree is changed.
+	 * The same instance is returned until then, and it should therefore not be modified.
+	 */
+	public <T> T getCachedObject(String key, Class<T> toClass) {
+		String keyString = toCleanPropertyKey(key);
+		PathEntry<V> entry = keyString != null ? rootEntry.getPathEntryByKey(keyString) : null;
+		PathEntry<V> scope = toObjectScope(entry);
+		return subtreeCache.get(scope, scope == entry ? "object" : "indexed-object", keyString, toClass, () -> entry.toObject(toClass));
+	}
+
+	/**
+	 * Objects can also be bound from indexed siblings ('key[0]', 'key[1]'), which are outside of the entry's own subtree.
+	 */
+	private PathEntry<V> toObjectScope(PathEntry<V> entry) {
+		PathEntry<V> parent = entry != null ? entry.getParent() : null;
+		return parent != null && parent.getChild(entry.getKey() + "[0]") != null ? parent : entry;
+	}
+
+	/**
+	 * Read-only view of the subtree for a key, see {@link PathEntry#asSimpleMap(Class)}.
+	 * The view is created once, and the same instance is returned until any entry in the subtree is changed.
+	 * Nothing is copied, so the map should not be changed while the view is used. A map that is published to other threads
+	 * and changed through {@link #copy()} is never changed, and its views can be used by any thread.
+	 * @return A read-only map, or null if no entry exists
+	 */
+	public <T> Map<String, T> getCachedHashMap(String key, Class<T> innerObjectsClass) {
+		String keyString = toCleanPropertyKey(key);
+		PathEntry<V> entry = keyString != null ? rootEntry.getPathEntryByKey(keyString) : null;
+		return subtreeCache.get(entry, "hash-map", keyString, innerObjectsClass, () -> entry.asSimpleMap(innerObjectsClass));
+	}
+
+	/**
+	 * Read-only view of the subtree for a key, see {@link PathEntry#asMultiMap(Class)}.
+	 * The view is created once, and the same instance is returned until any entry in the subtree is changed.
+	 * Nothing is copied, so the map should not be changed while the view is used, see {@link #getCachedHashMap(String, Class)}.
+	 * @return A read-only map, or null if no entry exists
+	 */
+	public <T> Map<String, List<T>> getCachedMultiMap(String key, Class<T> innerObjectsClass) {
+		String keyString = toCleanPropertyKey(key);
+		PathEntry<V> entry = keyString != null ? rootEntry.getPathEntryByKey(keyString) : null;
+		return subtreeCache.get(entry, "multi-map", keyString, innerObjectsClass, () -> entry.asMultiMap(innerObjectsClass));
+	}
+
 	/**
 	 * Convert to a HashMap without wrapper classes. This class will no longer be utilized and the property linking ability will be lost.
 	 * @return A hashmap
@@ -286,24 +552,32 @@ public class LinkedPathMultiMap<V> implements Map<String, List<V>> {
 		return rootEntry.toMultiMap(key, innerObjectsClass);
 	}
 
+	/**
+	 * Read-only view of the keys with values. Nothing is copied, the tree is iterated lazily and changes to the map are visible in the view.
+	 * Not thread-safe, like the rest of the map.
+	 */
 	@NotNull
 	@Override
 	public Set<String> keySet() {
-		return rootEntry.getMapEntrySet().stream().map(Entry::getKey).collect(Collectors.toSet());
+		return entriesView.keySet();
 	}
 
+	/**
+	 * Read-only view of the values, see {@link #keySet()}.
+	 */
 	@NotNull
 	@Override
 	public Collection<List<V>> values() {
-		return this.rootEntry.getValuesAsCollection();
+		return entriesView.values();
 	}
 
+	/**
+	 * Read-only view of the entries with values, see {@link #keySet()}.
+	 */
 	@NotNull
 	@Override
 	public Set<Entry<String, List<V>>> entrySet() {
-		Set<Entry<String, List<V>>> retval = new HashSet<>();
-		rootEntry.getMapEntrySet().forEach((entry) -> retval.add(new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().getValues())));
-		return retval;
+		return entriesView.entrySet();
 	}
 
 	@Override
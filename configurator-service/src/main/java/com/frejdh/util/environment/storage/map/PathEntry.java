@@ -1,85 +1,302 @@
 package com.frejdh.util.environment.storage.map;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsonorg.JsonOrgModule;
-import org.apache.commons.lang3.StringUtils;
-import org.json.JSONObject;
+import com.frejdh.util.environment.binding.ObjectBinder;
 
+import java.lang.reflect.Type;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+/**
+ * A node in the property tree. The layout is kept compact, since large configurations consist of hundreds of thousands of nodes:
+ * <ul>
+ *     <li>Children are stored in a shared empty map, a small {@link CompactChildMap} and above that a {@link HashMap}.
+ *     In the sorted mode, the children are kept in key order instead, with a {@link TreeMap} for many children.</li>
+ *     <li>A single value is stored inline, and a list is only allocated for multiple values.</li>
+ *     <li>The full key is computed from the parents on demand.</li>
+ * </ul>
+ */
 public class PathEntry<V> {
 
+	/**
+	 * Source of modification stamps. Shared by all entries, so that a stamp never is re-used for a re-created entry.
+	 */
+	private static final AtomicLong MODIFICATION_STAMPS = new AtomicLong();
+
 	private final PathEntry<V> parent;
-	private final Map<String, PathEntry<V>> children;
-	private final String fullKey;
+	private Map<String, PathEntry<V>> children;
 	private final String entryKey;
-	private final List<V> fieldValues;
+	private Object fieldValues;	// Null if there are no values, a ValueList for multiple values and otherwise the value itself
 	private final Class<V> valueClass;
-	private final boolean isRootEntry;
-
-	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
-			.registerModule(new JsonOrgModule()) // To convert org.json classes
-			.enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
-			.enable(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED)
-			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+	private volatile long modificationStamp;
+	private int keyCount;	// Number of entries with values in the subtree, including this one
+	private final boolean sortedChildren;	// Inherited by new children
 
 	public PathEntry(PathEntry<V> parent, Map<String, PathEntry<V>> children, String entryKey, List<V> fieldValues, Class<V> valueClass) {
+		this(parent, children, entryKey, fieldValues, valueClass, parent != null && parent.sortedChildren);
+	}
+
+	/**
+	 * @param sortedChildren Keep the children, and the children of new descendants, in the natural order of their keys
+	 */
+	public PathEntry(PathEntry<V> parent, Map<String, PathEntry<V>> children, String entryKey, List<V> fieldValues, Class<V> valueClass,
+					 boolean sortedChildren) {
+		this(parent, entryKey, valueClass, sortedChildren);
+		children.values().forEach(this::addChild);
+		addValues(fieldValues);
+		this.keyCount = (hasFieldValues() ? 1 : 0) + children.values().stream().mapToInt(child -> child.keyCount).sum();
+	}
+
+	private PathEntry(PathEntry<V> parent, String entryKey, Class<V> valueClass, boolean sortedChildren) {
 		this.parent = parent;
-		this.children = children;
+		this.children = Collections.emptyMap();
 		this.entryKey = entryKey;
-		this.fieldValues = fieldValues;
 		this.valueClass = valueClass;
+		this.sortedChildren = sortedChildren;
+	}
 
-		// Custom logic section
-		this.fullKey = setFullKey();
-		this.isRootEntry = StringUtils.isBlank(fullKey);
+	/**
+	 * Copy the subtree, with the same values, key counts and modification stamps. The copy can be changed without affecting this subtree.
+	 * @param parent The parent of the copy
+	 */
+	@SuppressWarnings("unchecked")
+	PathEntry<V> copy(PathEntry<V> parent) {
+		PathEntry<V> copy = new PathEntry<>(parent, entryKey, valueClass, sortedChildren);
+		copy.fieldValues = fieldValues instanceof ValueList ? new ValueList<>((ValueList<V>) fieldValues) : fieldValues;
+		copy.keyCount = keyCount;
+		copy.modificationStamp = modificationStamp;
+		children.values().forEach(child -> copy.addChild(child.copy(copy)));
+		return copy;
+	}
+
+	private PathEntry<V> getOrCreateChild(String childKey, SymbolTable symbols) {
+		PathEntry<V> child = children.get(childKey);
+		if (child == null) {
+			child = new PathEntry<>(this, symbols != null ? symbols.intern(childKey) : childKey, valueClass, sortedChildren);
+			addChild(child);
+		}
+		return child;
 	}
 
-	private PathEntryBuilder<V> getDefaultEntryBuilder(String key) {
-		if (key.contains(".")) {
-			key = key.substring(0, key.indexOf("."));
+	private void addChild(PathEntry<V> child) {
+		if (children.isEmpty()) {
+			children = new CompactChildMap<>(sortedChildren);
+		}
+		else if (children.size() >= CompactChildMap.MAX_SIZE && children instanceof CompactChildMap) {
+			children = sortedChildren ? new TreeMap<>(children) : new HashMap<>(children);
 		}
+		children.put(child.entryKey, child);
+	}
 
-		return PathEntry.builder(valueClass)
-				.withParent(this)
-				.withKey(key);
+	private void removeChild(PathEntry<V> child) {
+		children.remove(child.entryKey);
+		if (children.isEmpty()) {
+			children = Collections.emptyMap();
+		}
 	}
 
 	public PathEntry<V> getParent() {
 		return parent;
 	}
 
+	/**
+	 * @return The children of this entry, which shall not be modified
+	 */
 	public Map<String, PathEntry<V>> getChildren() {
 		return children;
 	}
 
-	private String setFullKey() {
-		return (parent != null && StringUtils.isNotBlank(parent.fullKey) ? parent.fullKey + "." : "") + entryKey;
+	/**
+	 * Get a direct child of this entry.
+	 * @param entryKey The key of the child, without the parent's key. For instance 'port' for 'server.port'.
+	 * @return The child or null if none exists
+	 */
+	public PathEntry<V> getChild(String entryKey) {
+		return children.get(entryKey);
+	}
+
+	/**
+	 * @return True if the children are kept in the natural order of their keys
+	 */
+	public boolean isSortedChildren() {
+		return sortedChildren;
+	}
+
+	/**
+	 * @return A copy of the children, in the natural order of their keys. Only sorted upon each call if the children aren't kept sorted.
+	 */
+	List<PathEntry<V>> getChildrenInOrder() {
+		List<PathEntry<V>> orderedChildren = new ArrayList<>(children.values());
+		if (!sortedChildren) {
+			orderedChildren.sort(Comparator.comparing(PathEntry::getKey));
+		}
+		return orderedChildren;
+	}
+
+	/**
+	 * Get an entry in the subtree of this entry.
+	 * @param relativeKey The key of the entry, without this entry's key. For instance 'nested1.nested2' for 'parent.nested1.nested2' in 'parent'.
+	 * @return The entry or null if none exists
+	 */
+	public PathEntry<V> getDescendant(String relativeKey) {
+		PathEntry<V> entry = this;
+		int segmentStart = 0;
+		while (entry != null) {
+			int segmentEnd = relativeKey.indexOf('.', segmentStart);
+			if (segmentEnd < 0) {
+				return entry.children.get(relativeKey.substring(segmentStart));
+			}
+			entry = entry.children.get(relativeKey.substring(segmentStart, segmentEnd));
+			segmentStart = segmentEnd + 1;
+		}
+		return null;
 	}
 
+	/**
+	 * @return The key of this entry including all parent keys, like 'server.ssl.enabled'. Computed upon each call.
+	 */
 	public String getFullKey() {
-		return fullKey;
+		return parent != null ? appendKey(new StringBuilder(), null).toString() : entryKey;
+	}
+
+	/**
+	 * @param ancestor An entry that this entry is a descendant of
+	 * @return The key of this entry without the keys of the ancestor, like 'ssl.enabled' for 'server.ssl.enabled' below 'server'
+	 */
+	String getKeyRelativeTo(PathEntry<V> ancestor) {
+		return parent != ancestor ? appendKey(new StringBuilder(), ancestor).toString() : entryKey;
 	}
 
+	private StringBuilder appendKey(StringBuilder sb, PathEntry<V> ancestor) {
+		if (parent != null && parent != ancestor) {
+			parent.appendKey(sb, ancestor);
+			if (sb.length() > 0) {
+				sb.append('.');
+			}
+		}
+		return sb.append(entryKey);
+	}
+
+	/**
+	 * @return The key of this entry, without the parent's key
+	 */
+	public String getKey() {
+		return entryKey;
+	}
+
+	/**
+	 * @return A read-only list of the values of this entry
+	 */
+	@SuppressWarnings("unchecked")
 	public List<V> getValues() {
-		return fieldValues;
+		if (fieldValues == null) {
+			return Collections.emptyList();
+		}
+		return fieldValues instanceof ValueList ? Collections.unmodifiableList((ValueList<V>) fieldValues) : Collections.singletonList((V) fieldValues);
+	}
+
+	public int getValueCount() {
+		if (fieldValues == null) {
+			return 0;
+		}
+		return fieldValues instanceof ValueList ? ((ValueList<?>) fieldValues).size() : 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private V getValue(int index) {
+		return fieldValues instanceof ValueList ? ((ValueList<V>) fieldValues).get(index) : (V) fieldValues;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void addValues(List<V> values) {
+		if (values.isEmpty()) {
+			return;
+		}
+		else if (fieldValues == null && values.size() == 1 && values.get(0) != null) {
+			fieldValues = values.get(0);
+			return;
+		}
+
+		ValueList<V> valueList;
+		if (fieldValues instanceof ValueList) {
+			valueList = (ValueList<V>) fieldValues;
+		}
+		else {
+			valueList = new ValueList<>(getValueCount() + values.size());
+			if (fieldValues != null) {
+				valueList.add((V) fieldValues);
+			}
+		}
+		valueList.addAll(values);
+		fieldValues = valueList;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int removeValues(Collection<V> values) {
+		int nrOfElements = getValueCount();
+		if (fieldValues instanceof ValueList) {
+			ValueList<V> valueList = (ValueList<V>) fieldValues;
+			valueList.removeAll(values);
+			fieldValues = valueList.isEmpty() ? null : valueList.size() == 1 && valueList.get(0) != null ? valueList.get(0) : valueList;
+		}
+		else if (fieldValues != null && values.contains((V) fieldValues)) {
+			fieldValues = null;
+		}
+		return nrOfElements - getValueCount();
+	}
+
+	/**
+	 * The stamp of the latest modification of this entry or any of its children, recursively.
+	 * Can be used to detect whether anything in a subtree has changed since it was last read.
+	 * @return A stamp that is changed on every modification
+	 */
+	public long getModificationStamp() {
+		return modificationStamp;
+	}
+
+	/**
+	 * @return The number of entries with values in the subtree, excluding this entry
+	 */
+	public int getDescendantKeyCount() {
+		return hasFieldValues() ? keyCount - 1 : keyCount;
+	}
+
+	/**
+	 * Mark this entry and all of its parents as modified.
+	 * @param keyCountDelta How many entries in the subtree that has gained (positive) or lost (negative) all of their values
+	 */
+	private void touch(int keyCountDelta) {
+		long stamp = MODIFICATION_STAMPS.incrementAndGet();
+		for (PathEntry<V> entry = this; entry != null; entry = entry.parent) {
+			entry.modificationStamp = stamp;
+			entry.keyCount += keyCountDelta;
+		}
+	}
+
+	/**
+	 * Detach this entry, and any parents that thereby become empty, so that removed keys don't leave empty nodes behind.
+	 */
+	private void pruneIfEmpty() {
+		PathEntry<V> entry = this;
+		while (entry.parent != null && !entry.isNonEmptyNode() && entry.parent.children.get(entry.entryKey) == entry) {
+			entry.parent.removeChild(entry);
+			entry = entry.parent;
+		}
 	}
 
 	public List<V> getValuesOrEmptyList() {
-		return fieldValues != null ? fieldValues : new ArrayList<>();
+		return getValues();
 	}
 
 	public List<V> getValues(String key) {
@@ -88,7 +305,7 @@ public class PathEntry<V> {
 	}
 
 	public V getFirstValue() {
-		return !fieldValues.isEmpty() ? fieldValues.get(0) : null;
+		return fieldValues != null ? getValue(0) : null;
 	}
 
 	public V getFirstValueOrDefault(V defaultValue) {
@@ -98,8 +315,7 @@ public class PathEntry<V> {
 
 	public V getFirstValue(String key) {
 		PathEntry<V> entry = getPathEntryByKey(key);
-		List<V> entryFieldValues = entry != null ? entry.fieldValues : null;
-		return (entryFieldValues != null && !entryFieldValues.isEmpty()) ? entryFieldValues.get(0) : null;
+		return entry != null ? entry.getFirstValue() : null;
 	}
 
 	public V getFirstValueOrDefault(String key, V defaultValue) {
@@ -108,7 +324,7 @@ public class PathEntry<V> {
 	}
 
 	public V getLastValue() {
-		return !fieldValues.isEmpty() ? fieldValues.get(fieldValues.size() - 1) : null;
+		return fieldValues != null ? getValue(getValueCount() - 1) : null;
 	}
 
 	public V getLastValueOrDefault(V defaultValue) {
@@ -118,8 +334,7 @@ public class PathEntry<V> {
 
 	public V getLastValue(String key) {
 		PathEntry<V> entry = getPathEntryByKey(key);
-		List<V> entryFieldValues = entry != null ? entry.fieldValues : null;
-		return (entryFieldValues != null && !entryFieldValues.isEmpty()) ? entryFieldValues.get(entryFieldValues.size() - 1) : null;
+		return entry != null ? entry.getLastValue() : null;
 	}
 
 	public V getLastValueOrDefault(String key, V defaultValue) {
@@ -127,32 +342,12 @@ public class PathEntry<V> {
 		return value != null ? value : defaultValue;
 	}
 
+	/**
+	 * @param fullKey The key relative to this entry, which is the full key for the root entry
+	 * @return The entry or null if none exists
+	 */
 	public PathEntry<V> getPathEntryByKey(String fullKey) {
-		String nextKey = fullKey.contains(".") ? fullKey.substring(0, fullKey.indexOf(".")) : fullKey;
-		if (!children.containsKey(nextKey)) {
-			return null;
-		}
-		return getPathEntryByKey(fullKey, nextKey);
-	}
-
-	private PathEntry<V> getPathEntryByKey(String fullKey, String fullKeyForCurrentIteration) {
-		String currentChildKey = fullKeyForCurrentIteration.contains(".") && !fullKeyForCurrentIteration.endsWith(".")
-				? fullKeyForCurrentIteration.substring(fullKeyForCurrentIteration.lastIndexOf(".") + 1)
-				: fullKeyForCurrentIteration;
-		PathEntry<V> child = children.get(currentChildKey);
-		if (child == null) {
-			return null;
-		}
-		else if (child.fullKey.equalsIgnoreCase(fullKey)) {
-			return child;
-		}
-
-		String nextChildKey = fullKey.replaceFirst(Pattern.quote(fullKeyForCurrentIteration) + "\\.?", "");
-		if (nextChildKey.contains(".")) {
-			nextChildKey = nextChildKey.substring(0, nextChildKey.indexOf("."));
-		}
-		String fullKeyForNextIteration = fullKeyForCurrentIteration + "." + nextChildKey;
-		return child.getPathEntryByKey(fullKey, fullKeyForNextIteration);
+		return getDescendant(fullKey);
 	}
 
 	/**
@@ -168,27 +363,36 @@ public class PathEntry<V> {
 	 * @return How many new elements that has been added
 	 */
 	public int put(String nextKey, List<V> values) {
+		return put(nextKey, values, null);
+	}
+
+	/**
+	 * Add a value to this entry
+	 * @param symbols Table to intern the keys of new entries with, or null
+	 * @return How many new elements that has been added
+	 */
+	public int put(String nextKey, List<V> values, SymbolTable symbols) {
 		if (nextKey == null || nextKey.isEmpty()) {
 			return 0;
 		}
 
-		if (nextKey.contains(".")) {	// Nested property
-			String firstChildKey = nextKey.substring(0, nextKey.indexOf("."));
-			nextKey = nextKey.replaceFirst(Pattern.quote(firstChildKey + "."), "");
-			PathEntry<V> child = children.getOrDefault(firstChildKey, getDefaultEntryBuilder(firstChildKey).build());
-			children.putIfAbsent(firstChildKey, child);
-			return child.put(nextKey, values);
+		PathEntry<V> entry = this;
+		int segmentStart = 0;
+		for (int segmentEnd = nextKey.indexOf('.'); segmentEnd >= 0; segmentEnd = nextKey.indexOf('.', segmentStart)) {	// Nested property
+			entry = entry.getOrCreateChild(nextKey.substring(segmentStart, segmentEnd), symbols);
+			segmentStart = segmentEnd + 1;
+		}
+		if (segmentStart == nextKey.length()) {
+			return 0;
 		}
 
-		PathEntry<V> lastChild = children.getOrDefault(nextKey, getDefaultEntryBuilder(nextKey).build());
-		children.putIfAbsent(nextKey, lastChild);
-		int nrOfOldElements = lastChild.fieldValues.size();
-		lastChild.fieldValues.addAll(values);
-		return lastChild.fieldValues.size() - nrOfOldElements;
+		PathEntry<V> lastChild = entry.getOrCreateChild(segmentStart > 0 ? nextKey.substring(segmentStart) : nextKey, symbols);
+		int nrOfOldElements = lastChild.getValueCount();
+		lastChild.addValues(values);
+		lastChild.touch(nrOfOldElements == 0 && !values.isEmpty() ? 1 : 0);
+		return lastChild.getValueCount() - nrOfOldElements;
 	}
 
-
-
 	/**
 	 * Add a value to this entry
 	 * @return How many new elements that has been added
@@ -202,40 +406,36 @@ public class PathEntry<V> {
 	 * @return How many new elements that has been removed
 	 */
 	public int remove(String key) {
-		if (key.contains(".")) {
-			String firstChildKey = key.substring(0, key.indexOf("."));
-			String nextKeys = key.replaceFirst(Pattern.quote(firstChildKey + "."), "");
-			PathEntry<V> child = children.get(firstChildKey);
-			if (child == null) {
-				return 0;
-			}
+		PathEntry<V> child = getDescendant(key);
+		if (child == null) {
+			return 0;
+		}
 
-			return child.remove(nextKeys);
+		int nrOfElements = child.getValueCount();
+		child.fieldValues = null;
+		if (nrOfElements > 0) {
+			child.touch(-1);
 		}
-		int nrOfElements = fieldValues.size();
-		fieldValues.clear();
+		child.pruneIfEmpty();
 		return nrOfElements;
 	}
 
-
 	/**
 	 * Remove certain values from an entry
 	 * @return How many new elements that has been removed
 	 */
 	public int remove(String key, List<V> values) {
-		if (key.contains(".")) {
-			String firstChildKey = key.substring(0, key.indexOf("."));
-			String nextKeys = key.replaceFirst(Pattern.quote(firstChildKey + "."), "");
-			PathEntry<V> child = children.get(firstChildKey);
-			if (child == null) {
-				return 0;
-			}
+		PathEntry<V> child = getDescendant(key);
+		if (child == null) {
+			return 0;
+		}
 
-			return child.remove(nextKeys, values);
+		int nrOfElementsRemoved = child.removeValues(values);
+		if (nrOfElementsRemoved > 0) {
+			child.touch(child.hasFieldValues() ? 0 : -1);
 		}
-		int nrOfElements = fieldValues.size();
-		fieldValues.removeAll(values);
-		return nrOfElements - fieldValues.size();
+		child.pruneIfEmpty();
+		return nrOfElementsRemoved;
 	}
 
 	/**
@@ -247,8 +447,9 @@ public class PathEntry<V> {
 	}
 
 	public void clear() {
-		children.clear();
-		fieldValues.clear();
+		children = Collections.emptyMap();
+		fieldValues = null;
+		touch(-keyCount);
 	}
 
 	public Set<String> getKeySet() {
@@ -273,7 +474,7 @@ public class PathEntry<V> {
 	 */
 	private void recursivelyPutMapEntrySetValues(Set<Map.Entry<String, PathEntry<V>>> entrySet) {
 		entrySet.addAll(children.values().stream()
-				.map(entry -> new AbstractMap.SimpleEntry<>(entry.fullKey, entry))
+				.map(entry -> new AbstractMap.SimpleEntry<>(entry.getFullKey(), entry))
 				.collect(Collectors.toSet())
 		);
 		this.children.values().forEach(child -> child.recursivelyPutMapEntrySetValues(entrySet));
@@ -284,7 +485,7 @@ public class PathEntry<V> {
 	}
 
 	public boolean hasFieldValues() {
-		return !fieldValues.isEmpty();
+		return fieldValues != null;
 	}
 
 	public <T> T toObject(String key, Class<T> toClass) {
@@ -297,8 +498,7 @@ public class PathEntry<V> {
 	}
 
 	private <T> T toObject(PathEntry<V> entry, Class<T> toClass) {
-		JSONObject jsonObject = toJsonObject(entry, new JSONObject());
-		return OBJECT_MAPPER.convertValue(jsonObject, toClass);
+		return ObjectBinder.bind(entry, toClass);
 	}
 
 	public HashMap<String, Object> toHashMap() {
@@ -312,83 +512,61 @@ public class PathEntry<V> {
 		return toHashMap(key, Object.class);
 	}
 
-	@SuppressWarnings("unchecked")
 	public <T> HashMap<String, T> toHashMap(String key, Class<T> innerObjectsClass) {
 		PathEntry<V> child = getPathEntryByKey(key);
-		if (child == null) {
-			return null;
-		}
-
-		HashMap<String, T> retval = new HashMap<>();
-		child.getMapEntrySet().forEach(entry -> {
-			String entryKeyWithoutParent = entry.getKey().replaceFirst("^" + Pattern.quote(key + "."), "");
-			List<V> fieldValues = entry.getValue().getValuesOrEmptyList();
-
-			// Map/convert objects if not generic object class is used
-			T convertedFieldValues = innerObjectsClass.equals(Object.class)
-					? (T) fieldValues
-					: child.children.values().stream()
-					.map(vPathEntry -> vPathEntry.toObject(innerObjectsClass))
-					.findFirst().orElse(null);
-
-			if (convertedFieldValues != null && StringUtils.isNotBlank(entryKeyWithoutParent)) {
-				retval.put(entryKeyWithoutParent, convertedFieldValues);
-			}
-		});
-
-		return retval;
+		return child != null ? new HashMap<>(child.asSimpleMap(innerObjectsClass)) : null;
 	}
 
 	public LinkedPathMultiMap<Object> toMultiMap(String key) {
 		return toMultiMap(key, Object.class);
 	}
 
-	@SuppressWarnings("unchecked")
 	public <T> LinkedPathMultiMap<T> toMultiMap(String key, Class<T> innerObjectsClass) {
 		PathEntry<V> child = getPathEntryByKey(key);
-		if (child == null) {
-			return null;
-		}
-
-		LinkedPathMultiMap<T> retval = new LinkedPathMultiMap<>();
-		child.getMapEntrySet().forEach(entry -> {
-			String entryKeyWithoutParent = entry.getKey().replaceFirst("^" + Pattern.quote(key + "."), "");
-			List<V> fieldValues = entry.getValue().getValuesOrEmptyList();
-
-			// Map/convert objects if not generic object class is used
-			List<T> convertedFieldValues = innerObjectsClass.equals(Object.class)
-					? (List<T>) fieldValues
-					: child.children.values().stream()
-							.map(vPathEntry -> vPathEntry.toObject(innerObjectsClass))
-							.collect(Collectors.toList());
+		return child != null ? new LinkedPathMultiMap<>(child.asMultiMap(innerObjectsClass)) : null;
+	}
 
-			if (!convertedFieldValues.isEmpty() && StringUtils.isNotBlank(entryKeyWithoutParent)) {
-				retval.put(entryKeyWithoutParent, convertedFieldValues);
-			}
-		});
+	/**
+	 * Read-only view of the subtree, with keys relative to this entry. Nothing is copied, and changes to the subtree are visible in the view.
+	 * Not thread-safe, the view must not be used while the subtree is changed. See {@link LinkedPathMultiMap#getCachedHashMap(String, Class)} for a cached view.
+	 * @param innerObjectsClass If {@link Object}, all entries in the subtree are included with their raw values.
+	 *                          Otherwise the direct children are included, converted to the class.
+	 * @return A live map view
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Map<String, T> asSimpleMap(Class<T> innerObjectsClass) {
+		if (innerObjectsClass.equals(Object.class)) {
+			return new SubtreeMapView<>(this, true, entry -> true, entry -> (T) entry.getValues());
+		}
 
-		return retval;
+		SubtreeCache<V> boundValues = new SubtreeCache<>();
+		return new SubtreeMapView<>(this, false, PathEntry::isNonEmptyNode,
+				child -> boundValues.get(child, "object", child.entryKey, innerObjectsClass, () -> child.toObject(innerObjectsClass)));
 	}
 
-	private JSONObject toJsonObject(PathEntry<V> entry, JSONObject parentJson) {
-		if (entry == null) {
-			return null;
-		}
-		if (entry.hasFieldValues()) {
-			parentJson.put(entry.entryKey, entry.fieldValues.size() == 1 ? entry.fieldValues.get(0) : entry.fieldValues);
+	/**
+	 * Read-only view of the subtree, with keys relative to this entry. Nothing is copied, and changes to the subtree are visible in the view.
+	 * Not thread-safe, the view must not be used while the subtree is changed. See {@link LinkedPathMultiMap#getCachedMultiMap(String, Class)} for a cached view.
+	 * @param innerObjectsClass If {@link Object}, all entries in the subtree with values are included with their raw values.
+	 *                          Otherwise the direct children are included, as their values or as an object converted to the class.
+	 * @return A live map view
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Map<String, List<T>> asMultiMap(Class<T> innerObjectsClass) {
+		if (innerObjectsClass.equals(Object.class)) {
+			return new SubtreeMapView<>(this, true, PathEntry::hasFieldValues, entry -> (List<T>) entry.getValues(),
+					this::getDescendantKeyCount);
 		}
 
-		JSONObject childJson = new JSONObject();
-		entry.children.forEach((childKey, childValue) -> {
-			if (childValue.hasFieldValues()) {
-				childJson.put(childValue.entryKey, childValue.fieldValues.size() == 1 ? childValue.fieldValues.get(0) : childValue.fieldValues);
-			}
-			else {
-				childJson.put(childKey, toJsonObject(childValue, new JSONObject()));
-			}
-		});
+		SubtreeCache<V> boundValues = new SubtreeCache<>();
+		Type listType = ObjectBinder.parameterizedType(List.class, innerObjectsClass);
+		return new SubtreeMapView<>(this, false, PathEntry::isNonEmptyNode, child -> child.hasChildren()
+				? Collections.singletonList(boundValues.get(child, "object", child.entryKey, innerObjectsClass, () -> child.toObject(innerObjectsClass)))
+				: boundValues.get(child, "list", child.entryKey, innerObjectsClass, () -> (List<T>) ObjectBinder.bind(child, listType)));
+	}
 
-		return childJson;
+	private boolean isNonEmptyNode() {
+		return hasFieldValues() || hasChildren();
 	}
 
 	public static <V> PathEntryBuilder<V> builder(Class<V> valueClass) {
@@ -400,16 +578,17 @@ public class PathEntry<V> {
 				.withParent(this.parent)
 				.withChildren(this.children)
 				.withKey(this.entryKey)
-				.withFieldValues(this.fieldValues);
+				.withFieldValues(getValues())
+				.withSortedChildren(this.sortedChildren);
 	}
 
 	public String toString(boolean includeChildren) {
 		StringBuilder sb = new StringBuilder("PathEntry{ key = '")
-				.append(fullKey)
+				.append(getFullKey())
 				.append("', children = [")
 				.append(String.join(", ", children.keySet()))
 				.append("], values = [")
-				.append(fieldValues.stream().map(Object::toString).collect(Collectors.joining(", ")))
+				.append(getValues().stream().map(Object::toString).collect(Collectors.joining(", ")))
 				.append("] }");
 
 		if (includeChildren) {
@@ -433,7 +612,20 @@ public class PathEntry<V> {
 		}
 		final PathEntry<?> objAsPathEntry = (PathEntry<?>) obj;
 
-		return this.fullKey.equals(objAsPathEntry.fullKey) && this.valueClass.equals(objAsPathEntry.valueClass);
+		return this.getFullKey().equals(objAsPathEntry.getFullKey()) && this.valueClass.equals(objAsPathEntry.valueClass);
+	}
+
+	/**
+	 * Storage for multiple values, distinguishable from a single value that happens to be a list.
+	 */
+	private static final class ValueList<V> extends ArrayList<V> {
+		private ValueList(int initialCapacity) {
+			super(initialCapacity);
+		}
+
+		private ValueList(ValueList<V> values) {
+			super(values);
+		}
 	}
 
 	public static final class PathEntryBuilder<V> {
@@ -442,6 +634,7 @@ public class PathEntry<V> {
 		private String key = "";	 // The key for the entry itself, and potential sub-keys.
 		private final List<V> fieldValues = new ArrayList<>();
 		private final Class<V> valueClass;
+		private Boolean sortedChildren;	// Inherited from the parent if not set
 
 		private PathEntryBuilder(Class<V> valueClass) {
 			this.valueClass = valueClass;
@@ -479,8 +672,15 @@ public class PathEntry<V> {
 			return this;
 		}
 
+		public PathEntryBuilder<V> withSortedChildren(boolean sortedChildren) {
+			this.sortedChildren = sortedChildren;
+			return this;
+		}
+
 		public PathEntry<V> build() {
-			return new PathEntry<>(parent, children, key, fieldValues, valueClass);
+			return sortedChildren != null
+					? new PathEntry<>(parent, children, key, fieldValues, valueClass, sortedChildren)
+					: new PathEntry<>(parent, children, key, fieldValues, valueClass);
 		}
 	}
 }
@@ -0,0 +1,89 @@
+package com.frejdh.util.environment.storage.map;
+
+import com.frejdh.util.environment.ConversionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable view of a {@link LinkedPathMultiMap} as it was when {@link LinkedPathMultiMap#snapshot()} was called.
+ * Later changes of the map are not seen, so all lookups of a snapshot are consistent with each other.
+ * Backed by the sealed trie of that state, so the lookups cost the same as the sealed lookups of the map.
+ * @param <V> The value type of the map
+ */
+public final class PathMapSnapshot<V> {
+	private static final Pattern ARRAY_PATTERN_FOR_KEY = Pattern.compile(".+\\[\\d+]");
+
+	private final SealedPathTrie<V> trie;
+	private final boolean cleanupKeys;
+
+	PathMapSnapshot(SealedPathTrie<V> trie, boolean cleanupKeys) {
+		this.trie = trie;
+		this.cleanupKeys = cleanupKeys;
+	}
+
+	private String toCleanPropertyKey(String key) {
+		return key != null && cleanupKeys ? ConversionUtils.toKebabCase(key) : key;
+	}
+
+	/**
+	 * @return The modification stamp of the map when the snapshot was taken, see {@link LinkedPathMultiMap#getModificationStamp()}
+	 */
+	public long getModificationStamp() {
+		return trie.getModificationStamp();
+	}
+
+	/**
+	 * @return False if the key has no entry, or true if it might have one. See {@link LinkedPathMultiMap#mightContainKey(Object)}.
+	 */
+	public boolean mightContainKey(String key) {
+		return key == null || trie.mightContainKey(toCleanPropertyKey(key));
+	}
+
+	/**
+	 * @return A read-only list of all keys with values. Built on the first call, and then shared by all calls.
+	 */
+	public List<String> getKeys() {
+		return trie.getKeys();
+	}
+
+	public boolean containsKey(String key) {
+		return key != null && trie.containsKey(toCleanPropertyKey(key));
+	}
+
+	/**
+	 * @return A read-only list of the values, or null if no entry exists for the key
+	 */
+	public List<V> get(String key) {
+		return key != null ? trie.getValues(toCleanPropertyKey(key)) : null;
+	}
+
+	public V getLast(String key) {
+		return key != null ? trie.getValue(toCleanPropertyKey(key), -1) : null;
+	}
+
+	/**
+	 * @param key The key, with or without an array index suffix like 'servers[0]', which is ignored
+	 * @return The value, or null if it doesn't exist
+	 */
+	public V getByIndex(String key, int index) {
+		if (key == null || index < 0) {
+			return null;
+		}
+		String keyWithoutIndex = key.endsWith("]") && ARRAY_PATTERN_FOR_KEY.matcher(key).matches() ? key.substring(0, key.lastIndexOf('[')) : key;
+		return trie.getValue(toCleanPropertyKey(keyWithoutIndex), index);
+	}
+
+	/**
+	 * Look up many keys in one pass, see {@link LinkedPathMultiMap#getAll(List)}.
+	 * @param keys The keys, without array index suffixes
+	 * @return The values of each key in the order of the given keys, or null for the keys that have no entry
+	 */
+	public List<List<V>> getAll(List<String> keys) {
+		List<String> cleanKeys = new ArrayList<>(keys.size());
+		keys.forEach(key -> cleanKeys.add(toCleanPropertyKey(key)));
+		return trie.getAllValues(cleanKeys);
+	}
+
+}
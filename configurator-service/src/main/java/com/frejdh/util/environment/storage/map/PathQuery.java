@@ -0,0 +1,258 @@
+package com.frejdh.util.environment.storage.map;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled query for keys in a property tree, like 'services.*.http.port' or 'pools.**.max-size'. The segments can be:
+ * <ul>
+ *     <li>A key segment, like 'services', which is looked up directly in the children of an entry.</li>
+ *     <li>'*', which matches any single segment.</li>
+ *     <li>'**', which matches any number of segments, including none.</li>
+ *     <li>Any of the two above with an index, like 'servers[0]' or '*[1]'. Matches indexed siblings ('servers[0].host'),
+ *     and as the last segment also the n:th value of a key with multiple values.</li>
+ * </ul>
+ * A query is matched by walking the {@link PathEntry} nodes, where only the children that can match the next segment are visited.
+ * It is immutable and can be re-used for any number of trees.
+ */
+public final class PathQuery {
+	private static final Pattern INDEXED_SEGMENT = Pattern.compile("(.+)\\[(\\d+)]");
+	private static final String ANY_SEGMENT = "*";
+	private static final String ANY_DEPTH = "**";
+
+	private final String query;
+	private final Step[] steps;
+	private final boolean mayMatchTwice;	// Multiple '**' can match the same key in different ways
+
+	private PathQuery(String query, Step[] steps) {
+		this.query = query;
+		this.steps = steps;
+		int nrOfAnyDepthSteps = 0;
+		for (Step step : steps) {
+			nrOfAnyDepthSteps += step.kind == StepKind.ANY_DEPTH ? 1 : 0;
+		}
+		this.mayMatchTwice = nrOfAnyDepthSteps > 1;
+	}
+
+	/**
+	 * @param query A query like 'services.*.http.port'
+	 * @return The compiled query
+	 * @throws IllegalArgumentException If the query is empty, has empty segments or wildcards within a segment
+	 */
+	public static PathQuery compile(String query) throws IllegalArgumentException {
+		if (query == null || query.trim().isEmpty()) {
+			throw new IllegalArgumentException("The query cannot be empty");
+		}
+
+		String[] segments = query.trim().split("\\.", -1);
+		Step[] steps = new Step[segments.length];
+		int nrOfSteps = 0;
+		for (String segment : segments) {
+			Step step = Step.parse(segment, query);
+			if (step.kind == StepKind.ANY_DEPTH && nrOfSteps > 0 && steps[nrOfSteps - 1].kind == StepKind.ANY_DEPTH) {
+				continue;	// 'a.**.**.b' is the same as 'a.**.b'
+			}
+			steps[nrOfSteps++] = step;
+		}
+		return new PathQuery(query.trim(), nrOfSteps == steps.length ? steps : Arrays.copyOf(steps, nrOfSteps));
+	}
+
+	/**
+	 * Lazily find the matching keys with values, in a deterministic order.
+	 * @param root The root entry of the tree
+	 * @return An iterator of read-only entries with full keys. A match of an indexed value has the index in the key, like 'ports[1]'.
+	 */
+	public <V> Iterator<Map.Entry<String, List<V>>> match(PathEntry<V> root) {
+		return new MatchIterator<>(root);
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	@Override
+	public String toString() {
+		return query;
+	}
+
+	private enum StepKind {
+		KEY, ANY_SEGMENT, ANY_DEPTH
+	}
+
+	private static final class Step {
+		private static final int NO_INDEX = -1;
+
+		private final StepKind kind;
+		private final String key;
+		private final int index;
+
+		private Step(StepKind kind, String key, int index) {
+			this.kind = kind;
+			this.key = key;
+			this.index = index;
+		}
+
+		private static Step parse(String segment, String query) {
+			if (segment.isEmpty()) {
+				throw new IllegalArgumentException("Empty segment in the query '" + query + "'");
+			}
+			else if (segment.equals(ANY_DEPTH)) {
+				return new Step(StepKind.ANY_DEPTH, null, NO_INDEX);
+			}
+
+			String key = segment;
+			int index = NO_INDEX;
+			Matcher indexMatcher = INDEXED_SEGMENT.matcher(segment);
+			if (indexMatcher.matches()) {
+				key = indexMatcher.group(1);
+				index = Integer.parseInt(indexMatcher.group(2));
+			}
+
+			if (key.equals(ANY_SEGMENT)) {
+				return new Step(StepKind.ANY_SEGMENT, null, index);
+			}
+			else if (key.contains(ANY_SEGMENT)) {
+				throw new IllegalArgumentException("Wildcards must be whole segments, but got '" + segment + "' in the query '" + query + "'");
+			}
+			return new Step(StepKind.KEY, key, index);
+		}
+
+		private String indexSuffix() {
+			return "[" + index + "]";
+		}
+	}
+
+	/**
+	 * A node, and the step of the query that its children shall match.
+	 * A node with a value index is a match of an indexed value, rather than of the node itself.
+	 */
+	private static final class State<V> {
+		private final PathEntry<V> node;
+		private final int step;
+		private final int valueIndex;
+
+		private State(PathEntry<V> node, int step, int valueIndex) {
+			this.node = node;
+			this.step = step;
+			this.valueIndex = valueIndex;
+		}
+	}
+
+	/**
+	 * Depth-first search, with the pending states in a stack so that nothing is visited before it is needed.
+	 */
+	private final class MatchIterator<V> implements Iterator<Map.Entry<String, List<V>>> {
+		private final Deque<State<V>> pendingStates = new ArrayDeque<>();
+		private final Set<PathEntry<V>> matchedNodes = mayMatchTwice ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+		private Map.Entry<String, List<V>> nextMatch;
+
+		private MatchIterator(PathEntry<V> root) {
+			if (root != null) {
+				pendingStates.push(new State<>(root, 0, Step.NO_INDEX));
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (nextMatch == null && !pendingStates.isEmpty()) {
+				State<V> state = pendingStates.pop();
+				if (state.step == steps.length) {
+					nextMatch = toMatch(state);
+				}
+				else {
+					expand(state.node, state.step);
+				}
+			}
+			return nextMatch != null;
+		}
+
+		@Override
+		public Map.Entry<String, List<V>> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Map.Entry<String, List<V>> match = nextMatch;
+			nextMatch = null;
+			return match;
+		}
+
+		private Map.Entry<String, List<V>> toMatch(State<V> state) {
+			PathEntry<V> node = state.node;
+			if ((state.valueIndex == Step.NO_INDEX && !node.hasFieldValues()) || node.getParent() == null
+					|| (matchedNodes != null && !matchedNodes.add(node))) {
+				return null;
+			}
+			else if (state.valueIndex != Step.NO_INDEX) {
+				return new AbstractMap.SimpleImmutableEntry<>(node.getFullKey() + "[" + state.valueIndex + "]",
+						Collections.singletonList(node.getValues().get(state.valueIndex)));
+			}
+			return new AbstractMap.SimpleImmutableEntry<>(node.getFullKey(), node.getValues());
+		}
+
+		/**
+		 * Push the states for the children of a node that match a step. They are pushed in reverse, so that they are popped in order.
+		 */
+		private void expand(PathEntry<V> node, int stepIndex) {
+			Step step = steps[stepIndex];
+			boolean isLastStep = stepIndex == steps.length - 1;
+			switch (step.kind) {
+				case KEY:
+					if (step.index == Step.NO_INDEX) {
+						pushIfPresent(node.getChild(step.key), stepIndex + 1);
+					}
+					else if (!pushIfPresent(node.getChild(step.key + step.indexSuffix()), stepIndex + 1) && isLastStep) {
+						pushIndexedValue(node.getChild(step.key), step.index);
+					}
+					break;
+				case ANY_SEGMENT:
+					List<PathEntry<V>> children = node.getChildrenInOrder();
+					for (int i = children.size() - 1; i >= 0; i--) {
+						PathEntry<V> child = children.get(i);
+						if (step.index == Step.NO_INDEX) {
+							pendingStates.push(new State<>(child, stepIndex + 1, Step.NO_INDEX));
+						}
+						else if (child.getKey().endsWith(step.indexSuffix())) {
+							pendingStates.push(new State<>(child, stepIndex + 1, Step.NO_INDEX));
+						}
+						else if (isLastStep && !child.getKey().endsWith("]")) {
+							pushIndexedValue(child, step.index);
+						}
+					}
+					break;
+				case ANY_DEPTH:
+					List<PathEntry<V>> descendants = node.getChildrenInOrder();
+					for (int i = descendants.size() - 1; i >= 0; i--) {
+						pendingStates.push(new State<>(descendants.get(i), stepIndex, Step.NO_INDEX));
+					}
+					pendingStates.push(new State<>(node, stepIndex + 1, Step.NO_INDEX));	// Matching no segments, before the descendants
+					break;
+			}
+		}
+
+		private boolean pushIfPresent(PathEntry<V> node, int stepIndex) {
+			if (node == null) {
+				return false;
+			}
+			pendingStates.push(new State<>(node, stepIndex, Step.NO_INDEX));
+			return true;
+		}
+
+		private void pushIndexedValue(PathEntry<V> node, int valueIndex) {
+			if (node != null && node.getValueCount() > valueIndex) {
+				pendingStates.push(new State<>(node, steps.length, valueIndex));
+			}
+		}
+	}
+
+}
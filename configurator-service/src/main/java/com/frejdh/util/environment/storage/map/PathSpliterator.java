@@ -0,0 +1,234 @@
+package com.frejdh.util.environment.storage.map;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Lazy, ordered iteration over the entries with values in a subtree, optionally limited to a range of keys.
+ * The entries are visited depth-first with the children in key order, so 'a' comes before 'a.b', which comes before 'a-b'.
+ * <br><br>
+ * The pending subtrees are kept in a deque, with the next one first. A split hands over the first half of them, and
+ * a single pending subtree is split by replacing it with its children. The estimated size is the number of keys in the
+ * pending subtrees, which is maintained by {@link PathEntry}, so parallel streams split into balanced parts.
+ * @param <V> The value type of the path entries
+ */
+final class PathSpliterator<V> implements Spliterator<Map.Entry<String, List<V>>> {
+	private final PathRange range;
+	private final Deque<PathEntry<V>> pendingSubtrees;
+	private PathEntry<V> pendingEntry;	// An entry whose own values are next, while its children are in the deque
+
+	/**
+	 * @param root The root of the subtree. Included if it has values.
+	 * @param range The range of keys to include, or null for all keys
+	 */
+	PathSpliterator(PathEntry<V> root, PathRange range) {
+		this.range = range;
+		this.pendingSubtrees = new ArrayDeque<>();
+		if (root != null && (range == null || range.mayContain(root))) {
+			this.pendingSubtrees.add(root);
+		}
+	}
+
+	private PathSpliterator(PathRange range, Deque<PathEntry<V>> pendingSubtrees, PathEntry<V> pendingEntry) {
+		this.range = range;
+		this.pendingSubtrees = pendingSubtrees;
+		this.pendingEntry = pendingEntry;
+	}
+
+	/**
+	 * Replace the first pending subtree with its entry and children.
+	 */
+	private void expandFirst() {
+		PathEntry<V> entry = pendingSubtrees.pollFirst();
+		List<PathEntry<V>> children = entry.getChildrenInOrder();
+		for (int i = children.size() - 1; i >= 0; i--) {
+			PathEntry<V> child = children.get(i);
+			if (range == null || range.mayContain(child)) {
+				pendingSubtrees.addFirst(child);
+			}
+		}
+		pendingEntry = entry;
+	}
+
+	private boolean isIncluded(PathEntry<V> entry) {
+		return entry.hasFieldValues() && (range == null || range.contains(entry));
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super Map.Entry<String, List<V>>> action) {
+		while (pendingEntry != null || !pendingSubtrees.isEmpty()) {
+			PathEntry<V> entry = pendingEntry;
+			pendingEntry = null;
+			if (entry == null) {
+				expandFirst();
+				continue;
+			}
+
+			if (isIncluded(entry)) {
+				action.accept(new ScanEntry<>(entry));
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Spliterator<Map.Entry<String, List<V>>> trySplit() {
+		if (pendingEntry == null && pendingSubtrees.size() == 1) {
+			if (!pendingSubtrees.peekFirst().hasChildren()) {
+				return null;
+			}
+			expandFirst();
+		}
+
+		int splitSize = pendingSubtrees.size() / 2;
+		if (splitSize == 0) {
+			return null;
+		}
+
+		Deque<PathEntry<V>> prefix = new ArrayDeque<>(splitSize);
+		for (int i = 0; i < splitSize; i++) {
+			prefix.addLast(pendingSubtrees.pollFirst());
+		}
+		PathSpliterator<V> prefixSpliterator = new PathSpliterator<>(range, prefix, pendingEntry);
+		pendingEntry = null;
+		return prefixSpliterator;
+	}
+
+	@Override
+	public long estimateSize() {
+		long size = pendingEntry != null && pendingEntry.hasFieldValues() ? 1 : 0;
+		for (PathEntry<V> subtree : pendingSubtrees) {
+			size += subtree.getDescendantKeyCount() + (subtree.hasFieldValues() ? 1 : 0);
+		}
+		return size;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | DISTINCT | NONNULL;
+	}
+
+	/**
+	 * A range of keys, [from, to), in the order of {@link PathSpliterator}. Both bounds are optional.
+	 */
+	static final class PathRange {
+		private final String[] fromSegments;
+		private final String[] toSegments;
+
+		/**
+		 * @param fromKey The first key to include, or null
+		 * @param toKey The first key to exclude, or null
+		 */
+		PathRange(String fromKey, String toKey) {
+			this.fromSegments = fromKey != null ? fromKey.split("\\.", -1) : null;
+			this.toSegments = toKey != null ? toKey.split("\\.", -1) : null;
+		}
+
+		/**
+		 * Compare the key of an entry with a bound, segment by segment.
+		 */
+		private static int compare(PathEntry<?> entry, String[] boundSegments) {
+			List<String> segments = new ArrayList<>();
+			for (PathEntry<?> current = entry; current.getParent() != null; current = current.getParent()) {
+				segments.add(current.getKey());
+			}
+
+			int depth = segments.size();
+			for (int i = 0; i < Math.min(depth, boundSegments.length); i++) {
+				int result = segments.get(depth - 1 - i).compareTo(boundSegments[i]);
+				if (result != 0) {
+					return result;
+				}
+			}
+			return Integer.compare(depth, boundSegments.length);
+		}
+
+		boolean contains(PathEntry<?> entry) {
+			return (fromSegments == null || compare(entry, fromSegments) >= 0) && (toSegments == null || compare(entry, toSegments) < 0);
+		}
+
+		/**
+		 * @return False if neither the entry nor any of its descendants can be in the range
+		 */
+		boolean mayContain(PathEntry<?> subtree) {
+			if (toSegments != null && compare(subtree, toSegments) >= 0) {
+				return false;	// The descendants comes after the entry itself
+			}
+			if (fromSegments != null && compare(subtree, fromSegments) < 0) {
+				return isPrefixOfFrom(subtree);	// Only descendants of a prefix of 'from' can come after it
+			}
+			return true;
+		}
+
+		private boolean isPrefixOfFrom(PathEntry<?> entry) {
+			int depth = 0;
+			for (PathEntry<?> current = entry; current.getParent() != null; current = current.getParent()) {
+				depth++;
+			}
+			if (depth >= fromSegments.length) {
+				return false;
+			}
+
+			PathEntry<?> current = entry;
+			for (int i = depth - 1; i >= 0; i--, current = current.getParent()) {
+				if (!current.getKey().equals(fromSegments[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Entry with the full key created upon access.
+	 */
+	private static final class ScanEntry<V> implements Map.Entry<String, List<V>> {
+		private final PathEntry<V> entry;
+
+		private ScanEntry(PathEntry<V> entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public String getKey() {
+			return entry.getFullKey();
+		}
+
+		@Override
+		public List<V> getValue() {
+			return entry.getValues();
+		}
+
+		@Override
+		public List<V> setValue(List<V> value) {
+			throw new UnsupportedOperationException("The entry is read-only");
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+			return getKey().equals(other.getKey()) && Objects.equals(getValue(), other.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return getKey().hashCode() ^ Objects.hashCode(getValue());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+}
@@ -0,0 +1,436 @@
+package com.frejdh.util.environment.storage.map;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Immutable, array-packed copy of a {@link PathEntry} tree, used for lookups while the tree isn't changed.
+ * <ul>
+ *     <li>Each distinct key segment has an int ID, found through an open-addressed table without creating substrings of the key.</li>
+ *     <li>The nodes are numbered in breadth-first order, so the children of a node are consecutive and sorted by their segment IDs.
+ *     A child is found through an open-addressed table of all edges, keyed by the parent node and the segment ID.
+ *     This is constant time even for nodes with thousands of children, where a binary search would be slower than a hashed map.</li>
+ *     <li>All values are stored in one array, with the values of a node being consecutive.</li>
+ *     <li>A Bloom filter of the hashes of all full keys rejects most missing keys up front, like optional overrides and feature flags
+ *     that are usually absent. It is checked with {@link String#hashCode()}, which is cached by the key, so repeated misses don't walk the trie.</li>
+ * </ul>
+ * A lookup is therefore a few probes in int arrays, instead of following map nodes and entries.
+ * @param <V> The value type of the path entries
+ */
+final class SealedPathTrie<V> {
+	private static final int NOT_FOUND = -1;
+	private static final int GOLDEN_RATIO = 0x9E3779B9;
+	private static final long GOLDEN_RATIO_64 = 0x9E3779B97F4A7C15L;
+	private static final int BLOOM_BITS_PER_KEY = 10;	// Rounded up to a power of two. With 4 probes, 0.2-1.2% false positives.
+	private static final int BLOOM_PROBES = 4;
+
+	private final long modificationStamp;
+	private final String[] symbols;	// Open-addressed hash table of the segments
+	private final int[] symbolIds;
+	private final int symbolShift;
+	private final int[] childOffsets;	// The children of node n are at [childOffsets[n], childOffsets[n + 1]). Child i is node i + 1.
+	private final int[] childSymbols;
+	private final long[] edgeKeys;	// Open-addressed hash table of (parent node, segment ID), with the child node in edgeNodes
+	private final int[] edgeNodes;	// Zero for empty slots, since the root is never a child
+	private final int edgeShift;
+	private final int[] valueOffsets;	// The values of node n are at [valueOffsets[n], valueOffsets[n + 1])
+	private final Object[] values;
+	private final long[] bloomBits;
+	private volatile List<String> keys;	// The keys with values, built when first needed
+
+	private SealedPathTrie(long modificationStamp, String[] symbols, int[] symbolIds, int[] childOffsets, int[] childSymbols, int[] valueOffsets,
+						   Object[] values, int[] keyHashes) {
+		this.modificationStamp = modificationStamp;
+		this.symbols = symbols;
+		this.symbolIds = symbolIds;
+		this.symbolShift = Integer.numberOfLeadingZeros(symbols.length) + 1;
+		this.childOffsets = childOffsets;
+		this.childSymbols = childSymbols;
+
+		int edgeCapacity = Integer.highestOneBit(Math.max(childSymbols.length, 1) * 2) * 2;
+		this.edgeKeys = new long[edgeCapacity];
+		this.edgeNodes = new int[edgeCapacity];
+		this.edgeShift = Long.numberOfLeadingZeros(edgeCapacity) + 1;
+		for (int node = 0; node + 1 < childOffsets.length; node++) {
+			for (int child = childOffsets[node]; child < childOffsets[node + 1]; child++) {
+				long edgeKey = edgeKey(node, childSymbols[child]);
+				int slot = edgeSlot(edgeKey);
+				while (edgeNodes[slot] != 0) {
+					slot = (slot + 1) & (edgeCapacity - 1);
+				}
+				edgeKeys[slot] = edgeKey;
+				edgeNodes[slot] = child + 1;
+			}
+		}
+		this.valueOffsets = valueOffsets;
+		this.values = values;
+
+		int bloomSize = (int) Math.min(1L << 30, Long.highestOneBit(Math.max(64L, (long) keyHashes.length * BLOOM_BITS_PER_KEY - 1)) << 1);
+		this.bloomBits = new long[bloomSize / 64];
+		for (int node = 1; node < keyHashes.length; node++) {	// Not the root, which has no key
+			long hash = keyHashes[node] * GOLDEN_RATIO_64;
+			int mask = bloomBits.length * 64 - 1;
+			for (int probe = 0, bit = (int) hash, step = (int) (hash >>> 32) | 1; probe < BLOOM_PROBES; probe++, bit += step) {
+				bloomBits[(bit & mask) >>> 6] |= 1L << bit;
+			}
+		}
+	}
+
+	/**
+	 * Compile the current state of a tree.
+	 * @param root The root entry of the tree
+	 * @return A trie that is valid until the tree is changed, see {@link #isValidFor(PathEntry)}
+	 */
+	static <V> SealedPathTrie<V> compile(PathEntry<V> root) {
+		long modificationStamp = root.getModificationStamp();
+		Map<String, Integer> symbolIdsByName = new HashMap<>();
+		List<PathEntry<V>> nodes = new ArrayList<>();
+		List<Integer> childSymbols = new ArrayList<>();
+		List<Integer> childOffsets = new ArrayList<>();
+		List<Integer> valueOffsets = new ArrayList<>();
+		List<Object> values = new ArrayList<>();
+		List<Integer> keyHashes = new ArrayList<>();	// String.hashCode() of the full key of each node, computed from the parent's
+
+		nodes.add(root);
+		keyHashes.add(0);
+		for (int node = 0; node < nodes.size(); node++) {	// Breadth-first, the list is appended to while iterating
+			PathEntry<V> entry = nodes.get(node);
+			int keyHash = keyHashes.get(node);
+			childOffsets.add(childSymbols.size());
+			valueOffsets.add(values.size());
+			values.addAll(entry.getValues());
+
+			List<PathEntry<V>> children = new ArrayList<>(entry.getChildren().values());
+			children.forEach(child -> symbolIdsByName.putIfAbsent(child.getKey(), symbolIdsByName.size()));
+			children.sort(Comparator.comparingInt(child -> symbolIdsByName.get(child.getKey())));
+			for (PathEntry<V> child : children) {
+				childSymbols.add(symbolIdsByName.get(child.getKey()));
+				nodes.add(child);
+				keyHashes.add(node == 0 ? child.getKey().hashCode() : appendHash(appendHash(keyHash, "."), child.getKey()));
+			}
+		}
+		childOffsets.add(childSymbols.size());
+		valueOffsets.add(values.size());
+
+		int capacity = Integer.highestOneBit(Math.max(symbolIdsByName.size(), 1) * 2) * 2;
+		int shift = Integer.numberOfLeadingZeros(capacity) + 1;
+		String[] symbols = new String[capacity];
+		int[] symbolIds = new int[capacity];
+		symbolIdsByName.forEach((symbol, id) -> {
+			int slot = slot(symbol.hashCode(), shift);
+			while (symbols[slot] != null) {
+				slot = (slot + 1) & (capacity - 1);
+			}
+			symbols[slot] = symbol;
+			symbolIds[slot] = id;
+		});
+
+		return new SealedPathTrie<>(modificationStamp, symbols, symbolIds, toIntArray(childOffsets), toIntArray(childSymbols),
+				toIntArray(valueOffsets), values.toArray(), toIntArray(keyHashes));
+	}
+
+	/**
+	 * @return The {@link String#hashCode()} of a string with the suffix appended, from the hash code of the string
+	 */
+	private static int appendHash(int hash, String suffix) {
+		for (int i = 0; i < suffix.length(); i++) {
+			hash = 31 * hash + suffix.charAt(i);
+		}
+		return hash;
+	}
+
+	private static int[] toIntArray(List<Integer> list) {
+		return list.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * @return The modification stamp of the tree when the trie was compiled
+	 */
+	long getModificationStamp() {
+		return modificationStamp;
+	}
+
+	/**
+	 * @return A read-only list of the full keys that have values, in breadth-first order. Built on the first call.
+	 */
+	List<String> getKeys() {
+		List<String> currentKeys = keys;
+		if (currentKeys != null) {
+			return currentKeys;
+		}
+		String[] symbolsById = new String[symbols.length];	// The IDs are below the size of the table
+		for (int slot = 0; slot < symbols.length; slot++) {
+			if (symbols[slot] != null) {
+				symbolsById[symbolIds[slot]] = symbols[slot];
+			}
+		}
+
+		int nrOfNodes = childOffsets.length - 1;
+		String[] keysByNode = new String[nrOfNodes];
+		List<String> keysWithValues = new ArrayList<>();
+		for (int node = 0; node < nrOfNodes; node++) {	// Parents come before their children, so their keys are known
+			for (int child = childOffsets[node]; child < childOffsets[node + 1]; child++) {
+				String symbol = symbolsById[childSymbols[child]];
+				keysByNode[child + 1] = node == 0 ? symbol : keysByNode[node] + "." + symbol;
+			}
+			if (node > 0 && valueOffsets[node + 1] > valueOffsets[node]) {
+				keysWithValues.add(keysByNode[node]);
+			}
+		}
+		currentKeys = Collections.unmodifiableList(keysWithValues);
+		keys = currentKeys;
+		return currentKeys;
+	}
+
+	/**
+	 * @param root The root entry that the trie was compiled from
+	 * @return True if nothing in the tree has been changed since the trie was compiled
+	 */
+	boolean isValidFor(PathEntry<V> root) {
+		return root.getModificationStamp() == modificationStamp;
+	}
+
+	/**
+	 * Fibonacci hashing, which spreads the similar hashes of segments like 'service-1' and 'service-2' over the table.
+	 * @param shift 32 minus the number of bits of the table size
+	 */
+	private static int slot(int hash, int shift) {
+		return (hash * GOLDEN_RATIO) >>> shift;
+	}
+
+	/**
+	 * Look up a segment of the key. The hash is the same as {@link String#hashCode()} of the substring, but without creating it.
+	 */
+	private int symbolId(String key, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + key.charAt(i);
+		}
+
+		int length = end - start;
+		int mask = symbols.length - 1;
+		for (int slot = slot(hash, symbolShift); symbols[slot] != null; slot = (slot + 1) & mask) {
+			String symbol = symbols[slot];
+			if (symbol.hashCode() == hash && symbol.length() == length && matches(key, start, symbol)) {
+				return symbolIds[slot];
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	private static boolean matches(String key, int start, String symbol) {
+		for (int i = 0; i < symbol.length(); i++) {
+			if (key.charAt(start + i) != symbol.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long edgeKey(int node, int symbolId) {
+		return ((long) node << 32) | symbolId;
+	}
+
+	private int edgeSlot(long edgeKey) {
+		return (int) ((edgeKey * GOLDEN_RATIO_64) >>> edgeShift);
+	}
+
+	private int findChild(int node, int symbolId) {
+		long edgeKey = edgeKey(node, symbolId);
+		int mask = edgeNodes.length - 1;
+		for (int slot = edgeSlot(edgeKey); edgeNodes[slot] != 0; slot = (slot + 1) & mask) {
+			if (edgeKeys[slot] == edgeKey) {
+				return edgeNodes[slot];
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * @return False if the key has no entry, or true if it might have one
+	 */
+	boolean mightContainKey(String key) {
+		long hash = key.hashCode() * GOLDEN_RATIO_64;
+		int mask = bloomBits.length * 64 - 1;
+		for (int probe = 0, bit = (int) hash, step = (int) (hash >>> 32) | 1; probe < BLOOM_PROBES; probe++, bit += step) {
+			if ((bloomBits[(bit & mask) >>> 6] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int findNode(String key) {
+		if (!mightContainKey(key)) {
+			return NOT_FOUND;
+		}
+		int node = 0;
+		int segmentStart = 0;
+		while (true) {
+			int segmentEnd = key.indexOf('.', segmentStart);
+			if (segmentEnd < 0) {
+				segmentEnd = key.length();
+			}
+
+			int symbolId = symbolId(key, segmentStart, segmentEnd);
+			node = symbolId != NOT_FOUND ? findChild(node, symbolId) : NOT_FOUND;
+			if (node == NOT_FOUND || segmentEnd == key.length()) {
+				return node;
+			}
+			segmentStart = segmentEnd + 1;
+		}
+	}
+
+	boolean containsKey(String key) {
+		return findNode(key) != NOT_FOUND;
+	}
+
+	/**
+	 * @return A read-only list of the values, or null if no entry exists for the key
+	 */
+	List<V> getValues(String key) {
+		return getValues(findNode(key));
+	}
+
+	private List<V> getValues(int node) {
+		if (node == NOT_FOUND) {
+			return null;
+		}
+		int start = valueOffsets[node];
+		int end = valueOffsets[node + 1];
+		return start != end ? new ValueSlice(start, end) : Collections.emptyList();
+	}
+
+	/**
+	 * Look up many keys in one pass. The keys are sorted first, so that keys under the same prefixes, like 'server.http.host'
+	 * and 'server.http.port', only walk their shared segments once.
+	 * @param keys The keys, in any order
+	 * @return A read-only list of the values of each key, in the order of the keys, or null for null keys and keys without entry
+	 */
+	List<List<V>> getAllValues(List<String> keys) {
+		int[] order = new int[keys.size()];	// The positions of the non-null keys, in key order
+		int nrOfKeys = 0;
+		for (int position = 0; position < keys.size(); position++) {
+			String key = keys.get(position);
+			if (key == null) {
+				continue;
+			}
+			int i = nrOfKeys++;
+			for (; i > 0 && keys.get(order[i - 1]).compareTo(key) > 0; i--) {	// Insertion sort, batches are small and often sorted already
+				order[i] = order[i - 1];
+			}
+			order[i] = position;
+		}
+		List<String> sortedKeys = new ArrayList<>(nrOfKeys);
+		for (int i = 0; i < nrOfKeys; i++) {
+			sortedKeys.add(keys.get(order[i]));
+		}
+
+		List<List<V>> sortedResults = getAllValuesInOrder(sortedKeys);
+		List<List<V>> results = new ArrayList<>(keys.size());
+		keys.forEach(key -> results.add(null));
+		for (int i = 0; i < nrOfKeys; i++) {
+			results.set(order[i], sortedResults.get(i));
+		}
+		return results;
+	}
+
+	/**
+	 * Sorted keys share their leading segments with the key before them, so the nodes of those segments are reused
+	 * instead of being looked up again.
+	 */
+	private List<List<V>> getAllValuesInOrder(List<String> sortedKeys) {
+		List<List<V>> results = new ArrayList<>(sortedKeys.size());
+		int[] pathNodes = new int[8];	// The node of each segment of the previous walked key, up to the first missing one
+		int[] pathEnds = new int[8];	// The end of each segment of the previous walked key
+		int pathLength = 0;
+		String previousKey = "";
+
+		for (String key : sortedKeys) {
+			if (!mightContainKey(key)) {
+				results.add(null);
+				continue;
+			}
+
+			int commonLength = 0;
+			int maxCommonLength = Math.min(key.length(), previousKey.length());
+			while (commonLength < maxCommonLength && key.charAt(commonLength) == previousKey.charAt(commonLength)) {
+				commonLength++;
+			}
+			int sharedSegments = 0;	// The segments of the previous key that end within the common prefix, at a segment end of this key too
+			while (sharedSegments < pathLength && (pathEnds[sharedSegments] < commonLength
+					|| (pathEnds[sharedSegments] == commonLength && (commonLength == key.length() || key.charAt(commonLength) == '.')))) {
+				sharedSegments++;
+			}
+
+			int node = sharedSegments > 0 ? pathNodes[sharedSegments - 1] : 0;
+			int segmentStart = sharedSegments > 0 ? pathEnds[sharedSegments - 1] + 1 : 0;
+			pathLength = sharedSegments;
+			while (node != NOT_FOUND && segmentStart <= key.length()) {
+				int segmentEnd = key.indexOf('.', segmentStart);
+				if (segmentEnd < 0) {
+					segmentEnd = key.length();
+				}
+				int symbolId = symbolId(key, segmentStart, segmentEnd);
+				node = symbolId != NOT_FOUND ? findChild(node, symbolId) : NOT_FOUND;
+
+				if (pathLength == pathNodes.length) {
+					pathNodes = Arrays.copyOf(pathNodes, pathLength * 2);
+					pathEnds = Arrays.copyOf(pathEnds, pathLength * 2);
+				}
+				pathNodes[pathLength] = node;
+				pathEnds[pathLength++] = segmentEnd;
+				segmentStart = segmentEnd + 1;
+			}
+			previousKey = key;
+			results.add(getValues(node));
+		}
+		return results;
+	}
+
+	/**
+	 * @param index The index of the value. Negative indexes are counted from the last value.
+	 * @return The value, or null if it doesn't exist
+	 */
+	@SuppressWarnings("unchecked")
+	V getValue(String key, int index) {
+		int node = findNode(key);
+		if (node == NOT_FOUND) {
+			return null;
+		}
+		int position = index >= 0 ? valueOffsets[node] + index : valueOffsets[node + 1] + index;
+		return position >= valueOffsets[node] && position < valueOffsets[node + 1] ? (V) values[position] : null;
+	}
+
+	private final class ValueSlice extends AbstractList<V> implements RandomAccess {
+		private final int start;
+		private final int end;
+
+		private ValueSlice(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V get(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+			}
+			return (V) values[start + index];
+		}
+
+		@Override
+		public int size() {
+			return end - start;
+		}
+	}
+
+}
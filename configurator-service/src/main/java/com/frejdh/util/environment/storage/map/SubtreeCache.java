@@ -0,0 +1,105 @@
+package com.frejdh.util.environment.storage.map;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache for values computed from a subtree, such as bound objects and maps.
+ * A cached value is valid as long as the modification stamp of the scope entry hasn't changed. The stamps are never re-used
+ * for another entry, and a copied entry keeps its stamp, so a cache can be copied along with its tree, see {@link #SubtreeCache(SubtreeCache)}.
+ * Lookups don't lock, and values computed concurrently for the same key just replace each other.
+ * @param <V> The value type of the path entries
+ */
+final class SubtreeCache<V> {
+	private final Map<CacheKey, CachedValue> cache;
+
+	SubtreeCache() {
+		this.cache = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * A cache with the values of another one, for a copy of its tree. The values of the subtrees that are changed in the copy are computed again.
+	 * Map views aren't kept, since they are backed by the entries of the other tree and would keep it from being collected. They are cheap to create again.
+	 */
+	SubtreeCache(SubtreeCache<V> cache) {
+		this.cache = new ConcurrentHashMap<>();
+		cache.cache.forEach((cacheKey, cachedValue) -> {
+			if (!(cachedValue.value instanceof SubtreeMapView)) {
+				this.cache.put(cacheKey, cachedValue);
+			}
+		});
+	}
+
+	/**
+	 * Get a cached value, or compute and cache it if any entry in the subtree has changed since it was computed.
+	 * @param scope The current entry whose subtree contains everything the value is computed from, or null if none exists
+	 * @param kind The kind of value, e.g. the name of the conversion. Values of the same key that have different scopes must be of different kinds.
+	 * @param key The (cleaned) key of the value
+	 * @param type The class that the value is converted to
+	 * @param loader Computes the value
+	 * @return The value, or null if there is no entry
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T get(PathEntry<V> scope, String kind, String key, Class<?> type, Supplier<T> loader) {
+		CacheKey cacheKey = new CacheKey(kind, key, type);
+		if (scope == null) {
+			cache.remove(cacheKey);
+			return null;
+		}
+
+		CachedValue cachedValue = cache.get(cacheKey);
+		if (cachedValue != null && cachedValue.modificationStamp == scope.getModificationStamp()) {
+			return (T) cachedValue.value;
+		}
+
+		long modificationStamp = scope.getModificationStamp(); // Read before computing, a concurrent change will then cause a recompute
+		T value = loader.get();
+		if (value != null) {
+			cache.put(cacheKey, new CachedValue(modificationStamp, value));
+		}
+		return value;
+	}
+
+	void clear() {
+		cache.clear();
+	}
+
+	private static final class CachedValue {
+		private final long modificationStamp;
+		private final Object value;
+
+		private CachedValue(long modificationStamp, Object value) {
+			this.modificationStamp = modificationStamp;
+			this.value = value;
+		}
+	}
+
+	private static final class CacheKey {
+		private final String kind;
+		private final String key;
+		private final Class<?> type;
+
+		private CacheKey(String kind, String key, Class<?> type) {
+			this.kind = kind;
+			this.key = key;
+			this.type = type;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey other = (CacheKey) obj;
+			return kind.equals(other.kind) && key.equals(other.key) && type.equals(other.type);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(kind, key, type);
+		}
+	}
+
+}
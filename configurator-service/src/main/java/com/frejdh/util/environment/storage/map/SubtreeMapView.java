@@ -0,0 +1,195 @@
+package com.frejdh.util.environment.storage.map;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Read-only {@link Map} view that is backed by the subtree of a {@link PathEntry}. Nothing is copied, the entries are
+ * iterated lazily and the values are only created when they are accessed. Changes to the subtree are visible in the view.
+ * Not thread-safe: the subtree is iterated without any lock, so the view must not be used while the subtree is changed.
+ * The keys are relative to the root of the view, e.g. 'port' for 'server.port' in a view of 'server'.
+ * @param <V> The value type of the path entries
+ * @param <T> The value type of the map
+ */
+final class SubtreeMapView<V, T> extends AbstractMap<String, T> {
+	private final PathEntry<V> root;
+	private final boolean includeDescendants;
+	private final Predicate<PathEntry<V>> filter;
+	private final Function<PathEntry<V>, T> valueMapper;
+	private final IntSupplier sizeSupplier;
+	private Set<Entry<String, T>> entrySet;
+
+	/**
+	 * @param root The root of the view. Not included in the view itself.
+	 * @param includeDescendants True for all entries in the subtree, with nested keys like 'nested1.nested2'. False for the direct children only.
+	 * @param filter Which entries to include
+	 * @param valueMapper Creates the map value for an entry
+	 */
+	SubtreeMapView(PathEntry<V> root, boolean includeDescendants, Predicate<PathEntry<V>> filter, Function<PathEntry<V>, T> valueMapper) {
+		this(root, includeDescendants, filter, valueMapper, null);
+	}
+
+	/**
+	 * @param sizeSupplier Returns the size of the view in constant time, if the size is maintained elsewhere. Otherwise null, and the entries are counted.
+	 */
+	SubtreeMapView(PathEntry<V> root, boolean includeDescendants, Predicate<PathEntry<V>> filter, Function<PathEntry<V>, T> valueMapper, IntSupplier sizeSupplier) {
+		this.root = root;
+		this.includeDescendants = includeDescendants;
+		this.filter = filter;
+		this.valueMapper = valueMapper;
+		this.sizeSupplier = sizeSupplier;
+	}
+
+	private PathEntry<V> getIncludedEntry(Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		PathEntry<V> entry = includeDescendants ? root.getDescendant((String) key) : root.getChild((String) key);
+		return entry != null && filter.test(entry) ? entry : null;
+	}
+
+	@Override
+	public T get(Object key) {
+		PathEntry<V> entry = getIncludedEntry(key);
+		return entry != null ? valueMapper.apply(entry) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return getIncludedEntry(key) != null;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return sizeSupplier != null ? sizeSupplier.getAsInt() == 0 : !entrySet().iterator().hasNext();
+	}
+
+	@Override
+	public Set<Entry<String, T>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Entry<String, T>>() {
+				@Override
+				public Iterator<Entry<String, T>> iterator() {
+					return new SubtreeIterator();
+				}
+
+				@Override
+				public int size() {
+					if (sizeSupplier != null) {
+						return sizeSupplier.getAsInt();
+					}
+
+					int size = 0;
+					for (Iterator<Entry<String, T>> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+						size++;
+					}
+					return size;
+				}
+			};
+		}
+		return entrySet;
+	}
+
+	/**
+	 * Depth-first iteration over the subtree, keeping one children iterator per level.
+	 */
+	private final class SubtreeIterator implements Iterator<Entry<String, T>> {
+		private final Deque<Iterator<PathEntry<V>>> levels = new ArrayDeque<>();
+		private PathEntry<V> next;
+
+		private SubtreeIterator() {
+			levels.push(root.getChildren().values().iterator());
+			advance();
+		}
+
+		private void advance() {
+			next = null;
+			while (next == null && !levels.isEmpty()) {
+				Iterator<PathEntry<V>> level = levels.peek();
+				if (!level.hasNext()) {
+					levels.pop();
+					continue;
+				}
+
+				PathEntry<V> entry = level.next();
+				if (includeDescendants && entry.hasChildren()) {
+					levels.push(entry.getChildren().values().iterator());
+				}
+				if (filter.test(entry)) {
+					next = entry;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Entry<String, T> next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			PathEntry<V> entry = next;
+			advance();
+			return new LazyEntry(entry);
+		}
+	}
+
+	/**
+	 * Map entry with the key and value created upon access.
+	 */
+	private final class LazyEntry implements Entry<String, T> {
+		private final PathEntry<V> entry;
+
+		private LazyEntry(PathEntry<V> entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public String getKey() {
+			return entry.getKeyRelativeTo(root);
+		}
+
+		@Override
+		public T getValue() {
+			return valueMapper.apply(entry);
+		}
+
+		@Override
+		public T setValue(T value) {
+			throw new UnsupportedOperationException("The view is read-only");
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Entry)) {
+				return false;
+			}
+			Entry<?, ?> other = (Entry<?, ?>) obj;
+			return getKey().equals(other.getKey()) && Objects.equals(getValue(), other.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return getKey().hashCode() ^ Objects.hashCode(getValue());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+}
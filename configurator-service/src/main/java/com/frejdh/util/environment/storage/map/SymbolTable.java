@@ -0,0 +1,49 @@
+package com.frejdh.util.environment.storage.map;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Deduplicates the strings that are repeated throughout a configuration, like key segments ('host', 'port', 'enabled')
+ * and common values ('true', 'false', '8080'). Only one instance of each string is then kept in the property tree.
+ * <br><br>
+ * A table is meant to be used for one load of the configuration and then discarded, so that it doesn't keep any strings alive.
+ * It is not thread-safe.
+ */
+public final class SymbolTable {
+	/**
+	 * Longer values are rarely repeated, and are not worth keeping in the table.
+	 */
+	static final int MAX_VALUE_LENGTH = 32;
+
+	private final Map<String, String> symbols = new HashMap<>();
+
+	/**
+	 * @param symbol A key segment or value
+	 * @return The first instance of an equal string that was interned by this table
+	 */
+	public String intern(String symbol) {
+		if (symbol == null) {
+			return null;
+		}
+		String existingSymbol = symbols.putIfAbsent(symbol, symbol);
+		return existingSymbol != null ? existingSymbol : symbol;
+	}
+
+	/**
+	 * Same as {@link #intern(String)}, for short values only.
+	 * @param value A property value
+	 * @return The interned value, or the value itself if it is too long to be interned
+	 */
+	public String internValue(String value) {
+		return value != null && value.length() <= MAX_VALUE_LENGTH ? intern(value) : value;
+	}
+
+	/**
+	 * @return The number of distinct strings in the table
+	 */
+	public int size() {
+		return symbols.size();
+	}
+
+}
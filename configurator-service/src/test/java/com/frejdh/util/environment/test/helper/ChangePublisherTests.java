@@ -0,0 +1,167 @@
+package com.frejdh.util.environment.test.helper;
+
+import com.frejdh.util.environment.ConfigContext;
+import com.frejdh.util.environment.PropertyOverlay;
+import com.frejdh.util.environment.change.ConfigChange;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChangePublisherTests extends AbstractTests {
+
+	@Test
+	public void changesUnderThePrefixArePublished() {
+		try (ConfigContext context = newContext()) {
+			RecordingSubscriber subscriber = new RecordingSubscriber();
+			context.changes("server").subscribe(subscriber);
+			subscriber.subscription.request(Long.MAX_VALUE);
+
+			context.pushOverlay(Collections.singletonMap("client.port", Collections.singletonList("90")));
+			assertTrue(subscriber.changes.isEmpty());
+
+			PropertyOverlay overlay = context.pushOverlay(Collections.singletonMap("server.port", Collections.singletonList("81")));
+			assertEquals(1, subscriber.changes.size());
+			ConfigChange change = subscriber.changes.get(0);
+			assertEquals(ConfigChange.Trigger.OVERLAY, change.getTrigger());
+			assertEquals(Collections.singleton("server.port"), change.getChangedKeys());
+			assertEquals(Collections.singletonList("80"), change.getPreviousValues().get("server.port"));
+			assertEquals(Collections.singletonList("81"), change.getCurrentValues().get("server.port"));
+
+			overlay.close();
+			assertEquals(2, subscriber.changes.size());
+			assertEquals(Collections.singletonList("80"), subscriber.changes.get(1).getCurrentValues().get("server.port"));
+		}
+	}
+
+	@Test
+	public void slowSubscribersGetConflatedChanges() {
+		try (ConfigContext context = newContext()) {
+			RecordingSubscriber subscriber = new RecordingSubscriber();
+			context.changes(null).subscribe(subscriber);
+
+			context.pushOverlay(Collections.singletonMap("server.port", Collections.singletonList("81")));
+			context.pushOverlay(Collections.singletonMap("server.port", Collections.singletonList("82")));
+			context.pushOverlay(Collections.singletonMap("server.host", Collections.singletonList("example.com")));
+			assertTrue(subscriber.changes.isEmpty());
+
+			subscriber.subscription.request(1);
+			assertEquals(1, subscriber.changes.size());
+			ConfigChange change = subscriber.changes.get(0);
+			assertEquals(3, change.getBatchCount());
+			assertEquals(Collections.singletonList("80"), change.getPreviousValues().get("server.port"));
+			assertEquals(Collections.singletonList("82"), change.getCurrentValues().get("server.port"));
+			assertNull(change.getPreviousValues().get("server.host"));
+			assertEquals(Collections.singletonList("example.com"), change.getCurrentValues().get("server.host"));
+
+			subscriber.subscription.request(1);
+			assertEquals(1, subscriber.changes.size());
+		}
+	}
+
+	@Test
+	public void changesBeforeTheExecutorRunsAreComparedOnce() {
+		List<Runnable> tasks = new ArrayList<>();
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("changes.properties", "server.port=80");
+		try (ConfigContext context = ConfigContext.builder().withFiles("changes.properties").withFileSource(files::read)
+				.withRuntimeWatcher(false).withChangeExecutor(tasks::add).build()) {
+			RecordingSubscriber subscriber = new RecordingSubscriber();
+			context.changes("server").subscribe(subscriber);
+			tasks.forEach(Runnable::run);	// Starts the subscription
+			tasks.clear();
+			subscriber.subscription.request(Long.MAX_VALUE);
+			tasks.forEach(Runnable::run);
+			tasks.clear();
+
+			context.pushOverlay(Collections.singletonMap("server.port", Collections.singletonList("81")));
+			context.pushOverlay(Collections.singletonMap("server.host", Collections.singletonList("example.com")));
+			assertEquals(1, tasks.size());	// One drain for both changes
+			while (!tasks.isEmpty()) {
+				tasks.remove(0).run();
+			}
+
+			assertEquals(1, subscriber.changes.size());
+			ConfigChange change = subscriber.changes.get(0);
+			assertEquals(Collections.singletonList("80"), change.getPreviousValues().get("server.port"));
+			assertEquals(Collections.singletonList("81"), change.getCurrentValues().get("server.port"));
+			assertEquals(Collections.singletonList("example.com"), change.getCurrentValues().get("server.host"));
+		}
+	}
+
+	@Test
+	public void cancelledSubscribersAreRemovedAndOthersCompletedOnClose() {
+		RecordingSubscriber cancelled = new RecordingSubscriber();
+		RecordingSubscriber completed = new RecordingSubscriber();
+		try (ConfigContext context = newContext()) {
+			context.changes("server").subscribe(cancelled);
+			context.changes("server").subscribe(completed);
+			assertEquals(2, context.changes("server").getSubscriberCount());
+
+			cancelled.subscription.request(1);
+			cancelled.subscription.cancel();
+			assertEquals(1, context.changes("server").getSubscriberCount());
+			context.pushOverlay(Collections.singletonMap("server.port", Collections.singletonList("81")));
+			assertTrue(cancelled.changes.isEmpty());
+			assertFalse(completed.isComplete);
+		}
+		assertFalse(cancelled.isComplete);
+		assertTrue(completed.isComplete);
+	}
+
+	@Test
+	public void invalidRequestsAreErrors() {
+		try (ConfigContext context = newContext()) {
+			RecordingSubscriber subscriber = new RecordingSubscriber();
+			context.changes("server").subscribe(subscriber);
+			subscriber.subscription.request(0);
+			assertTrue(subscriber.error instanceof IllegalArgumentException);
+			assertEquals(0, context.changes("server").getSubscriberCount());
+		}
+	}
+
+	private static ConfigContext newContext() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("changes.properties", "server.port=80\nclient.port=80");
+		return ConfigContext.builder()
+				.withFiles("changes.properties")
+				.withFileSource(files::read)
+				.withRuntimeWatcher(false)
+				.withChangeExecutor(Runnable::run)	// Deliver on the changing thread
+				.build();
+	}
+
+	private static class RecordingSubscriber implements Subscriber<ConfigChange> {
+		private final List<ConfigChange> changes = new ArrayList<>();
+		private Subscription subscription;
+		private Throwable error;
+		private boolean isComplete;
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(ConfigChange change) {
+			changes.add(change);
+		}
+
+		@Override
+		public void onError(Throwable error) {
+			this.error = error;
+		}
+
+		@Override
+		public void onComplete() {
+			isComplete = true;
+		}
+	}
+
+}
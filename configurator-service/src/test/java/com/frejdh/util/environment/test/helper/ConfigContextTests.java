@@ -0,0 +1,385 @@
+package com.frejdh.util.environment.test.helper;
+
+import com.frejdh.util.environment.Config;
+import com.frejdh.util.environment.ConfigBatch;
+import com.frejdh.util.environment.ConfigContext;
+import com.frejdh.util.environment.ConfigSnapshot;
+import com.frejdh.util.environment.PropertyHandle;
+import com.frejdh.util.environment.PropertyOverlay;
+import com.frejdh.util.environment.StartupReport;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConfigContextTests extends AbstractTests {
+
+	@Test
+	public void contextsAreIndependent() {
+		try (ConfigContext first = ConfigContext.builder().withFiles("tests.properties").withProperty("tenant.name", "first").build();
+			 ConfigContext second = ConfigContext.builder().withProperty("tenant.name", "second").build()) {
+			assertEquals("first", first.getString("tenant.name"));
+			assertEquals("second", second.getString("tenant.name"));
+			assertNull(Config.getString("tenant.name"));
+
+			assertEquals("Hello World!", first.getString("placeholder.file.greeting"));
+			assertNull(second.getString("placeholder.file.greeting"));
+			assertEquals(Collections.singletonList("tests.properties"), first.getLoadedFiles());
+		}
+	}
+
+	@Test
+	public void propertiesOverrideFilesAndPlaceholdersAreResolved() {
+		try (ConfigContext context = ConfigContext.builder()
+				.withFiles("tests.properties", "missing.properties")
+				.withProperty("placeholder.file.name", "Tenant")
+				.build()) {
+			assertEquals("Hello Tenant!", context.getString("placeholder.file.greeting"));
+			assertEquals(Collections.singletonList("tests.properties"), context.getLoadedFiles());
+		}
+	}
+
+	@Test
+	public void overlaysAreRestoredInAnyOrder() {
+		try (ConfigContext context = ConfigContext.builder().withFiles("tests.properties").withProperty("tenant.name", "base").build()) {
+			PropertyOverlay first = context.pushOverlay(Collections.singletonMap("tenant.name", Arrays.asList("first", "other")));
+			PropertyOverlay second = context.pushOverlay(Collections.singletonMap("placeholder.file.name", Collections.singletonList("Overlay")));
+			assertEquals(Arrays.asList("first", "other"), context.getStringList("tenant.name"));
+			assertEquals("Hello Overlay!", context.getString("placeholder.file.greeting"));
+
+			first.close();
+			assertEquals("base", context.getString("tenant.name"));
+			assertEquals("Hello Overlay!", context.getString("placeholder.file.greeting"));
+
+			second.close();
+			second.close();
+			assertEquals("Hello World!", context.getString("placeholder.file.greeting"));
+		}
+	}
+
+	@Test
+	public void overlaidSourcesAreLoadedUntilClosed() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles()
+				.write("tenant.properties", "tenant.name=base")
+				.write("extra.properties", "tenant.name=extra\ntenant.code=1");
+		try (ConfigContext context = ConfigContext.builder().withFiles("tenant.properties").withFileSource(files::read).withRuntimeWatcher(false).build()) {
+			PropertyOverlay overlay = context.pushOverlay(Collections.singletonMap("config.sources", Collections.singletonList("extra.properties")));
+			assertEquals("extra", context.getString("tenant.name"));
+			assertEquals("1", context.getString("tenant.code"));
+			PropertyOverlay nameOverlay = context.pushOverlay(Collections.singletonMap("tenant.name", Collections.singletonList("overlay")));
+			assertEquals("overlay", context.getString("tenant.name"));
+
+			overlay.close();
+			assertEquals("overlay", context.getString("tenant.name"));
+			assertNull(context.getString("tenant.code"));
+			assertNull(context.getString("config.sources"));
+			assertEquals(Collections.singletonList("tenant.properties"), context.getLoadedFiles());
+
+			nameOverlay.close();
+			assertEquals("base", context.getString("tenant.name"));
+		}
+	}
+
+	@Test
+	public void inMemoryFilesAreReloadedWhenChanged() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles()
+				.write("tenant.properties", "tenant.name=first\ntenant.code=1")
+				.write("other.yml", "tenant:\n  region: north\n  greeting: Hello ${tenant.name}!");
+		try (ConfigContext context = ConfigContext.builder().withFiles("tenant.properties", "other.yml", "missing.json").withFileSource(files::read).build()) {
+			files.onChange(context::fileChanged);
+			assertEquals("Hello first!", context.getString("tenant.greeting"));
+			assertEquals("north", context.getString("tenant.region"));
+			assertEquals(Arrays.asList("tenant.properties", "other.yml"), context.getLoadedFiles());
+
+			files.write("tenant.properties", "tenant.name=second");
+			assertEquals(Collections.singletonList("second"), context.getStringList("tenant.name"));
+			assertEquals("Hello second!", context.getString("tenant.greeting"));
+			assertNull(context.getString("tenant.code"));	// Removed from the file
+		}
+	}
+
+	@Test
+	public void lookupsDuringReloadsSeeWholeStates() throws Exception {
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("pool.yml", poolFile(0));
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try (ConfigContext context = ConfigContext.builder().withFiles("pool.yml").withFileSource(files::read).withRuntimeWatcher(false).build()) {
+			files.onChange(context::fileChanged);
+			AtomicBoolean isReloading = new AtomicBoolean(true);
+			Future<Integer> reader = executor.submit(() -> {
+				int lookups = 0;
+				do {
+					assertNotNull(context.getInteger("pool.size"));
+					assertEquals(Arrays.asList("a", "b"), context.getStringList("pool.hosts"));
+					ConfigSnapshot snapshot = context.snapshot();
+					assertEquals("pool-" + snapshot.getInteger("pool.size"), snapshot.getString("pool.name"));
+					lookups++;
+				} while (isReloading.get());
+				return lookups;
+			});
+
+			for (int size = 1; size <= 200; size++) {
+				files.write("pool.yml", poolFile(size));
+			}
+			isReloading.set(false);
+			assertTrue(reader.get() > 0);
+			assertEquals(200, context.getInteger("pool.size"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void handlesAreBoundFromTheLatestState() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("pool.yml", poolFile(1));
+		try (ConfigContext context = ConfigContext.builder().withFiles("pool.yml").withFileSource(files::read).withRuntimeWatcher(false).build()) {
+			files.onChange(context::fileChanged);
+			PropertyHandle<Map<?, ?>> pool = new PropertyHandle<>(context, "pool", Map.class);
+			Map<?, ?> bound = pool.get();
+			assertEquals("pool-1", bound.get("name"));
+			assertSame(bound, pool.get());	// Not bound again without a change
+
+			files.write("pool.yml", poolFile(2));
+			assertEquals("pool-2", pool.get().get("name"));
+			assertEquals("pool-1", bound.get("name"));
+		}
+	}
+
+	@Test
+	public void setReplacesAllValuesOfAKey() throws Exception {
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("pool.yml", poolFile(1));
+		try (ConfigContext context = ConfigContext.builder().withFiles("pool.yml").withFileSource(files::read).withRuntimeWatcher(false).build()) {
+			files.onChange(context::fileChanged);
+			assertEquals(Arrays.asList("a", "b"), context.getStringList("pool.hosts"));
+			set(context, "pool.hosts", "c");
+			assertEquals(Collections.singletonList("c"), context.getStringList("pool.hosts"));
+
+			set(context, "pool.hosts", "${pool.name}-host");
+			assertEquals(Collections.singletonList("pool-1-host"), context.getStringList("pool.hosts"));
+			set(context, "pool.name", "renamed");
+			assertEquals(Collections.singletonList("renamed-host"), context.getStringList("pool.hosts"));
+
+			set(context, "pool.hosts", "d");
+			set(context, "pool.name", "again");
+			assertEquals(Collections.singletonList("d"), context.getStringList("pool.hosts"));
+
+			set(context, "pool.hosts", "${pool.name}-host");
+			files.write("pool.yml", poolFile(2));	// Only the latest set values are applied again
+			assertEquals(Collections.singletonList("again-host"), context.getStringList("pool.hosts"));
+			assertEquals(Collections.singletonList("again"), context.getStringList("pool.name"));
+			assertEquals(2, context.getInteger("pool.size"));
+		}
+	}
+
+	private static void set(ConfigContext context, String key, Object value) throws Exception {
+		Method method = ConfigContext.class.getDeclaredMethod("set", String.class, Object.class);
+		method.setAccessible(true);
+		method.invoke(context, key, value);
+	}
+
+	private static String poolFile(int size) {
+		return "pool:\n  size: " + size + "\n  name: pool-" + size + "\n  hosts:\n    - a\n    - b";
+	}
+
+	@Test
+	public void changesInARowAreSealedByTheNextLookup() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("pool.properties", "pool.size=1");
+		try (ConfigContext context = ConfigContext.builder().withFiles("pool.properties").withFileSource(files::read).withRuntimeWatcher(false).build()) {
+			ConfigSnapshot before = context.snapshot();
+			List<PropertyOverlay> overlays = new ArrayList<>();
+			for (int size = 2; size <= 10; size++) {
+				overlays.add(context.pushOverlay(Collections.singletonMap("pool.size", Collections.singletonList(String.valueOf(size)))));
+			}
+			assertEquals(before.getGeneration() + 9, context.generation());
+			assertEquals(10, context.snapshot().getInteger("pool.size"));
+			assertEquals(10, context.getInteger("pool.size"));
+			assertEquals(1, before.getInteger("pool.size"));	// Sealed when it was taken
+
+			overlays.forEach(PropertyOverlay::close);
+			assertEquals(Collections.singletonList(1), context.getList("pool.size", Integer.class));
+		}
+	}
+
+	@Test
+	public void stringListsAreModifiableCopies() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("hosts.yml", "hosts:\n  - a\n  - b");
+		try (ConfigContext context = ConfigContext.builder().withFiles("hosts.yml").withFileSource(files::read).withRuntimeWatcher(false).build()) {
+			List<String> hosts = context.getStringList("hosts");
+			hosts.add("c");
+			assertEquals(Arrays.asList("a", "b"), context.getStringList("hosts"));
+		}
+	}
+
+	@Test
+	public void heldMapsAreNotChangedByReloads() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("tenant.properties", "tenant.name=first\ntenant.code=1");
+		try (ConfigContext context = ConfigContext.builder().withFiles("tenant.properties").withFileSource(files::read).withRuntimeWatcher(false).build()) {
+			files.onChange(context::fileChanged);
+			Map<String, List<Object>> map = context.getMultiMap("tenant");
+			assertSame(map, context.getMultiMap("tenant"));
+
+			files.write("tenant.properties", "tenant.name=second");
+			assertEquals(Collections.singletonList("first"), map.get("name"));	// Read before the reload
+			assertEquals(Collections.singletonList("1"), map.get("code"));
+			assertEquals(Collections.singletonList("second"), context.getMultiMap("tenant").get("name"));
+			assertNull(context.getMultiMap("tenant").get("code"));
+			assertThrows(UnsupportedOperationException.class, () -> map.put("code", Collections.emptyList()));
+		}
+	}
+
+	@Test
+	public void heldScansAreNotChangedByReloads() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("tenant.properties", "tenant.name=first\ntenant.code=1");
+		try (ConfigContext context = ConfigContext.builder().withFiles("tenant.properties").withFileSource(files::read).withRuntimeWatcher(false).build()) {
+			files.onChange(context::fileChanged);
+			Spliterator<Map.Entry<String, List<String>>> scan = context.scan("tenant");
+			Spliterator<Map.Entry<String, List<String>>> rangeScan = context.scan("tenant.code", "tenant.z");
+
+			files.write("tenant.properties", "tenant.name=second\ntenant.region=north");
+			assertEquals(Arrays.asList("tenant.code", "tenant.name"), scannedKeys(scan));	// Scanned after the reload
+			assertEquals(Arrays.asList("tenant.code", "tenant.name"), scannedKeys(rangeScan));
+			assertEquals(Arrays.asList("tenant.name", "tenant.region"), scannedKeys(context.scan("tenant")));
+		}
+	}
+
+	@Test
+	public void heldQueriesAreNotChangedByReloads() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("services.properties", "services.a.port=80\nservices.b.port=81");
+		try (ConfigContext context = ConfigContext.builder().withFiles("services.properties").withFileSource(files::read).withRuntimeWatcher(false).build()) {
+			files.onChange(context::fileChanged);
+			Iterator<Map.Entry<String, List<String>>> ports = context.query("services.*.port");
+			assertEquals("services.a.port", ports.next().getKey());
+
+			files.write("services.properties", "services.c.port=82");
+			assertEquals("services.b.port", ports.next().getKey());	// Queried after the reload
+			assertFalse(ports.hasNext());
+			assertEquals("services.c.port", context.query("services.*.port").next().getKey());
+		}
+	}
+
+	private static List<String> scannedKeys(Spliterator<Map.Entry<String, List<String>>> spliterator) {
+		return StreamSupport.stream(spliterator, false).map(Map.Entry::getKey).collect(Collectors.toList());
+	}
+
+	@Test
+	public void batchesAreResolvedTogether() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("batch.yml",
+				"server:\n  http:\n    port: 80\n    host: localhost\n  max-connections: 100\n  ports:\n    - 80\n    - 443\n  secure: true");
+		try (ConfigContext context = ConfigContext.builder().withFiles("batch.yml").withFileSource(files::read).build()) {
+			ConfigBatch batch = context.batch()
+					.getInteger("server.http.port")
+					.getString("server.http.host")
+					.getInteger("server.maxConnections")
+					.getString("server.http.missing", "fallback")
+					.getInteger("server.ports[1]")
+					.getList("server.ports", Integer.class)
+					.getBoolean("server.secure", false)
+					.getLong("missing.timeout");
+			ConfigBatch.Result result = batch.resolve();
+			assertEquals(80, result.getInteger("server.http.port"));
+			assertEquals("localhost", result.getString("server.http.host"));
+			assertEquals(100, result.getInteger("server.maxConnections"));
+			assertEquals("fallback", result.getString("server.http.missing"));
+			assertEquals(443, result.getInteger("server.ports[1]"));
+			assertEquals(Arrays.asList(80, 443), result.getList("server.ports"));
+			assertTrue(result.getBoolean("server.secure"));
+			assertNull(result.getLong("missing.timeout"));
+			assertThrows(IllegalArgumentException.class, () -> result.get("server.max-connections"));
+			assertThrows(IllegalArgumentException.class, () -> batch.getString("server.http.port"));
+			assertSame(result, batch.resolve());
+
+			context.pushOverlay(Collections.singletonMap("server.http.port", Collections.singletonList("81")));
+			assertEquals(80, result.getInteger("server.http.port"));
+			assertEquals(81, batch.resolve().getInteger("server.http.port"));
+		}
+	}
+
+	@Test
+	public void readsArePinnedToOneGeneration() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("db.properties", "db.url=jdbc:first\ndb.password=first");
+		try (ConfigContext context = ConfigContext.builder().withFiles("db.properties").withFileSource(files::read).build()) {
+			long generation = context.generation();
+			assertTrue(generation > 0);
+			assertEquals(generation, context.generation());
+
+			String url = context.read(snapshot -> {
+				context.pushOverlay(Collections.singletonMap("db.url", Collections.singletonList("jdbc:second")));
+				assertEquals(generation, snapshot.getGeneration());
+				assertEquals("first", snapshot.getString("db.password"));
+				return snapshot.getString("db.url");
+			});
+			assertEquals("jdbc:first", url);
+			assertEquals(generation + 1, context.generation());
+			assertEquals("jdbc:second", context.snapshot().getString("db.url"));
+			assertEquals(Collections.singletonList("first"), context.snapshot().getStringList("db.password"));
+			assertEquals(5, context.snapshot().getInteger("db.pool-size", 5));
+
+			context.refresh(true);
+			assertEquals(generation + 2, context.generation());
+		}
+	}
+
+	@Test
+	public void startupReportHasEachPhaseAndFile() {
+		try (ConfigContext context = ConfigContext.builder().withFiles("tests.properties", "missing.properties").withSystemProperties().build()) {
+			StartupReport report = context.getStartupReport();
+			assertTrue(report.isComplete());
+			assertEquals(2, report.getFiles().size());
+			StartupReport.FileEntry loadedFile = report.getFiles().get(0);
+			assertEquals("tests.properties", loadedFile.getFilename());
+			assertTrue(loadedFile.isFound() && loadedFile.getKeys() > 0 && loadedFile.getSizeInBytes() > 0);
+			assertFalse(report.getFiles().get(1).isFound());
+			assertTrue(report.getNanos(StartupReport.Phase.PARSE) > 0);
+			assertTrue(report.getNanos(StartupReport.Phase.SYSTEM_PROPERTIES) > 0);
+			assertTrue(report.getTotalNanos() >= report.getNanos(StartupReport.Phase.PARSE) + report.getNanos(StartupReport.Phase.MERGE));
+			assertTrue(report.toString().contains("missing.properties: missing"));
+
+			context.refresh(true);	// Only the first load is reported
+			assertEquals(2, report.getFiles().size());
+		}
+		assertTrue(Config.getStartupReport().isComplete());
+		assertTrue(Config.getStartupReport().getFiles().stream().noneMatch(file -> file.getFilename().startsWith("application-.")));
+	}
+
+	@Test
+	public void contextsLoadConcurrently() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				String tenant = "tenant-" + i;
+				results.add(executor.submit(() -> {
+					try (ConfigContext context = ConfigContext.builder().withFiles("tests.properties").withProperty("tenant.name", tenant).build()) {
+						return context.getString("tenant.name");
+					}
+				}));
+			}
+
+			for (int i = 0; i < results.size(); i++) {
+				assertEquals("tenant-" + i, results.get(i).get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.frejdh.util.environment.test.helper;
+
+import com.frejdh.util.environment.ConfigContext;
+import com.frejdh.util.environment.jfr.ConfigEvents;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConfigEventsTests extends AbstractTests {
+
+	@Test
+	public void parsesReloadsBindsAndLookupsAreRecorded() throws Exception {
+		assertTrue(ConfigEvents.isAvailable());
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("events.properties", "server.port=80\nserver.host=localhost");
+		Path recordingFile = Files.createTempFile("config-events", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("com.frejdh.config.Parse");
+			recording.enable("com.frejdh.config.Reload");
+			recording.enable("com.frejdh.config.Bind");
+			recording.enable("com.frejdh.config.SlowLookup").withThreshold(Duration.ZERO);	// Record all lookups
+			recording.start();
+
+			try (ConfigContext context = ConfigContext.builder().withName("events-test").withFiles("events.properties").withFileSource(files::read).build()) {
+				files.onChange(context::fileChanged);
+				context.getInteger("server.port");
+				context.snapshot().getStringList("server.host");
+				context.getObject("server", Object.class);
+				files.write("events.properties", "server.port=81\nserver.host=localhost\nserver.timeout=10");
+			}
+			recording.stop();
+			recording.dump(recordingFile);
+
+			List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+			List<RecordedEvent> parses = getEvents(events, "com.frejdh.config.Parse");
+			assertEquals(2, parses.size());
+			assertEquals("events.properties", parses.get(0).getString("filename"));
+			assertEquals("properties", parses.get(0).getString("format"));
+			assertEquals(2, parses.get(0).getInt("keys"));
+			assertEquals(3, parses.get(1).getInt("keys"));
+
+			List<RecordedEvent> reloads = getEvents(events, "com.frejdh.config.Reload");
+			assertEquals(2, reloads.size());
+			assertEquals("refresh", reloads.get(0).getString("trigger"));
+			assertEquals("fileChanged", reloads.get(1).getString("trigger"));
+			assertEquals("events-test", reloads.get(1).getString("context"));
+			assertEquals(1, reloads.get(1).getLong("keyDelta"));
+
+			assertTrue(getEvents(events, "com.frejdh.config.Bind").stream().anyMatch(event -> event.getString("key").equals("server")));
+			assertTrue(getEvents(events, "com.frejdh.config.SlowLookup").stream()
+					.anyMatch(event -> event.getString("key").equals("server.port") && event.getBoolean("found")));
+			assertTrue(getEvents(events, "com.frejdh.config.SlowLookup").stream()	// Snapshots record the same events as the context
+					.anyMatch(event -> event.getString("key").equals("server.host") && event.getBoolean("found")));
+		} finally {
+			Files.deleteIfExists(recordingFile);
+		}
+	}
+
+	private static List<RecordedEvent> getEvents(List<RecordedEvent> events, String name) {
+		return events.stream().filter(event -> event.getEventType().getName().equals(name)).collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.frejdh.util.environment.test.helper;
+
+import com.frejdh.util.environment.exception.ConfigurationValueNotFoundException;
+import com.frejdh.util.environment.test.helper.util.ExampleConfigInterface;
+import com.frejdh.util.environment.test.helper.util.ExampleConfigInterfaceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConfigInterfaceTests extends AbstractTests {
+
+	private static final String PREFIX = ExampleConfigInterface.PREFIX + ".";
+
+	private final ExampleConfigInterface config = new ExampleConfigInterfaceImpl();
+
+	@Test
+	@TestProperty(key = PREFIX + "max-pool-size", value = "10")
+	@TestProperty(key = PREFIX + "timeout", value = "PT30S")
+	@TestProperty(key = PREFIX + "hosts", value = "host1")
+	@TestProperty(key = PREFIX + "hosts", value = "host2")
+	@TestProperty(key = PREFIX + "limits.connections", value = "5")
+	@TestProperty(key = PREFIX + "name", value = "configured name")
+	public void generatedImplementationReturnsProperties() {
+		assertEquals(10, config.maxPoolSize());
+		assertEquals(Duration.ofSeconds(30), config.timeout());
+		assertEquals(Arrays.asList("host1", "host2"), config.hosts());
+		assertEquals(5, config.limits().get("connections"));
+		assertEquals("configured name", config.name());
+	}
+
+	@Test
+	public void missingPropertiesUseDefaultsOrNull() {
+		assertEquals("default name", config.name());
+		assertNull(config.description());
+		assertThrows(ConfigurationValueNotFoundException.class, config::maxPoolSize);
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.frejdh.util.environment.test.helper;
+
+import com.frejdh.util.environment.ConfigContext;
+import com.frejdh.util.environment.metrics.DefaultConfigMetrics;
+import com.frejdh.util.environment.metrics.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConfigMetricsTests extends AbstractTests {
+
+	@Test
+	public void lookupsConversionsParsesAndReloadsAreCounted() {
+		String content = "server.port=80\nserver.name=Ångström\nclient.timeout=abc";
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("metrics.properties", content);
+		DefaultConfigMetrics metrics = new DefaultConfigMetrics();
+		try (ConfigContext context = ConfigContext.builder().withFiles("metrics.properties").withFileSource(files::read).withMetrics(metrics).build()) {
+			files.onChange(context::fileChanged);
+			assertSame(metrics, context.getMetrics());
+			assertEquals(Long.valueOf(1), metrics.getParseCountByFile().get("metrics.properties"));
+			assertEquals(Long.valueOf(content.length() + 2), metrics.getParsedBytesByFile().get("metrics.properties"));	// 'Å' and 'ö' are two bytes
+			assertEquals(1, metrics.getReloadCount());
+
+			assertEquals(80, context.getInteger("server.port"));
+			assertEquals("Ångström", context.getString("server.name"));
+			assertNull(context.getString("server.missing"));
+			assertNull(context.getInteger("client.timeout"));
+			assertEquals(Long.valueOf(2), metrics.getHitsByPrefix().get("server"));
+			assertEquals(Long.valueOf(1), metrics.getMissesByPrefix().get("server"));
+			assertEquals(4, metrics.getLookupCount());	// Not the internal reads of the 'config.' settings
+			assertEquals(1, metrics.getMissCount());
+			assertEquals(0.25, metrics.getMissRatio(), 0.0001);
+			assertEquals(Collections.singletonMap("java.lang.Integer", 1L), metrics.getConversionFailuresByType());
+
+			files.write("metrics.properties", "server.port=81");
+			assertEquals(2, metrics.getReloadCount());
+			assertEquals(Long.valueOf(2), metrics.getParseCountByFile().get("metrics.properties"));
+			assertTrue(metrics.getReloadMillisMax() > 0);
+		}
+	}
+
+	@Test
+	public void metricsAreRegisteredAsMXBeanWhenEnabled() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName(DefaultConfigMetrics.OBJECT_NAME_PREFIX + ObjectName.quote("metrics-test"));
+		try (ConfigContext context = ConfigContext.builder().withName("metrics-test").withProperty("config.metrics.enabled", "true").build()) {
+			assertTrue(server.isRegistered(objectName));
+			context.getString("config.metrics.enabled");
+			context.refresh(true);
+			assertEquals(1L, server.getAttribute(objectName, "ReloadCount"));
+			assertEquals(1L, server.getAttribute(objectName, "LookupCount"));
+		}
+		assertFalse(server.isRegistered(objectName));
+	}
+
+	@Test
+	public void histogramPercentilesAreWithinTheBucketPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int value = 1; value <= 1000; value++) {
+			histogram.record(value);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1000, histogram.getMax());
+		assertEquals(500.5, histogram.getMean(), 0.001);
+		assertEquals(1, histogram.getValueAtPercentile(0));
+		assertEquals(1000, histogram.getValueAtPercentile(100));
+		long median = histogram.getValueAtPercentile(50);
+		assertTrue(median >= 500 && median <= 500 * 1.125, "Median was " + median);
+		long p99 = histogram.getValueAtPercentile(99);
+		assertTrue(p99 >= 990 && p99 <= 1000, "P99 was " + p99);
+		assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+	}
+
+}
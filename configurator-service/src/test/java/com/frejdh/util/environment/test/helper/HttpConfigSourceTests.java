@@ -0,0 +1,214 @@
+package com.frejdh.util.environment.test.helper;
+
+import com.frejdh.util.environment.ConfigContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HttpConfigSourceTests extends AbstractTests {
+	private final Map<String, ServedFile> filesByPath = new ConcurrentHashMap<>();
+	private final List<String> responses = new ArrayList<>();	// Path and status of each request
+	private HttpServer server;
+
+	@BeforeEach
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	@AfterEach
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	public void unchangedSourcesAreNotModified() {
+		filesByPath.put("/app.yml", new ServedFile("server:\n  port: 80", "\"v1\"", null));
+		try (ConfigContext context = newContext(url("/app.yml"))) {
+			assertEquals(80, context.getInteger("server.port"));
+			long generation = context.generation();
+
+			assertFalse(context.pollHttpSources());
+			assertEquals(generation, context.generation());
+			assertEquals("/app.yml 304", lastResponse());
+
+			filesByPath.put("/app.yml", new ServedFile("server:\n  port: 81", "\"v2\"", null));
+			assertTrue(context.pollHttpSources());
+			assertEquals(81, context.getInteger("server.port"));
+			assertTrue(context.generation() > generation);
+			assertEquals("/app.yml 200", lastResponse());	// The polled content is loaded without asking again
+		}
+	}
+
+	@Test
+	public void changedSourcesReplaceTheirProperties() {
+		filesByPath.put("/app.yml", new ServedFile("server:\n  hosts:\n    - a\n    - b\n  port: 80", "\"v1\"", null));
+		try (ConfigContext context = newContext(url("/app.yml"))) {
+			assertEquals(Arrays.asList("a", "b"), context.getStringList("server.hosts"));
+
+			filesByPath.put("/app.yml", new ServedFile("server:\n  hosts:\n    - a\n    - c", "\"v2\"", null));
+			assertTrue(context.pollHttpSources());
+			assertEquals(Arrays.asList("a", "c"), context.getStringList("server.hosts"));
+			assertNull(context.getInteger("server.port"));	// Deleted on the server
+
+			assertFalse(context.pollHttpSources());	// Unchanged, so the list isn't appended to again
+			assertEquals(Arrays.asList("a", "c"), context.getStringList("server.hosts"));
+		}
+	}
+
+	@Test
+	public void removedSourcesRemoveTheirProperties() {
+		filesByPath.put("/app.yml", new ServedFile("server:\n  port: 80", "\"v1\"", null));
+		try (ConfigContext context = newContext(url("/app.yml"))) {
+			filesByPath.remove("/app.yml");
+			assertTrue(context.pollHttpSources());
+			assertNull(context.getInteger("server.port"));
+			assertEquals("/app.yml 404", lastResponse());	// Reloaded without asking again
+			long generation = context.generation();
+			assertFalse(context.pollHttpSources());
+			assertEquals(generation, context.generation());
+
+			filesByPath.put("/app.yml", new ServedFile("server:\n  port: 81", "\"v2\"", null));	// The source is still polled
+			assertTrue(context.pollHttpSources());
+			assertEquals(81, context.getInteger("server.port"));
+		}
+	}
+
+	@Test
+	public void failedReloadsKeepTheLoadedState() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("app.properties", "server.port=80");
+		try (ConfigContext context = ConfigContext.builder()
+				.withFiles("app.properties")
+				.withFileSource(filename -> {
+					if (filename.equals("broken.properties")) {
+						throw new IOException("Broken");
+					}
+					return files.read(filename);
+				})
+				.withRuntimeWatcher(false)
+				.build()) {
+			long generation = context.generation();
+			assertFalse(context.fileChanged("broken.properties"));
+			assertFalse(context.fileChanged("unknown.properties"));
+			assertEquals(generation, context.generation());
+			assertEquals(Collections.singletonList(80), context.getList("server.port", Integer.class));
+		}
+	}
+
+	@Test
+	public void lastModifiedIsUsedWithoutEntityTags() {
+		filesByPath.put("/app.properties", new ServedFile("server.port=80", null, "Mon, 19 Oct 2026 10:00:00 GMT"));
+		try (ConfigContext context = newContext(url("/app.properties") + "?profile=dev")) {
+			assertEquals(80, context.getInteger("server.port"));
+			assertFalse(context.pollHttpSources());
+			assertEquals("/app.properties 304", lastResponse());
+		}
+	}
+
+	@Test
+	public void sourcesAreAddedByConfigSources() {
+		filesByPath.put("/app.json", new ServedFile("{ \"server\": { \"port\": 80 } }", null, null));
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("application.properties", "config.sources=" + url("/app.json"));
+		try (ConfigContext context = ConfigContext.builder()
+				.withFiles("application.properties")
+				.withFileSource(files::read)	// URLs are read over HTTP either way
+				.withRuntimeWatcher(false)
+				.build()) {
+			assertEquals(80, context.getInteger("server.port"));
+			assertFalse(context.pollHttpSources());	// Same content, without any validators
+		}
+	}
+
+	@Test
+	public void missingSourcesAreSkipped() {
+		try (ConfigContext context = newContext(url("/missing.yml"))) {
+			assertNull(context.getInteger("server.port"));
+			assertTrue(context.getLoadedFiles().isEmpty());
+			assertFalse(context.pollHttpSources());
+		}
+	}
+
+	private ConfigContext newContext(String url) {
+		return ConfigContext.builder()
+				.withFiles(url)
+				.withRuntimeWatcher(false)
+				.build();
+	}
+
+	private String url(String path) {
+		return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path;
+	}
+
+	private synchronized String lastResponse() {
+		return responses.get(responses.size() - 1);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		ServedFile file = filesByPath.get(path);
+		int status;
+		if (file == null) {
+			status = 404;
+		}
+		else if (file.entityTag != null && file.entityTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))
+				|| file.lastModified != null && file.lastModified.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+			status = 304;
+		}
+		else {
+			status = 200;
+		}
+		synchronized (this) {
+			responses.add(path + " " + status);
+		}
+
+		if (status != 200) {
+			exchange.sendResponseHeaders(status, -1);
+			exchange.close();
+			return;
+		}
+		if (file.entityTag != null) {
+			exchange.getResponseHeaders().set("ETag", file.entityTag);
+		}
+		if (file.lastModified != null) {
+			exchange.getResponseHeaders().set("Last-Modified", file.lastModified);
+		}
+		byte[] body = file.content.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	private static class ServedFile {
+		private final String content;
+		private final String entityTag;
+		private final String lastModified;
+
+		private ServedFile(String content, String entityTag, String lastModified) {
+			this.content = content;
+			this.entityTag = entityTag;
+			this.lastModified = lastModified;
+		}
+	}
+
+}
@@ -0,0 +1,283 @@
+package com.frejdh.util.environment.test.helper;
+
+import com.frejdh.util.environment.storage.map.LinkedPathMultiMap;
+import com.frejdh.util.environment.storage.map.PathMapSnapshot;
+import com.frejdh.util.environment.storage.map.PathQuery;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LinkedPathMultiMapTests extends AbstractTests {
+
+	@Test
+	public void sizeIsMaintainedOnChanges() {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>();
+		map.put("server.host", "localhost");
+		map.put("server.port", "80");
+		map.put("server.port", "443");
+		map.put("server.ssl.enabled", "true");
+		assertEquals(3, map.size());
+
+		assertEquals(Arrays.asList("80", "443"), map.remove("server.port"));
+		assertEquals(2, map.size());
+		assertNull(map.remove("server.port"));
+		assertEquals(2, map.size());
+
+		map.putAndReplace("server.host", Collections.singletonList("example.com"));
+		assertEquals(2, map.size());
+		assertEquals(Collections.singletonList("example.com"), map.get("server.host"));
+
+		map.clear();
+		assertEquals(0, map.size());
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void removePrunesEmptyEntries() {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>();
+		map.put("server.ssl.enabled", "true");
+		map.remove("server.ssl.enabled");
+
+		assertTrue(map.isEmpty());
+		assertFalse(map.containsKey("server.ssl"));
+		assertFalse(map.containsKey("server"));
+	}
+
+	@Test
+	public void valuesAreKeptWhenChangingBetweenSingleAndMultipleValues() {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>();
+		map.put("server.port", "80");
+		assertEquals(Collections.singletonList("80"), map.get("server.port"));
+
+		map.put("server.port", Arrays.asList("443", "8080"));
+		assertEquals(Arrays.asList("80", "443", "8080"), map.get("server.port"));
+		assertEquals("80", map.getFirst("server.port"));
+		assertEquals("8080", map.getLast("server.port"));
+
+		map.getEntry("server").remove("port", Arrays.asList("80", "8080"));
+		assertEquals(Collections.singletonList("443"), map.get("server.port"));
+		assertEquals("server.port", map.getEntry("server.port").getFullKey());
+	}
+
+	@Test
+	public void viewsReflectChanges() {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>();
+		Set<String> keySet = map.keySet();
+		map.put("server.host", "localhost");
+		map.put("server.ssl.enabled", "true");
+
+		assertEquals(new HashSet<>(Arrays.asList("server.host", "server.ssl.enabled")), new HashSet<>(keySet));
+		assertEquals(2, map.values().size());
+		assertTrue(map.containsValue("true"));
+		assertTrue(map.containsValue(Collections.singletonList("localhost")));
+
+		map.remove("server.host");
+		assertEquals(Collections.singleton("server.ssl.enabled"), new HashSet<>(keySet));
+		assertFalse(map.containsValue("localhost"));
+	}
+
+	@Test
+	public void sealedLookupsMatchTheTree() {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>();
+		map.put("server.host", "localhost");
+		map.put("server.ports", Arrays.asList("80", "443"));
+		map.put("client.host", "example.com");
+		map.seal();
+
+		assertTrue(map.isSealed());
+		assertEquals(Collections.singletonList("localhost"), map.get("server.host"));
+		assertEquals(Arrays.asList("80", "443"), map.get("server.ports"));
+		assertEquals("80", map.getFirst("server.ports"));
+		assertEquals("443", map.getLast("server.ports"));
+		assertEquals("443", map.getByIndex("server.ports[1]", 1));
+		assertNull(map.getByIndex("server.ports", 2));
+		assertEquals(Collections.emptyList(), map.get("server"));
+		assertTrue(map.containsKey("client"));
+		assertFalse(map.containsKey("server.missing"));
+		assertNull(map.get("missing.host"));
+
+		map.put("server.host", "127.0.0.1");
+		assertFalse(map.isSealed());
+		assertEquals("127.0.0.1", map.getLast("server.host"));
+	}
+
+	@Test
+	public void missingKeysAreRejectedByTheBloomFilter() {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>();
+		for (int i = 0; i < 10_000; i++) {
+			map.put("services.service-" + i + ".port", String.valueOf(i));
+		}
+		map.put("feature.newUi", "true");
+		assertTrue(map.mightContainKey("services.service-1.missing"));	// Not sealed, so it can't tell
+		map.seal();
+
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(map.mightContainKey("services.service-" + i + ".port"));
+		}
+		assertTrue(map.mightContainKey("services.service-5"));
+		assertTrue(map.mightContainKey("feature.new-ui"));
+		assertTrue(map.mightContainKey("feature.newUi"));
+		assertTrue(map.mightContainKey("services.service-5.port[0]"));
+		long falsePositives = IntStream.range(0, 10_000).filter(i -> map.mightContainKey("services.service-" + i + ".missing")).count();
+		assertTrue(falsePositives < 300, falsePositives + " false positives");
+		assertNull(map.get("services.service-5.missing"));
+		assertEquals("5", map.getLast("services.service-5.port"));
+	}
+
+	@Test
+	public void batchedLookupsMatchSingleLookups() {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>();
+		map.put("server.http.host", "localhost");
+		map.put("server.http.port", "80");
+		map.put("server.http", "enabled");
+		map.put("server.https.port", Arrays.asList("443", "8443"));
+		map.put("client.timeout", "10");
+		List<String> keys = Arrays.asList("server.https.port", "server.http.port", null, "server.missing.port", "server.http",
+				"client.timeout", "server.http.host", "missing", "server", "server.http.port");
+
+		for (boolean isSealed : new boolean[] { false, true }) {
+			if (isSealed) {
+				map.seal();
+			}
+			List<List<String>> values = map.getAll(keys);
+			assertEquals(keys.size(), values.size());
+			for (int i = 0; i < keys.size(); i++) {
+				assertEquals(keys.get(i) != null ? map.get(keys.get(i)) : null, values.get(i), keys.get(i));
+			}
+			assertEquals(Arrays.asList("443", "8443"), values.get(0));
+			assertNull(values.get(3));
+		}
+	}
+
+	@Test
+	public void snapshotsAreUnaffectedByChanges() {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>();
+		map.put("server.host", "localhost");
+		map.put("server.ports", Arrays.asList("80", "443"));
+		PathMapSnapshot<String> snapshot = map.snapshot();
+		assertTrue(map.isSealed());
+
+		map.put("server.host", "example.com");
+		map.remove("server.ports");
+		assertEquals("example.com", map.getLast("server.host"));
+		assertEquals(Collections.singletonList("localhost"), snapshot.get("server.host"));
+		assertEquals("443", snapshot.getByIndex("server.ports[1]", 1));
+		assertEquals("443", snapshot.getLast("server.ports"));
+		assertTrue(snapshot.containsKey("server"));
+		assertFalse(snapshot.containsKey("client"));
+		assertEquals(Arrays.asList(Arrays.asList("80", "443"), null), snapshot.getAll(Arrays.asList("server.ports", "server.missing")));
+		assertTrue(map.snapshot().getModificationStamp() > snapshot.getModificationStamp());
+	}
+
+	@Test
+	public void copiesAreIndependent() {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>();
+		map.put("server.host", "localhost");
+		map.put("server.ports", Arrays.asList("80", "443"));
+		map.seal();
+
+		LinkedPathMultiMap<String> copy = map.copy();
+		assertTrue(copy.isSealed());
+		assertEquals(map.getModificationStamp(), copy.getModificationStamp());
+		copy.put("server.ports", "8080");
+		copy.remove("server.host");
+		assertFalse(copy.isSealed());
+		assertEquals(Arrays.asList("80", "443", "8080"), copy.get("server.ports"));
+		assertEquals(1, copy.size());
+
+		assertTrue(map.isSealed());
+		assertEquals(Arrays.asList("80", "443"), map.get("server.ports"));
+		assertEquals("localhost", map.getEntry("server.host").getLastValue());
+		assertEquals(2, map.size());
+	}
+
+	private static List<String> scannedKeys(Spliterator<Map.Entry<String, List<String>>> spliterator) {
+		return StreamSupport.stream(spliterator, false).map(Map.Entry::getKey).collect(Collectors.toList());
+	}
+
+	@Test
+	public void scansAreInKeyOrder() {
+		for (boolean sortedKeys : new boolean[] { false, true }) {
+			LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>(true, true, sortedKeys);
+			Arrays.asList("tenants.c.host", "tenants.a", "tenants.a-b.host", "tenants.a.host", "other.key", "tenants.b.port", "tenants.a.ports")
+					.forEach(key -> map.put(key, "value"));
+
+			assertEquals(Arrays.asList("tenants.a", "tenants.a.host", "tenants.a.ports", "tenants.a-b.host", "tenants.b.port", "tenants.c.host"),
+					scannedKeys(map.scan("tenants")));
+			assertEquals(Arrays.asList("tenants.a", "tenants.a.host", "tenants.a.ports"), scannedKeys(map.scan("tenants.a")));
+			assertEquals(Arrays.asList("tenants.a.ports", "tenants.a-b.host", "tenants.b.port"), scannedKeys(map.scan("tenants.a.p", "tenants.c")));
+			assertEquals(Arrays.asList("other.key", "tenants.a"), scannedKeys(map.scan(null, "tenants.a.host")));
+			assertEquals(7, scannedKeys(map.scan(null)).size());
+			assertTrue(scannedKeys(map.scan("missing")).isEmpty());
+		}
+	}
+
+	@Test
+	public void parallelScansKeepTheOrder() {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>(true, true, true);
+		IntStream.range(0, 5000).forEach(i -> map.put(String.format("tenants.tenant-%04d.id", i), String.valueOf(i)));
+		map.put("tenants.tenant-0042.enabled", "true");
+
+		List<String> values = StreamSupport.stream(map.scan("tenants"), true)
+				.filter(entry -> entry.getKey().endsWith(".id"))
+				.map(entry -> entry.getValue().get(0))
+				.collect(Collectors.toList());
+		assertEquals(IntStream.range(0, 5000).mapToObj(String::valueOf).collect(Collectors.toList()), values);
+
+		Spliterator<Map.Entry<String, List<String>>> spliterator = map.scan("tenants");
+		assertEquals(5001, spliterator.estimateSize());
+		Spliterator<Map.Entry<String, List<String>>> prefix = spliterator.trySplit();
+		assertNotNull(prefix);
+		assertEquals(5001, prefix.estimateSize() + spliterator.estimateSize());
+	}
+
+	private static List<String> matchedKeys(Iterator<Map.Entry<String, List<String>>> matches) {
+		List<String> keys = new ArrayList<>();
+		matches.forEachRemaining(entry -> keys.add(entry.getKey() + "=" + String.join(",", entry.getValue())));
+		return keys;
+	}
+
+	@Test
+	public void queriesMatchWildcards() {
+		LinkedPathMultiMap<String> map = new LinkedPathMultiMap<>(true, true, true);
+		map.put("services.a.http.port", "80");
+		map.put("services.b.http.port", "8080");
+		map.put("services.b.https.port", "443");
+		map.put("pools.max-size", "1");
+		map.put("pools.db.primary.max-size", "2");
+		map.put("pools.db.max-idle", "3");
+		map.put("servers[0].host", "first");
+		map.put("servers[1].host", "second");
+		map.put("ports", Arrays.asList("80", "443"));
+
+		assertEquals(Arrays.asList("services.a.http.port=80", "services.b.http.port=8080"), matchedKeys(map.query("services.*.http.port")));
+		assertEquals(Arrays.asList("pools.max-size=1", "pools.db.primary.max-size=2"), matchedKeys(map.query("pools.**.max-size")));
+		assertEquals(Arrays.asList("pools.db.primary.max-size=2"), matchedKeys(map.query("**.db.**.max-size")));
+		assertEquals(Arrays.asList("servers[1].host=second"), matchedKeys(map.query("servers[1].host")));
+		assertEquals(Arrays.asList("ports[1]=443"), matchedKeys(map.query("ports[1]")));
+		assertEquals(Arrays.asList("ports[0]=80"), matchedKeys(map.query(PathQuery.compile("*[0]"))));
+		assertTrue(matchedKeys(map.query("services.*.ftp.port")).isEmpty());
+
+		assertThrows(IllegalArgumentException.class, () -> PathQuery.compile("services..port"));
+		assertThrows(IllegalArgumentException.class, () -> PathQuery.compile("services.serv*.port"));
+	}
+
+}
@@ -1,10 +1,15 @@
 package com.frejdh.util.environment.test.helper;
 
 import com.frejdh.util.environment.Config;
+import com.frejdh.util.environment.parser.JsonParser;
+import com.frejdh.util.environment.parser.PropertiesParser;
+import com.frejdh.util.environment.parser.YamlParser;
+import com.frejdh.util.environment.storage.map.SymbolTable;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -61,6 +66,24 @@ public class ParserTests extends AbstractTests {
 		}
 	}
 
+	@Test
+	public void yamlSiblingObjectsKeepTheirChildren() {
+		Map<String, List<String>> properties = YamlParser.getSingletonInstance().toMultiMap(
+				"services:\n  first:\n    port: 1\n  second:\n    port: 2\nother: 3", new SymbolTable());
+		assertEquals(Arrays.asList("1"), properties.get("services.first.port"));
+		assertEquals(Arrays.asList("2"), properties.get("services.second.port"));
+		assertEquals(Arrays.asList("3"), properties.get("other"));
+	}
+
+	@Test
+	public void jsonArraysAreListsAndJson5SyntaxIsAccepted() throws Exception {
+		Map<String, List<String>> properties = JsonParser.getSingletonInstance().toMultiMap(
+				"{\n  // Comment\n  ports: [1, 2],\n  'names': ['a', \"b\"],\n}", new SymbolTable());
+		assertEquals(Arrays.asList("1", "2"), properties.get("ports"));
+		assertEquals(Arrays.asList("a", "b"), properties.get("names"));
+		assertEquals(Arrays.asList("b"), properties.get("names[1]"));
+	}
+
 	@Test
 	public void yamlPropertiesPickedUp() throws Exception {
 		final String propertiesFilename = "application.yml";
@@ -73,4 +96,27 @@ public class ParserTests extends AbstractTests {
 		assertTrue(Config.getLoadedFiles().stream().anyMatch(file -> file.contains(propertiesFilename)));
 	}
 
+	@Test
+	public void parsersDoNotKeepPreviousContent() throws Exception {
+		PropertiesParser parser = PropertiesParser.getSingletonInstance();
+		parser.toMultiMap("first.key=1");
+		Map<String, List<String>> secondMap = parser.toMultiMap("second.key=2");
+
+		assertEquals(1, secondMap.size());
+		assertNull(secondMap.get("first.key"));
+	}
+
+	@Test
+	public void symbolsAreSharedBetweenParsers() throws Exception {
+		SymbolTable symbols = new SymbolTable();
+		Map<String, List<String>> propertiesMap = PropertiesParser.getSingletonInstance().toMultiMap("server.enabled=true", symbols);
+		Map<String, List<String>> yamlMap = YamlParser.getSingletonInstance().toMultiMap("client:\n  enabled: true", symbols);
+		Map<String, List<String>> jsonMap = JsonParser.getSingletonInstance().toMultiMap("{ \"proxy\": { \"enabled\": \"true\" } }", symbols);
+
+		String value = propertiesMap.get("server.enabled").get(0);
+		assertSame(value, yamlMap.get("client.enabled").get(0));
+		assertSame(value, jsonMap.get("proxy.enabled").get(0));
+		assertEquals(5, symbols.size()); // "server", "client", "proxy", "enabled" and "true"
+	}
+
 }
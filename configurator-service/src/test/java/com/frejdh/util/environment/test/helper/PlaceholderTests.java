@@ -0,0 +1,100 @@
+package com.frejdh.util.environment.test.helper;
+
+import com.frejdh.util.environment.Config;
+import com.frejdh.util.environment.ConfigContext;
+import com.frejdh.util.environment.placeholder.PlaceholderResolver;
+import com.frejdh.util.environment.storage.map.LinkedPathMultiMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PlaceholderTests extends AbstractTests {
+
+	private static final String FILE_PREFIX = "placeholder.file.";
+	private static final String RUNTIME_KEY = "placeholder.runtime.value";
+	private static final String RUNTIME_DEPENDENT_KEY = "placeholder.runtime.dependent";
+
+	@Test
+	public void placeholdersFromFilesAreResolved() {
+		assertEquals("Hello World!", Config.getString(FILE_PREFIX + "greeting"));
+	}
+
+	@Test
+	public void defaultValuesAreUsedForMissingKeys() {
+		assertEquals("fallback", Config.getString(FILE_PREFIX + "with-default"));
+		assertEquals("World", Config.getString(FILE_PREFIX + "nested-default"));
+	}
+
+	@Test
+	public void unresolvablePlaceholdersAreKept() {
+		assertEquals("${placeholder.file.missing}", Config.getString(FILE_PREFIX + "unresolvable"));
+	}
+
+	@Test
+	public void circularPlaceholdersAreKept() {
+		assertEquals("${placeholder.file.circular2}", Config.getString(FILE_PREFIX + "circular1"));
+		assertEquals("${placeholder.file.circular1}", Config.getString(FILE_PREFIX + "circular2"));
+	}
+
+	@Test
+	@TestProperty(key = "placeholder.set.url", value = "http://${placeholder.set.host}:${placeholder.set.port:8080}/")
+	@TestProperty(key = "placeholder.set.host", value = "localhost")
+	public void dependentsAreResolvedWhenReferencedKeyIsSet() {
+		assertEquals("http://localhost:8080/", Config.getString("placeholder.set.url"));
+	}
+
+	@Test
+	@TestProperty(key = "placeholder.set.host", value = "localhost")
+	@TestProperty(key = "placeholder.set.port", value = "${placeholder.set.default-port:80}")
+	@TestProperty(key = "placeholder.set.url", value = "http://${placeholder.set.host}:${placeholder.set.port}/")
+	public void transitivePlaceholdersAreResolved() {
+		assertEquals(80, Config.getInteger("placeholder.set.port"));
+		assertEquals("http://localhost:80/", Config.getString("placeholder.set.url"));
+	}
+
+	@Test
+	public void reloadingTheSameFileKeepsTheTemplateCount() {
+		LinkedPathMultiMap<String> properties = new LinkedPathMultiMap<>(true, true);
+		PlaceholderResolver resolver = new PlaceholderResolver(properties);
+		Map<String, List<String>> file = new LinkedHashMap<>();
+		file.put("service.host", Collections.singletonList("localhost"));
+		file.put("service.url", Collections.singletonList("http://${service.host}/"));
+		for (int i = 0; i < 10; i++) {	// Like the reloads of a watched file
+			properties.putAll(file);
+			resolver.update(file);
+		}
+		assertEquals(1, resolver.getTemplateCount());
+		assertEquals(1, resolver.getDependencyCount());
+		assertEquals(Collections.singletonList("http://localhost/"), properties.get("service.url"));
+
+		Map<String, List<String>> changedFile = Collections.singletonMap("service.url", Collections.singletonList("http://${service.ip:127.0.0.1}/"));
+		properties.putAll(changedFile);
+		resolver.update(changedFile);
+		assertEquals(1, resolver.getDependencyCount());	// The edge from 'service.host' is dropped
+		assertEquals(Collections.singletonList("http://127.0.0.1/"), properties.get("service.url"));
+	}
+
+	@Test
+	public void dependentsAreResolvedWhenFileChanges() {
+		InMemoryConfigFiles files = new InMemoryConfigFiles()
+				.write("runtime.properties", RUNTIME_KEY + "=1")
+				.write("dependent.properties", RUNTIME_DEPENDENT_KEY + "=value is ${" + RUNTIME_KEY + "}");
+		try (ConfigContext context = ConfigContext.builder()
+				.withFiles("runtime.properties", "dependent.properties")
+				.withFileSource(files::read)
+				.withRuntimeWatcher(false)
+				.build()) {
+			files.onChange(context::fileChanged);	// Reloads synchronously, like the runtime watcher
+			assertEquals("value is 1", context.getString(RUNTIME_DEPENDENT_KEY));
+
+			files.write("runtime.properties", RUNTIME_KEY + "=2");
+			assertEquals("value is 2", context.getString(RUNTIME_DEPENDENT_KEY));
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.frejdh.util.environment.test.helper;
+
+import com.frejdh.util.environment.ConfigContext;
+import com.frejdh.util.environment.PropertyOverlay;
+import com.frejdh.util.environment.metrics.DefaultConfigMetrics;
+import com.frejdh.util.environment.spring.ConfigPropertySource;
+import com.frejdh.util.environment.spring.SpringEnvironmentSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpringPropertySourceTests extends AbstractTests {
+
+	@Test
+	public void contextsReadTheSourcesOfTheEnvironment() {
+		StandardEnvironment environment = newEnvironment();
+		try (ConfigContext context = newContext(environment)) {
+			assertEquals(81, context.getInteger("server.port"));	// The override has precedence
+			assertEquals(Arrays.asList(80, 443), context.getList("server.ports", Integer.class));
+			assertEquals("localhost", context.getString("server.host"));
+		}
+	}
+
+	@Test
+	public void systemSourcesAreNotRead() {
+		StandardEnvironment environment = newEnvironment();
+		assertNotNull(environment.getProperty("java.version"));
+		assertEquals(new HashSet<>(Arrays.asList("server.port", "server.host", "server.ports")), new SpringEnvironmentSource(environment).get().keySet());
+		try (ConfigContext context = newContext(environment)) {
+			assertNull(context.getString("java.version"));
+		}
+	}
+
+	@Test
+	public void environmentLookupsAreNotCounted() {
+		StandardEnvironment environment = newEnvironment();
+		DefaultConfigMetrics metrics = new DefaultConfigMetrics();
+		try (ConfigContext context = ConfigContext.builder()
+				.withPropertySource("spring", new SpringEnvironmentSource(environment))
+				.withMetrics(metrics)
+				.withRuntimeWatcher(false)
+				.build()) {
+			ConfigPropertySource propertySource = ConfigPropertySource.addFirst(environment, context);
+			long lookupCount = metrics.getLookupCount();
+			assertEquals("81", environment.getProperty("server.port"));
+			assertNull(environment.getProperty("server.missing"));
+			assertEquals(4, propertySource.getPropertyNames().length);
+			assertEquals(lookupCount, metrics.getLookupCount());
+		}
+	}
+
+	@Test
+	public void environmentsReadTheLatestStateOfTheContext() {
+		StandardEnvironment environment = newEnvironment();
+		try (ConfigContext context = newContext(environment)) {
+			ConfigPropertySource propertySource = ConfigPropertySource.addFirst(environment, context);
+			assertEquals("81", environment.getProperty("server.port"));
+			assertEquals("443", environment.getProperty("server.ports[1]"));
+			List<String> names = Arrays.asList(propertySource.getPropertyNames());
+			assertTrue(names.contains("server.port"));
+			assertTrue(names.contains("server.ports[0]") && names.contains("server.ports[1]"));
+			assertFalse(names.contains("server.ports"));
+
+			try (PropertyOverlay ignored = context.pushOverlay(Collections.singletonMap("server.port", Collections.singletonList("82")))) {
+				assertEquals("82", environment.getProperty("server.port"));
+				assertEquals(82, context.getInteger("server.port"));
+			}
+			assertEquals("81", environment.getProperty("server.port"));
+
+			context.refresh(true);	// Doesn't read its own property source back from the environment
+			assertEquals(Arrays.asList(80, 443), context.getList("server.ports", Integer.class));
+			assertNull(environment.getProperty("server.missing"));
+		}
+	}
+
+	private static StandardEnvironment newEnvironment() {
+		Map<String, Object> application = new HashMap<>();
+		application.put("server.port", 80);
+		application.put("server.host", "localhost");
+		application.put("server.ports[0]", 80);
+		application.put("server.ports[1]", 443);
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addLast(new MapPropertySource("application", application));
+		environment.getPropertySources().addFirst(new MapPropertySource("override", Collections.singletonMap("server.port", "81")));
+		return environment;
+	}
+
+	private static ConfigContext newContext(StandardEnvironment environment) {
+		return ConfigContext.builder()
+				.withPropertySource("spring", new SpringEnvironmentSource(environment))
+				.withRuntimeWatcher(false)
+				.build();
+	}
+
+}
@@ -28,7 +28,7 @@ public class ToMapTests extends AbstractTests {
 		Map<String, List<Object>> mapFromConfig = Config.getMultiMap(MAP_PROPERTY);
 
 		assertNotNull(mapFromConfig);
-		assertEquals(3, mapFromConfig.size());
+		assertEquals(2, mapFromConfig.size()); // "property" and "property.nested1.nested2"
 
 		assertEquals(1, mapFromConfig.get(SIMPLE_PROPERTY).size());
 		assertEquals("val1", mapFromConfig.get(SIMPLE_PROPERTY).get(0));
@@ -1,14 +1,138 @@
 package com.frejdh.util.environment.test.helper;
 
-import lombok.Data;
+import com.frejdh.util.environment.Config;
+import com.frejdh.util.environment.ConfigContext;
+import org.junit.jupiter.api.Test;
 
+import java.beans.ConstructorProperties;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class ToObjectTests extends AbstractTests {
 
-	// TODO: Add tests
+	private static final String OBJECT_PROPERTY = "to-object.server";
+
+	public static class Server {
+		public String host;
+		public int port;
+		public TimeUnit timeoutUnit;
+		public List<String> aliases;
+		public long[] ports;
+		public Map<String, Integer> limits;
+		public Credentials credentials;
+		public List<Server> replicas;
+	}
+
+	public static class Credentials {
+		private final String username;
+		private final String password;
+
+		@ConstructorProperties({ "username", "password" })
+		public Credentials(String username, String password) {
+			this.username = username;
+			this.password = password;
+		}
+	}
+
+	@Test
+	@TestProperty(key = OBJECT_PROPERTY + ".host", value = "localhost")
+	@TestProperty(key = OBJECT_PROPERTY + ".port", value = "8080")
+	@TestProperty(key = OBJECT_PROPERTY + ".timeout-unit", value = "seconds")
+	@TestProperty(key = OBJECT_PROPERTY + ".aliases", value = "alias1")
+	@TestProperty(key = OBJECT_PROPERTY + ".aliases", value = "alias2")
+	@TestProperty(key = OBJECT_PROPERTY + ".ports", value = "80")
+	@TestProperty(key = OBJECT_PROPERTY + ".ports", value = "443")
+	@TestProperty(key = OBJECT_PROPERTY + ".limits.connections", value = "10")
+	@TestProperty(key = OBJECT_PROPERTY + ".limits.requests", value = "100")
+	public void fieldsAreBound() {
+		Server server = Config.getObject(OBJECT_PROPERTY, Server.class);
+
+		assertNotNull(server);
+		assertEquals("localhost", server.host);
+		assertEquals(8080, server.port);
+		assertEquals(TimeUnit.SECONDS, server.timeoutUnit);
+		assertEquals(Arrays.asList("alias1", "alias2"), server.aliases);
+		assertArrayEquals(new long[] { 80, 443 }, server.ports);
+		assertEquals(10, server.limits.get("connections"));
+		assertEquals(100, server.limits.get("requests"));
+		assertNull(server.credentials);
+	}
+
+	@Test
+	@TestProperty(key = OBJECT_PROPERTY + ".credentials.username", value = "user")
+	@TestProperty(key = OBJECT_PROPERTY + ".credentials.password", value = "secret")
+	public void constructorPropertiesAreBound() {
+		Server server = Config.getObject(OBJECT_PROPERTY, Server.class);
+
+		assertNotNull(server.credentials);
+		assertEquals("user", server.credentials.username);
+		assertEquals("secret", server.credentials.password);
+	}
+
+	@Test
+	@TestProperty(key = OBJECT_PROPERTY + ".replicas[0].host", value = "replica0")
+	@TestProperty(key = OBJECT_PROPERTY + ".replicas[1].host", value = "replica1")
+	@TestProperty(key = OBJECT_PROPERTY + ".replicas[1].port", value = "8081")
+	public void indexedObjectsAreBound() {
+		Server server = Config.getObject(OBJECT_PROPERTY, Server.class);
+
+		assertEquals(2, server.replicas.size());
+		assertEquals("replica0", server.replicas.get(0).host);
+		assertEquals(0, server.replicas.get(0).port);
+		assertEquals("replica1", server.replicas.get(1).host);
+		assertEquals(8081, server.replicas.get(1).port);
+	}
+
+	@Test
+	public void cachedObjectIsReplacedWhenChanged() {
+		String runtimeKey = OBJECT_PROPERTY + ".runtime";
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("runtime.properties", runtimeKey + ".host=first");
+		try (ConfigContext context = ConfigContext.builder().withFiles("runtime.properties").withFileSource(files::read).withRuntimeWatcher(false).build()) {
+			files.onChange(context::fileChanged);	// Reloads synchronously, like the runtime watcher
+			Server server = context.getObject(runtimeKey, Server.class);
+			assertEquals("first", server.host);
+			assertSame(server, context.getObject(runtimeKey, Server.class));
+
+			files.write("runtime.properties", runtimeKey + ".host=second");
+			Server changedServer = context.getObject(runtimeKey, Server.class);
+			assertNotSame(server, changedServer);
+			assertEquals("second", changedServer.host);
+		}
+	}
+
+	@Test
+	public void cachedObjectIsKeptWhenOtherKeysChange() {
+		String runtimeKey = OBJECT_PROPERTY + ".runtime";
+		InMemoryConfigFiles files = new InMemoryConfigFiles().write("runtime.properties", runtimeKey + ".host=first");
+		try (ConfigContext context = ConfigContext.builder().withFiles("runtime.properties").withFileSource(files::read).withRuntimeWatcher(false).build()) {
+			Server server = context.getObject(runtimeKey, Server.class);
+			Map<String, String> map = context.getSimpleMap(runtimeKey, String.class);
+
+			context.pushOverlay(Collections.singletonMap("unrelated.key", Collections.singletonList("value")));	// A new state, with the cache carried over
+			assertSame(server, context.getObject(runtimeKey, Server.class));
+			assertEquals(map, context.getSimpleMap(runtimeKey, String.class));	// Views aren't kept, but are cheap to create again
 
+			context.pushOverlay(Collections.singletonMap(runtimeKey + ".host", Collections.singletonList("second")));
+			assertEquals("second", context.getObject(runtimeKey, Server.class).host);
+			assertEquals("first", server.host);
+			assertEquals("first", map.get("host"));	// A view of an earlier state, which isn't changed
+			assertEquals("second", context.getSimpleMap(runtimeKey, String.class).get("host"));
+		}
+	}
 
+	@Test
+	public void missingObjectIsNull() {
+		assertNull(Config.getObject(OBJECT_PROPERTY + ".missing", Server.class));
+	}
 
 }
@@ -0,0 +1,27 @@
+package com.frejdh.util.environment.test.helper.util;
+
+import com.frejdh.util.environment.annotation.ConfigInterface;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@ConfigInterface(ExampleConfigInterface.PREFIX)
+public interface ExampleConfigInterface {
+	String PREFIX = "config-interface";
+
+	int maxPoolSize();
+
+	Duration timeout();
+
+	List<String> hosts();
+
+	Map<String, Integer> limits();
+
+	String description();
+
+	default String name() {
+		return "default name";
+	}
+
+}
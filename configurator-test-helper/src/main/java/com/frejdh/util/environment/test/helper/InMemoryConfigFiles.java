@@ -0,0 +1,82 @@
+package com.frejdh.util.environment.test.helper;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Configuration files kept in memory, instead of on disk like with {@link TestFileHelper}.
+ * Nothing is shared between instances, so tests using their own instance can run in parallel.
+ * <br><br>
+ * Usage with a 'com.frejdh.util.environment.ConfigContext':
+ * <pre>
+ * InMemoryConfigFiles files = new InMemoryConfigFiles().write("application.properties", "my.key=1");
+ * ConfigContext context = ConfigContext.builder().withFiles("application.properties").withFileSource(files::read).build();
+ * files.onChange(context::fileChanged);
+ * files.write("application.properties", "my.key=2"); // Reloaded before this returns
+ * </pre>
+ */
+public class InMemoryConfigFiles {
+	private final Map<String, String> files = new ConcurrentHashMap<>();
+	private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Create or overwrite a file, and notify the change listeners synchronously.
+	 * @param filename Name of the file, as it is given to the configuration
+	 * @param content The content of the file
+	 * @return This instance
+	 */
+	public InMemoryConfigFiles write(@NotNull String filename, @NotNull String content) {
+		files.put(filename, content);
+		changeListeners.forEach(listener -> listener.accept(filename));
+		return this;
+	}
+
+	/**
+	 * Remove a file. The change listeners are not notified, just like the watcher ignores removed files.
+	 * @return This instance
+	 */
+	public InMemoryConfigFiles delete(@NotNull String filename) {
+		files.remove(filename);
+		return this;
+	}
+
+	/**
+	 * @return The content of the file, or null if it doesn't exist
+	 */
+	public String read(@NotNull String filename) {
+		return files.get(filename);
+	}
+
+	public boolean exists(@NotNull String filename) {
+		return files.containsKey(filename);
+	}
+
+	public Set<String> getFilenames() {
+		return Collections.unmodifiableSet(files.keySet());
+	}
+
+	/**
+	 * @param listener Called with the filename after each {@link #write(String, String)}
+	 * @return This instance
+	 */
+	public InMemoryConfigFiles onChange(@NotNull Consumer<String> listener) {
+		changeListeners.add(listener);
+		return this;
+	}
+
+	/**
+	 * Remove all files and change listeners.
+	 */
+	public void clear() {
+		files.clear();
+		changeListeners.clear();
+	}
+
+}
@@ -1,10 +1,10 @@
 package com.frejdh.util.environment.test.helper;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -111,18 +111,7 @@ public class TestFileHelper {
 		String fullpath = CLASSPATH + filename;
 		File file = new File(fullpath);
 		if (file.exists()) {
-			StringBuilder text = new StringBuilder();
-			int read, bufferSize = 1024 * 1024;
-			char[] buffer = new char[bufferSize];
-
-			FileReader fr = new FileReader(file);
-			BufferedReader br = new BufferedReader(fr);
-			do {
-				read = br.read(buffer, 0, bufferSize);
-				text.append(new String(buffer, 0, read));
-			} while (read >= bufferSize);
-
-			return text.toString();
+			return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
 		}
 		return null;
 	}
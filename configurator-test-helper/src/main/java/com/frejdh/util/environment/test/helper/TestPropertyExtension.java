@@ -1,162 +1,146 @@
 package com.frejdh.util.environment.test.helper;
 
-import lombok.SneakyThrows;
 import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.api.extension.InvocationInterceptor;
 import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
 
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
 
-public class TestPropertyExtension implements InvocationInterceptor {
-
-	private final Map<String, String> originalProperties = new HashMap<>();
-	private static final List<TestProperty> CLASS_ANNOTATIONS = new ArrayList<>();
-	private final List<TestProperty> testMethodAnnotations = new ArrayList<>();
+/**
+ * Applies {@link TestProperty} annotations of the test class (and its parents) and the test method, and restores them after the test.
+ * The class annotations are applied once before the '@BeforeEach' methods, and the method annotations around the test method.
+ * Both are restored when the test method returns, before the '@AfterEach' methods.
+ * The properties are set as system properties, and as an overlay on 'com.frejdh.util.environment.Config' if it exists.
+ * The overlay replaces the values directly, so no configuration files are re-read between the tests.
+ * <br><br>
+ * All state is kept per test in the {@link ExtensionContext}, so tests can run in parallel as long as they don't set the same keys.
+ */
+public class TestPropertyExtension implements BeforeEachCallback, InvocationInterceptor, AfterEachCallback {
+
+	private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(TestPropertyExtension.class);
+	private static final String APPLIED_PROPERTIES = "appliedProperties";
+	private static final String CONFIG_CLASS = "com.frejdh.util.environment.Config";
 	private static final AtomicBoolean HAS_CONFIG_CLASS = new AtomicBoolean(true);
-
-	public TestPropertyExtension() {
-		originalProperties.putAll(System.getProperties().entrySet().stream().collect(
-				Collectors.toMap(
-						entry -> entry.getKey().toString(),
-						entry -> entry.getValue().toString()
-				)));
-	}
-
-	@SneakyThrows
-	protected void setPropertiesByAnnotations() {
-		getClassAndMethodAnnotations().forEach(annotation -> {
-			System.setProperty(annotation.key(), annotation.value());
-
-			if (HAS_CONFIG_CLASS.get()) {	// If 'com.frejdh.util.environment.Config' exists (optional), also update the Config class while at it
-				setConfigProperty(annotation.key(), annotation.value());
-			}
-		});
+	private static final Object SYSTEM_PROPERTIES_LOCK = new Object();
+
+	/**
+	 * The properties applied by one interception, and how to restore them.
+	 */
+	private static final class AppliedProperties {
+		private final Map<String, String> originalSystemProperties = new LinkedHashMap<>();
+		private AutoCloseable configOverlay;
 	}
 
 	@Override
-	public <T> T interceptTestClassConstructor(Invocation<T> invocation, ReflectiveInvocationContext<Constructor<T>> invocationContext, ExtensionContext extensionContext) throws Throwable {
-		CLASS_ANNOTATIONS.clear();
-		Class<?> objectClass = invocationContext.getExecutable().getDeclaringClass();
-
-		do {
-			addClassDefinedAnnotations(objectClass);
-			objectClass = objectClass.getSuperclass();
-		} while (objectClass != null);
-
-		return invocation.proceed();
-	}
-
-	@Override
-	public void interceptBeforeAllMethod(Invocation<Void> invocation, ReflectiveInvocationContext<Method> invocationContext, ExtensionContext extensionContext) throws Throwable {
-		Class<?> objectClass = invocationContext.getExecutable().getDeclaringClass();
-
-		do {
-			addClassDefinedAnnotations(objectClass);
-			objectClass = objectClass.getSuperclass();
-		} while (objectClass != null);
-
-		invocation.proceed();
-	}
-
-	@Override
-	public void interceptBeforeEachMethod(Invocation<Void> invocation, ReflectiveInvocationContext<Method> invocationContext, ExtensionContext extensionContext) throws Throwable {
-		setPropertiesByAnnotations();
-		invocation.proceed();
+	public void beforeEach(ExtensionContext extensionContext) {
+		applyProperties(getClassAnnotations(extensionContext.getRequiredTestClass()), extensionContext);
 	}
 
 	@Override
 	public void interceptTestMethod(Invocation<Void> invocation, ReflectiveInvocationContext<Method> invocationContext, ExtensionContext extensionContext) throws Throwable {
-		addTestSpecificAnnotations(invocationContext);
-
 		try {
-			setPropertiesByAnnotations();
+			applyProperties(getMethodAnnotations(invocationContext.getExecutable()), extensionContext);
 			invocation.proceed();
 		} finally {
-			getClassAndMethodAnnotations().forEach(annotation -> {
-				String originalValue = originalProperties.get(annotation.key());
-				if (originalValue != null) {
-					System.setProperty(annotation.key(), originalValue);
-				}
-				else {
-					System.clearProperty(annotation.key());
-				}
-
-				if (HAS_CONFIG_CLASS.get()) {	// If 'com.frejdh.util.environment.Config' exists (optional)
-					setConfigProperty(annotation.key(), originalValue);
-					refreshConfig();
-				}
-			});
-
-			testMethodAnnotations.clear();
+			restoreProperties(extensionContext);	// Together with the class annotations
 		}
+	}
 
+	/**
+	 * Restores the class annotations if the test method wasn't invoked, e.g. when a '@BeforeEach' method failed.
+	 */
+	@Override
+	public void afterEach(ExtensionContext extensionContext) throws Exception {
+		restoreProperties(extensionContext);
 	}
 
-	private void addClassDefinedAnnotations(@NotNull Class<?> objectClass) {
-		if (objectClass.isAnnotationPresent(TestProperty.class)) {	// Class properties (single annotation)
-			CLASS_ANNOTATIONS.addAll(0, Arrays.stream(objectClass.getAnnotationsByType(TestProperty.class))
-					.collect(Collectors.toList()));
+	private void applyProperties(List<TestProperty> annotations, ExtensionContext extensionContext) {
+		Map<String, List<String>> properties = new LinkedHashMap<>();	// Annotations with the same key are the values of a list
+		annotations.forEach(annotation -> properties.computeIfAbsent(annotation.key(), key -> new ArrayList<>()).add(annotation.value()));
+		if (properties.isEmpty()) {
+			return;
+		}
+
+		AppliedProperties appliedProperties = new AppliedProperties();
+		synchronized (SYSTEM_PROPERTIES_LOCK) {
+			properties.forEach((key, values) -> {
+				appliedProperties.originalSystemProperties.putIfAbsent(key, System.getProperty(key));
+				System.setProperty(key, values.get(values.size() - 1));
+			});
 		}
-		else if (objectClass.isAnnotationPresent(TestProperties.class)) {	// Class properties (multiple annotations)
-			CLASS_ANNOTATIONS.addAll(0, Arrays.stream(objectClass.getAnnotationsByType(TestProperties.class))
-					.flatMap(v -> Arrays.stream(v.value()))
-					.collect(Collectors.toList()));
+		if (HAS_CONFIG_CLASS.get()) {	// If 'com.frejdh.util.environment.Config' exists (optional), also update the Config class while at it
+			appliedProperties.configOverlay = pushConfigOverlay(properties);
 		}
+		getAppliedProperties(extensionContext).push(appliedProperties);
 	}
 
-	private void addTestSpecificAnnotations(@NotNull ReflectiveInvocationContext<Method> invocationContext) {
-		testMethodAnnotations.addAll(Arrays.stream(invocationContext.getExecutable().getAnnotations())
-				.filter(annotation -> annotation.annotationType().isAssignableFrom(TestProperty.class))
-				.map(annotation -> (TestProperty) annotation)
-				.collect(Collectors.toList()));
+	/**
+	 * Restore everything that has been applied for the test, latest first.
+	 */
+	private void restoreProperties(ExtensionContext extensionContext) throws Exception {
+		Deque<AppliedProperties> appliedPropertiesStack = getAppliedProperties(extensionContext);
+		while (!appliedPropertiesStack.isEmpty()) {
+			AppliedProperties appliedProperties = appliedPropertiesStack.pop();
+			synchronized (SYSTEM_PROPERTIES_LOCK) {
+				appliedProperties.originalSystemProperties.forEach((key, originalValue) -> {
+					if (originalValue != null) {
+						System.setProperty(key, originalValue);
+					}
+					else {
+						System.clearProperty(key);
+					}
+				});
+			}
+			if (appliedProperties.configOverlay != null) {
+				appliedProperties.configOverlay.close();
+			}
+		}
+	}
 
-		testMethodAnnotations.addAll(Arrays.stream(invocationContext.getExecutable().getAnnotations())
-				.filter(annotation -> annotation.annotationType().isAssignableFrom(TestProperties.class))
-				.flatMap(testAnnotations -> Arrays.stream(((TestProperties) testAnnotations).value()))
-				.collect(Collectors.toList()));
+	@SuppressWarnings("unchecked")
+	private Deque<AppliedProperties> getAppliedProperties(ExtensionContext extensionContext) {
+		return extensionContext.getStore(NAMESPACE).getOrComputeIfAbsent(APPLIED_PROPERTIES, key -> new ArrayDeque<AppliedProperties>(), Deque.class);
 	}
 
-	private void setConfigProperty(String key, String value) {
-		try {
-			Class<?> configClass = Class.forName("com.frejdh.util.environment.Config");
-			Method method = configClass.getDeclaredMethod("set", String.class, Object.class);
-			method.setAccessible(true);
-			method.invoke(null, key, value);
-			method.setAccessible(false);
-		} catch (ClassNotFoundException | NoSuchMethodException ignored) {
-			HAS_CONFIG_CLASS.set(false);
-		} catch (Exception e) {
-			e.printStackTrace();
-			HAS_CONFIG_CLASS.set(false);
+	/**
+	 * @return The annotations of the class and its parents, with the parents' annotations first.
+	 * Both single annotations and {@link TestProperties} are found, since {@link TestProperty} is repeatable.
+	 */
+	private List<TestProperty> getClassAnnotations(@NotNull Class<?> testClass) {
+		List<TestProperty> annotations = new ArrayList<>();
+		for (Class<?> objectClass = testClass; objectClass != null; objectClass = objectClass.getSuperclass()) {
+			annotations.addAll(0, Arrays.asList(objectClass.getDeclaredAnnotationsByType(TestProperty.class)));
 		}
+		return annotations;
 	}
 
-	private void refreshConfig() {
+	private List<TestProperty> getMethodAnnotations(@NotNull Method method) {
+		return Arrays.asList(method.getAnnotationsByType(TestProperty.class));
+	}
+
+	private AutoCloseable pushConfigOverlay(Map<String, List<String>> properties) {
 		try {
-			Class<?> configClass = Class.forName("com.frejdh.util.environment.Config");
-			Method method = configClass.getDeclaredMethod("refresh", boolean.class);
-			method.invoke(null, true);
+			Class<?> configClass = Class.forName(CONFIG_CLASS);
+			Method method = configClass.getMethod("pushOverlay", Map.class);
+			return (AutoCloseable) method.invoke(null, properties);
 		} catch (ClassNotFoundException | NoSuchMethodException ignored) {
 			HAS_CONFIG_CLASS.set(false);
 		} catch (Exception e) {
 			e.printStackTrace();
 			HAS_CONFIG_CLASS.set(false);
 		}
-	}
-
-	private List<TestProperty> getClassAndMethodAnnotations() {
-		List<TestProperty> classAndMethodAnnotations = new ArrayList<>(CLASS_ANNOTATIONS);
-		classAndMethodAnnotations.addAll(this.testMethodAnnotations);
-		return classAndMethodAnnotations;
+		return null;
 	}
 
 }